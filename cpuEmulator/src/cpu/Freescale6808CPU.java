@@ -37,6 +37,11 @@ public class Freescale6808CPU {
 	private final static byte halfMask = (byte)0x10;
 	private final static byte overflowMask = (byte)0x80;
 	
+	private long cycleCount;
+	private final static byte[] cycleTable = buildCycleTable();
+	
+	public final static short RESET_STACK_POINTER = (short)0x00ff;
+	
 	
 	
 	/*
@@ -58,11 +63,75 @@ public class Freescale6808CPU {
 	public Freescale6808CPU() {
 		accumulator = 0;
 		programCounter = 0;
-		stackPointer = 0;
+		stackPointer = RESET_STACK_POINTER;
 		indexRegister = 0;
 		indexRegisterHigh = 0;
 		indexRegisterLow = 0;
 		conditionCodeRegister = 0;
+		cycleCount = 0;
+	}
+
+	
+	
+	/*
+	 * Method Name:		buildCycleTable
+	 * Description:		Builds the table of bus cycles each opcode takes, from the CPU08 reference manual.
+	 * 					The ALU and load/store opcodes share a low nibble across addressing modes and take
+	 * 					2 cycles immediate, 3 direct, 4 extended, 4 16-bit indexed, 3 8-bit indexed and
+	 * 					2 indexed; the relative branches take 3 whether or not they branch and RTI takes 7
+	 * Parameters:		None
+	 * Return:			The table, indexed by unsigned opcode, 0 for opcodes without a cost
+	 */	
+	private static byte[] buildCycleTable() {
+		byte[] table = new byte[256];
+		byte[] modeCycles = { 2, 3, 4, 4, 3, 2 };
+		
+		// SUB, CMP, SBC, CPX, AND, BIT, LDA, STA, EOR, ADC, ORA and ADD in modes 0xA0 to 0xF0
+		for (int mode = 0; mode < modeCycles.length; mode++) {
+			for (int operation = 0x0; operation <= 0xb; operation++) {
+				table[0xa0 + (mode << 4) + operation] = modeCycles[mode];
+			}
+		}
+		
+		// BRA through BIH
+		for (int opcode = 0x20; opcode <= 0x2f; opcode++) {
+			table[opcode] = 3;
+		}
+		
+		// RTI
+		table[0x80] = 7;
+		
+		return table;
+	}
+
+	
+	
+	/*
+	 * Method Name:		getOpcodeCycles
+	 * Description:		Gets the number of bus cycles an opcode takes
+	 * Parameters:		byte opcode: The opcode
+	 * Return:			The cycles as an int, 0 for an opcode without a cost
+	 */	
+	public static int getOpcodeCycles(byte opcode) {
+		return cycleTable[opcode & 0xff];
+	}
+
+	
+	
+	/*
+	 * Method Name:		reset
+	 * Description:		Clears every register back to its power on value of zero, except the stack pointer,
+	 * 					which starts at the top of page zero RAM as on the HC08
+	 * Parameters:		None
+	 * Return:			None
+	 */	
+	public void reset() {
+		setA((byte)0);
+		setPC((short)0);
+		setSP(RESET_STACK_POINTER);
+		setHX((short)0);
+		setCCR((byte)0);
+		setCycleCount(0);
 	}
 
 	
@@ -301,4 +370,40 @@ public class Freescale6808CPU {
 		
 		return mask;
 	}
+	
+	
+	
+	/*
+	 * Method Name:		getCycleCount
+	 * Description:		Gets the number of bus cycles executed since the last reset
+	 * Parameters:		None
+	 * Return:			The cycle count as a long
+	 */	
+	public long getCycleCount() {
+		return cycleCount;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		setCycleCount
+	 * Description:		Sets the cycle count, used when restoring saved state
+	 * Parameters:		long cycleCount: The new cycle count
+	 * Return:			None
+	 */	
+	public void setCycleCount(long cycleCount) {
+		this.cycleCount = cycleCount;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		addCycles
+	 * Description:		Adds the cycles taken by an executed instruction to the cycle count
+	 * Parameters:		long cycles: The number of cycles
+	 * Return:			None
+	 */	
+	public void addCycles(long cycles) {
+		cycleCount += cycles;
+	}
 }
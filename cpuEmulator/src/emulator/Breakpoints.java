@@ -0,0 +1,433 @@
+/*
+ * Filename:		Breakpoints.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the Breakpoints class
+ */
+
+
+
+package emulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+
+/*
+ * Class Name:		Breakpoints
+ * Description:		The breakpoints and watchpoints that stop Freescale6808Emulator.run().  Attach them with
+ * 					setBreakpoints; while none are attached run() uses the same loop as without them.
+ *
+ * 					PC breakpoints are kept in a 64K-bit bitset, so run() tests the next PC with one shift
+ * 					and mask.  Watchpoints are kept per address, and summarised per 256 byte page; the
+ * 					emulator tests the page flags on each access and only looks at the address when the
+ * 					page holds a watchpoint, so memory outside watched pages costs one byte load.
+ *
+ * 					run() stops before executing an instruction at a breakpoint, other than the first one
+ * 					it executes, so running again continues past it.  It stops after an instruction that
+ * 					reads or writes a watched address.  A breakpoint's hit count goes up each time run()
+ * 					stops at it, a watchpoint's each time its address is accessed.
+ *
+ * 					A breakpoint may have a condition, such as a CompiledExpression, which is only tested
+ * 					when the PC reaches it; run() carries on when the condition does not hold.
+ */
+public class Breakpoints {
+
+	public enum KIND {
+		EXECUTE, READ, WRITE
+	}
+
+	final static int PAGE_SHIFT = 8;
+	final static byte READ_WATCHED = 0x01;
+	final static byte WRITE_WATCHED = 0x02;
+
+	private final long[] executeBits;
+	private final byte[] watched;
+	private final byte[] watchedPages;
+	private final List<TreeMap<Integer, Long>> hitCounts;
+	private StopCondition[] conditions;
+	private boolean isHit;
+	private KIND hitKind;
+	private int hitAddress;
+
+
+
+	/*
+	 * Method Name:		Breakpoints
+	 * Description:		Constructor, no breakpoints are set
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public Breakpoints() {
+		executeBits = new long[Freescale6808Emulator.MAX_ADDRESS_SPACE / 64];
+		watched = new byte[Freescale6808Emulator.MAX_ADDRESS_SPACE];
+		watchedPages = new byte[Freescale6808Emulator.MAX_ADDRESS_SPACE >> PAGE_SHIFT];
+		hitCounts = new ArrayList<TreeMap<Integer, Long>>();
+
+		for (int i = 0; i < KIND.values().length; i++) {
+			hitCounts.add(new TreeMap<Integer, Long>());
+		}
+
+		conditions = null;
+		isHit = false;
+	}
+
+
+
+	/*
+	 * Method Name:		setBreakpoint
+	 * Description:		Sets a breakpoint on the instruction at an address
+	 * Parameters:		int address: The address
+	 * Return:			None
+	 */
+	public void setBreakpoint(int address) {
+		setBreakpoint(address, null);
+	}
+
+
+
+	/*
+	 * Method Name:		setBreakpoint
+	 * Description:		Sets a breakpoint on the instruction at an address that only stops execution when a
+	 * 					condition holds, replacing the condition of any breakpoint already there
+	 * Parameters:		int address: The address
+	 * 					StopCondition condition: The condition, or null to always stop
+	 * Return:			None
+	 */
+	public void setBreakpoint(int address, StopCondition condition) {
+		address &= 0xffff;
+		executeBits[address >>> 6] |= 1L << address;
+
+		// conditions are rare, so the table is only made for the first one
+		if (condition != null && conditions == null) {
+			conditions = new StopCondition[Freescale6808Emulator.MAX_ADDRESS_SPACE];
+		}
+
+		if (conditions != null) {
+			conditions[address] = condition;
+		}
+
+		if (!hitCounts.get(KIND.EXECUTE.ordinal()).containsKey(address)) {
+			hitCounts.get(KIND.EXECUTE.ordinal()).put(address, 0L);
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		removeBreakpoint
+	 * Description:		Removes the breakpoint at an address
+	 * Parameters:		int address: The address
+	 * Return:			True if there was a breakpoint there
+	 */
+	public boolean removeBreakpoint(int address) {
+		address &= 0xffff;
+		executeBits[address >>> 6] &= ~(1L << address);
+
+		if (conditions != null) {
+			conditions[address] = null;
+		}
+
+		return hitCounts.get(KIND.EXECUTE.ordinal()).remove(address) != null;
+	}
+
+
+
+	/*
+	 * Method Name:		setWatchpoint
+	 * Description:		Watches an address for reads, writes or both, replacing any watchpoint already there
+	 * Parameters:		int address: The address
+	 * 					boolean onRead: Whether reading the address stops execution
+	 * 					boolean onWrite: Whether writing the address stops execution
+	 * Return:			None
+	 */
+	public void setWatchpoint(int address, boolean onRead, boolean onWrite) {
+		address &= 0xffff;
+		watched[address] = (byte)((onRead ? READ_WATCHED : 0) | (onWrite ? WRITE_WATCHED : 0));
+		updateHitCount(KIND.READ, address, onRead);
+		updateHitCount(KIND.WRITE, address, onWrite);
+		updatePage(address >>> PAGE_SHIFT);
+	}
+
+
+
+	/*
+	 * Method Name:		removeWatchpoint
+	 * Description:		Stops watching an address
+	 * Parameters:		int address: The address
+	 * Return:			True if the address was watched
+	 */
+	public boolean removeWatchpoint(int address) {
+		boolean wasWatched = watched[address & 0xffff] != 0;
+		setWatchpoint(address, false, false);
+		return wasWatched;
+	}
+
+
+
+	/*
+	 * Method Name:		updateHitCount
+	 * Description:		Adds or removes the hit count of a watchpoint, keeping the count of one that stays set
+	 * Parameters:		KIND kind: READ or WRITE
+	 * 					int address: The address
+	 * 					boolean isSet: Whether the watchpoint is now set
+	 * Return:			None
+	 */
+	private void updateHitCount(KIND kind, int address, boolean isSet) {
+		TreeMap<Integer, Long> counts = hitCounts.get(kind.ordinal());
+
+		if (!isSet) {
+			counts.remove(address);
+		}
+		else if (!counts.containsKey(address)) {
+			counts.put(address, 0L);
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		updatePage
+	 * Description:		Recomputes the flags of a page from the watchpoints in it
+	 * Parameters:		int page: The page number
+	 * Return:			None
+	 */
+	private void updatePage(int page) {
+		byte flags = 0;
+		int start = page << PAGE_SHIFT;
+
+		for (int address = start; address < start + (1 << PAGE_SHIFT); address++) {
+			flags |= watched[address];
+		}
+
+		watchedPages[page] = flags;
+	}
+
+
+
+	/*
+	 * Method Name:		clear
+	 * Description:		Removes every breakpoint and watchpoint, and forgets the last hit
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public void clear() {
+		for (int i = 0; i < executeBits.length; i++) {
+			executeBits[i] = 0;
+		}
+
+		for (int i = 0; i < watched.length; i++) {
+			watched[i] = 0;
+		}
+
+		for (int i = 0; i < watchedPages.length; i++) {
+			watchedPages[i] = 0;
+		}
+
+		for (TreeMap<Integer, Long> counts : hitCounts) {
+			counts.clear();
+		}
+
+		conditions = null;
+		clearHit();
+	}
+
+
+
+	/*
+	 * Method Name:		isEmpty
+	 * Description:		Determines whether nothing is set, in which case run() takes its unchecked loop
+	 * Parameters:		None
+	 * Return:			True if there are no breakpoints or watchpoints
+	 */
+	public boolean isEmpty() {
+		for (TreeMap<Integer, Long> counts : hitCounts) {
+			if (!counts.isEmpty()) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+
+
+	/*
+	 * Method Name:		isBreakpoint
+	 * Description:		Tests the bitset for a breakpoint at an address
+	 * Parameters:		int address: The address
+	 * Return:			True if there is a breakpoint there
+	 */
+	public boolean isBreakpoint(int address) {
+		return (executeBits[(address & 0xffff) >>> 6] & (1L << address)) != 0;
+	}
+
+
+
+	/*
+	 * Method Name:		isConditionMet
+	 * Description:		Tests the condition of the breakpoint at an address
+	 * Parameters:		int address: The address of a breakpoint
+	 * 					Freescale6808Emulator emulator: The emulator
+	 * Return:			True if the breakpoint has no condition or its condition holds
+	 */
+	boolean isConditionMet(int address, Freescale6808Emulator emulator) {
+		return conditions == null || conditions[address] == null || conditions[address].shouldStop(emulator);
+	}
+
+
+
+	/*
+	 * Method Name:		getCondition
+	 * Description:		Gets the condition of the breakpoint at an address
+	 * Parameters:		int address: The address
+	 * Return:			The condition, or null if there is none
+	 */
+	public StopCondition getCondition(int address) {
+		return conditions == null ? null : conditions[address & 0xffff];
+	}
+
+
+
+	/*
+	 * Method Name:		getWatchedPages
+	 * Description:		Gets the per page watch flags, which the emulator tests on each memory access.  The
+	 * 					array is never replaced, so the emulator may keep it
+	 * Parameters:		None
+	 * Return:			The page flags as a byte array
+	 */
+	byte[] getWatchedPages() {
+		return watchedPages;
+	}
+
+
+
+	/*
+	 * Method Name:		checkRead
+	 * Description:		Called for reads in a page holding a read watchpoint
+	 * Parameters:		int address: The address read
+	 * Return:			None
+	 */
+	void checkRead(int address) {
+		if ((watched[address] & READ_WATCHED) != 0) {
+			hit(KIND.READ, address);
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		checkWrite
+	 * Description:		Called for writes in a page holding a write watchpoint
+	 * Parameters:		int address: The address written
+	 * Return:			None
+	 */
+	void checkWrite(int address) {
+		if ((watched[address] & WRITE_WATCHED) != 0) {
+			hit(KIND.WRITE, address);
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		hit
+	 * Description:		Counts a hit and, if it is the first since the last clearHit, remembers it as the
+	 * 					reason for stopping
+	 * Parameters:		KIND kind: The kind of breakpoint
+	 * 					int address: The address of the breakpoint
+	 * Return:			None
+	 */
+	void hit(KIND kind, int address) {
+		Map<Integer, Long> counts = hitCounts.get(kind.ordinal());
+		Long count = counts.get(address);
+
+		if (count != null) {
+			counts.put(address, count + 1);
+		}
+
+		if (!isHit) {
+			isHit = true;
+			hitKind = kind;
+			hitAddress = address;
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		clearHit
+	 * Description:		Forgets the last hit, done by run() before it starts
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	void clearHit() {
+		isHit = false;
+	}
+
+
+
+	/*
+	 * Method Name:		isHit
+	 * Description:		Determines whether the last run() stopped at a breakpoint or watchpoint
+	 * Parameters:		None
+	 * Return:			True if it did
+	 */
+	public boolean isHit() {
+		return isHit;
+	}
+
+
+
+	/*
+	 * Method Name:		getHitKind
+	 * Description:		Gets what kind of breakpoint the last run() stopped at
+	 * Parameters:		None
+	 * Return:			The KIND, only meaningful when isHit is true
+	 */
+	public KIND getHitKind() {
+		return hitKind;
+	}
+
+
+
+	/*
+	 * Method Name:		getHitAddress
+	 * Description:		Gets the address of the breakpoint or watchpoint the last run() stopped at
+	 * Parameters:		None
+	 * Return:			The address, only meaningful when isHit is true
+	 */
+	public int getHitAddress() {
+		return hitAddress;
+	}
+
+
+
+	/*
+	 * Method Name:		getAddresses
+	 * Description:		Gets where breakpoints or watchpoints of a kind are set
+	 * Parameters:		KIND kind: The kind
+	 * Return:			The addresses in ascending order
+	 */
+	public List<Integer> getAddresses(KIND kind) {
+		return new ArrayList<Integer>(hitCounts.get(kind.ordinal()).keySet());
+	}
+
+
+
+	/*
+	 * Method Name:		getHitCount
+	 * Description:		Gets the number of times a breakpoint or watchpoint has stopped execution
+	 * Parameters:		KIND kind: The kind
+	 * 					int address: The address
+	 * Return:			The hit count, or -1 if nothing of that kind is set there
+	 */
+	public long getHitCount(KIND kind, int address) {
+		Long count = hitCounts.get(kind.ordinal()).get(address & 0xffff);
+		return count == null ? -1 : count;
+	}
+}
@@ -0,0 +1,513 @@
+/*
+ * Filename:		Checkpoint.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the Checkpoint class
+ */
+
+
+
+package emulator;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import cpu.Freescale6808CPU;
+import utilities.LoadedImage;
+
+
+
+/*
+ * Class Name:		Checkpoint
+ * Description:		A snapshot of the complete machine state: every CPU register, the instruction and cycle counts,
+ * 					the switch state, the identity of the loaded image and memory.  The switches live in
+ * 					port A so they are restored along with memory; the header copy is for display.
+ *
+ * 					Memory is stored as a delta against the pristine image: only the 256 byte pages that
+ * 					differ from memory straight after loading are kept, so a checkpoint of a running
+ * 					program is usually a few hundred bytes.  Checkpoints can be kept in memory or written
+ * 					to a file, optionally with the pages deflated at the fastest level.
+ *
+ * 					File layout, big endian:
+ * 						0		magic "6808CKPT"
+ * 						8		int version, int flags (bit 0 = pages compressed)
+ * 						16		byte A, byte CCR, short HX, short SP, short PC
+ * 						24		long instruction count
+ * 						32		byte switches, 3 reserved
+ * 						36		int page count
+ * 						40		long image checksum
+ * 						48		int image name length, int stored page data length
+ * 						56		long cycle count (version 2, 0 in version 1 files)
+ * 						64		image name (UTF-8), page table (one byte per page number)
+ * 						...		page data, 256 aligned when not compressed
+ *
+ * 					Uncompressed page data sits at a page aligned file offset so a restore maps the file
+ * 					and copies each page straight from the mapping into machine memory.
+ *
+ * 					The events of timed devices and pending interrupts are not part of the state, since the
+ * 					devices are objects outside the machine.  Rather than restore a machine whose timers are
+ * 					out of step with it, a checkpoint taken with device events scheduled or interrupts
+ * 					pending cannot be restored or written, and no checkpoint can be restored into an emulator
+ * 					that has them.
+ */
+public class Checkpoint {
+
+	public final static int PAGE_SIZE = 256;
+	public final static int PAGE_COUNT = Freescale6808Emulator.MAX_ADDRESS_SPACE / PAGE_SIZE;
+
+	private final static byte[] MAGIC = { '6', '8', '0', '8', 'C', 'K', 'P', 'T' };
+	private final static int VERSION = 2;
+	private final static int FIRST_VERSION = 1;
+	private final static int FLAG_COMPRESSED = 0x01;
+	private final static int HEADER_SIZE = 64;
+	private final static Charset UTF8 = Charset.forName("UTF-8");
+
+	private final byte accumulator;
+	private final byte conditionCodeRegister;
+	private final short indexRegister;
+	private final short stackPointer;
+	private final short programCounter;
+	private final long instructionCount;
+	private final long cycleCount;
+	private final byte switches;
+	private final String imageName;
+	private final long imageChecksum;
+	private final byte[] pageTable;
+	private final ByteBuffer pageData;
+	private final boolean isTimed;
+
+
+
+	/*
+	 * Method Name:		Checkpoint
+	 * Description:		Constructor
+	 * Parameters:		The value of every field
+	 * Return:			None
+	 */
+	private Checkpoint(byte accumulator, byte conditionCodeRegister, short indexRegister, short stackPointer,
+			short programCounter, long instructionCount, long cycleCount, byte switches, String imageName,
+			long imageChecksum, byte[] pageTable, ByteBuffer pageData, boolean isTimed) {
+		this.accumulator = accumulator;
+		this.conditionCodeRegister = conditionCodeRegister;
+		this.indexRegister = indexRegister;
+		this.stackPointer = stackPointer;
+		this.programCounter = programCounter;
+		this.instructionCount = instructionCount;
+		this.cycleCount = cycleCount;
+		this.switches = switches;
+		this.imageName = imageName;
+		this.imageChecksum = imageChecksum;
+		this.pageTable = pageTable;
+		this.pageData = pageData;
+		this.isTimed = isTimed;
+	}
+
+
+
+	/*
+	 * Method Name:		capture
+	 * Description:		Takes a checkpoint of an emulator's current state
+	 * Parameters:		Freescale6808Emulator emulator: The emulator
+	 * Return:			The checkpoint
+	 */
+	public static Checkpoint capture(Freescale6808Emulator emulator) {
+		Freescale6808CPU cpu = emulator.getCpu();
+		MachineMemory memory = emulator.getMemory();
+		byte[] pristine = emulator.getPristineMemory();
+		LoadedImage image = emulator.getLoadedImage();
+
+		byte[] page = new byte[PAGE_SIZE];
+		byte[] changed = new byte[PAGE_COUNT];
+		ByteBuffer changedData = ByteBuffer.allocate(Freescale6808Emulator.MAX_ADDRESS_SPACE);
+		int changedCount = 0;
+
+		// keep only the pages that differ from the pristine image
+		for (int pageNumber = 0; pageNumber < PAGE_COUNT; pageNumber++) {
+			int base = pageNumber * PAGE_SIZE;
+			memory.get(base, page, 0, PAGE_SIZE);
+
+			for (int i = 0; i < PAGE_SIZE; i++) {
+				if (page[i] != pristine[base + i]) {
+					changed[changedCount++] = (byte)pageNumber;
+					changedData.put(page);
+					break;
+				}
+			}
+		}
+
+		byte[] pageTable = new byte[changedCount];
+		System.arraycopy(changed, 0, pageTable, 0, changedCount);
+
+		byte[] data = new byte[changedCount * PAGE_SIZE];
+		changedData.flip();
+		changedData.get(data);
+
+		return new Checkpoint(cpu.getA(), cpu.getCCR(), cpu.getHX(), cpu.getSP(), cpu.getPC(),
+				emulator.getInstructionCount(), cpu.getCycleCount(), (byte)(memory.get(0) & 0xf0),
+				image == null ? "" : image.getName(), image == null ? 0 : image.getChecksum(),
+				pageTable, ByteBuffer.wrap(data), hasDeviceState(emulator));
+	}
+
+
+
+	/*
+	 * Method Name:		restore
+	 * Description:		Puts an emulator back into the checkpointed state.  Memory is reset to the pristine
+	 * 					image and the stored pages are copied over it
+	 * Parameters:		Freescale6808Emulator emulator: The emulator, with the same image loaded and no timed
+	 * 					device events scheduled
+	 * Return:			None
+	 */
+	public void restore(Freescale6808Emulator emulator) throws Exception {
+		if (isTimed) {
+			throw new Exception("Checkpoint was taken with timed devices running, whose state it does not hold");
+		}
+
+		if (hasDeviceState(emulator)) {
+			throw new Exception("Timed devices are running and a checkpoint cannot rewind them");
+		}
+
+		LoadedImage image = emulator.getLoadedImage();
+		long loadedChecksum = image == null ? 0 : image.getChecksum();
+
+		if (loadedChecksum != imageChecksum) {
+			throw new Exception("Checkpoint was taken with a different image (" + imageName + ")");
+		}
+
+		MachineMemory memory = emulator.getMemory();
+		memory.put(0, emulator.getPristineMemory(), 0, Freescale6808Emulator.MAX_ADDRESS_SPACE);
+
+		for (int i = 0; i < pageTable.length; i++) {
+			ByteBuffer page = pageData.duplicate();
+			page.position(i * PAGE_SIZE);
+			page.limit((i + 1) * PAGE_SIZE);
+			memory.put((pageTable[i] & 0xff) * PAGE_SIZE, page);
+		}
+
+		Freescale6808CPU cpu = emulator.getCpu();
+		cpu.setA(accumulator);
+		cpu.setCCR(conditionCodeRegister);
+		cpu.setHX(indexRegister);
+		cpu.setSP(stackPointer);
+		cpu.setPC(programCounter);
+		cpu.setCycleCount(cycleCount);
+		emulator.setInstructionCount(instructionCount);
+	}
+
+
+
+	/*
+	 * Method Name:		write
+	 * Description:		Writes the checkpoint to a file
+	 * Parameters:		File file: The file to write, replaced if it exists
+	 * 					boolean compress: Whether to deflate the page data
+	 * Return:			None
+	 */
+	public void write(File file, boolean compress) throws IOException {
+		if (isTimed) {
+			throw new IOException("Checkpoint was taken with timed devices running, whose state it does not hold");
+		}
+
+		byte[] name = imageName.getBytes(UTF8);
+		ByteBuffer data = pageData.duplicate();
+		data.clear();
+
+		if (compress) {
+			data = deflate(data);
+		}
+
+		int dataOffset = HEADER_SIZE + name.length + pageTable.length;
+
+		if (!compress) {
+			dataOffset = (dataOffset + PAGE_SIZE - 1) / PAGE_SIZE * PAGE_SIZE;
+		}
+
+		ByteBuffer header = ByteBuffer.allocate(dataOffset);
+		header.put(MAGIC);
+		header.putInt(VERSION);
+		header.putInt(compress ? FLAG_COMPRESSED : 0);
+		header.put(accumulator);
+		header.put(conditionCodeRegister);
+		header.putShort(indexRegister);
+		header.putShort(stackPointer);
+		header.putShort(programCounter);
+		header.putLong(instructionCount);
+		header.put(switches);
+		header.position(36);
+		header.putInt(pageTable.length);
+		header.putLong(imageChecksum);
+		header.putInt(name.length);
+		header.putInt(data.remaining());
+		header.putLong(cycleCount);
+		header.position(HEADER_SIZE);
+		header.put(name);
+		header.put(pageTable);
+		header.clear();
+
+		FileOutputStream stream = new FileOutputStream(file);
+
+		try {
+			FileChannel channel = stream.getChannel();
+
+			while (header.hasRemaining()) {
+				channel.write(header);
+			}
+
+			while (data.hasRemaining()) {
+				channel.write(data);
+			}
+		}
+		finally {
+			stream.close();
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		read
+	 * Description:		Reads a checkpoint file.  Uncompressed page data is used straight from the mapping
+	 * Parameters:		File file: The file to read
+	 * Return:			The checkpoint
+	 */
+	public static Checkpoint read(File file) throws IOException {
+		RandomAccessFile checkpointFile = new RandomAccessFile(file, "r");
+		ByteBuffer mapping;
+
+		try {
+			FileChannel channel = checkpointFile.getChannel();
+			mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		finally {
+			checkpointFile.close();
+		}
+
+		try {
+			for (int i = 0; i < MAGIC.length; i++) {
+				if (mapping.get(i) != MAGIC[i]) {
+					throw new IOException(file.getName() + " is not a checkpoint file");
+				}
+			}
+
+			int version = mapping.getInt(8);
+
+			if (version != VERSION && version != FIRST_VERSION) {
+				throw new IOException(file.getName() + " has unsupported checkpoint version " + mapping.getInt(8));
+			}
+
+			boolean isCompressed = (mapping.getInt(12) & FLAG_COMPRESSED) != 0;
+			int pageCount = mapping.getInt(36);
+			int nameLength = mapping.getInt(48);
+			int dataLength = mapping.getInt(52);
+
+			if (pageCount < 0 || pageCount > PAGE_COUNT || nameLength < 0) {
+				throw new IOException(file.getName() + " is corrupt");
+			}
+
+			byte[] name = new byte[nameLength];
+			byte[] pageTable = new byte[pageCount];
+			mapping.position(HEADER_SIZE);
+			mapping.get(name);
+			mapping.get(pageTable);
+
+			int dataOffset = mapping.position();
+
+			if (!isCompressed) {
+				dataOffset = (dataOffset + PAGE_SIZE - 1) / PAGE_SIZE * PAGE_SIZE;
+			}
+
+			mapping.position(dataOffset);
+			mapping.limit(dataOffset + dataLength);
+			ByteBuffer pageData = mapping.slice();
+
+			if (isCompressed) {
+				pageData = inflate(pageData, pageCount * PAGE_SIZE);
+			}
+			else if (dataLength != pageCount * PAGE_SIZE) {
+				throw new IOException(file.getName() + " is corrupt");
+			}
+
+			return new Checkpoint(mapping.get(16), mapping.get(17), mapping.getShort(18), mapping.getShort(20),
+					mapping.getShort(22), mapping.getLong(24), version == VERSION ? mapping.getLong(56) : 0,
+					mapping.get(32), new String(name, UTF8),
+					mapping.getLong(40), pageTable, pageData, false);
+		}
+		catch (IndexOutOfBoundsException ex) {
+			throw new IOException(file.getName() + " is truncated");
+		}
+		catch (IllegalArgumentException ex) {
+			throw new IOException(file.getName() + " is truncated");
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		deflate
+	 * Description:		Compresses page data at the fastest deflate level
+	 * Parameters:		ByteBuffer data: The page data
+	 * Return:			The compressed data
+	 */
+	private static ByteBuffer deflate(ByteBuffer data) {
+		byte[] input = new byte[data.remaining()];
+		data.get(input);
+
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		deflater.setInput(input);
+		deflater.finish();
+
+		byte[] output = new byte[input.length + input.length / 100 + 64];
+		int length = 0;
+
+		while (!deflater.finished()) {
+			if (length == output.length) {
+				byte[] larger = new byte[output.length * 2];
+				System.arraycopy(output, 0, larger, 0, length);
+				output = larger;
+			}
+
+			length += deflater.deflate(output, length, output.length - length);
+		}
+
+		deflater.end();
+		return ByteBuffer.wrap(output, 0, length);
+	}
+
+
+
+	/*
+	 * Method Name:		inflate
+	 * Description:		Decompresses page data
+	 * Parameters:		ByteBuffer data: The compressed data
+	 * 					int length: The expected uncompressed length
+	 * Return:			The page data
+	 */
+	private static ByteBuffer inflate(ByteBuffer data, int length) throws IOException {
+		byte[] input = new byte[data.remaining()];
+		data.get(input);
+
+		byte[] output = new byte[length];
+		Inflater inflater = new Inflater();
+		inflater.setInput(input);
+
+		try {
+			int inflated = 0;
+
+			while (inflated < length && !inflater.finished()) {
+				int count = inflater.inflate(output, inflated, length - inflated);
+
+				if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+
+				inflated += count;
+			}
+
+			if (inflated != length) {
+				throw new IOException("Checkpoint page data is truncated");
+			}
+		}
+		catch (DataFormatException ex) {
+			throw new IOException("Checkpoint page data is corrupt");
+		}
+		finally {
+			inflater.end();
+		}
+
+		return ByteBuffer.wrap(output);
+	}
+
+
+
+	/*
+	 * Method Name:		getInstructionCount
+	 * Description:		Gets the instruction count the checkpoint was taken at
+	 * Parameters:		None
+	 * Return:			The instruction count as a long
+	 */
+	public long getInstructionCount() {
+		return instructionCount;
+	}
+
+
+
+	/*
+	 * Method Name:		getCycleCount
+	 * Description:		Gets the cycle count the checkpoint was taken at
+	 * Parameters:		None
+	 * Return:			The cycle count as a long
+	 */
+	public long getCycleCount() {
+		return cycleCount;
+	}
+
+
+
+	/*
+	 * Method Name:		isTimed
+	 * Description:		Determines whether timed device events were scheduled or interrupts pending when the
+	 * 					checkpoint was taken, in which case it cannot be restored
+	 * Parameters:		None
+	 * Return:			True if they were
+	 */
+	public boolean isTimed() {
+		return isTimed;
+	}
+
+
+
+	/*
+	 * Method Name:		hasDeviceState
+	 * Description:		Determines whether an emulator has state a checkpoint does not hold
+	 * Parameters:		Freescale6808Emulator emulator: The emulator
+	 * Return:			True if device events are scheduled or an interrupt is pending
+	 */
+	private static boolean hasDeviceState(Freescale6808Emulator emulator) {
+		return emulator.getNextEventCycle() != Long.MAX_VALUE || emulator.isInterruptPending();
+	}
+
+
+
+	/*
+	 * Method Name:		getImageName
+	 * Description:		Gets the name of the image loaded when the checkpoint was taken
+	 * Parameters:		None
+	 * Return:			The image name, empty if no image was loaded
+	 */
+	public String getImageName() {
+		return imageName;
+	}
+
+
+
+	/*
+	 * Method Name:		getChangedPageCount
+	 * Description:		Gets how many memory pages differ from the pristine image
+	 * Parameters:		None
+	 * Return:			The number of stored pages
+	 */
+	public int getChangedPageCount() {
+		return pageTable.length;
+	}
+
+
+
+	/*
+	 * Method Name:		getSwitches
+	 * Description:		Gets the switch bits of port A at the time of the checkpoint
+	 * Parameters:		None
+	 * Return:			The switch bits in the top nibble of a byte
+	 */
+	public byte getSwitches() {
+		return switches;
+	}
+}
@@ -0,0 +1,283 @@
+/*
+ * Filename:		CommandQueue.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the CommandQueue class
+ */
+
+
+
+package emulator;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import emulator.Freescale6808Emulator.REGISTER;
+import emulator.Freescale6808Emulator.SWITCH_BIT;
+
+
+
+/*
+ * Class Name:		CommandQueue
+ * Description:		A lock-free queue carrying inputs - switch changes, register alterations, memory edits
+ * 					and stop requests - from one producer thread, such as the GUI's event dispatch thread,
+ * 					to the thread running the emulator, which applies them between run() batches.  Inputs
+ * 					go through the emulator's public setters, so an attached InputLog records each one at
+ * 					the instruction count it was applied at and a replay repeats the run exactly.
+ *
+ * 					The queue is a ring of packed commands with a single producer and a single consumer.
+ * 					Each side owns one index and keeps a cached copy of the other side's, so offering or
+ * 					draining reads the other thread's index only when the cached one says the ring is full
+ * 					or empty.  The consumer pays one volatile read per drain, nothing per instruction.  A
+ * 					consumer with nothing to do, such as a run loop whose program is idle, may park in
+ * 					await() and is woken by the next offer.
+ *
+ * 					Packed commands: the kind in the top byte, a target in the next three and a value in
+ * 					the low four, the same as InputLog events.
+ */
+public class CommandQueue {
+
+	public enum COMMAND {
+		SWITCH,
+		REGISTER,
+		MEMORY,
+		STOP
+	}
+
+	public final static int DEFAULT_CAPACITY = 1024;
+
+	private final static COMMAND[] COMMANDS = COMMAND.values();
+	private final static SWITCH_BIT[] SWITCHES = SWITCH_BIT.values();
+	private final static REGISTER[] REGISTERS = REGISTER.values();
+
+	private final long[] ring;
+	private final int mask;
+	private final AtomicLong head;
+	private final AtomicLong tail;
+	private volatile Thread waiter;
+	private long producerTail;
+	private long cachedHead;
+	private long consumerHead;
+	private long cachedTail;
+
+
+
+	/*
+	 * Method Name:		CommandQueue
+	 * Description:		Constructor using the default capacity
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public CommandQueue() {
+		this(DEFAULT_CAPACITY);
+	}
+
+
+
+	/*
+	 * Method Name:		CommandQueue
+	 * Description:		Constructor
+	 * Parameters:		int capacity: The most commands that can wait at once, a power of two
+	 * Return:			None
+	 */
+	public CommandQueue(int capacity) {
+		if (capacity <= 0 || (capacity & (capacity - 1)) != 0) {
+			throw new IllegalArgumentException("Capacity must be a power of two");
+		}
+
+		ring = new long[capacity];
+		mask = capacity - 1;
+		head = new AtomicLong();
+		tail = new AtomicLong();
+		producerTail = 0;
+		cachedHead = 0;
+		consumerHead = 0;
+		cachedTail = 0;
+		waiter = null;
+	}
+
+
+
+	/*
+	 * Method Name:		encode
+	 * Description:		Packs a command into a long
+	 * Parameters:		COMMAND kind: The kind of command
+	 * 					int target: What the command changes, e.g. which switch
+	 * 					int value: The new value
+	 * Return:			The packed command
+	 */
+	private static long encode(COMMAND kind, int target, int value) {
+		return ((long)kind.ordinal() << 56) | ((long)(target & 0xffffff) << 32) | (value & 0xffffffffL);
+	}
+
+
+
+	/*
+	 * Method Name:		offer
+	 * Description:		Adds a packed command, called only by the producer thread
+	 * Parameters:		long command: The packed command
+	 * Return:			False if the queue is full
+	 */
+	private boolean offer(long command) {
+		if (producerTail - cachedHead >= ring.length) {
+			cachedHead = head.get();
+
+			if (producerTail - cachedHead >= ring.length) {
+				return false;
+			}
+		}
+
+		ring[(int)producerTail & mask] = command;
+		producerTail++;
+
+		// a full write, not lazySet, so a consumer parking in await() either sees the command or is seen
+		tail.set(producerTail);
+
+		Thread parked = waiter;
+
+		if (parked != null) {
+			LockSupport.unpark(parked);
+		}
+
+		return true;
+	}
+
+
+
+	/*
+	 * Method Name:		offerSwitch
+	 * Description:		Queues a switch change
+	 * Parameters:		SWITCH_BIT switchBit: The switch
+	 * 					boolean state: The new state
+	 * Return:			False if the queue is full
+	 */
+	public boolean offerSwitch(SWITCH_BIT switchBit, boolean state) {
+		return offer(encode(COMMAND.SWITCH, switchBit.ordinal(), state ? 1 : 0));
+	}
+
+
+
+	/*
+	 * Method Name:		offerRegister
+	 * Description:		Queues a register alteration
+	 * Parameters:		REGISTER register: The register
+	 * 					int value: The new value, masked to the register's width
+	 * Return:			False if the queue is full
+	 */
+	public boolean offerRegister(REGISTER register, int value) {
+		return offer(encode(COMMAND.REGISTER, register.ordinal(), value));
+	}
+
+
+
+	/*
+	 * Method Name:		offerMemory
+	 * Description:		Queues a memory edit
+	 * Parameters:		int address: The address
+	 * 					byte value: The new value
+	 * Return:			False if the queue is full
+	 */
+	public boolean offerMemory(int address, byte value) {
+		return offer(encode(COMMAND.MEMORY, address & 0xffff, value));
+	}
+
+
+
+	/*
+	 * Method Name:		offerStop
+	 * Description:		Queues a request for the consumer to stop running
+	 * Parameters:		None
+	 * Return:			False if the queue is full
+	 */
+	public boolean offerStop() {
+		return offer(encode(COMMAND.STOP, 0, 0));
+	}
+
+
+
+	/*
+	 * Method Name:		drain
+	 * Description:		Applies every waiting command to an emulator, in the order offered, called only by the
+	 * 					consumer thread.  Inputs after a stop request are applied too
+	 * Parameters:		Freescale6808Emulator emulator: The emulator
+	 * Return:			True if a stop was requested
+	 */
+	public boolean drain(Freescale6808Emulator emulator) {
+		if (consumerHead == cachedTail) {
+			cachedTail = tail.get();
+
+			if (consumerHead == cachedTail) {
+				return false;
+			}
+		}
+
+		boolean isStopRequested = false;
+
+		while (consumerHead < cachedTail) {
+			long command = ring[(int)consumerHead & mask];
+			int target = (int)(command >>> 32) & 0xffffff;
+			int value = (int)command;
+			consumerHead++;
+
+			switch (COMMANDS[(int)(command >>> 56)]) {
+			case SWITCH:
+				emulator.setSwitchData(value != 0, SWITCHES[target]);
+				break;
+			case REGISTER:
+				emulator.alterRegister(REGISTERS[target], value);
+				break;
+			case MEMORY:
+				emulator.setMemory(target, (byte)value);
+				break;
+			case STOP:
+				isStopRequested = true;
+				break;
+			}
+		}
+
+		// the slots are free for the producer once the new head can be seen
+		head.lazySet(consumerHead);
+		return isStopRequested;
+	}
+
+
+
+	/*
+	 * Method Name:		await
+	 * Description:		Parks the consumer thread until a command is waiting, called only by the consumer
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public void await() {
+		waiter = Thread.currentThread();
+
+		while (consumerHead == tail.get()) {
+			LockSupport.park(this);
+		}
+
+		waiter = null;
+	}
+
+
+
+	/*
+	 * Method Name:		await
+	 * Description:		Parks the consumer thread until a command is waiting or a time has passed, called only
+	 * 					by the consumer
+	 * Parameters:		long nanos: The longest time to wait, in nanoseconds
+	 * Return:			None
+	 */
+	public void await(long nanos) {
+		long deadline = System.nanoTime() + nanos;
+		long remaining = nanos;
+		waiter = Thread.currentThread();
+
+		while (remaining > 0 && consumerHead == tail.get()) {
+			LockSupport.parkNanos(this, remaining);
+			remaining = deadline - System.nanoTime();
+		}
+
+		waiter = null;
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Filename:		CompiledExpression.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the CompiledExpression class
+ */
+
+
+
+package emulator;
+
+
+
+/*
+ * Class Name:		CompiledExpression
+ * Description:		An expression over the registers and memory of an emulator, such as
+ * 					"A == $FF && mem[$80] > 10", made by ExpressionCompiler.  It is used as a watch
+ * 					expression through evaluate() and as a breakpoint condition through shouldStop(), which
+ * 					holds when the value is not zero.  Evaluating it reads memory without going through the
+ * 					emulator's profilers or watchpoints.
+ */
+public class CompiledExpression implements StopCondition {
+
+	private final String text;
+	private final ExpressionCompiler.Node root;
+
+
+
+	/*
+	 * Method Name:		CompiledExpression
+	 * Description:		Constructor
+	 * Parameters:		String text: The source of the expression
+	 * 					ExpressionCompiler.Node root: The compiled tree
+	 * Return:			None
+	 */
+	CompiledExpression(String text, ExpressionCompiler.Node root) {
+		this.text = text;
+		this.root = root;
+	}
+
+
+
+	/*
+	 * Method Name:		evaluate
+	 * Description:		Works out the value of the expression in the emulator's current state
+	 * Parameters:		Freescale6808Emulator emulator: The emulator
+	 * Return:			The value as an int
+	 */
+	public int evaluate(Freescale6808Emulator emulator) {
+		return root.evaluate(emulator);
+	}
+
+
+
+	/*
+	 * Method Name:		shouldStop
+	 * Description:		Tests the expression as a breakpoint condition
+	 * Parameters:		Freescale6808Emulator emulator: The emulator
+	 * Return:			True if the value is not zero
+	 */
+	public boolean shouldStop(Freescale6808Emulator emulator) {
+		return root.evaluate(emulator) != 0;
+	}
+
+
+
+	/*
+	 * Method Name:		getText
+	 * Description:		Gets the source of the expression
+	 * Parameters:		None
+	 * Return:			The source as a string
+	 */
+	public String getText() {
+		return text;
+	}
+
+
+
+	/*
+	 * Method Name:		toString
+	 * Description:		Gets the source of the expression
+	 * Parameters:		None
+	 * Return:			The source as a string
+	 */
+	public String toString() {
+		return text;
+	}
+}
@@ -0,0 +1,479 @@
+/*
+ * Filename:		CoverageMap.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the CoverageMap class
+ */
+
+
+
+package emulator;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import utilities.ListingFile;
+import utilities.LoadedImage;
+
+
+
+/*
+ * Class Name:		CoverageMap
+ * Description:		Records which instruction addresses of an image have executed, and which directions each
+ * 					BEQ has gone.  Each is a bitset of one bit per address held in longs, so recording an
+ * 					instruction is a single or into one word, and coverage from any number of runs of the
+ * 					same image merges with a bitwise or.
+ *
+ * 					Coverage is switched on by attaching a map to an emulator with setCoverage, and off by
+ * 					attaching null.  A map belongs to one image, identified by its checksum; maps for
+ * 					different images will not merge.  Reports map addresses back to listing lines, and can
+ * 					be written in the lcov tracefile format for the usual coverage tools.
+ *
+ * 					File layout, big endian:
+ * 						0		magic "6808COVR"
+ * 						8		int version, int image name length
+ * 						16		long image checksum
+ * 						24		image name (UTF-8)
+ * 						...		1024 longs executed, then 1024 longs branch taken, then 1024 longs not taken
+ */
+public class CoverageMap {
+
+	private final static byte[] MAGIC = { '6', '8', '0', '8', 'C', 'O', 'V', 'R' };
+	private final static int VERSION = 1;
+	private final static int HEADER_SIZE = 24;
+	private final static int WORDS = Freescale6808Emulator.MAX_ADDRESS_SPACE / 64;
+	private final static Charset UTF8 = Charset.forName("UTF-8");
+
+	private final String imageName;
+	private final long imageChecksum;
+	private final long[] executed;
+	private final long[] taken;
+	private final long[] notTaken;
+
+
+
+	/*
+	 * Method Name:		CoverageMap
+	 * Description:		Constructor, for coverage of an image
+	 * Parameters:		LoadedImage image: The image, or null
+	 * Return:			None
+	 */
+	public CoverageMap(LoadedImage image) {
+		this(image == null ? "" : image.getName(), image == null ? 0 : image.getChecksum());
+	}
+
+
+
+	/*
+	 * Method Name:		CoverageMap
+	 * Description:		Constructor
+	 * Parameters:		String imageName: The name of the image
+	 * 					long imageChecksum: The checksum of the image
+	 * Return:			None
+	 */
+	private CoverageMap(String imageName, long imageChecksum) {
+		this.imageName = imageName;
+		this.imageChecksum = imageChecksum;
+		executed = new long[WORDS];
+		taken = new long[WORDS];
+		notTaken = new long[WORDS];
+	}
+
+
+
+	/*
+	 * Method Name:		recordExecution
+	 * Description:		Marks an instruction address as executed
+	 * Parameters:		int address: The address of the opcode
+	 * Return:			None
+	 */
+	void recordExecution(int address) {
+		executed[address >>> 6] |= 1L << address;
+	}
+
+
+
+	/*
+	 * Method Name:		recordBranch
+	 * Description:		Marks the direction a conditional branch went
+	 * Parameters:		int address: The address of the branch opcode
+	 * 					boolean isTaken: Whether the branch was taken
+	 * Return:			None
+	 */
+	void recordBranch(int address, boolean isTaken) {
+		if (isTaken) {
+			taken[address >>> 6] |= 1L << address;
+		}
+		else {
+			notTaken[address >>> 6] |= 1L << address;
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		reset
+	 * Description:		Clears all coverage
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public void reset() {
+		for (int i = 0; i < WORDS; i++) {
+			executed[i] = 0;
+			taken[i] = 0;
+			notTaken[i] = 0;
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		merge
+	 * Description:		Adds the coverage of another run of the same image
+	 * Parameters:		CoverageMap other: The other run's coverage
+	 * Return:			None
+	 */
+	public void merge(CoverageMap other) {
+		if (other.imageChecksum != imageChecksum) {
+			throw new IllegalArgumentException("Coverage is for a different image (" + other.imageName + ")");
+		}
+
+		for (int i = 0; i < WORDS; i++) {
+			executed[i] |= other.executed[i];
+			taken[i] |= other.taken[i];
+			notTaken[i] |= other.notTaken[i];
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		isExecuted
+	 * Description:		Determines whether an instruction at an address has executed
+	 * Parameters:		int address: The address
+	 * Return:			True if it has executed
+	 */
+	public boolean isExecuted(int address) {
+		return (executed[(address & 0xffff) >>> 6] & (1L << address)) != 0;
+	}
+
+
+
+	/*
+	 * Method Name:		isBranchTaken
+	 * Description:		Determines whether the branch at an address has been taken
+	 * Parameters:		int address: The address
+	 * Return:			True if it has been taken
+	 */
+	public boolean isBranchTaken(int address) {
+		return (taken[(address & 0xffff) >>> 6] & (1L << address)) != 0;
+	}
+
+
+
+	/*
+	 * Method Name:		isBranchNotTaken
+	 * Description:		Determines whether the branch at an address has fallen through
+	 * Parameters:		int address: The address
+	 * Return:			True if it has fallen through
+	 */
+	public boolean isBranchNotTaken(int address) {
+		return (notTaken[(address & 0xffff) >>> 6] & (1L << address)) != 0;
+	}
+
+
+
+	/*
+	 * Method Name:		getExecutedCount
+	 * Description:		Gets the number of instruction addresses that have executed
+	 * Parameters:		None
+	 * Return:			The address count
+	 */
+	public int getExecutedCount() {
+		return countBits(executed);
+	}
+
+
+
+	/*
+	 * Method Name:		countBits
+	 * Description:		Counts the set bits of a bitset
+	 * Parameters:		long[] bits: The bitset
+	 * Return:			The number of set bits
+	 */
+	private static int countBits(long[] bits) {
+		int count = 0;
+
+		for (long word : bits) {
+			count += Long.bitCount(word);
+		}
+
+		return count;
+	}
+
+
+
+	/*
+	 * Method Name:		isBranch
+	 * Description:		Determines whether a listing line is a conditional branch
+	 * Parameters:		String source: The source of the line
+	 * Return:			True for a BEQ
+	 */
+	private static boolean isBranch(String source) {
+		return source.trim().toUpperCase().startsWith("BEQ");
+	}
+
+
+
+	/*
+	 * Method Name:		getReport
+	 * Description:		Builds a readable summary, listing what has not been covered when a listing is given
+	 * Parameters:		ListingFile listing: The listing of the image, or null
+	 * Return:			The report as a string
+	 */
+	public String getReport(ListingFile listing) {
+		StringBuilder report = new StringBuilder();
+		int branches = countBits(or(taken, notTaken));
+		int bothWays = countBits(and(taken, notTaken));
+
+		report.append(String.format("Coverage of %s\n\n", imageName));
+
+		if (listing == null) {
+			report.append(String.format("%d instruction addresses executed\n", getExecutedCount()));
+			report.append(String.format("%d branches executed, %d both ways\n", branches, bothWays));
+			return report.toString();
+		}
+
+		int[] addresses = listing.getInstructionAddresses();
+		int covered = 0;
+		int listedBranches = 0;
+		int directions = 0;
+		StringBuilder missed = new StringBuilder();
+
+		for (int address : addresses) {
+			String source = listing.getSource(address);
+
+			if (isExecuted(address)) {
+				covered++;
+			}
+			else {
+				missed.append(String.format("  line %-4d $%04X  %s\n", listing.getLineNumber(address), address, source));
+			}
+
+			if (isBranch(source)) {
+				listedBranches++;
+				directions += (isBranchTaken(address) ? 1 : 0) + (isBranchNotTaken(address) ? 1 : 0);
+
+				if (isExecuted(address) && !(isBranchTaken(address) && isBranchNotTaken(address))) {
+					missed.append(String.format("  line %-4d $%04X  %s  (only %s)\n", listing.getLineNumber(address), address,
+							source, isBranchTaken(address) ? "taken" : "not taken"));
+				}
+			}
+		}
+
+		report.append(String.format("Lines:    %d of %d (%.1f%%)\n", covered, addresses.length,
+				addresses.length == 0 ? 0.0 : 100.0 * covered / addresses.length));
+		report.append(String.format("Branches: %d of %d directions (%.1f%%)\n", directions, listedBranches * 2,
+				listedBranches == 0 ? 0.0 : 50.0 * directions / listedBranches));
+
+		if (missed.length() > 0) {
+			report.append("\nNot covered:\n").append(missed);
+		}
+
+		return report.toString();
+	}
+
+
+
+	/*
+	 * Method Name:		or
+	 * Description:		Combines two bitsets with or
+	 * Parameters:		long[] first: A bitset
+	 * 					long[] second: Another bitset
+	 * Return:			A new bitset
+	 */
+	private static long[] or(long[] first, long[] second) {
+		long[] result = new long[WORDS];
+
+		for (int i = 0; i < WORDS; i++) {
+			result[i] = first[i] | second[i];
+		}
+
+		return result;
+	}
+
+
+
+	/*
+	 * Method Name:		and
+	 * Description:		Combines two bitsets with and
+	 * Parameters:		long[] first: A bitset
+	 * 					long[] second: Another bitset
+	 * Return:			A new bitset
+	 */
+	private static long[] and(long[] first, long[] second) {
+		long[] result = new long[WORDS];
+
+		for (int i = 0; i < WORDS; i++) {
+			result[i] = first[i] & second[i];
+		}
+
+		return result;
+	}
+
+
+
+	/*
+	 * Method Name:		exportLcov
+	 * Description:		Writes the coverage as an lcov tracefile against the listing, with one DA record per
+	 * 					instruction line and a BRDA pair per BEQ line
+	 * Parameters:		File file: The file to write
+	 * 					ListingFile listing: The listing of the image
+	 * Return:			None
+	 */
+	public void exportLcov(File file, ListingFile listing) throws IOException {
+		BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+
+		try {
+			int linesHit = 0;
+			int branchesFound = 0;
+			int branchesHit = 0;
+			int[] addresses = listing.getInstructionAddresses();
+
+			writer.write("TN:" + imageName.replaceAll("[^A-Za-z0-9_]", "_") + "\n");
+			writer.write("SF:" + listing.getName() + "\n");
+
+			for (int address : addresses) {
+				int line = listing.getLineNumber(address);
+				boolean isHit = isExecuted(address);
+				linesHit += isHit ? 1 : 0;
+
+				if (isBranch(listing.getSource(address))) {
+					branchesFound += 2;
+					branchesHit += (isBranchTaken(address) ? 1 : 0) + (isBranchNotTaken(address) ? 1 : 0);
+					writer.write("BRDA:" + line + ",0,0," + (isHit ? (isBranchTaken(address) ? "1" : "0") : "-") + "\n");
+					writer.write("BRDA:" + line + ",0,1," + (isHit ? (isBranchNotTaken(address) ? "1" : "0") : "-") + "\n");
+				}
+
+				writer.write("DA:" + line + "," + (isHit ? 1 : 0) + "\n");
+			}
+
+			writer.write("BRF:" + branchesFound + "\n");
+			writer.write("BRH:" + branchesHit + "\n");
+			writer.write("LF:" + addresses.length + "\n");
+			writer.write("LH:" + linesHit + "\n");
+			writer.write("end_of_record\n");
+		}
+		finally {
+			writer.close();
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		write
+	 * Description:		Saves the coverage so runs made elsewhere can be merged later
+	 * Parameters:		File file: The file to write
+	 * Return:			None
+	 */
+	public void write(File file) throws IOException {
+		byte[] name = imageName.getBytes(UTF8);
+		ByteBuffer data = ByteBuffer.allocate(HEADER_SIZE + name.length + 3 * WORDS * 8);
+		data.put(MAGIC);
+		data.putInt(VERSION);
+		data.putInt(name.length);
+		data.putLong(imageChecksum);
+		data.put(name);
+		data.asLongBuffer().put(executed).put(taken).put(notTaken);
+		data.clear();
+
+		FileOutputStream stream = new FileOutputStream(file);
+
+		try {
+			FileChannel channel = stream.getChannel();
+
+			while (data.hasRemaining()) {
+				channel.write(data);
+			}
+		}
+		finally {
+			stream.close();
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		read
+	 * Description:		Loads coverage saved by write
+	 * Parameters:		File file: The file to read
+	 * Return:			The coverage
+	 */
+	public static CoverageMap read(File file) throws IOException {
+		RandomAccessFile coverageFile = new RandomAccessFile(file, "r");
+
+		try {
+			FileChannel channel = coverageFile.getChannel();
+			ByteBuffer data = ByteBuffer.allocate((int)Math.min(channel.size(), Integer.MAX_VALUE));
+
+			while (data.hasRemaining()) {
+				if (channel.read(data) < 0) {
+					break;
+				}
+			}
+
+			data.flip();
+
+			for (int i = 0; i < MAGIC.length; i++) {
+				if (data.remaining() <= i || data.get(i) != MAGIC[i]) {
+					throw new IOException(file.getName() + " is not a coverage file");
+				}
+			}
+
+			if (data.getInt(8) != VERSION) {
+				throw new IOException(file.getName() + " has unsupported coverage version " + data.getInt(8));
+			}
+
+			int nameLength = data.getInt(12);
+
+			if (nameLength < 0 || data.limit() != HEADER_SIZE + nameLength + 3 * WORDS * 8) {
+				throw new IOException(file.getName() + " is corrupt");
+			}
+
+			byte[] name = new byte[nameLength];
+			data.position(HEADER_SIZE);
+			data.get(name);
+
+			CoverageMap coverage = new CoverageMap(new String(name, UTF8), data.getLong(16));
+			data.asLongBuffer().get(coverage.executed).get(coverage.taken).get(coverage.notTaken);
+			return coverage;
+		}
+		catch (IndexOutOfBoundsException ex) {
+			throw new IOException(file.getName() + " is truncated");
+		}
+		finally {
+			coverageFile.close();
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		getImageName
+	 * Description:		Gets the name of the image the coverage is for
+	 * Parameters:		None
+	 * Return:			The image name
+	 */
+	public String getImageName() {
+		return imageName;
+	}
+}
@@ -0,0 +1,195 @@
+/*
+ * Filename:		DirectMemory.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the DirectMemory class
+ */
+
+
+
+package emulator;
+
+import java.nio.ByteBuffer;
+
+
+
+/*
+ * Class Name:		DirectMemory
+ * Description:		Machine memory kept off-heap in a slice of a direct ByteBuffer.  The GC only sees the
+ * 					small buffer object, never the 64K of contents, so large numbers of machines do not
+ * 					add to heap size or pause times.
+ *
+ * 					Direct memory can come from a MemoryArena, which carves many machines out of a few large
+ * 					allocations, or from allocate() for a single standalone machine.
+ */
+public class DirectMemory implements MachineMemory {
+
+	private final MemoryArena arena;
+	private ByteBuffer memory;
+	private boolean isReleased;
+
+
+
+	/*
+	 * Method Name:		DirectMemory
+	 * Description:		Constructor
+	 * Parameters:		ByteBuffer memory: A direct buffer with exactly MAX_ADDRESS_SPACE bytes
+	 * 					MemoryArena arena: The arena the buffer came from, or null
+	 * Return:			None
+	 */
+	DirectMemory(ByteBuffer memory, MemoryArena arena) {
+		this.memory = memory;
+		this.arena = arena;
+		isReleased = false;
+	}
+
+
+
+	/*
+	 * Method Name:		allocate
+	 * Description:		Allocates standalone off-heap memory for one machine
+	 * Parameters:		None
+	 * Return:			The memory
+	 */
+	public static DirectMemory allocate() {
+		return new DirectMemory(ByteBuffer.allocateDirect(Freescale6808Emulator.MAX_ADDRESS_SPACE), null);
+	}
+
+
+
+	/*
+	 * Method Name:		get
+	 * Description:		Reads one byte
+	 * Parameters:		int address: The address to read
+	 * Return:			The byte at the address
+	 */
+	public byte get(int address) {
+		return memory.get(address);
+	}
+
+
+
+	/*
+	 * Method Name:		put
+	 * Description:		Writes one byte
+	 * Parameters:		int address: The address to write
+	 * 					byte value: The value to write
+	 * Return:			None
+	 */
+	public void put(int address, byte value) {
+		memory.put(address, value);
+	}
+
+
+
+	/*
+	 * Method Name:		get
+	 * Description:		Bulk copies bytes out of memory
+	 * Parameters:		int address: The first address to copy
+	 * 					byte[] destination: The array to copy into
+	 * 					int offset: The offset in the array of the first byte
+	 * 					int length: The number of bytes to copy
+	 * Return:			None
+	 */
+	public void get(int address, byte[] destination, int offset, int length) {
+		ByteBuffer view = memory.duplicate();
+		view.position(address);
+		view.get(destination, offset, length);
+	}
+
+
+
+	/*
+	 * Method Name:		put
+	 * Description:		Bulk copies bytes into memory
+	 * Parameters:		int address: The first address to write
+	 * 					byte[] source: The array to copy from
+	 * 					int offset: The offset in the array of the first byte
+	 * 					int length: The number of bytes to copy
+	 * Return:			None
+	 */
+	public void put(int address, byte[] source, int offset, int length) {
+		ByteBuffer view = memory.duplicate();
+		view.position(address);
+		view.put(source, offset, length);
+	}
+
+
+
+	/*
+	 * Method Name:		put
+	 * Description:		Bulk copies everything between a buffer's position and limit into memory
+	 * Parameters:		int address: The first address to write
+	 * 					ByteBuffer source: The bytes to copy, the position is advanced past them
+	 * Return:			None
+	 */
+	public void put(int address, ByteBuffer source) {
+		ByteBuffer view = memory.duplicate();
+		view.position(address);
+		view.put(source);
+	}
+
+
+
+	/*
+	 * Method Name:		clear
+	 * Description:		Sets every byte to zero
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public void clear() {
+		MemoryArena.zero(memory);
+	}
+
+
+
+	/*
+	 * Method Name:		asByteBuffer
+	 * Description:		Gets a live view of the whole memory, position 0 and limit MAX_ADDRESS_SPACE
+	 * Parameters:		None
+	 * Return:			The view as a ByteBuffer
+	 */
+	public ByteBuffer asByteBuffer() {
+		return memory.duplicate();
+	}
+
+
+
+	/*
+	 * Method Name:		toArray
+	 * Description:		Copies the memory into a new byte array
+	 * Parameters:		None
+	 * Return:			The copy as a byte array
+	 */
+	public byte[] toArray() {
+		byte[] copy = new byte[Freescale6808Emulator.MAX_ADDRESS_SPACE];
+		get(0, copy, 0, copy.length);
+		return copy;
+	}
+
+
+
+	/*
+	 * Method Name:		release
+	 * Description:		Hands the memory back to its arena for reuse.  Standalone memory is freed once
+	 * 					it is no longer referenced.  The buffer is dropped, so using the memory afterwards
+	 * 					throws rather than writing into whichever machine reuses it, and releasing it again
+	 * 					does nothing
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public synchronized void release() {
+		if (isReleased) {
+			return;
+		}
+
+		isReleased = true;
+
+		if (arena != null) {
+			arena.free(memory);
+		}
+
+		memory = null;
+	}
+}
@@ -0,0 +1,450 @@
+/*
+ * Filename:		EmulatorHost.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the EmulatorHost class
+ */
+
+
+
+package emulator;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import emulator.HostedMachine.STATE;
+
+
+
+/*
+ * Class Name:		EmulatorHost
+ * Description:		Runs any number of emulators, thousands if need be, on a fixed pool of carrier threads
+ * 					rather than a thread each.  A carrier takes the ready machine due next from the run
+ * 					queue, runs one quantum of instructions of it, then puts it back and takes the next, so
+ * 					machines time-slice the carriers cooperatively at quantum boundaries.
+ *
+ * 					The run queue is ordered by stride scheduling.  Each machine has a pass, a virtual time,
+ * 					and a stride inversely proportional to its priority; the lowest pass runs next and its
+ * 					pass then moves on by its stride, scaled by how much of the quantum it used.  Over time
+ * 					each ready machine gets carrier time in proportion to its priority, and a machine that
+ * 					has been parked rejoins at the current virtual time rather than with credit saved up.
+ * 					Each machine also has an instruction budget; once it is spent the machine is parked.
+ *
+ * 					Machines that cannot make progress are kept off the run queue, so parked machines cost
+ * 					the carriers nothing:
+ * 						IDLE		the emulator's IdleDetector found it waiting in a loop; the next input
+ * 									offered to it puts it back
+ * 						BREAKPOINT	a breakpoint or watchpoint was hit; resume puts it back
+ * 						FINISHED	its budget is spent; addBudget puts it back
+ * 						FAULTED		an instruction failed
+ * 						STOPPED		stop was called
+ * 					A machine idle before a scheduled device event is not parked; the idle periods up to the
+ * 					event are skipped and it stays ready.  Machines need an IdleDetector attached to be
+ * 					parked idle, at the cost of two 64K buffers each.
+ */
+public class EmulatorHost {
+
+	public final static long DEFAULT_QUANTUM = 10000;
+	public final static int MAX_PRIORITY = 1000;
+
+	private final static long STRIDE_ONE = 1 << 20;
+
+	private final int carrierCount;
+	private final long quantum;
+	private final ReentrantLock lock;
+	private final Condition available;
+	private final PriorityQueue<HostedMachine> runQueue;
+	private long virtualTime;
+	private int machineCount;
+	private boolean isRunning;
+	private Thread[] carriers;
+
+
+
+	/*
+	 * Method Name:		EmulatorHost
+	 * Description:		Constructor using a carrier per processor and the default quantum
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public EmulatorHost() {
+		this(Runtime.getRuntime().availableProcessors(), DEFAULT_QUANTUM);
+	}
+
+
+
+	/*
+	 * Method Name:		EmulatorHost
+	 * Description:		Constructor
+	 * Parameters:		int carrierCount: The number of carrier threads
+	 * 					long quantum: The most instructions a machine runs before the next gets a turn
+	 * Return:			None
+	 */
+	public EmulatorHost(int carrierCount, long quantum) {
+		if (carrierCount <= 0 || quantum <= 0) {
+			throw new IllegalArgumentException("Carrier count and quantum must be positive");
+		}
+
+		this.carrierCount = carrierCount;
+		this.quantum = quantum;
+		lock = new ReentrantLock();
+		available = lock.newCondition();
+		runQueue = new PriorityQueue<HostedMachine>(64, new Comparator<HostedMachine>() {
+			public int compare(HostedMachine first, HostedMachine second) {
+				long difference = first.getPass() - second.getPass();
+				return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+			}
+		});
+		virtualTime = 0;
+		machineCount = 0;
+		isRunning = false;
+		carriers = null;
+	}
+
+
+
+	/*
+	 * Method Name:		add
+	 * Description:		Adds an emulator to the host, ready to run.  From now on the emulator belongs to the
+	 * 					host, and other threads reach it through the HostedMachine returned
+	 * Parameters:		Freescale6808Emulator emulator: The emulator, with its image loaded
+	 * 					int priority: Its share of the carriers relative to other machines, 1 to MAX_PRIORITY
+	 * 					long budget: The most instructions it may execute, or Long.MAX_VALUE for no limit
+	 * Return:			The HostedMachine
+	 */
+	public HostedMachine add(Freescale6808Emulator emulator, int priority, long budget) {
+		if (priority < 1 || priority > MAX_PRIORITY) {
+			throw new IllegalArgumentException("Priority must be from 1 to " + MAX_PRIORITY);
+		}
+
+		if (budget <= 0) {
+			throw new IllegalArgumentException("Budget must be positive");
+		}
+
+		HostedMachine machine = new HostedMachine(this, emulator, priority, STRIDE_ONE / priority, budget);
+		lock.lock();
+
+		try {
+			machine.setPass(virtualTime);
+			machineCount++;
+			settle(machine, STATE.READY);
+		}
+		finally {
+			lock.unlock();
+		}
+
+		return machine;
+	}
+
+
+
+	/*
+	 * Method Name:		start
+	 * Description:		Starts the carrier threads, as daemons
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public synchronized void start() {
+		lock.lock();
+
+		try {
+			if (isRunning) {
+				throw new IllegalStateException("The host is already running");
+			}
+
+			isRunning = true;
+		}
+		finally {
+			lock.unlock();
+		}
+
+		carriers = new Thread[carrierCount];
+
+		for (int i = 0; i < carrierCount; i++) {
+			carriers[i] = new Thread(new Runnable() {
+				public void run() {
+					carry();
+				}
+			}, "6808 host carrier " + i);
+			carriers[i].setDaemon(true);
+			carriers[i].start();
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		shutdown
+	 * Description:		Stops the carriers once they finish the quanta they are running and waits for them.
+	 * 					Machines keep their states, ready ones stay queued, and start carries on with them
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public synchronized void shutdown() throws InterruptedException {
+		lock.lock();
+
+		try {
+			isRunning = false;
+			available.signalAll();
+		}
+		finally {
+			lock.unlock();
+		}
+
+		if (carriers != null) {
+			for (Thread carrier : carriers) {
+				carrier.join();
+			}
+
+			carriers = null;
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		carry
+	 * Description:		The body of a carrier thread.  Takes the machine with the lowest pass, runs a quantum of
+	 * 					it outside the lock, charges it for the share of the quantum used and settles it back
+	 * 					on the run queue or parks it
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	private void carry() {
+		while (true) {
+			HostedMachine machine;
+			lock.lock();
+
+			try {
+				while (isRunning && runQueue.isEmpty()) {
+					available.awaitUninterruptibly();
+				}
+
+				if (!isRunning) {
+					return;
+				}
+
+				machine = runQueue.poll();
+				virtualTime = machine.getPass();
+				machine.setWakePending(false);
+				machine.setState(STATE.RUNNING);
+			}
+			finally {
+				lock.unlock();
+			}
+
+			long before = machine.getExecuted();
+			STATE next = machine.runQuantum(quantum);
+			long ran = machine.getExecuted() - before;
+
+			lock.lock();
+
+			try {
+				// a machine that parks early is charged only for what it ran, and one that skipped idle
+				// periods or probed for a loop for all of it, in an order that cannot overflow
+				long stride = machine.getStride();
+				long charge = ran / quantum * stride + ran % quantum * stride / quantum;
+				machine.setPass(machine.getPass() + Math.max(1, charge));
+				machine.applyGrants();
+
+				// an input or budget that arrived during the quantum would otherwise be missed
+				if ((next == STATE.IDLE && machine.isWakePending()) || (next == STATE.FINISHED && machine.getBudget() > 0)) {
+					next = STATE.READY;
+				}
+
+				settle(machine, next);
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		settle
+	 * Description:		Moves a machine to a state, queuing it and waking a carrier if it is ready.  Called
+	 * 					under the lock
+	 * Parameters:		HostedMachine machine: The machine
+	 * 					STATE state: The new state
+	 * Return:			None
+	 */
+	private void settle(HostedMachine machine, STATE state) {
+		machine.setState(state);
+
+		if (state == STATE.READY) {
+			runQueue.add(machine);
+			available.signal();
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		rejoin
+	 * Description:		Puts a parked machine back on the run queue at no earlier than the current virtual
+	 * 					time, so time spent parked earns no extra turns.  Called under the lock
+	 * Parameters:		HostedMachine machine: The machine
+	 * Return:			None
+	 */
+	private void rejoin(HostedMachine machine) {
+		machine.setPass(Math.max(machine.getPass(), virtualTime));
+		settle(machine, STATE.READY);
+	}
+
+
+
+	/*
+	 * Method Name:		wake
+	 * Description:		Called after an input is queued for a machine: puts it back on the run queue if it is
+	 * 					parked idle, or makes sure it is not parked idle at the end of its current quantum
+	 * Parameters:		HostedMachine machine: The machine
+	 * Return:			True
+	 */
+	boolean wake(HostedMachine machine) {
+		lock.lock();
+
+		try {
+			if (machine.getState() == STATE.IDLE) {
+				rejoin(machine);
+			}
+			else {
+				machine.setWakePending(true);
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+
+		return true;
+	}
+
+
+
+	/*
+	 * Method Name:		resume
+	 * Description:		Puts a machine parked at a breakpoint back on the run queue, or one parked anywhere
+	 * 					short of stopped when forced, e.g. so it can apply a stop request
+	 * Parameters:		HostedMachine machine: The machine
+	 * 					boolean isForced: Whether to take it off any park rather than only a breakpoint
+	 * Return:			False if the machine is stopped, or not at a breakpoint and not forced
+	 */
+	boolean resume(HostedMachine machine, boolean isForced) {
+		lock.lock();
+
+		try {
+			STATE state = machine.getState();
+
+			if (state == STATE.BREAKPOINT || (isForced && (state == STATE.IDLE || state == STATE.FINISHED || state == STATE.FAULTED))) {
+				rejoin(machine);
+				return true;
+			}
+
+			if (isForced && (state == STATE.READY || state == STATE.RUNNING)) {
+				machine.setWakePending(true);
+				return true;
+			}
+
+			return false;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		addBudget
+	 * Description:		Grants a machine more instructions, applied once it is not running, and puts it back
+	 * 					on the run queue if it had used up its budget
+	 * Parameters:		HostedMachine machine: The machine
+	 * 					long instructions: The number of instructions to add
+	 * Return:			None
+	 */
+	void addBudget(HostedMachine machine, long instructions) {
+		lock.lock();
+
+		try {
+			machine.grantBudget(instructions);
+
+			// a running machine's carrier applies the grant when its quantum ends
+			if (machine.getState() != STATE.RUNNING) {
+				machine.applyGrants();
+
+				if (machine.getState() == STATE.FINISHED && machine.getBudget() > 0) {
+					rejoin(machine);
+				}
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		getReadyCount
+	 * Description:		Gets the number of machines waiting on the run queue
+	 * Parameters:		None
+	 * Return:			The count as an int
+	 */
+	public int getReadyCount() {
+		lock.lock();
+
+		try {
+			return runQueue.size();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		getMachineCount
+	 * Description:		Gets the number of machines ever added to the host
+	 * Parameters:		None
+	 * Return:			The count as an int
+	 */
+	public int getMachineCount() {
+		lock.lock();
+
+		try {
+			return machineCount;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		getCarrierCount
+	 * Description:		Gets the number of carrier threads
+	 * Parameters:		None
+	 * Return:			The count as an int
+	 */
+	public int getCarrierCount() {
+		return carrierCount;
+	}
+
+
+
+	/*
+	 * Method Name:		getQuantum
+	 * Description:		Gets the most instructions a machine runs per turn
+	 * Parameters:		None
+	 * Return:			The quantum as a long
+	 */
+	public long getQuantum() {
+		return quantum;
+	}
+}
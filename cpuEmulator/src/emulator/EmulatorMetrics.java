@@ -0,0 +1,301 @@
+/*
+ * Filename:		EmulatorMetrics.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the EmulatorMetrics class
+ */
+
+
+
+package emulator;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+
+/*
+ * Class Name:		EmulatorMetrics
+ * Description:		Running totals of what an emulator has done, for monitoring.  Attach it with setMetrics;
+ * 					while detached the emulator pays a null check, as with the profilers.
+ *
+ * 					Memory accesses are counted per region of the memory map, and image loads, resets,
+ * 					faults, breakpoint hits and completed run() batches are counted as events, with the
+ * 					timings of the last load and batch kept.  Each event is also passed to a MetricsListener
+ * 					if one is set.  Rates are left to the reader, which samples the totals.
+ *
+ * 					Counters are only written by the emulator's thread and are read without locking by any
+ * 					other, such as the monitor's HTTP and sampler threads.  The counts are atomic arrays the
+ * 					writer bumps with lazySet, an ordered store that costs no more than a plain one, and the
+ * 					timings are volatile, so a reader sees every count whole and as new as the last event
+ * 					it saw, though it may be a moment behind the emulator.
+ */
+public class EmulatorMetrics {
+
+	// in the order of the emulator's memory map codes, so a map entry indexes the counters directly
+	public enum REGION {
+		UNMAPPED, RAM, ROM, HARDWARE
+	}
+
+	public enum EVENT {
+		IMAGE_LOAD, RESET, FAULT, BREAKPOINT, BATCH
+	}
+
+	private final AtomicLongArray reads;
+	private final AtomicLongArray writes;
+	private final AtomicLongArray events;
+	private volatile long lastParseNanos;
+	private volatile long lastCopyNanos;
+	private volatile long lastBatchInstructions;
+	private volatile long lastBatchNanos;
+	private volatile String lastFault;
+	private volatile MetricsListener listener;
+
+
+
+	/*
+	 * Method Name:		EmulatorMetrics
+	 * Description:		Constructor, every counter starts at zero
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public EmulatorMetrics() {
+		reads = new AtomicLongArray(REGION.values().length);
+		writes = new AtomicLongArray(REGION.values().length);
+		events = new AtomicLongArray(EVENT.values().length);
+		lastFault = null;
+		listener = null;
+	}
+
+
+
+	/*
+	 * Method Name:		recordRead
+	 * Description:		Counts a memory read
+	 * Parameters:		byte device: The memory map code of the address read
+	 * Return:			None
+	 */
+	void recordRead(byte device) {
+		// only this thread writes, so the increment needs no compare and set
+		reads.lazySet(device, reads.get(device) + 1);
+	}
+
+
+
+	/*
+	 * Method Name:		recordWrite
+	 * Description:		Counts a memory write
+	 * Parameters:		byte device: The memory map code of the address written
+	 * Return:			None
+	 */
+	void recordWrite(byte device) {
+		writes.lazySet(device, writes.get(device) + 1);
+	}
+
+
+
+	/*
+	 * Method Name:		recordImageParse
+	 * Description:		Notes how long the image about to be loaded took to read and parse.  Parsing happens
+	 * 					before the emulator sees the image, so the loader's caller reports it
+	 * Parameters:		long nanos: The parse time in nanoseconds
+	 * Return:			None
+	 */
+	public void recordImageParse(long nanos) {
+		lastParseNanos = nanos;
+	}
+
+
+
+	/*
+	 * Method Name:		recordImageLoad
+	 * Description:		Counts an image being copied into memory
+	 * Parameters:		String name: The image name
+	 * 					long copyNanos: The copy time in nanoseconds
+	 * Return:			None
+	 */
+	void recordImageLoad(String name, long copyNanos) {
+		lastCopyNanos = copyNanos;
+		record(EVENT.IMAGE_LOAD, lastParseNanos + copyNanos, name + " parsed in " + lastParseNanos + " ns, copied in "
+				+ copyNanos + " ns");
+	}
+
+
+
+	/*
+	 * Method Name:		recordReset
+	 * Description:		Counts a reset
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	void recordReset() {
+		record(EVENT.RESET, 0, "Emulator reset");
+	}
+
+
+
+	/*
+	 * Method Name:		recordFault
+	 * Description:		Counts an instruction that failed
+	 * Parameters:		int pc: The address of the instruction
+	 * 					Exception fault: What went wrong
+	 * Return:			None
+	 */
+	void recordFault(int pc, Exception fault) {
+		lastFault = String.format("$%04X: %s", pc, fault.getMessage());
+		record(EVENT.FAULT, 0, lastFault);
+	}
+
+
+
+	/*
+	 * Method Name:		recordBreakpointHit
+	 * Description:		Counts execution stopping at a breakpoint or watchpoint
+	 * Parameters:		int pc: The PC execution stopped at
+	 * Return:			None
+	 */
+	void recordBreakpointHit(int pc) {
+		record(EVENT.BREAKPOINT, 0, String.format("Stopped at $%04X", pc));
+	}
+
+
+
+	/*
+	 * Method Name:		recordBatch
+	 * Description:		Counts a completed call to run()
+	 * Parameters:		long instructions: The instructions the batch executed
+	 * 					long nanos: The time the batch took in nanoseconds
+	 * Return:			None
+	 */
+	void recordBatch(long instructions, long nanos) {
+		lastBatchInstructions = instructions;
+		lastBatchNanos = nanos;
+		record(EVENT.BATCH, nanos, instructions + " instructions");
+	}
+
+
+
+	/*
+	 * Method Name:		record
+	 * Description:		Counts an event and passes it to the listener
+	 * Parameters:		EVENT event: The kind of event
+	 * 					long durationNanos: How long it took, or 0
+	 * 					String detail: A short description
+	 * Return:			None
+	 */
+	private void record(EVENT event, long durationNanos, String detail) {
+		events.lazySet(event.ordinal(), events.get(event.ordinal()) + 1);
+
+		if (listener != null) {
+			listener.eventRecorded(event, durationNanos, detail);
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		getReads
+	 * Description:		Gets the number of reads from a region
+	 * Parameters:		REGION region: The region
+	 * Return:			The read count as a long
+	 */
+	public long getReads(REGION region) {
+		return reads.get(region.ordinal());
+	}
+
+
+
+	/*
+	 * Method Name:		getWrites
+	 * Description:		Gets the number of writes to a region
+	 * Parameters:		REGION region: The region
+	 * Return:			The write count as a long
+	 */
+	public long getWrites(REGION region) {
+		return writes.get(region.ordinal());
+	}
+
+
+
+	/*
+	 * Method Name:		getEventCount
+	 * Description:		Gets the number of times an event has happened
+	 * Parameters:		EVENT event: The kind of event
+	 * Return:			The event count as a long
+	 */
+	public long getEventCount(EVENT event) {
+		return events.get(event.ordinal());
+	}
+
+
+
+	/*
+	 * Method Name:		getLastParseNanos
+	 * Description:		Gets how long the last image took to parse
+	 * Parameters:		None
+	 * Return:			The time in nanoseconds, or 0 if it was not reported
+	 */
+	public long getLastParseNanos() {
+		return lastParseNanos;
+	}
+
+
+
+	/*
+	 * Method Name:		getLastCopyNanos
+	 * Description:		Gets how long the last image took to copy into memory
+	 * Parameters:		None
+	 * Return:			The time in nanoseconds
+	 */
+	public long getLastCopyNanos() {
+		return lastCopyNanos;
+	}
+
+
+
+	/*
+	 * Method Name:		getLastBatchInstructions
+	 * Description:		Gets the number of instructions the last run() batch executed
+	 * Parameters:		None
+	 * Return:			The instruction count as a long
+	 */
+	public long getLastBatchInstructions() {
+		return lastBatchInstructions;
+	}
+
+
+
+	/*
+	 * Method Name:		getLastBatchNanos
+	 * Description:		Gets how long the last run() batch took
+	 * Parameters:		None
+	 * Return:			The time in nanoseconds
+	 */
+	public long getLastBatchNanos() {
+		return lastBatchNanos;
+	}
+
+
+
+	/*
+	 * Method Name:		getLastFault
+	 * Description:		Gets a description of the last instruction that failed
+	 * Parameters:		None
+	 * Return:			The address and message, or null if nothing has failed
+	 */
+	public String getLastFault() {
+		return lastFault;
+	}
+
+
+
+	/*
+	 * Method Name:		setListener
+	 * Description:		Sets the listener events are passed to, or removes it with null
+	 * Parameters:		MetricsListener listener: The listener, or null
+	 * Return:			None
+	 */
+	public void setListener(MetricsListener listener) {
+		this.listener = listener;
+	}
+}
@@ -0,0 +1,276 @@
+/*
+ * Filename:		EventScheduler.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the EventScheduler class
+ */
+
+
+
+package emulator;
+
+import java.util.Arrays;
+
+
+
+/*
+ * Class Name:		EventScheduler
+ * Description:		The queue of future events for an emulator's timed devices, kept as a binary min-heap
+ * 					ordered by the cycle count each event is due at.  Events due at the same cycle come out
+ * 					in the order they were scheduled, so a run with the same devices is the same every
+ * 					time.  The emulator compares its cycle count with getNextDeadline once per instruction
+ * 					and only calls runDue when that deadline has passed, so the number of devices makes no
+ * 					difference to the cost of an instruction.
+ */
+public class EventScheduler {
+
+	private final static int INITIAL_CAPACITY = 16;
+
+	private long[] deadlines;
+	private long[] order;
+	private TimedDevice[] devices;
+	private int size;
+	private long scheduled;
+
+
+
+	/*
+	 * Method Name:		EventScheduler
+	 * Description:		Constructor
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public EventScheduler() {
+		deadlines = new long[INITIAL_CAPACITY];
+		order = new long[INITIAL_CAPACITY];
+		devices = new TimedDevice[INITIAL_CAPACITY];
+		size = 0;
+		scheduled = 0;
+	}
+
+
+
+	/*
+	 * Method Name:		schedule
+	 * Description:		Adds an event
+	 * Parameters:		TimedDevice device: The device to call back
+	 * 					long cycle: The cycle count the event is due at
+	 * Return:			None
+	 */
+	public void schedule(TimedDevice device, long cycle) {
+		if (size == deadlines.length) {
+			deadlines = Arrays.copyOf(deadlines, size * 2);
+			order = Arrays.copyOf(order, size * 2);
+			devices = Arrays.copyOf(devices, size * 2);
+		}
+
+		set(size, cycle, scheduled++, device);
+		siftUp(size++);
+	}
+
+
+
+	/*
+	 * Method Name:		cancel
+	 * Description:		Removes every event scheduled by a device
+	 * Parameters:		TimedDevice device: The device
+	 * Return:			The number of events removed
+	 */
+	public int cancel(TimedDevice device) {
+		int removed = 0;
+
+		for (int i = size - 1; i >= 0; i--) {
+			if (devices[i] == device) {
+				removeAt(i);
+				removed++;
+			}
+		}
+
+		return removed;
+	}
+
+
+
+	/*
+	 * Method Name:		runDue
+	 * Description:		Calls back every event due at or before a cycle count, earliest first, including any
+	 * 					the callbacks schedule that are already due
+	 * Parameters:		Freescale6808Emulator emulator: The emulator to pass to the devices
+	 * 					long cycle: The current cycle count
+	 * Return:			The number of events run
+	 */
+	public int runDue(Freescale6808Emulator emulator, long cycle) {
+		int run = 0;
+
+		while (size > 0 && deadlines[0] <= cycle) {
+			long deadline = deadlines[0];
+			TimedDevice device = devices[0];
+
+			// out of the heap before the callback, which may schedule the device again
+			removeAt(0);
+			device.eventDue(emulator, deadline);
+			run++;
+		}
+
+		return run;
+	}
+
+
+
+	/*
+	 * Method Name:		shift
+	 * Description:		Moves every event by the same number of cycles, e.g. when the cycle count is reset, so
+	 * 					each stays the same distance in the future
+	 * Parameters:		long cycles: The number of cycles to add, negative to move events earlier
+	 * Return:			None
+	 */
+	public void shift(long cycles) {
+		for (int i = 0; i < size; i++) {
+			deadlines[i] += cycles;
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		getNextDeadline
+	 * Description:		Gets the cycle count the earliest event is due at
+	 * Parameters:		None
+	 * Return:			The cycle count, or Long.MAX_VALUE if nothing is scheduled
+	 */
+	public long getNextDeadline() {
+		return size == 0 ? Long.MAX_VALUE : deadlines[0];
+	}
+
+
+
+	/*
+	 * Method Name:		size
+	 * Description:		Gets the number of events scheduled
+	 * Parameters:		None
+	 * Return:			The number of events
+	 */
+	public int size() {
+		return size;
+	}
+
+
+
+	/*
+	 * Method Name:		removeAt
+	 * Description:		Removes the event at a heap index, moving the last event into its place
+	 * Parameters:		int index: The heap index
+	 * Return:			None
+	 */
+	private void removeAt(int index) {
+		size--;
+
+		if (index < size) {
+			set(index, deadlines[size], order[size], devices[size]);
+			siftDown(index);
+			siftUp(index);
+		}
+
+		devices[size] = null;
+	}
+
+
+
+	/*
+	 * Method Name:		siftUp
+	 * Description:		Moves an event towards the root until its parent is due no later
+	 * Parameters:		int index: The heap index of the event
+	 * Return:			None
+	 */
+	private void siftUp(int index) {
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+
+			if (!isBefore(index, parent)) {
+				break;
+			}
+
+			swap(index, parent);
+			index = parent;
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		siftDown
+	 * Description:		Moves an event towards the leaves until both children are due no earlier
+	 * Parameters:		int index: The heap index of the event
+	 * Return:			None
+	 */
+	private void siftDown(int index) {
+		while (true) {
+			int child = index * 2 + 1;
+
+			if (child >= size) {
+				break;
+			}
+
+			if (child + 1 < size && isBefore(child + 1, child)) {
+				child++;
+			}
+
+			if (!isBefore(child, index)) {
+				break;
+			}
+
+			swap(index, child);
+			index = child;
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		isBefore
+	 * Description:		Compares two events by deadline, then by the order they were scheduled in
+	 * Parameters:		int first: The heap index of one event
+	 * 					int second: The heap index of the other
+	 * Return:			True if the first comes out before the second
+	 */
+	private boolean isBefore(int first, int second) {
+		return deadlines[first] < deadlines[second]
+				|| (deadlines[first] == deadlines[second] && order[first] < order[second]);
+	}
+
+
+
+	/*
+	 * Method Name:		swap
+	 * Description:		Swaps two events in the heap
+	 * Parameters:		int first: The heap index of one event
+	 * 					int second: The heap index of the other
+	 * Return:			None
+	 */
+	private void swap(int first, int second) {
+		long deadline = deadlines[first];
+		long sequence = order[first];
+		TimedDevice device = devices[first];
+
+		set(first, deadlines[second], order[second], devices[second]);
+		set(second, deadline, sequence, device);
+	}
+
+
+
+	/*
+	 * Method Name:		set
+	 * Description:		Stores an event at a heap index
+	 * Parameters:		int index: The heap index
+	 * 					long deadline: The cycle count it is due at
+	 * 					long sequence: The order it was scheduled in
+	 * 					TimedDevice device: The device to call back
+	 * Return:			None
+	 */
+	private void set(int index, long deadline, long sequence, TimedDevice device) {
+		deadlines[index] = deadline;
+		order[index] = sequence;
+		devices[index] = device;
+	}
+}
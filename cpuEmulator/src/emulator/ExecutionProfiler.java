@@ -0,0 +1,315 @@
+/*
+ * Filename:		ExecutionProfiler.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the ExecutionProfiler class
+ */
+
+
+
+package emulator;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import utilities.AddressRange;
+
+
+
+/*
+ * Class Name:		ExecutionProfiler
+ * Description:		Counts, for every address, how many instructions were executed from it and how many
+ * 					times it was read or written as data.  Counters are flat primitive arrays indexed by
+ * 					address so recording is a single increment.
+ *
+ * 					A profiler is switched on by attaching it to an emulator with setProfiler, and off by
+ * 					attaching null; a detached profiler keeps its counts.  While no profiler is attached the
+ * 					emulator only pays a null check per step.
+ *
+ * 					Binary export layout, big endian:
+ * 						0		magic "6808PROF"
+ * 						8		int version, int reserved
+ * 						16		65536 long execution counts, then read counts, then write counts
+ */
+public class ExecutionProfiler {
+
+	public enum COUNTER {
+		EXECUTIONS,
+		READS,
+		WRITES
+	}
+
+	private final static byte[] MAGIC = { '6', '8', '0', '8', 'P', 'R', 'O', 'F' };
+	private final static int VERSION = 1;
+	private final static int HEADER_SIZE = 16;
+
+	private final long[] executions;
+	private final long[] reads;
+	private final long[] writes;
+
+
+
+	/*
+	 * Method Name:		ExecutionProfiler
+	 * Description:		Constructor
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public ExecutionProfiler() {
+		executions = new long[Freescale6808Emulator.MAX_ADDRESS_SPACE];
+		reads = new long[Freescale6808Emulator.MAX_ADDRESS_SPACE];
+		writes = new long[Freescale6808Emulator.MAX_ADDRESS_SPACE];
+	}
+
+
+
+	/*
+	 * Method Name:		recordExecution
+	 * Description:		Counts an instruction fetched from an address
+	 * Parameters:		int address: The address of the opcode
+	 * Return:			None
+	 */
+	void recordExecution(int address) {
+		executions[address]++;
+	}
+
+
+
+	/*
+	 * Method Name:		recordRead
+	 * Description:		Counts a data read of an address
+	 * Parameters:		int address: The address read
+	 * Return:			None
+	 */
+	void recordRead(int address) {
+		reads[address]++;
+	}
+
+
+
+	/*
+	 * Method Name:		recordWrite
+	 * Description:		Counts a data write of an address
+	 * Parameters:		int address: The address written
+	 * Return:			None
+	 */
+	void recordWrite(int address) {
+		writes[address]++;
+	}
+
+
+
+	/*
+	 * Method Name:		reset
+	 * Description:		Sets every count back to zero
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public void reset() {
+		Arrays.fill(executions, 0);
+		Arrays.fill(reads, 0);
+		Arrays.fill(writes, 0);
+	}
+
+
+
+	/*
+	 * Method Name:		getCount
+	 * Description:		Gets one counter for one address
+	 * Parameters:		COUNTER counter: Which counter
+	 * 					int address: The address
+	 * Return:			The count as a long
+	 */
+	public long getCount(COUNTER counter, int address) {
+		return getCounts(counter)[address];
+	}
+
+
+
+	/*
+	 * Method Name:		getTotal
+	 * Description:		Adds up one counter over a range of addresses, e.g. Freescale6808Emulator.RAM_RANGE
+	 * Parameters:		COUNTER counter: Which counter
+	 * 					AddressRange range: The addresses to add up
+	 * Return:			The total as a long
+	 */
+	public long getTotal(COUNTER counter, AddressRange range) {
+		long[] counts = getCounts(counter);
+		long total = 0;
+
+		for (int address = range.getStart(); address <= range.getEnd(); address++) {
+			total += counts[address];
+		}
+
+		return total;
+	}
+
+
+
+	/*
+	 * Method Name:		getHotAddresses
+	 * Description:		Finds the addresses with the highest counts, busiest first.  Addresses that were never
+	 * 					counted are left out, so fewer than the limit may be returned
+	 * Parameters:		COUNTER counter: Which counter
+	 * 					int limit: The most addresses to return
+	 * Return:			The addresses as an int array
+	 */
+	public int[] getHotAddresses(COUNTER counter, int limit) {
+		long[] counts = getCounts(counter);
+		int[] hottest = new int[Math.max(limit, 0)];
+		int found = 0;
+
+		if (hottest.length == 0) {
+			return hottest;
+		}
+
+		// keep a small sorted table, only addresses beating the coolest entry are inserted
+		for (int address = 0; address < counts.length; address++) {
+			long count = counts[address];
+
+			if (count == 0 || (found == hottest.length && count <= counts[hottest[found - 1]])) {
+				continue;
+			}
+
+			int slot = found < hottest.length ? found++ : found - 1;
+
+			while (slot > 0 && counts[hottest[slot - 1]] < count) {
+				hottest[slot] = hottest[slot - 1];
+				slot--;
+			}
+
+			hottest[slot] = address;
+		}
+
+		return Arrays.copyOf(hottest, found);
+	}
+
+
+
+	/*
+	 * Method Name:		getReport
+	 * Description:		Builds a readable report of the hottest addresses for each counter and the totals for
+	 * 					the hardware, RAM and ROM regions
+	 * Parameters:		int limit: The most addresses to list per counter
+	 * Return:			The report as a String
+	 */
+	public String getReport(int limit) {
+		AddressRange[] regions = { Freescale6808Emulator.HARDWARE_RANGE, Freescale6808Emulator.RAM_RANGE,
+				Freescale6808Emulator.ROM_RANGE };
+		String[] regionNames = { "Hardware", "RAM", "ROM" };
+		StringBuilder report = new StringBuilder();
+
+		report.append(String.format("%-10s %-13s %14s %14s %14s%n", "Region", "Addresses", "Executions", "Reads", "Writes"));
+
+		for (int i = 0; i < regions.length; i++) {
+			report.append(String.format("%-10s %-13s %14d %14d %14d%n", regionNames[i], regions[i],
+					getTotal(COUNTER.EXECUTIONS, regions[i]), getTotal(COUNTER.READS, regions[i]),
+					getTotal(COUNTER.WRITES, regions[i])));
+		}
+
+		for (COUNTER counter : COUNTER.values()) {
+			long[] counts = getCounts(counter);
+			int[] hottest = getHotAddresses(counter, limit);
+
+			report.append(String.format("%nHottest addresses by %s%n", counter.name().toLowerCase()));
+
+			if (hottest.length == 0) {
+				report.append("  none\n");
+			}
+
+			for (int address : hottest) {
+				report.append(String.format("  $%04X %14d%n", address, counts[address]));
+			}
+		}
+
+		return report.toString();
+	}
+
+
+
+	/*
+	 * Method Name:		exportCsv
+	 * Description:		Writes one line per address that was counted at all
+	 * Parameters:		File file: The file to write, replaced if it exists
+	 * Return:			None
+	 */
+	public void exportCsv(File file) throws IOException {
+		BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+
+		try {
+			writer.write("address,executions,reads,writes");
+			writer.newLine();
+
+			for (int address = 0; address < executions.length; address++) {
+				if (executions[address] != 0 || reads[address] != 0 || writes[address] != 0) {
+					writer.write(String.format("$%04X,%d,%d,%d", address, executions[address], reads[address], writes[address]));
+					writer.newLine();
+				}
+			}
+		}
+		finally {
+			writer.close();
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		exportBinary
+	 * Description:		Writes every counter as flat big endian longs for post processing tools
+	 * Parameters:		File file: The file to write, replaced if it exists
+	 * Return:			None
+	 */
+	public void exportBinary(File file) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 3 * executions.length * 8);
+		buffer.put(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(0);
+
+		LongBuffer counts = buffer.asLongBuffer();
+		counts.put(executions);
+		counts.put(reads);
+		counts.put(writes);
+
+		FileOutputStream stream = new FileOutputStream(file);
+
+		try {
+			FileChannel channel = stream.getChannel();
+			buffer.clear();
+
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+		finally {
+			stream.close();
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		getCounts
+	 * Description:		Gets the array behind a counter
+	 * Parameters:		COUNTER counter: Which counter
+	 * Return:			The counts as a long array
+	 */
+	private long[] getCounts(COUNTER counter) {
+		switch (counter) {
+		case READS:
+			return reads;
+		case WRITES:
+			return writes;
+		default:
+			return executions;
+		}
+	}
+}
@@ -0,0 +1,930 @@
+/*
+ * Filename:		ExpressionCompiler.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the ExpressionCompiler class
+ */
+
+
+
+package emulator;
+
+
+
+/*
+ * Class Name:		ExpressionCompiler
+ * Description:		Parses breakpoint conditions and watch expressions once and compiles them into a tree of
+ * 					small node objects, one class per operation, so evaluating them is a chain of direct
+ * 					calls with no parsing, lookups or operator switches.  Parts that do not depend on the
+ * 					machine are folded into constants, a memory read at a constant address becomes a single
+ * 					node, and comparisons against a constant are fused into one node, so a condition like
+ * 					"mem[$80] > 10" is two calls deep.
+ *
+ * 					Values are ints.  Operands are numbers (decimal, $hex, 0xhex or %binary), the registers
+ * 					A, H, X, HX, SP, PC and CCR, and mem[address] for an unsigned memory byte.  Operators,
+ * 					loosest first, are ||, &&, |, ^, &, == !=, < <= > >=, + -, and the unary ! - ~.  && and
+ * 					|| give 1 or 0 and only evaluate their right side when needed.
+ */
+public class ExpressionCompiler {
+
+	private final String text;
+	private int position;
+
+
+
+	/*
+	 * Method Name:		ExpressionCompiler
+	 * Description:		Constructor
+	 * Parameters:		String text: The expression to compile
+	 * Return:			None
+	 */
+	private ExpressionCompiler(String text) {
+		this.text = text;
+		this.position = 0;
+	}
+
+
+
+	/*
+	 * Method Name:		compile
+	 * Description:		Compiles an expression
+	 * Parameters:		String text: The expression
+	 * Return:			The CompiledExpression
+	 */
+	public static CompiledExpression compile(String text) throws Exception {
+		ExpressionCompiler compiler = new ExpressionCompiler(text);
+		Node root = compiler.parseOr();
+
+		compiler.skipSpaces();
+
+		if (compiler.position < text.length()) {
+			throw compiler.error("Unexpected \"" + text.substring(compiler.position) + "\"");
+		}
+
+		return new CompiledExpression(text.trim(), root);
+	}
+
+
+
+	/*
+	 * Method Name:		parseOr
+	 * Description:		Parses operands joined by ||
+	 * Parameters:		None
+	 * Return:			The compiled node
+	 */
+	private Node parseOr() throws Exception {
+		Node node = parseAnd();
+
+		while (accept("||")) {
+			node = fold(new Or(node, parseAnd()));
+		}
+
+		return node;
+	}
+
+
+
+	/*
+	 * Method Name:		parseAnd
+	 * Description:		Parses operands joined by &&
+	 * Parameters:		None
+	 * Return:			The compiled node
+	 */
+	private Node parseAnd() throws Exception {
+		Node node = parseBitOr();
+
+		while (accept("&&")) {
+			node = fold(new And(node, parseBitOr()));
+		}
+
+		return node;
+	}
+
+
+
+	/*
+	 * Method Name:		parseBitOr
+	 * Description:		Parses operands joined by |
+	 * Parameters:		None
+	 * Return:			The compiled node
+	 */
+	private Node parseBitOr() throws Exception {
+		Node node = parseBitXor();
+
+		while (!peek("||") && accept("|")) {
+			node = fold(new BitOr(node, parseBitXor()));
+		}
+
+		return node;
+	}
+
+
+
+	/*
+	 * Method Name:		parseBitXor
+	 * Description:		Parses operands joined by ^
+	 * Parameters:		None
+	 * Return:			The compiled node
+	 */
+	private Node parseBitXor() throws Exception {
+		Node node = parseBitAnd();
+
+		while (accept("^")) {
+			node = fold(new BitXor(node, parseBitAnd()));
+		}
+
+		return node;
+	}
+
+
+
+	/*
+	 * Method Name:		parseBitAnd
+	 * Description:		Parses operands joined by &
+	 * Parameters:		None
+	 * Return:			The compiled node
+	 */
+	private Node parseBitAnd() throws Exception {
+		Node node = parseEquality();
+
+		while (!peek("&&") && accept("&")) {
+			node = fold(new BitAnd(node, parseEquality()));
+		}
+
+		return node;
+	}
+
+
+
+	/*
+	 * Method Name:		parseEquality
+	 * Description:		Parses operands joined by == or !=
+	 * Parameters:		None
+	 * Return:			The compiled node
+	 */
+	private Node parseEquality() throws Exception {
+		Node node = parseRelational();
+
+		while (true) {
+			if (accept("==")) {
+				node = compare(node, "==", parseRelational());
+			}
+			else if (accept("!=")) {
+				node = compare(node, "!=", parseRelational());
+			}
+			else {
+				return node;
+			}
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		parseRelational
+	 * Description:		Parses operands joined by <, <=, > or >=
+	 * Parameters:		None
+	 * Return:			The compiled node
+	 */
+	private Node parseRelational() throws Exception {
+		Node node = parseAdditive();
+
+		while (true) {
+			if (accept("<=")) {
+				node = compare(node, "<=", parseAdditive());
+			}
+			else if (accept(">=")) {
+				node = compare(node, ">=", parseAdditive());
+			}
+			else if (accept("<")) {
+				node = compare(node, "<", parseAdditive());
+			}
+			else if (accept(">")) {
+				node = compare(node, ">", parseAdditive());
+			}
+			else {
+				return node;
+			}
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		parseAdditive
+	 * Description:		Parses operands joined by + or -
+	 * Parameters:		None
+	 * Return:			The compiled node
+	 */
+	private Node parseAdditive() throws Exception {
+		Node node = parseUnary();
+
+		while (true) {
+			if (accept("+")) {
+				node = fold(new Add(node, parseUnary()));
+			}
+			else if (accept("-")) {
+				node = fold(new Subtract(node, parseUnary()));
+			}
+			else {
+				return node;
+			}
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		parseUnary
+	 * Description:		Parses an operand with any unary operators in front of it
+	 * Parameters:		None
+	 * Return:			The compiled node
+	 */
+	private Node parseUnary() throws Exception {
+		if (!peek("!=") && accept("!")) {
+			return fold(new Not(parseUnary()));
+		}
+		else if (accept("-")) {
+			return fold(new Negate(parseUnary()));
+		}
+		else if (accept("~")) {
+			return fold(new Complement(parseUnary()));
+		}
+
+		return parsePrimary();
+	}
+
+
+
+	/*
+	 * Method Name:		parsePrimary
+	 * Description:		Parses a number, register, memory read or bracketed expression
+	 * Parameters:		None
+	 * Return:			The compiled node
+	 */
+	private Node parsePrimary() throws Exception {
+		skipSpaces();
+
+		if (accept("(")) {
+			Node node = parseOr();
+			expect(")");
+			return node;
+		}
+
+		if (position >= text.length()) {
+			throw error("Expression ends too soon");
+		}
+
+		char first = text.charAt(position);
+
+		if (Character.isDigit(first) || first == '$' || first == '%') {
+			return new Constant(parseNumber());
+		}
+
+		if (!Character.isLetter(first)) {
+			throw error("Unexpected \"" + first + "\"");
+		}
+
+		int start = position;
+
+		while (position < text.length() && Character.isLetterOrDigit(text.charAt(position))) {
+			position++;
+		}
+
+		String name = text.substring(start, position).toUpperCase();
+
+		if (name.equals("MEM")) {
+			expect("[");
+			Node address = parseOr();
+			expect("]");
+
+			// a constant address is read directly, with no child node to evaluate
+			if (address instanceof Constant) {
+				return new MemoryAt(address.evaluate(null) & 0xffff);
+			}
+
+			return new Memory(address);
+		}
+		else if (name.equals("A")) {
+			return new RegisterA();
+		}
+		else if (name.equals("H")) {
+			return new RegisterH();
+		}
+		else if (name.equals("X")) {
+			return new RegisterX();
+		}
+		else if (name.equals("HX")) {
+			return new RegisterHX();
+		}
+		else if (name.equals("SP")) {
+			return new RegisterSP();
+		}
+		else if (name.equals("PC")) {
+			return new RegisterPC();
+		}
+		else if (name.equals("CCR")) {
+			return new RegisterCCR();
+		}
+
+		throw error("Unknown name \"" + name + "\"");
+	}
+
+
+
+	/*
+	 * Method Name:		parseNumber
+	 * Description:		Parses a decimal, $hex, 0xhex or %binary number
+	 * Parameters:		None
+	 * Return:			The value
+	 */
+	private int parseNumber() throws Exception {
+		int radix = 10;
+
+		if (accept("$")) {
+			radix = 16;
+		}
+		else if (accept("%")) {
+			radix = 2;
+		}
+		else if (text.startsWith("0x", position) || text.startsWith("0X", position)) {
+			position += 2;
+			radix = 16;
+		}
+
+		int start = position;
+
+		while (position < text.length() && Character.digit(text.charAt(position), radix) >= 0) {
+			position++;
+		}
+
+		if (start == position) {
+			throw error("Number expected");
+		}
+
+		try {
+			return Integer.parseInt(text.substring(start, position), radix);
+		}
+		catch (NumberFormatException ex) {
+			throw error("Number too large");
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		compare
+	 * Description:		Builds a comparison, fused with its operand when the other side is a constant
+	 * Parameters:		Node left: The left operand
+	 * 					String operator: One of == != < <= > >=
+	 * 					Node right: The right operand
+	 * Return:			The compiled node
+	 */
+	private static Node compare(Node left, String operator, Node right) {
+		// put any constant on the right so there is only one fused form of each comparison
+		if (left instanceof Constant && !(right instanceof Constant)) {
+			Node swapped = left;
+			left = right;
+			right = swapped;
+
+			if (operator.startsWith("<")) {
+				operator = ">" + operator.substring(1);
+			}
+			else if (operator.startsWith(">")) {
+				operator = "<" + operator.substring(1);
+			}
+		}
+
+		if (right instanceof Constant && !(left instanceof Constant)) {
+			int value = right.evaluate(null);
+
+			if (operator.equals("==")) {
+				return new EqualTo(left, value);
+			}
+			else if (operator.equals("!=")) {
+				return new NotEqualTo(left, value);
+			}
+			else if (operator.equals("<")) {
+				return new LessThan(left, value);
+			}
+			else if (operator.equals(">")) {
+				return new GreaterThan(left, value);
+			}
+			else if (operator.equals("<=") && value != Integer.MAX_VALUE) {
+				return new LessThan(left, value + 1);
+			}
+			else if (operator.equals(">=") && value != Integer.MIN_VALUE) {
+				return new GreaterThan(left, value - 1);
+			}
+		}
+
+		if (operator.equals("==")) {
+			return fold(new Equal(left, right));
+		}
+		else if (operator.equals("!=")) {
+			return fold(new Not(new Equal(left, right)));
+		}
+		else if (operator.equals("<")) {
+			return fold(new Less(left, right));
+		}
+		else if (operator.equals(">")) {
+			return fold(new Less(right, left));
+		}
+		else if (operator.equals("<=")) {
+			return fold(new Not(new Less(right, left)));
+		}
+
+		return fold(new Not(new Less(left, right)));
+	}
+
+
+
+	/*
+	 * Method Name:		fold
+	 * Description:		Replaces a node whose operands are all constants with its value
+	 * Parameters:		Node node: The node
+	 * Return:			The node, or a Constant
+	 */
+	private static Node fold(Node node) {
+		return node.isConstant() ? new Constant(node.evaluate(null)) : node;
+	}
+
+
+
+	/*
+	 * Method Name:		skipSpaces
+	 * Description:		Moves past any whitespace
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	private void skipSpaces() {
+		while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+			position++;
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		peek
+	 * Description:		Determines whether a token comes next, without moving past it
+	 * Parameters:		String token: The token
+	 * Return:			True if it comes next
+	 */
+	private boolean peek(String token) {
+		skipSpaces();
+		return text.startsWith(token, position);
+	}
+
+
+
+	/*
+	 * Method Name:		accept
+	 * Description:		Moves past a token if it comes next
+	 * Parameters:		String token: The token
+	 * Return:			True if it came next
+	 */
+	private boolean accept(String token) {
+		if (peek(token)) {
+			position += token.length();
+			return true;
+		}
+
+		return false;
+	}
+
+
+
+	/*
+	 * Method Name:		expect
+	 * Description:		Moves past a token that must come next
+	 * Parameters:		String token: The token
+	 * Return:			None
+	 */
+	private void expect(String token) throws Exception {
+		if (!accept(token)) {
+			throw error("\"" + token + "\" expected");
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		error
+	 * Description:		Makes an exception describing a mistake at the current position
+	 * Parameters:		String message: What is wrong
+	 * Return:			The exception to throw
+	 */
+	private Exception error(String message) {
+		return new Exception(message + " at column " + (position + 1) + " of \"" + text + "\"");
+	}
+
+
+
+	/*
+	 * Class Name:		Node
+	 * Description:		One operation of a compiled expression
+	 */
+	static abstract class Node {
+
+		/*
+		 * Method Name:		evaluate
+		 * Description:		Works out the node's value
+		 * Parameters:		Freescale6808Emulator emulator: The emulator, null when folding constants
+		 * Return:			The value as an int
+		 */
+		abstract int evaluate(Freescale6808Emulator emulator);
+
+
+
+		/*
+		 * Method Name:		isConstant
+		 * Description:		Determines whether the value is the same in every machine state
+		 * Parameters:		None
+		 * Return:			True if it is
+		 */
+		boolean isConstant() {
+			return false;
+		}
+	}
+
+
+
+	/*
+	 * Class Name:		Unary
+	 * Description:		A node with one operand
+	 */
+	private static abstract class Unary extends Node {
+
+		protected final Node operand;
+
+		Unary(Node operand) {
+			this.operand = operand;
+		}
+
+		boolean isConstant() {
+			return operand.isConstant();
+		}
+	}
+
+
+
+	/*
+	 * Class Name:		Binary
+	 * Description:		A node with two operands
+	 */
+	private static abstract class Binary extends Node {
+
+		protected final Node left;
+		protected final Node right;
+
+		Binary(Node left, Node right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		boolean isConstant() {
+			return left.isConstant() && right.isConstant();
+		}
+	}
+
+
+
+	/*
+	 * Class Name:		Comparison
+	 * Description:		A comparison of a node with a constant
+	 */
+	private static abstract class Comparison extends Node {
+
+		protected final Node operand;
+		protected final int value;
+
+		Comparison(Node operand, int value) {
+			this.operand = operand;
+			this.value = value;
+		}
+	}
+
+
+
+	private static final class Constant extends Node {
+
+		private final int value;
+
+		Constant(int value) {
+			this.value = value;
+		}
+
+		int evaluate(Freescale6808Emulator emulator) {
+			return value;
+		}
+
+		boolean isConstant() {
+			return true;
+		}
+	}
+
+
+
+	private static final class RegisterA extends Node {
+
+		int evaluate(Freescale6808Emulator emulator) {
+			return emulator.getCpu().getA() & 0xff;
+		}
+	}
+
+
+
+	private static final class RegisterH extends Node {
+
+		int evaluate(Freescale6808Emulator emulator) {
+			return emulator.getCpu().getH() & 0xff;
+		}
+	}
+
+
+
+	private static final class RegisterX extends Node {
+
+		int evaluate(Freescale6808Emulator emulator) {
+			return emulator.getCpu().getX() & 0xff;
+		}
+	}
+
+
+
+	private static final class RegisterHX extends Node {
+
+		int evaluate(Freescale6808Emulator emulator) {
+			return emulator.getCpu().getHX() & 0xffff;
+		}
+	}
+
+
+
+	private static final class RegisterSP extends Node {
+
+		int evaluate(Freescale6808Emulator emulator) {
+			return emulator.getCpu().getSP() & 0xffff;
+		}
+	}
+
+
+
+	private static final class RegisterPC extends Node {
+
+		int evaluate(Freescale6808Emulator emulator) {
+			return emulator.getCpu().getPC() & 0xffff;
+		}
+	}
+
+
+
+	private static final class RegisterCCR extends Node {
+
+		int evaluate(Freescale6808Emulator emulator) {
+			return emulator.getCpu().getCCR() & 0xff;
+		}
+	}
+
+
+
+	private static final class MemoryAt extends Node {
+
+		private final int address;
+
+		MemoryAt(int address) {
+			this.address = address;
+		}
+
+		int evaluate(Freescale6808Emulator emulator) {
+			return emulator.getMemoryByte(address) & 0xff;
+		}
+	}
+
+
+
+	private static final class Memory extends Unary {
+
+		Memory(Node address) {
+			super(address);
+		}
+
+		int evaluate(Freescale6808Emulator emulator) {
+			return emulator.getMemoryByte(operand.evaluate(emulator) & 0xffff) & 0xff;
+		}
+
+		boolean isConstant() {
+			return false;
+		}
+	}
+
+
+
+	private static final class Not extends Unary {
+
+		Not(Node operand) {
+			super(operand);
+		}
+
+		int evaluate(Freescale6808Emulator emulator) {
+			return operand.evaluate(emulator) == 0 ? 1 : 0;
+		}
+	}
+
+
+
+	private static final class Negate extends Unary {
+
+		Negate(Node operand) {
+			super(operand);
+		}
+
+		int evaluate(Freescale6808Emulator emulator) {
+			return -operand.evaluate(emulator);
+		}
+	}
+
+
+
+	private static final class Complement extends Unary {
+
+		Complement(Node operand) {
+			super(operand);
+		}
+
+		int evaluate(Freescale6808Emulator emulator) {
+			return ~operand.evaluate(emulator);
+		}
+	}
+
+
+
+	private static final class Or extends Binary {
+
+		Or(Node left, Node right) {
+			super(left, right);
+		}
+
+		int evaluate(Freescale6808Emulator emulator) {
+			return left.evaluate(emulator) != 0 || right.evaluate(emulator) != 0 ? 1 : 0;
+		}
+	}
+
+
+
+	private static final class And extends Binary {
+
+		And(Node left, Node right) {
+			super(left, right);
+		}
+
+		int evaluate(Freescale6808Emulator emulator) {
+			return left.evaluate(emulator) != 0 && right.evaluate(emulator) != 0 ? 1 : 0;
+		}
+	}
+
+
+
+	private static final class BitOr extends Binary {
+
+		BitOr(Node left, Node right) {
+			super(left, right);
+		}
+
+		int evaluate(Freescale6808Emulator emulator) {
+			return left.evaluate(emulator) | right.evaluate(emulator);
+		}
+	}
+
+
+
+	private static final class BitXor extends Binary {
+
+		BitXor(Node left, Node right) {
+			super(left, right);
+		}
+
+		int evaluate(Freescale6808Emulator emulator) {
+			return left.evaluate(emulator) ^ right.evaluate(emulator);
+		}
+	}
+
+
+
+	private static final class BitAnd extends Binary {
+
+		BitAnd(Node left, Node right) {
+			super(left, right);
+		}
+
+		int evaluate(Freescale6808Emulator emulator) {
+			return left.evaluate(emulator) & right.evaluate(emulator);
+		}
+	}
+
+
+
+	private static final class Equal extends Binary {
+
+		Equal(Node left, Node right) {
+			super(left, right);
+		}
+
+		int evaluate(Freescale6808Emulator emulator) {
+			return left.evaluate(emulator) == right.evaluate(emulator) ? 1 : 0;
+		}
+	}
+
+
+
+	private static final class Less extends Binary {
+
+		Less(Node left, Node right) {
+			super(left, right);
+		}
+
+		int evaluate(Freescale6808Emulator emulator) {
+			return left.evaluate(emulator) < right.evaluate(emulator) ? 1 : 0;
+		}
+	}
+
+
+
+	private static final class Add extends Binary {
+
+		Add(Node left, Node right) {
+			super(left, right);
+		}
+
+		int evaluate(Freescale6808Emulator emulator) {
+			return left.evaluate(emulator) + right.evaluate(emulator);
+		}
+	}
+
+
+
+	private static final class Subtract extends Binary {
+
+		Subtract(Node left, Node right) {
+			super(left, right);
+		}
+
+		int evaluate(Freescale6808Emulator emulator) {
+			return left.evaluate(emulator) - right.evaluate(emulator);
+		}
+	}
+
+
+
+	private static final class EqualTo extends Comparison {
+
+		EqualTo(Node operand, int value) {
+			super(operand, value);
+		}
+
+		int evaluate(Freescale6808Emulator emulator) {
+			return operand.evaluate(emulator) == value ? 1 : 0;
+		}
+	}
+
+
+
+	private static final class NotEqualTo extends Comparison {
+
+		NotEqualTo(Node operand, int value) {
+			super(operand, value);
+		}
+
+		int evaluate(Freescale6808Emulator emulator) {
+			return operand.evaluate(emulator) != value ? 1 : 0;
+		}
+	}
+
+
+
+	private static final class LessThan extends Comparison {
+
+		LessThan(Node operand, int value) {
+			super(operand, value);
+		}
+
+		int evaluate(Freescale6808Emulator emulator) {
+			return operand.evaluate(emulator) < value ? 1 : 0;
+		}
+	}
+
+
+
+	private static final class GreaterThan extends Comparison {
+
+		GreaterThan(Node operand, int value) {
+			super(operand, value);
+		}
+
+		int evaluate(Freescale6808Emulator emulator) {
+			return operand.evaluate(emulator) > value ? 1 : 0;
+		}
+	}
+}
@@ -12,10 +12,13 @@
 
 package emulator;
 
-import java.util.ArrayList;
-import java.util.Iterator;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 
+import utilities.AddressRange;
+import utilities.LoadedImage;
 import utilities.UnsignedData;
 import cpu.Freescale6808CPU;
 import cpu.Freescale6808CPU.CCR_BIT;
@@ -23,10 +26,10 @@ import cpu.Freescale6808CPU.CCR_BIT;
 
 /*
  * Class Name:		Freescale6808Emulator
- * Description:		Defines the 6808 emulator object.  Contains a 6808 CPU object, a byte array representing
- * 					the microcontroller memory.  
+ * Description:		Defines the 6808 emulator object.  Contains a 6808 CPU object, and a MachineMemory representing
+ * 					the microcontroller memory, kept on-heap by default or off-heap when a DirectMemory is given.  
  * 					
- * 					Contains public methods to load the virtual memory with SREC data, and "single step" the emulator, 
+ * 					Contains public methods to load the virtual memory with a program image, and "single step" the emulator, 
  * 					which causes the emulator to process an instruction in memory based on the current CPU state 
  * 					and current memory values.  Other methods allow one or two bytes of memory to be accessed, and the entire 
  * 					CPU object may be retrieved or set at any time.
@@ -36,13 +39,32 @@ import cpu.Freescale6808CPU.CCR_BIT;
 public class Freescale6808Emulator { 
 	
 	private Freescale6808CPU cpu;	
-	private short originalPC;
-	private List<byte[]> s1Records;
+	private LoadedImage image;
+	private byte[] pristineMemory;
+	private long instructionCount;
+	private ExecutionProfiler profiler;
+	private CoverageMap coverage;
+	private SamplingProfiler sampler;
+	private InstructionListener[] listeners;
+	private int lastWriteAddress;
+	private InputLog inputLog;
+	private EmulatorMetrics metrics;
+	private Breakpoints breakpoints;
+	private byte[] watchedPages;
+	private ObservedState observedState;
+	private IdleDetector idleDetector;
+	private EventScheduler events;
+	private long nextEventCycle;
+	private int pendingInterrupts;
+	private long interruptCount;
+	private long unhandledInterruptCount;
+	private long serviceCount;
 
-	private byte[] memory;
+	private MachineMemory memory;
 	public final static int MAX_ADDRESS_SPACE = 65536;	
 	
-	private byte[] map;
+	// the memory map is the same for every machine, so it is built once and shared
+	private final static byte[] map = buildMemoryMap();
 	private final static byte NOTHING_ATTACHED = 0;
 	private final static byte RAM_MEMORY = 1;
 	private final static byte ROM_MEMORY = 2;
@@ -55,10 +77,18 @@ public class Freescale6808Emulator {
 	private final static short START_OF_ROM = (short)0x1080;
 	private final static short END_OF_ROM = (short)0xFFFF;
 	
+	public final static AddressRange HARDWARE_RANGE = new AddressRange(START_OF_HARDWARE, END_OF_HARDWARE);
+	public final static AddressRange RAM_RANGE = new AddressRange(START_OF_RAM, END_OF_RAM);
+	public final static AddressRange ROM_RANGE = new AddressRange(START_OF_ROM, UnsignedData.convertShortToUnsignedShort(END_OF_ROM));
+	
 	private final static short PORT_A_DATA = (short)0x0000;
 	private final static short PORT_A_PULLUPS = (short)0x0001;
 	private final static short PORT_A_DATA_DIRECTION = (short)0x0003;
 	
+	public final static int FIRST_VECTOR = 0xffc0;
+	public final static int LAST_VECTOR = 0xfffe;
+	private final static int INTERRUPT_CYCLES = 9;
+	
 	public enum SWITCH_BIT {
 		SWITCH_ONE,
 		SWITCH_TWO,
@@ -66,6 +96,14 @@ public class Freescale6808Emulator {
 		SWITCH_FOUR
 	};
 	
+	public enum REGISTER {
+		A,
+		CCR,
+		HX,
+		SP,
+		PC
+	};
+	
 	private final static byte switchOneMask = (byte)0x10;
 	private final static byte switchTwoMask = (byte)0x20;
 	private final static byte switchThreeMask = (byte)0x40;
@@ -75,26 +113,80 @@ public class Freescale6808Emulator {
 	
 	/*
 	 * Method Name:		Freescale6808Emulator
-	 * Description:		Default constructor
+	 * Description:		Default constructor, memory is kept on-heap
 	 * Parameters:		None
 	 * Return:			None
 	 */	
 	public Freescale6808Emulator() {
+		this(new HeapMemory());
+	}
+	
+	
+	
+	/*
+	 * Method Name:		Freescale6808Emulator
+	 * Description:		Constructor using the given memory backend, e.g. DirectMemory from a MemoryArena
+	 * 					to keep the machine's memory off-heap
+	 * Parameters:		MachineMemory memory: The zeroed memory to use
+	 * Return:			None
+	 */	
+	public Freescale6808Emulator(MachineMemory memory) {
+		this(memory, new Freescale6808CPU());
+	}
+	
+	
+	
+	/*
+	 * Method Name:		Freescale6808Emulator
+	 * Description:		Constructor using the given memory backend and CPU, e.g. the memory and CPU of a
+	 * 					MappedMachineState so the whole machine lives in a file
+	 * Parameters:		MachineMemory memory: The memory to use
+	 * 					Freescale6808CPU cpu: The CPU to use
+	 * Return:			None
+	 */	
+	public Freescale6808Emulator(MachineMemory memory, Freescale6808CPU cpu) {
 		
-		this.cpu = new Freescale6808CPU();
-		originalPC = (short)0x0000;
-		s1Records = new ArrayList<byte[]>();
+		this.cpu = cpu;
+		image = null;
+		pristineMemory = null;
+		instructionCount = 0;
+		profiler = null;
+		coverage = null;
+		sampler = null;
+		listeners = null;
+		lastWriteAddress = -1;
+		inputLog = null;
+		metrics = null;
+		breakpoints = null;
+		watchedPages = null;
+		observedState = null;
+		idleDetector = null;
+		events = new EventScheduler();
+		nextEventCycle = Long.MAX_VALUE;
+		pendingInterrupts = 0;
+		interruptCount = 0;
+		unhandledInterruptCount = 0;
+		serviceCount = 0;
+		this.memory = memory;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		buildMemoryMap
+	 * Description:		Builds the map of which device is attached at each address
+	 * Parameters:		None
+	 * Return:			The memory map as a byte array
+	 */	
+	private static byte[] buildMemoryMap() {
 		
-		memory = new byte[MAX_ADDRESS_SPACE];
-		map = new byte[MAX_ADDRESS_SPACE];
+		byte[] map = new byte[MAX_ADDRESS_SPACE];
 		
-		// init memory
+		// init map
 		for (int i = 0; i < MAX_ADDRESS_SPACE; i++) {
-			memory[i] = 0;
-			map[i] = 0;
+			map[i] = NOTHING_ATTACHED;
 		}
 		
-		// init map
 		for (short i = START_OF_HARDWARE; i <= END_OF_HARDWARE; i++) {
 			map[UnsignedData.convertShortToUnsignedShort(i)] = HARDWARE_ACCESS;
 		}
@@ -103,13 +195,16 @@ public class Freescale6808Emulator {
 			map[UnsignedData.convertShortToUnsignedShort(i)] = RAM_MEMORY;
 		}
 		
-		for (short i = START_OF_ROM; i <= END_OF_ROM; i++) {
-			map[UnsignedData.convertShortToUnsignedShort(i)] = ROM_MEMORY;
+		// END_OF_ROM is $FFFF, so count with an int to stop the loop wrapping around
+		for (int i = UnsignedData.convertShortToUnsignedShort(START_OF_ROM); i <= UnsignedData.convertShortToUnsignedShort(END_OF_ROM); i++) {
+			map[i] = ROM_MEMORY;
 		}
+		
+		return map;
 	}
 	
-
-
+	
+	
 	/*
 	 * Method Name:		loadSrecIntoMemory
 	 * Description:		Loads S1 records into the virtual memory
@@ -118,37 +213,121 @@ public class Freescale6808Emulator {
 	 * Return:			True if successfully loaded, false otherwise   
 	 */	
 	public boolean loadSrecIntoMemory(short pcAddress, List<byte[]> s1Records) throws Exception {
+		return loadImage(LoadedImage.fromS1Records("S-Record", pcAddress, s1Records));
+	}
+	
+	
+	
+	/*
+	 * Method Name:		loadImage
+	 * Description:		Copies every segment of a program image into virtual memory with a bulk get
+	 * 					and sets the PC to the image's entry point.  The image is kept so it can be reloaded
+	 * Parameters:		LoadedImage image: The image to load
+	 * Return:			True if successfully loaded, false otherwise
+	 */	
+	public boolean loadImage(LoadedImage image) throws Exception {
 		boolean success = true;
-		int s1RecordAddress = UnsignedData.convertShortToUnsignedShort(pcAddress);
 		
-		cpu.setPC(pcAddress);	
-		originalPC = pcAddress;
-		this.s1Records = s1Records;
+		// check every segment before touching memory
+		for (LoadedImage.Segment segment : image.getSegments()) {
+			if (segment.getAddress() < 0 || segment.getAddress() + segment.getLength() > MAX_ADDRESS_SPACE) {
+				throw new Exception("Memory out of bounds!");
+			}
+		}
+		
+		long started = metrics != null ? System.nanoTime() : 0;
+		
+		cpu.setPC(image.getEntryPoint());
+		
+		if (this.image != image) {
+			this.image = image;
+			pristineMemory = null;
+		}
+		
+		for (LoadedImage.Segment segment : image.getSegments()) {
+			memory.put(segment.getAddress(), segment.getData());
+		}
+		
+		if (metrics != null) {
+			metrics.recordImageLoad(image.getName(), System.nanoTime() - started);
+		}
 		
-		for (byte[] s1Record : s1Records) {
+		return success;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		getLoadedImage
+	 * Description:		Gets the last image loaded into memory
+	 * Parameters:		None
+	 * Return:			The image, or null if nothing has been loaded
+	 */	
+	public LoadedImage getLoadedImage() {
+		return image;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		getPristineMemory
+	 * Description:		Gets what memory looked like straight after the current image was loaded, built
+	 * 					on first use.  Checkpoints store memory as a delta against this
+	 * Parameters:		None
+	 * Return:			The pristine memory as a byte array, which must not be modified
+	 */	
+	byte[] getPristineMemory() {
+		if (pristineMemory == null) {
+			byte[] pristine = new byte[MAX_ADDRESS_SPACE];
 			
-			for (int i = 0; i < s1Record.length; i++) {
-				
-				if (i == 0) {
-					s1RecordAddress = (short)s1Record[i];
+			if (image != null) {
+				for (LoadedImage.Segment segment : image.getSegments()) {
+					segment.getData().get(pristine, segment.getAddress(), segment.getLength());
 				}
-				else if (i == 1) {
-					s1RecordAddress = (short)((s1RecordAddress << 8) | s1Record[i]);
-				}
-				else {
-					
-					if (s1RecordAddress >= MAX_ADDRESS_SPACE) {
-						throw new Exception("Memory out of bounds!");
-					}
-					else {
-						memory[s1RecordAddress] = s1Record[i];
-						s1RecordAddress++;
-					}
-				}				
 			}
-		}			
+			
+			pristineMemory = pristine;
+		}
 		
-		return success;
+		return pristineMemory;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		saveCheckpoint
+	 * Description:		Saves the full machine state to a checkpoint file, uncompressed
+	 * Parameters:		File file: The file to write
+	 * Return:			None
+	 */	
+	public void saveCheckpoint(File file) throws IOException {
+		saveCheckpoint(file, false);
+	}
+	
+	
+	
+	/*
+	 * Method Name:		saveCheckpoint
+	 * Description:		Saves the full machine state to a checkpoint file
+	 * Parameters:		File file: The file to write
+	 * 					boolean compress: Whether to deflate the memory pages
+	 * Return:			None
+	 */	
+	public void saveCheckpoint(File file, boolean compress) throws IOException {
+		Checkpoint.capture(this).write(file, compress);
+	}
+	
+	
+	
+	/*
+	 * Method Name:		loadCheckpoint
+	 * Description:		Restores the full machine state from a checkpoint file.  The checkpoint must have
+	 * 					been taken with the image that is currently loaded
+	 * Parameters:		File file: The file to read
+	 * Return:			None
+	 */	
+	public void loadCheckpoint(File file) throws Exception {
+		Checkpoint.read(file).restore(this);
 	}
 	
 	
@@ -161,21 +340,180 @@ public class Freescale6808Emulator {
 	 */	
 	public void singleStep() throws Exception {		
 		
+		// logged inputs due before this instruction go in first, so a replay sees them at the same point
+		if (inputLog != null) {
+			inputLog.replayDue(this);
+		}
+		
+		int pc = UnsignedData.convertShortToUnsignedShort(cpu.getPC());
+		
+		// a single null check is all profiling costs while it is switched off
+		if (profiler != null) {
+			profiler.recordExecution(pc);
+		}
+		
+		if (coverage != null) {
+			coverage.recordExecution(pc);
+		}
+		
 		//fetch
 		byte instruction = fetchInstruction();		
+		lastWriteAddress = -1;
 		
 		//decode & execute
 		try {
 			decodeInstruction(instruction);
 		}
 		catch (Exception ex) {
+			if (metrics != null) {
+				metrics.recordFault(pc, ex);
+			}
+			
 			throw ex;
 		}
 		
+		instructionCount++;
+		cpu.addCycles(Freescale6808CPU.getOpcodeCycles(instruction));
+		
+		if (sampler != null && sampler.isSampleRequested()) {
+			sampler.publish(pc, cpu);
+		}
+		
+		if (listeners != null) {
+			byte operand = memory.get((pc + 1) & 0xffff);
+			
+			for (InstructionListener listener : listeners) {
+				listener.instructionRetired(this, pc, instruction, operand, lastWriteAddress);
+			}
+		}
+		
+		// devices cost one compare against the earliest deadline, however many are scheduled
+		if (cpu.getCycleCount() >= nextEventCycle) {
+			serviceEvents();
+		}
 	}	
 
 	
 	
+	/*
+	 * Method Name:		run
+	 * Description:		Single steps a batch of instructions, stopping early if one fails or a breakpoint or
+	 * 					watchpoint is hit
+	 * Parameters:		long maxInstructions: The number of instructions to execute
+	 * Return:			The number of instructions executed
+	 */	
+	public long run(long maxInstructions) throws Exception {
+		long start = instructionCount;
+		long started = metrics != null ? System.nanoTime() : 0;
+		
+		// a hit from an earlier run must not outlive the breakpoints that caused it
+		if (breakpoints != null) {
+			breakpoints.clearHit();
+		}
+		
+		try {
+			// with nothing to stop at, the loop is the same as having no breakpoints at all
+			if (breakpoints == null || breakpoints.isEmpty()) {
+				if (idleDetector != null && !isObserved()) {
+					idleDetector.fastForward(this, start + maxInstructions);
+				}
+				
+				while (instructionCount - start < maxInstructions) {
+					singleStep();
+				}
+			}
+			else {
+				runToBreakpoint(start + maxInstructions);
+			}
+		}
+		finally {
+			if (metrics != null) {
+				metrics.recordBatch(instructionCount - start, System.nanoTime() - started);
+			}
+			
+			publishState();
+		}
+		
+		return instructionCount - start;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		isObserved
+	 * Description:		Determines whether anything attached must see every instruction, in which case the
+	 * 					IdleDetector never skips the periods of an idle loop.  TimeTravel only needs the
+	 * 					instruction count, which skipped periods keep exact, so it does not count
+	 * Parameters:		None
+	 * Return:			True if a profiler, coverage map, sampler, listener other than TimeTravel or metrics
+	 * 					are attached, or logged inputs are being replayed
+	 */	
+	boolean isObserved() {
+		if (profiler != null || coverage != null || sampler != null || metrics != null
+				|| (inputLog != null && inputLog.isReplaying())) {
+			return true;
+		}
+		
+		if (listeners != null) {
+			for (InstructionListener listener : listeners) {
+				if (!(listener instanceof TimeTravel)) {
+					return true;
+				}
+			}
+		}
+		
+		return false;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		skipInstructions
+	 * Description:		Counts instructions and their cycles as executed without executing them, used by
+	 * 					IdleDetector to skip whole periods of a loop whose state repeats
+	 * Parameters:		long count: The number of instructions
+	 * 					long cycles: The number of cycles they take
+	 * Return:			None
+	 */	
+	void skipInstructions(long count, long cycles) {
+		instructionCount += count;
+		cpu.addCycles(cycles);
+	}
+	
+	
+	
+	/*
+	 * Method Name:		runToBreakpoint
+	 * Description:		The run loop used while breakpoints are set.  The PC is tested against the breakpoint
+	 * 					bitset after each instruction, so the first instruction always runs and running again
+	 * 					from a breakpoint continues past it
+	 * Parameters:		long end: The instruction count to stop at if nothing is hit
+	 * Return:			None
+	 */	
+	private void runToBreakpoint(long end) throws Exception {
+		Breakpoints armed = breakpoints;
+		
+		while (instructionCount < end) {
+			singleStep();
+			
+			int pc = UnsignedData.convertShortToUnsignedShort(cpu.getPC());
+			
+			if (!armed.isHit() && armed.isBreakpoint(pc) && armed.isConditionMet(pc, this)) {
+				armed.hit(Breakpoints.KIND.EXECUTE, pc);
+			}
+			
+			if (armed.isHit()) {
+				if (metrics != null) {
+					metrics.recordBreakpointHit(pc);
+				}
+				
+				break;
+			}
+		}
+	}
+	
+	
+	
 	/*
 	 * Method Name:		fetchInstruction
 	 * Description:		Gets an instruction from virtual memory and increments the PC
@@ -185,7 +523,7 @@ public class Freescale6808Emulator {
 	private byte fetchInstruction() {
 		
 		int pc = UnsignedData.convertShortToUnsignedShort(cpu.getPC());
-		byte instruction = memory[pc];		
+		byte instruction = memory.get(pc);		
 		incrementProgramCounter();
 		
 		return instruction;
@@ -224,12 +562,12 @@ public class Freescale6808Emulator {
 			
 				// immediate
 				case (byte)0xa0:
-					data = memory[pc];
+					data = memory.get(pc);
 					incrementProgramCounter();
 					break;					
 				// direct (8 bit)
 				case (byte)0xb0:
-					address = memory[pc];
+					address = memory.get(pc);
 					incrementProgramCounter();
 					data = readByte(UnsignedData.convertByteToUnsignedByte(address));
 					break;				
@@ -311,18 +649,23 @@ public class Freescale6808Emulator {
 		
 		// BRA 
 		case (byte)0x20:
-			offset = memory[pc];
+			offset = memory.get(pc);
 			incrementProgramCounter();
 			executeBRA(offset);
 			break;
 		
 		// BEQ (zero flag high)
 		case (byte)0x27:
-			offset = memory[pc];
+			offset = memory.get(pc);
 			incrementProgramCounter();
 			executeBEQ(offset);
 			break;
 		
+		// RTI
+		case (byte)0x80:
+			executeRTI();
+			break;
+		
 		default:
 			throw new Exception("Invalid opcode!");
 		}
@@ -512,8 +855,15 @@ public class Freescale6808Emulator {
 	 * Return:			None
 	 */
 	private void executeBEQ(byte offset) {		
+		boolean isTaken = cpu.isCCRBit(CCR_BIT.ZERO);
+		
+		// the PC is already past the opcode and offset
+		if (coverage != null) {
+			coverage.recordBranch((UnsignedData.convertShortToUnsignedShort(cpu.getPC()) - 2) & 0xffff, isTaken);
+		}
+		
 		// only branch if zero flag set
-		if (cpu.isCCRBit(CCR_BIT.ZERO)) {
+		if (isTaken) {
 			executeBRA(offset);			
 		}
 	}
@@ -567,6 +917,111 @@ public class Freescale6808Emulator {
 	
 	
 	
+	/*
+	 * Method Name:		executeRTI
+	 * Description:		Returns from an interrupt, pulling the CCR, accumulator, X and PC pushed when it was
+	 * 					taken.  H is not stacked, as on the 6808
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	private void executeRTI() {
+		cpu.setCCR(pullByte());
+		cpu.setA(pullByte());
+		cpu.setX(pullByte());
+		
+		int high = pullByte() & 0xff;
+		int low = pullByte() & 0xff;
+		cpu.setPC((short)((high << 8) | low));
+	}
+	
+	
+	
+	/*
+	 * Method Name:		pushByte
+	 * Description:		Writes a byte at the stack pointer and moves the stack pointer down
+	 * Parameters:		byte value: The byte to push
+	 * Return:			None
+	 */
+	private void pushByte(byte value) {
+		int sp = UnsignedData.convertShortToUnsignedShort(cpu.getSP());
+		writeByte(value, sp);
+		cpu.setSP((short)(sp - 1));
+	}
+	
+	
+	
+	/*
+	 * Method Name:		pullByte
+	 * Description:		Moves the stack pointer up and reads the byte it then points at
+	 * Parameters:		None
+	 * Return:			The byte pulled
+	 */
+	private byte pullByte() {
+		int sp = (UnsignedData.convertShortToUnsignedShort(cpu.getSP()) + 1) & 0xffff;
+		cpu.setSP((short)sp);
+		return readByte(sp);
+	}
+	
+	
+	
+	/*
+	 * Method Name:		serviceEvents
+	 * Description:		Runs the device events that are due, then takes the highest priority pending
+	 * 					interrupt if the interrupt mask is clear, and works out the next cycle count worth
+	 * 					stopping at.  While an interrupt waits on the mask that is every instruction, so the
+	 * 					interrupt is taken as soon as the mask clears
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	private void serviceEvents() {
+		serviceCount++;
+		events.runDue(this, cpu.getCycleCount());
+		
+		if (pendingInterrupts != 0 && !cpu.isCCRBit(CCR_BIT.INTERRUPT)) {
+			dispatchInterrupt();
+		}
+		
+		nextEventCycle = pendingInterrupts != 0 ? cpu.getCycleCount() : events.getNextDeadline();
+	}
+	
+	
+	
+	/*
+	 * Method Name:		dispatchInterrupt
+	 * Description:		Takes the highest priority pending interrupt: pushes the PC low and high bytes, X, the
+	 * 					accumulator and the CCR at the stack pointer, masks further interrupts and jumps to
+	 * 					the handler address held big endian in the interrupt's vector in ROM.  An image that
+	 * 					leaves the vector blank has no handler, so the interrupt is dropped and counted
+	 * 					rather than taken to a handler at $0000 or $FFFF
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	private void dispatchInterrupt() {
+		// bit 0 is the vector at the top of memory, which has the highest priority
+		int bit = Integer.numberOfTrailingZeros(pendingInterrupts);
+		int vector = LAST_VECTOR - (bit << 1);
+		pendingInterrupts &= ~(1 << bit);
+		
+		if (isVectorBlank(vector)) {
+			unhandledInterruptCount++;
+			return;
+		}
+		
+		int pc = UnsignedData.convertShortToUnsignedShort(cpu.getPC());
+		pushByte((byte)pc);
+		pushByte((byte)(pc >> 8));
+		pushByte(cpu.getX());
+		pushByte(cpu.getA());
+		pushByte(cpu.getCCR());
+		
+		cpu.setCCRBit(true, CCR_BIT.INTERRUPT);
+		cpu.setPC((short)(((memory.get(vector) & 0xff) << 8) | (memory.get(vector + 1) & 0xff)));
+		cpu.addCycles(INTERRUPT_CYCLES);
+		interruptCount++;
+	}
+	
+	
+	
 	/*
 	 * Method Name:		readByte
 	 * Description:		Reads a byte from virtual memory, checking the memory map to see if the address
@@ -579,6 +1034,19 @@ public class Freescale6808Emulator {
 		
 		if (address >= 0 && address < MAX_ADDRESS_SPACE) {
 			
+			if (profiler != null) {
+				profiler.recordRead(address);
+			}
+			
+			if (metrics != null) {
+				metrics.recordRead(map[address]);
+			}
+			
+			// only an access in a page holding a watchpoint looks any further
+			if (watchedPages != null && (watchedPages[address >>> Breakpoints.PAGE_SHIFT] & Breakpoints.READ_WATCHED) != 0) {
+				breakpoints.checkRead(address);
+			}
+			
 			if (map[address] == HARDWARE_ACCESS) {
 				
 				switch (address) {
@@ -586,8 +1054,8 @@ public class Freescale6808Emulator {
 				case PORT_A_DATA:
 					// TODO make specific bits readable based on data direction value?
 					// allow reads if data direction is set to input (0x00)
-					if (memory[UnsignedData.convertShortToUnsignedShort(PORT_A_DATA_DIRECTION)] == (byte)0x00) {
-						value = memory[address];
+					if (memory.get(UnsignedData.convertShortToUnsignedShort(PORT_A_DATA_DIRECTION)) == (byte)0x00) {
+						value = memory.get(address);
 					}
 					else {
 						// give error?
@@ -595,21 +1063,21 @@ public class Freescale6808Emulator {
 					break;
 					
 				case PORT_A_DATA_DIRECTION:
-					value = memory[address];
+					value = memory.get(address);
 					break;
 					
 				default:
-					value = memory[address];
+					value = memory.get(address);
 					break;
 				}
 			}
 			
 			else if (map[address] == RAM_MEMORY) {
-				value = memory[address];
+				value = memory.get(address);
 			}
 			
 			else if (map[address] == ROM_MEMORY) {
-				value = memory[address];
+				value = memory.get(address);
 			}
 			
 			else if (map[address] == NOTHING_ATTACHED) {
@@ -633,6 +1101,19 @@ public class Freescale6808Emulator {
 	private void writeByte(byte value, int address) {
 		
 		if (address >= 0 && address < MAX_ADDRESS_SPACE) {
+			
+			if (profiler != null) {
+				profiler.recordWrite(address);
+			}
+			
+			if (metrics != null) {
+				metrics.recordWrite(map[address]);
+			}
+			
+			if (watchedPages != null && (watchedPages[address >>> Breakpoints.PAGE_SHIFT] & Breakpoints.WRITE_WATCHED) != 0) {
+				breakpoints.checkWrite(address);
+			}
+			
 			if (map[address] == HARDWARE_ACCESS) {
 				
 				switch (address) {
@@ -642,17 +1123,20 @@ public class Freescale6808Emulator {
 					break;
 					
 				default:
-					memory[address] = value;
+					memory.put(address, value);
+					lastWriteAddress = address;
 					break;
 				}
 			}
 			
 			else if (map[address] == RAM_MEMORY) {
-				memory[address] = value;
+				memory.put(address, value);
+				lastWriteAddress = address;
 			}
 			
 			else if (map[address] == ROM_MEMORY) {
-				memory[address] = value;
+				memory.put(address, value);
+				lastWriteAddress = address;
 			}
 			
 			else if (map[address] == NOTHING_ATTACHED) {
@@ -694,7 +1178,7 @@ public class Freescale6808Emulator {
 		byte value = 0;		
 		
 		if (isValidMemoryIndex(index)) {
-			value = memory[index];
+			value = memory.get(index);
 		}
 		
 		return value;
@@ -704,7 +1188,7 @@ public class Freescale6808Emulator {
 	
 	/*
 	 * Method Name:		setMemory
-	 * Description:		Set a byte in virtual memory at the specified index
+	 * Description:		Set a byte in virtual memory at the specified index, logging the change if there is an InputLog
 	 * Parameters:		int index: The index at which to set a byte
 	 * 					byte value: The byte value to set
 	 * Return:			True if succesful, false otherwise
@@ -714,7 +1198,8 @@ public class Freescale6808Emulator {
 		boolean set = false;
 		
 		if (isValidMemoryIndex(index)) {
-			memory[index] = value;
+			memory.put(index, value);
+			logInput(InputLog.EVENT.MEMORY, index, value & 0xff);
 			set = true;
 		}
 		
@@ -735,9 +1220,9 @@ public class Freescale6808Emulator {
 		
 		// 6808 is big endian - the first byte found in memory is the high byte
 		if (isValidMemoryIndex(index)) {
-			value = memory[index];
+			value = memory.get(index);
 			value = (short)(value << 8);
-			value |= memory[index + 1];
+			value |= memory.get(index + 1);
 		}	
 		
 		return value;
@@ -747,7 +1232,7 @@ public class Freescale6808Emulator {
 	
 	/*
 	 * Method Name:		setMemory
-	 * Description:		Set a short in virtual memory at the specified index
+	 * Description:		Set a short in virtual memory at the specified index, logging the change if there is an InputLog
 	 * Parameters:		int index: The index at which to set a short
 	 * 					short value: The short value to set
 	 * Return:			True if successful, false otherwise
@@ -758,8 +1243,10 @@ public class Freescale6808Emulator {
 		
 		if (isValidMemoryIndex(index)) {			
 			// 6808 is big endian - store the high byte first
-			memory[index] = (byte)(value >> 8);
-			memory[index + 1] = (byte)(value & (short)0x00ff);
+			memory.put(index, (byte)(value >> 8));
+			memory.put(index + 1, (byte)(value & (short)0x00ff));
+			logInput(InputLog.EVENT.MEMORY, index, (value >> 8) & 0xff);
+			logInput(InputLog.EVENT.MEMORY, index + 1, value & 0xff);
 			set = true;
 		}	
 		
@@ -770,19 +1257,32 @@ public class Freescale6808Emulator {
 	
 	/*
 	 * Method Name:		getMemoryArray
-	 * Description:		Gets the memory array
+	 * Description:		Gets the memory array.  For on-heap memory this is the live array, for
+	 * 					off-heap memory it is a copy
 	 * Parameters:		None
 	 * Return:			The virtual memory as byte array
 	 */
 	public byte[] getMemoryArray() {
-		return memory;
+		return memory.toArray();
+	}
+	
+	
+	
+	/*
+	 * Method Name:		getMemoryBuffer
+	 * Description:		Gets a read-only view of virtual memory, used for bulk export without copying
+	 * Parameters:		None
+	 * Return:			The virtual memory as a read-only ByteBuffer
+	 */
+	public ByteBuffer getMemoryBuffer() {
+		return memory.asByteBuffer().asReadOnlyBuffer();
 	}
 	
 	
 	
 	/*
 	 * Method Name:		setMemory
-	 * Description:		Sets a new byte array as virtual memory
+	 * Description:		Copies a byte array over the whole of virtual memory, logging the change if there is an InputLog
 	 * Parameters:		byte[] memory: A new byte array representing virtual memory,
 	 * 						must be the size of MAX_ADDRESS_SPACE
 	 * Return:			True if successful, false otherwise
@@ -792,7 +1292,16 @@ public class Freescale6808Emulator {
 		boolean set = false;
 		
 		if (memory.length == MAX_ADDRESS_SPACE) {
-			this.memory = memory;
+			// only the bytes that change need logging
+			if (inputLog != null) {
+				for (int i = 0; i < MAX_ADDRESS_SPACE; i++) {
+					if (this.memory.get(i) != memory[i]) {
+						logInput(InputLog.EVENT.MEMORY, i, memory[i] & 0xff);
+					}
+				}
+			}
+			
+			this.memory.put(0, memory, 0, MAX_ADDRESS_SPACE);
 			set = true;
 		}
 		
@@ -803,27 +1312,118 @@ public class Freescale6808Emulator {
 	
 	/*
 	 * Method Name:		setSwitchData
-	 * Description:		Sets the value at PORT_A_DATA based on the switch bits
+	 * Description:		Sets the value at PORT_A_DATA based on the switch bits, logging the change if there
+	 * 					is an InputLog
 	 * Parameters:		boolean state: The state of a the bits representing the switches
 	 * 					SWITCH_BIT: The switch to set 
 	 * Return:			None
 	 */
 	public void setSwitchData(boolean state, SWITCH_BIT switchBit) {
-		byte switchMask = getSwitchMask(switchBit);
-		int portADataAddress = UnsignedData.convertShortToUnsignedShort(PORT_A_DATA);
-		
-		memory[portADataAddress] = state ? (memory[portADataAddress] |= switchMask) : (memory[portADataAddress] &= ~switchMask);
+		applySwitchData(state, switchBit);
+		logInput(InputLog.EVENT.SWITCH, switchBit.ordinal(), state ? 1 : 0);
 	}
 	
 	
 	
 	/*
-	 * Method Name:		getSwitchMask
-	 * Description:		Given a SWITCH_BIT enum, returns the corresponding bit mask
-	 * Parameters:		SWITCH_BIT switchBit: The switch as a enum
-	 * Return:			The bit mask as a byte
-	 */
-	private byte getSwitchMask(SWITCH_BIT switchBit) {
+	 * Method Name:		applySwitchData
+	 * Description:		Sets the value at PORT_A_DATA based on the switch bits without logging it, used when
+	 * 					an InputLog replays a switch change
+	 * Parameters:		boolean state: The state of a the bits representing the switches
+	 * 					SWITCH_BIT: The switch to set 
+	 * Return:			None
+	 */
+	void applySwitchData(boolean state, SWITCH_BIT switchBit) {
+		byte switchMask = getSwitchMask(switchBit);
+		int portADataAddress = UnsignedData.convertShortToUnsignedShort(PORT_A_DATA);
+		
+		byte portAData = memory.get(portADataAddress);
+		
+		memory.put(portADataAddress, state ? (byte)(portAData | switchMask) : (byte)(portAData & ~switchMask));
+	}
+	
+	
+	
+	/*
+	 * Method Name:		alterRegister
+	 * Description:		Changes a CPU register from outside the program, logging the change if there is an
+	 * 					InputLog
+	 * Parameters:		REGISTER register: The register to change
+	 * 					int value: The new value, masked to the register's width
+	 * Return:			None
+	 */
+	public void alterRegister(REGISTER register, int value) {
+		applyRegister(register, value);
+		logInput(InputLog.EVENT.REGISTER, register.ordinal(), value);
+	}
+	
+	
+	
+	/*
+	 * Method Name:		applyRegister
+	 * Description:		Changes a CPU register without logging it, used when an InputLog replays a change
+	 * Parameters:		REGISTER register: The register to change
+	 * 					int value: The new value, masked to the register's width
+	 * Return:			None
+	 */
+	void applyRegister(REGISTER register, int value) {
+		switch (register) {
+		case A:
+			cpu.setA((byte)value);
+			break;
+		case CCR:
+			cpu.setCCR((byte)value);
+			break;
+		case HX:
+			cpu.setHX((short)value);
+			break;
+		case SP:
+			cpu.setSP((short)value);
+			break;
+		case PC:
+			cpu.setPC((short)value);
+			break;
+		}
+	}
+	
+	
+	
+	/*
+	 * Method Name:		applyMemory
+	 * Description:		Sets a byte of memory without logging it, used when an InputLog replays a change
+	 * Parameters:		int address: The address
+	 * 					byte value: The value
+	 * Return:			None
+	 */
+	void applyMemory(int address, byte value) {
+		memory.put(address, value);
+	}
+	
+	
+	
+	/*
+	 * Method Name:		logInput
+	 * Description:		Appends an external input to the InputLog, stamped with the instruction count
+	 * Parameters:		InputLog.EVENT kind: The kind of input
+	 * 					int target: What the input changed
+	 * 					int value: The new value
+	 * Return:			None
+	 */
+	private void logInput(InputLog.EVENT kind, int target, int value) {
+		if (inputLog != null) {
+			inputLog.record(instructionCount, InputLog.encode(kind, target, value));
+		}
+	}
+	
+	
+	
+	/*
+	 * Method Name:		getSwitchMask
+	 * Description:		Given a SWITCH_BIT enum, returns the corresponding bit mask
+	 * Parameters:		SWITCH_BIT switchBit: The switch as a enum
+	 * Return:			The bit mask as a byte
+	 */
+	private byte getSwitchMask(SWITCH_BIT switchBit) {
 		byte switchMask = 0x00;
 		
 		switch (switchBit) {
@@ -848,36 +1448,95 @@ public class Freescale6808Emulator {
 	
 	/*
 	 * Method Name:		resetEmulator
-	 * Description:		Create a new CPU, and wipes out the memory
+	 * Description:		Resets the CPU registers, and wipes out the memory.  The CPU object itself is kept
+	 * 					so a CPU whose registers live elsewhere, such as in a mapped file, stays attached
 	 * Parameters:		None
 	 * Return:			None
 	 */
 	public void resetEmulator() throws Exception {
 		
 		
-		cpu = new Freescale6808CPU();
+		// scheduled events stay the same number of cycles away when the count goes back to zero
+		events.shift(-cpu.getCycleCount());
+		pendingInterrupts = 0;
+		interruptCount = 0;
+		unhandledInterruptCount = 0;
+		
+		cpu.reset();
+		instructionCount = 0;
+		nextEventCycle = events.getNextDeadline();
 		
 		// init memory
-		for (int i = 0; i < MAX_ADDRESS_SPACE; i++) {
-			memory[i] = 0;
-		}			
+		memory.clear();
+		
+		if (metrics != null) {
+			metrics.recordReset();
+		}
+		
+		publishState();
+	}
+	
+	
+	
+	/*
+	 * Method Name:		getInstructionCount
+	 * Description:		Gets the number of instructions executed since the last reset
+	 * Parameters:		None
+	 * Return:			The instruction count as a long
+	 */
+	public long getInstructionCount() {
+		return instructionCount;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		setInstructionCount
+	 * Description:		Sets the instruction count, used when restoring saved state
+	 * Parameters:		long instructionCount: The new instruction count
+	 * Return:			None
+	 */
+	void setInstructionCount(long instructionCount) {
+		this.instructionCount = instructionCount;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		getMemory
+	 * Description:		Gets the memory backend
+	 * Parameters:		None
+	 * Return:			The MachineMemory
+	 */
+	MachineMemory getMemory() {
+		return memory;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		releaseMemory
+	 * Description:		Gives the machine's memory back to its backend, e.g. returning off-heap memory to
+	 * 					its MemoryArena.  The emulator must not be used afterwards
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public void releaseMemory() {
+		memory.release();
 	}
 	
 	
 	
 	/*
 	 * Method Name:		reloadS1Records
-	 * Description:		Assuming some s1 records have already been loaded, reload them into memory
+	 * Description:		Assuming an image has already been loaded, reload it into memory
 	 * Parameters:		None	
 	 * Return:			None
 	 */
 	public void reloadS1Records() throws Exception {
-		try {
-			loadSrecIntoMemory(originalPC, s1Records);
+		if (image != null) {
+			loadImage(image);
 		}
-		catch (Exception ex) {
-			throw ex;
-		}	
 	}
 	
 	
@@ -918,6 +1577,414 @@ public class Freescale6808Emulator {
 	
 	
 	
+	/*
+	 * Method Name:		getProfiler
+	 * Description:		Gets the profiler counting executions and memory accesses
+	 * Parameters:		None
+	 * Return:			The profiler, or null if profiling is off
+	 */
+	public ExecutionProfiler getProfiler() {
+		return profiler;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		setProfiler
+	 * Description:		Switches profiling on by attaching a profiler, or off by passing null.  Counts are
+	 * 					kept in the profiler so profiling can be paused and resumed
+	 * Parameters:		ExecutionProfiler profiler: The profiler, or null
+	 * Return:			None
+	 */
+	public void setProfiler(ExecutionProfiler profiler) {
+		this.profiler = profiler;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		getCoverage
+	 * Description:		Gets the coverage map instructions and branches are recorded in
+	 * Parameters:		None
+	 * Return:			The coverage map, or null if coverage is off
+	 */
+	public CoverageMap getCoverage() {
+		return coverage;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		setCoverage
+	 * Description:		Switches coverage on by attaching a map, or off by passing null.  The map keeps
+	 * 					what it has recorded
+	 * Parameters:		CoverageMap coverage: The coverage map, or null
+	 * Return:			None
+	 */
+	public void setCoverage(CoverageMap coverage) {
+		this.coverage = coverage;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		getMetrics
+	 * Description:		Gets the metrics the emulator's accesses and events are counted in
+	 * Parameters:		None
+	 * Return:			The metrics, or null if none are attached
+	 */
+	public EmulatorMetrics getMetrics() {
+		return metrics;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		setMetrics
+	 * Description:		Attaches metrics to count accesses and events in, or detaches them by passing null
+	 * Parameters:		EmulatorMetrics metrics: The metrics, or null
+	 * Return:			None
+	 */
+	public void setMetrics(EmulatorMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		getObservedState
+	 * Description:		Gets the state the registers are published to for other threads to read
+	 * Parameters:		None
+	 * Return:			The ObservedState, or null if none is attached
+	 */
+	public ObservedState getObservedState() {
+		return observedState;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		setObservedState
+	 * Description:		Attaches a state to publish the registers to, or detaches it by passing null.  The
+	 * 					current registers are published straight away
+	 * Parameters:		ObservedState observedState: The ObservedState, or null
+	 * Return:			None
+	 */
+	public void setObservedState(ObservedState observedState) {
+		this.observedState = observedState;
+		publishState();
+	}
+	
+	
+	
+	/*
+	 * Method Name:		publishState
+	 * Description:		Publishes the registers to the attached ObservedState, for callers that single step
+	 * 					rather than run, since singleStep never publishes.  Must be called by the thread
+	 * 					running the emulator
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public void publishState() {
+		if (observedState != null) {
+			observedState.publish(cpu, instructionCount);
+		}
+	}
+	
+	
+	
+	/*
+	 * Method Name:		getIdleDetector
+	 * Description:		Gets the detector run() uses to skip idle loops
+	 * Parameters:		None
+	 * Return:			The IdleDetector, or null if none is attached
+	 */
+	public IdleDetector getIdleDetector() {
+		return idleDetector;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		setIdleDetector
+	 * Description:		Attaches a detector for run() to skip idle loops with, or detaches it by passing null
+	 * Parameters:		IdleDetector idleDetector: The IdleDetector, or null
+	 * Return:			None
+	 */
+	public void setIdleDetector(IdleDetector idleDetector) {
+		this.idleDetector = idleDetector;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		scheduleEvent
+	 * Description:		Schedules an event for a timed device.  Must be called by the thread running the
+	 * 					emulator, or while it is stopped
+	 * Parameters:		TimedDevice device: The device to call back
+	 * 					long cycle: The cycle count the event is due at
+	 * Return:			None
+	 */
+	public void scheduleEvent(TimedDevice device, long cycle) {
+		events.schedule(device, cycle);
+		
+		if (cycle < nextEventCycle) {
+			nextEventCycle = cycle;
+		}
+	}
+	
+	
+	
+	/*
+	 * Method Name:		cancelEvents
+	 * Description:		Removes every event a device has scheduled, e.g. when it is detached
+	 * Parameters:		TimedDevice device: The device
+	 * Return:			None
+	 */
+	public void cancelEvents(TimedDevice device) {
+		events.cancel(device);
+		nextEventCycle = pendingInterrupts != 0 ? cpu.getCycleCount() : events.getNextDeadline();
+	}
+	
+	
+	
+	/*
+	 * Method Name:		getNextEventCycle
+	 * Description:		Gets the cycle count the next device event is due at
+	 * Parameters:		None
+	 * Return:			The cycle count, or Long.MAX_VALUE if no event is scheduled
+	 */
+	public long getNextEventCycle() {
+		return events.getNextDeadline();
+	}
+	
+	
+	
+	/*
+	 * Method Name:		requestInterrupt
+	 * Description:		Raises an interrupt, taken after the current instruction once the interrupt mask is
+	 * 					clear.  Interrupts are told apart by vector; the higher the vector's address, the
+	 * 					higher its priority.  A request already pending is not counted twice
+	 * Parameters:		int vector: The address of the interrupt's vector, an even address from FIRST_VECTOR
+	 * 						to LAST_VECTOR
+	 * Return:			None
+	 */
+	public void requestInterrupt(int vector) {
+		if (vector < FIRST_VECTOR || vector > LAST_VECTOR || (vector & 1) != 0) {
+			throw new IllegalArgumentException(String.format("$%04X is not an interrupt vector", vector));
+		}
+		
+		pendingInterrupts |= 1 << ((LAST_VECTOR - vector) >> 1);
+		nextEventCycle = cpu.getCycleCount();
+	}
+	
+	
+	
+	/*
+	 * Method Name:		getServiceCount
+	 * Description:		Gets the number of times device events or interrupts were serviced, so IdleDetector
+	 * 					can tell that something outside the program's state happened
+	 * Parameters:		None
+	 * Return:			The count as a long
+	 */
+	long getServiceCount() {
+		return serviceCount;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		isInterruptPending
+	 * Description:		Determines whether any interrupt is waiting to be taken
+	 * Parameters:		None
+	 * Return:			True if one is
+	 */
+	public boolean isInterruptPending() {
+		return pendingInterrupts != 0;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		getInterruptCount
+	 * Description:		Gets the number of interrupts taken since the last reset
+	 * Parameters:		None
+	 * Return:			The count as a long
+	 */
+	public long getInterruptCount() {
+		return interruptCount;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		getUnhandledInterruptCount
+	 * Description:		Gets the number of interrupts dropped since the last reset because their vector was
+	 * 					blank
+	 * Parameters:		None
+	 * Return:			The count as a long
+	 */
+	public long getUnhandledInterruptCount() {
+		return unhandledInterruptCount;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		isVectorBlank
+	 * Description:		Determines whether an interrupt vector holds no handler address, $0000 or $FFFF
+	 * Parameters:		int vector: The address of the vector
+	 * Return:			True if it is blank
+	 */
+	public boolean isVectorBlank(int vector) {
+		int handler = ((memory.get(vector) & 0xff) << 8) | (memory.get(vector + 1) & 0xff);
+		return handler == 0x0000 || handler == 0xffff;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		getBreakpoints
+	 * Description:		Gets the breakpoints and watchpoints run() stops at
+	 * Parameters:		None
+	 * Return:			The Breakpoints, or null if none are attached
+	 */
+	public Breakpoints getBreakpoints() {
+		return breakpoints;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		setBreakpoints
+	 * Description:		Attaches breakpoints and watchpoints, or detaches them by passing null
+	 * Parameters:		Breakpoints breakpoints: The Breakpoints, or null
+	 * Return:			None
+	 */
+	public void setBreakpoints(Breakpoints breakpoints) {
+		this.breakpoints = breakpoints;
+		this.watchedPages = breakpoints == null ? null : breakpoints.getWatchedPages();
+	}
+	
+	
+	
+	/*
+	 * Method Name:		getSampler
+	 * Description:		Gets the sampling profiler the registers are published to
+	 * Parameters:		None
+	 * Return:			The sampler, or null if none is attached
+	 */
+	public SamplingProfiler getSampler() {
+		return sampler;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		setSampler
+	 * Description:		Attaches a sampling profiler, or detaches it by passing null.  The sampler thread is
+	 * 					started and stopped separately
+	 * Parameters:		SamplingProfiler sampler: The sampler, or null
+	 * Return:			None
+	 */
+	public void setSampler(SamplingProfiler sampler) {
+		this.sampler = sampler;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		addInstructionListener
+	 * Description:		Registers a listener to be told about every instruction the emulator retires
+	 * Parameters:		InstructionListener listener: The listener
+	 * Return:			None
+	 */
+	public void addInstructionListener(InstructionListener listener) {
+		int count = listeners == null ? 0 : listeners.length;
+		InstructionListener[] added = new InstructionListener[count + 1];
+		
+		if (listeners != null) {
+			System.arraycopy(listeners, 0, added, 0, count);
+		}
+		
+		added[count] = listener;
+		listeners = added;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		removeInstructionListener
+	 * Description:		Unregisters a listener.  With no listeners left the step loop is back to a null check
+	 * Parameters:		InstructionListener listener: The listener
+	 * Return:			None
+	 */
+	public void removeInstructionListener(InstructionListener listener) {
+		if (listeners == null) {
+			return;
+		}
+		
+		InstructionListener[] remaining = new InstructionListener[listeners.length];
+		int count = 0;
+		
+		for (InstructionListener registered : listeners) {
+			if (registered != listener) {
+				remaining[count++] = registered;
+			}
+		}
+		
+		if (count == 0) {
+			listeners = null;
+		}
+		else if (count < listeners.length) {
+			InstructionListener[] trimmed = new InstructionListener[count];
+			System.arraycopy(remaining, 0, trimmed, 0, count);
+			listeners = trimmed;
+		}
+	}
+	
+	
+	
+	/*
+	 * Method Name:		swapListeners
+	 * Description:		Replaces every registered listener at once, e.g. to silence them while replaying
+	 * 					instructions that have already been reported
+	 * Parameters:		InstructionListener[] replacement: The new listeners, or null for none
+	 * Return:			The listeners that were registered, or null if there were none
+	 */
+	InstructionListener[] swapListeners(InstructionListener[] replacement) {
+		InstructionListener[] registered = listeners;
+		listeners = replacement;
+		return registered;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		getInputLog
+	 * Description:		Gets the log that external inputs are recorded to
+	 * Parameters:		None
+	 * Return:			The InputLog, or null if inputs are not being logged
+	 */
+	public InputLog getInputLog() {
+		return inputLog;
+	}
+	
+	
+	
+	/*
+	 * Method Name:		setInputLog
+	 * Description:		Starts logging external inputs to a log, and replaying any it holds ahead of its
+	 * 					replay position, or stops with null
+	 * Parameters:		InputLog inputLog: The log, or null
+	 * Return:			None
+	 */
+	public void setInputLog(InputLog inputLog) {
+		this.inputLog = inputLog;
+	}
+	
+	
+	
 	/*
 	 * Method Name:		getCpu
 	 * Description:		Get the current CPU object
@@ -932,11 +1999,20 @@ public class Freescale6808Emulator {
 	
 	/*
 	 * Method Name:		setCpu
-	 * Description:		Set the CPU object inside the emulator
+	 * Description:		Set the CPU object inside the emulator.  With an InputLog every register of the new
+	 * 					CPU is logged, so replays see the same values even if the CPU was edited in place
 	 * Parameters:		Freescale6808CPU cpu: The new CPU to set
 	 * Return:			None
 	 */
 	public void setCpu(Freescale6808CPU cpu) {		
 		this.cpu = cpu;
+		
+		if (inputLog != null) {
+			logInput(InputLog.EVENT.REGISTER, REGISTER.A.ordinal(), cpu.getA() & 0xff);
+			logInput(InputLog.EVENT.REGISTER, REGISTER.CCR.ordinal(), cpu.getCCR() & 0xff);
+			logInput(InputLog.EVENT.REGISTER, REGISTER.HX.ordinal(), cpu.getHX() & 0xffff);
+			logInput(InputLog.EVENT.REGISTER, REGISTER.SP.ordinal(), cpu.getSP() & 0xffff);
+			logInput(InputLog.EVENT.REGISTER, REGISTER.PC.ordinal(), cpu.getPC() & 0xffff);
+		}
 	}	
 }
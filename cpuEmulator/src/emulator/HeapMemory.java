@@ -0,0 +1,153 @@
+/*
+ * Filename:		HeapMemory.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the HeapMemory class
+ */
+
+
+
+package emulator;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+
+
+/*
+ * Class Name:		HeapMemory
+ * Description:		The default machine memory, a plain on-heap byte array
+ */
+public class HeapMemory implements MachineMemory {
+
+	private final byte[] memory;
+
+
+
+	/*
+	 * Method Name:		HeapMemory
+	 * Description:		Constructor
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public HeapMemory() {
+		memory = new byte[Freescale6808Emulator.MAX_ADDRESS_SPACE];
+	}
+
+
+
+	/*
+	 * Method Name:		get
+	 * Description:		Reads one byte
+	 * Parameters:		int address: The address to read
+	 * Return:			The byte at the address
+	 */
+	public byte get(int address) {
+		return memory[address];
+	}
+
+
+
+	/*
+	 * Method Name:		put
+	 * Description:		Writes one byte
+	 * Parameters:		int address: The address to write
+	 * 					byte value: The value to write
+	 * Return:			None
+	 */
+	public void put(int address, byte value) {
+		memory[address] = value;
+	}
+
+
+
+	/*
+	 * Method Name:		get
+	 * Description:		Bulk copies bytes out of memory
+	 * Parameters:		int address: The first address to copy
+	 * 					byte[] destination: The array to copy into
+	 * 					int offset: The offset in the array of the first byte
+	 * 					int length: The number of bytes to copy
+	 * Return:			None
+	 */
+	public void get(int address, byte[] destination, int offset, int length) {
+		System.arraycopy(memory, address, destination, offset, length);
+	}
+
+
+
+	/*
+	 * Method Name:		put
+	 * Description:		Bulk copies bytes into memory
+	 * Parameters:		int address: The first address to write
+	 * 					byte[] source: The array to copy from
+	 * 					int offset: The offset in the array of the first byte
+	 * 					int length: The number of bytes to copy
+	 * Return:			None
+	 */
+	public void put(int address, byte[] source, int offset, int length) {
+		System.arraycopy(source, offset, memory, address, length);
+	}
+
+
+
+	/*
+	 * Method Name:		put
+	 * Description:		Bulk copies everything between a buffer's position and limit into memory
+	 * Parameters:		int address: The first address to write
+	 * 					ByteBuffer source: The bytes to copy, the position is advanced past them
+	 * Return:			None
+	 */
+	public void put(int address, ByteBuffer source) {
+		source.get(memory, address, source.remaining());
+	}
+
+
+
+	/*
+	 * Method Name:		clear
+	 * Description:		Sets every byte to zero
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public void clear() {
+		Arrays.fill(memory, (byte)0);
+	}
+
+
+
+	/*
+	 * Method Name:		asByteBuffer
+	 * Description:		Gets a live view of the whole memory, position 0 and limit MAX_ADDRESS_SPACE
+	 * Parameters:		None
+	 * Return:			The view as a ByteBuffer
+	 */
+	public ByteBuffer asByteBuffer() {
+		return ByteBuffer.wrap(memory);
+	}
+
+
+
+	/*
+	 * Method Name:		toArray
+	 * Description:		Gets the live backing array
+	 * Parameters:		None
+	 * Return:			The memory as a byte array
+	 */
+	public byte[] toArray() {
+		return memory;
+	}
+
+
+
+	/*
+	 * Method Name:		release
+	 * Description:		Gives up the storage.  The memory must not be used afterwards
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public void release() {
+		// nothing to do, the array goes with the emulator
+	}
+}
@@ -0,0 +1,443 @@
+/*
+ * Filename:		HostedMachine.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the HostedMachine class
+ */
+
+
+
+package emulator;
+
+import emulator.Freescale6808Emulator.REGISTER;
+import emulator.Freescale6808Emulator.SWITCH_BIT;
+
+
+
+/*
+ * Class Name:		HostedMachine
+ * Description:		One emulator run by an EmulatorHost, with its priority, instruction budget, scheduling
+ * 					state and the CommandQueue its inputs travel through.  Made by EmulatorHost.add.
+ *
+ * 					Like a RunLoop's, the emulator belongs to whichever carrier thread is running it, so
+ * 					other threads reach it only through the offer methods, which queue the input and wake
+ * 					the machine if it is parked idle; one thread may offer to a machine.  Once it is parked
+ * 					at a breakpoint, out of budget, faulted or stopped, the emulator is not touched by the
+ * 					host and may be used from the thread that saw that state until resume or addBudget.
+ */
+public class HostedMachine {
+
+	public enum STATE {
+		READY,
+		RUNNING,
+		IDLE,
+		BREAKPOINT,
+		FINISHED,
+		FAULTED,
+		STOPPED
+	}
+
+	private final EmulatorHost host;
+	private final Freescale6808Emulator emulator;
+	private final CommandQueue commands;
+	private final int priority;
+	private final long stride;
+	private long pass;
+	private long granted;
+	private boolean isWakePending;
+	private volatile long budget;
+	private volatile STATE state;
+	private volatile long executed;
+	private volatile Exception fault;
+
+
+
+	/*
+	 * Method Name:		HostedMachine
+	 * Description:		Constructor, use EmulatorHost.add
+	 * Parameters:		EmulatorHost host: The host running the machine
+	 * 					Freescale6808Emulator emulator: The emulator
+	 * 					int priority: The machine's share of the carriers relative to other machines
+	 * 					long stride: The pass added per full quantum, inversely proportional to priority
+	 * 					long budget: The most instructions the machine may execute, or Long.MAX_VALUE
+	 * Return:			None
+	 */
+	HostedMachine(EmulatorHost host, Freescale6808Emulator emulator, int priority, long stride, long budget) {
+		this.host = host;
+		this.emulator = emulator;
+		this.priority = priority;
+		this.stride = stride;
+		this.budget = budget;
+		commands = new CommandQueue();
+		pass = 0;
+		granted = 0;
+		isWakePending = false;
+		state = STATE.READY;
+		executed = 0;
+		fault = null;
+	}
+
+
+
+	/*
+	 * Method Name:		runQuantum
+	 * Description:		Called by a carrier to apply the queued inputs and run one quantum, or less if the
+	 * 					budget is nearly spent, then decide where the machine goes next.  A program waiting
+	 * 					on a device event has its idle periods up to the event skipped and stays ready
+	 * Parameters:		long quantum: The most instructions to run
+	 * Return:			The state the machine should move to
+	 */
+	STATE runQuantum(long quantum) {
+		long start = emulator.getInstructionCount();
+		STATE next;
+
+		try {
+			next = advance(quantum);
+		}
+		catch (Exception ex) {
+			fault = ex;
+			next = STATE.FAULTED;
+		}
+
+		// the idle probe steps and skips outside run(), so charge whatever the count moved by
+		long ran = emulator.getInstructionCount() - start;
+		budget -= ran;
+		executed += ran;
+
+		if (next == STATE.READY && budget == 0) {
+			return STATE.FINISHED;
+		}
+
+		return next;
+	}
+
+
+
+	/*
+	 * Method Name:		advance
+	 * Description:		Applies the queued inputs, runs the quantum and checks for an idle loop, never going
+	 * 					past the end of the budget
+	 * Parameters:		long quantum: The most instructions to run
+	 * Return:			The state the machine should move to
+	 */
+	private STATE advance(long quantum) throws Exception {
+		if (commands.drain(emulator)) {
+			return STATE.STOPPED;
+		}
+
+		long end = addSaturated(emulator.getInstructionCount(), budget);
+		emulator.run(Math.min(quantum, budget));
+		Breakpoints breakpoints = emulator.getBreakpoints();
+
+		if (breakpoints != null && breakpoints.isHit()) {
+			return STATE.BREAKPOINT;
+		}
+
+		if (emulator.getInstructionCount() >= end) {
+			return STATE.FINISHED;
+		}
+
+		if (isIdle(end)) {
+			long deadline = emulator.getNextEventCycle();
+
+			if (deadline == Long.MAX_VALUE) {
+				return STATE.IDLE;
+			}
+
+			emulator.getIdleDetector().skipToCycle(emulator, deadline, end);
+		}
+
+		return STATE.READY;
+	}
+
+
+
+	/*
+	 * Method Name:		isIdle
+	 * Description:		Asks the emulator's IdleDetector whether the program is waiting for input
+	 * Parameters:		long end: The instruction count the budget runs out at, which the probe stops at
+	 * Return:			True if it is idle, false if it is not or there is no detector or breakpoints are set
+	 */
+	private boolean isIdle(long end) throws Exception {
+		IdleDetector detector = emulator.getIdleDetector();
+		Breakpoints breakpoints = emulator.getBreakpoints();
+
+		// a probe single steps, so it would step over breakpoints without stopping
+		if (detector == null || (breakpoints != null && !breakpoints.isEmpty())) {
+			return false;
+		}
+
+		return detector.checkIdle(emulator, end);
+	}
+
+
+
+	/*
+	 * Method Name:		offerSwitch
+	 * Description:		Queues a switch change and wakes the machine if it is idle
+	 * Parameters:		SWITCH_BIT switchBit: The switch
+	 * 					boolean state: The new state
+	 * Return:			False if the queue is full
+	 */
+	public boolean offerSwitch(SWITCH_BIT switchBit, boolean state) {
+		return commands.offerSwitch(switchBit, state) && host.wake(this);
+	}
+
+
+
+	/*
+	 * Method Name:		offerRegister
+	 * Description:		Queues a register alteration and wakes the machine if it is idle
+	 * Parameters:		REGISTER register: The register
+	 * 					int value: The new value, masked to the register's width
+	 * Return:			False if the queue is full
+	 */
+	public boolean offerRegister(REGISTER register, int value) {
+		return commands.offerRegister(register, value) && host.wake(this);
+	}
+
+
+
+	/*
+	 * Method Name:		offerMemory
+	 * Description:		Queues a memory edit and wakes the machine if it is idle
+	 * Parameters:		int address: The address
+	 * 					byte value: The new value
+	 * Return:			False if the queue is full
+	 */
+	public boolean offerMemory(int address, byte value) {
+		return commands.offerMemory(address, value) && host.wake(this);
+	}
+
+
+
+	/*
+	 * Method Name:		stop
+	 * Description:		Stops the machine for good once it has applied the inputs queued before the stop,
+	 * 					wherever it is parked
+	 * Parameters:		None
+	 * Return:			False if the queue is full
+	 */
+	public boolean stop() {
+		return commands.offerStop() && host.resume(this, true);
+	}
+
+
+
+	/*
+	 * Method Name:		resume
+	 * Description:		Puts a machine parked at a breakpoint back on the run queue, running on past it
+	 * Parameters:		None
+	 * Return:			False if the machine was not parked at a breakpoint
+	 */
+	public boolean resume() {
+		return state == STATE.BREAKPOINT && host.resume(this, false);
+	}
+
+
+
+	/*
+	 * Method Name:		addBudget
+	 * Description:		Lets the machine execute more instructions, putting it back on the run queue if it
+	 * 					had used up its budget
+	 * Parameters:		long instructions: The number of instructions to add
+	 * Return:			None
+	 */
+	public void addBudget(long instructions) {
+		if (instructions < 0) {
+			throw new IllegalArgumentException("Budget cannot be taken away");
+		}
+
+		host.addBudget(this, instructions);
+	}
+
+
+
+	/*
+	 * Method Name:		getPass
+	 * Description:		Gets the machine's pass, the virtual time its next quantum starts at.  The run queue
+	 * 					runs the lowest pass first.  Only used under the host's lock
+	 * Parameters:		None
+	 * Return:			The pass as a long
+	 */
+	long getPass() {
+		return pass;
+	}
+
+
+
+	/*
+	 * Method Name:		setPass
+	 * Description:		Sets the machine's pass.  Only used under the host's lock
+	 * Parameters:		long pass: The new pass
+	 * Return:			None
+	 */
+	void setPass(long pass) {
+		this.pass = pass;
+	}
+
+
+
+	/*
+	 * Method Name:		getStride
+	 * Description:		Gets the pass the machine advances by for each full quantum it runs
+	 * Parameters:		None
+	 * Return:			The stride as a long
+	 */
+	long getStride() {
+		return stride;
+	}
+
+
+
+	/*
+	 * Method Name:		isWakePending
+	 * Description:		Determines whether an input arrived while the machine was running or queued, so it
+	 * 					must not be parked idle.  Only used under the host's lock
+	 * Parameters:		None
+	 * Return:			True if one did
+	 */
+	boolean isWakePending() {
+		return isWakePending;
+	}
+
+
+
+	/*
+	 * Method Name:		setWakePending
+	 * Description:		Sets whether an input arrived while the machine was running or queued.  Only used
+	 * 					under the host's lock
+	 * Parameters:		boolean isWakePending: Whether one did
+	 * Return:			None
+	 */
+	void setWakePending(boolean isWakePending) {
+		this.isWakePending = isWakePending;
+	}
+
+
+
+	/*
+	 * Method Name:		getBudget
+	 * Description:		Gets the number of instructions the machine may still execute, counted the way the
+	 * 					emulator counts them, so idle probes and skipped idle loop periods are included
+	 * Parameters:		None
+	 * Return:			The remaining budget, Long.MAX_VALUE or near it if unlimited
+	 */
+	public long getBudget() {
+		return budget;
+	}
+
+
+
+	/*
+	 * Method Name:		grantBudget
+	 * Description:		Holds more budget for the machine until it is not running.  Only used under the host's
+	 * 					lock
+	 * Parameters:		long instructions: The number of instructions to add
+	 * Return:			None
+	 */
+	void grantBudget(long instructions) {
+		granted = addSaturated(granted, instructions);
+	}
+
+
+
+	/*
+	 * Method Name:		applyGrants
+	 * Description:		Adds the budget granted so far to the remaining budget.  Only used under the host's
+	 * 					lock while the machine is not running, since the carrier running it changes the budget
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	void applyGrants() {
+		budget = addSaturated(budget, granted);
+		granted = 0;
+	}
+
+
+
+	/*
+	 * Method Name:		addSaturated
+	 * Description:		Adds two counts without going past Long.MAX_VALUE
+	 * Parameters:		long count: A count
+	 * 					long more: The count to add
+	 * Return:			The sum
+	 */
+	private static long addSaturated(long count, long more) {
+		return count > Long.MAX_VALUE - more ? Long.MAX_VALUE : count + more;
+	}
+
+
+
+	/*
+	 * Method Name:		setState
+	 * Description:		Moves the machine to a scheduling state.  Only used under the host's lock
+	 * Parameters:		STATE state: The new state
+	 * Return:			None
+	 */
+	void setState(STATE state) {
+		this.state = state;
+	}
+
+
+
+	/*
+	 * Method Name:		getState
+	 * Description:		Gets the machine's scheduling state, safe to call from any thread
+	 * Parameters:		None
+	 * Return:			The state
+	 */
+	public STATE getState() {
+		return state;
+	}
+
+
+
+	/*
+	 * Method Name:		getEmulator
+	 * Description:		Gets the emulator, which may only be used while the machine is parked other than idle
+	 * Parameters:		None
+	 * Return:			The emulator
+	 */
+	public Freescale6808Emulator getEmulator() {
+		return emulator;
+	}
+
+
+
+	/*
+	 * Method Name:		getPriority
+	 * Description:		Gets the machine's priority
+	 * Parameters:		None
+	 * Return:			The priority as an int
+	 */
+	public int getPriority() {
+		return priority;
+	}
+
+
+
+	/*
+	 * Method Name:		getExecuted
+	 * Description:		Gets the number of instructions the host has executed for the machine, idle probes and
+	 * 					skipped periods included, safe to call from any thread
+	 * Parameters:		None
+	 * Return:			The count as a long
+	 */
+	public long getExecuted() {
+		return executed;
+	}
+
+
+
+	/*
+	 * Method Name:		getFault
+	 * Description:		Gets the exception that stopped the machine
+	 * Parameters:		None
+	 * Return:			The exception, or null if it has not faulted
+	 */
+	public Exception getFault() {
+		return fault;
+	}
+}
@@ -0,0 +1,394 @@
+/*
+ * Filename:		IdleDetector.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the IdleDetector class
+ */
+
+
+
+package emulator;
+
+import java.util.Arrays;
+
+import cpu.Freescale6808CPU;
+
+
+
+/*
+ * Class Name:		IdleDetector
+ * Description:		Finds out when a program is waiting for input, such as the test image polling port A in
+ * 					an LDA $00 / AND #$80 / BEQ loop, so the emulator can skip the wait or its thread can
+ * 					park until an input arrives.
+ *
+ * 					Between inputs the machine is deterministic: its next state depends only on its
+ * 					registers and memory.  So once the whole state repeats, it repeats with the same period
+ * 					until an input changes something.  probe() single steps, really executing, and looks for
+ * 					the repeat with Brent's cycle detection: it keeps an anchor state, re-anchors at each
+ * 					power of two steps and compares the state with the anchor whenever the PC is back at
+ * 					the anchor's.  Registers are compared first and memory only when they all match, so
+ * 					probing costs a compare per step plus a 64K copy now and then.
+ *
+ * 					Counters kept by the loop are part of the state, so the period covers them: an 8 bit
+ * 					counter bumped each pass gives a period of 256 passes.  Skipping whole periods leaves
+ * 					every counter exactly as if each pass had run.  A loop whose state does not repeat within
+ * 					the probe limit, e.g. with a wide counter, is reported as not idle and runs normally;
+ * 					probes then back off so a busy program is rarely probed.
+ *
+ * 					Events of timed devices come from outside the state, so a repeat spanning one does not
+ * 					count, and skipping stops short of the next scheduled event so that it still happens on
+ * 					a real instruction at the right cycle.
+ *
+ * 					Skipped periods make no memory accesses, so nothing is skipped while anything that counts
+ * 					instructions or accesses is attached, EmulatorMetrics included.  Their counts stay exact
+ * 					and the loop simply runs; a thread can still park on checkIdle.  TimeTravel does not stop
+ * 					skipping, as the skipped state is exactly the one replaying the periods would reach.
+ */
+public class IdleDetector {
+
+	public final static long DEFAULT_PROBE_LIMIT = 1 << 16;
+
+	private final static long MAX_BACKOFF = 1 << 24;
+
+	private final long probeLimit;
+	private final byte[] anchorMemory;
+	private final byte[] scratch;
+	private short anchorPc;
+	private long anchorRegisters;
+	private long anchorCycles;
+	private long anchorServices;
+	private long period;
+	private long periodCycles;
+	private long nextProbe;
+	private long backoff;
+	private long probeCount;
+	private long idleCount;
+	private long skippedInstructions;
+
+
+
+	/*
+	 * Method Name:		IdleDetector
+	 * Description:		Constructor using the default probe limit
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public IdleDetector() {
+		this(DEFAULT_PROBE_LIMIT);
+	}
+
+
+
+	/*
+	 * Method Name:		IdleDetector
+	 * Description:		Constructor
+	 * Parameters:		long probeLimit: The most instructions a probe steps looking for a repeated state
+	 * Return:			None
+	 */
+	public IdleDetector(long probeLimit) {
+		if (probeLimit <= 0) {
+			throw new IllegalArgumentException("Probe limit must be positive");
+		}
+
+		this.probeLimit = probeLimit;
+		anchorMemory = new byte[Freescale6808Emulator.MAX_ADDRESS_SPACE];
+		scratch = new byte[Freescale6808Emulator.MAX_ADDRESS_SPACE];
+		period = 0;
+		periodCycles = 0;
+		nextProbe = 0;
+		backoff = probeLimit;
+		probeCount = 0;
+		idleCount = 0;
+		skippedInstructions = 0;
+	}
+
+
+
+	/*
+	 * Method Name:		probe
+	 * Description:		Single steps the emulator until its state repeats or a number of instructions have run.
+	 * 					When it repeats the emulator is left in the anchor state
+	 * Parameters:		Freescale6808Emulator emulator: The emulator
+	 * 					long maxInstructions: The most instructions to step
+	 * Return:			The period in instructions, or 0 if the state did not repeat
+	 */
+	public long probe(Freescale6808Emulator emulator, long maxInstructions) throws Exception {
+		long power = 1;
+		long steps = 0;
+
+		probeCount++;
+		period = 0;
+		anchor(emulator);
+
+		for (long i = 0; i < maxInstructions; i++) {
+			emulator.singleStep();
+			steps++;
+
+			if (isAtAnchor(emulator)) {
+				period = steps;
+				periodCycles = emulator.getCpu().getCycleCount() - anchorCycles;
+				idleCount++;
+				backoff = probeLimit;
+				return period;
+			}
+
+			// Brent: the anchor moves forward until it is inside the loop and the loop fits the power
+			if (steps == power) {
+				anchor(emulator);
+				power <<= 1;
+				steps = 0;
+			}
+		}
+
+		nextProbe = emulator.getInstructionCount() + backoff;
+		backoff = Math.min(backoff << 1, MAX_BACKOFF);
+		return 0;
+	}
+
+
+
+	/*
+	 * Method Name:		checkIdle
+	 * Description:		Determines whether the emulator is idle, stepping it back to the anchor state of the
+	 * 					loop last found if there is one, or probing if a probe is due
+	 * Parameters:		Freescale6808Emulator emulator: The emulator
+	 * 					long end: The instruction count not to step past
+	 * Return:			True if the emulator is now in the anchor state of a repeating loop
+	 */
+	public boolean checkIdle(Freescale6808Emulator emulator, long end) throws Exception {
+		long count = emulator.getInstructionCount();
+
+		// an input since the last check changes the state, so the anchor is not reached again
+		if (period > 0) {
+			for (long i = 0; i <= period && emulator.getInstructionCount() < end; i++) {
+				if (isAtAnchor(emulator)) {
+					return true;
+				}
+
+				emulator.singleStep();
+			}
+
+			period = 0;
+			nextProbe = emulator.getInstructionCount();
+			count = nextProbe;
+		}
+
+		if (count >= nextProbe && end > count) {
+			return probe(emulator, Math.min(probeLimit, end - count)) > 0;
+		}
+
+		return false;
+	}
+
+
+
+	/*
+	 * Method Name:		fastForward
+	 * Description:		Called by run() to skip whole periods of an idle loop, leaving the emulator in the state
+	 * 					it would have after executing them.  The caller steps whatever is left
+	 * Parameters:		Freescale6808Emulator emulator: The emulator
+	 * 					long end: The instruction count run() stops at
+	 * Return:			None
+	 */
+	void fastForward(Freescale6808Emulator emulator, long end) throws Exception {
+		// a window too short to find a loop in would only make probes back off
+		if (period == 0 && end - emulator.getInstructionCount() < probeLimit) {
+			return;
+		}
+
+		if (checkIdle(emulator, end)) {
+			skipPeriods(emulator, (end - emulator.getInstructionCount()) / period);
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		skipToCycle
+	 * Description:		Skips whole periods of the loop last found, as long as they end by a cycle count, e.g.
+	 * 					the cycles a throttled machine would have run while its thread was parked.  The
+	 * 					emulator must still be in the anchor state checkIdle left it in
+	 * Parameters:		Freescale6808Emulator emulator: The emulator
+	 * 					long cycle: The cycle count not to skip past
+	 * 					long end: The instruction count not to skip past
+	 * Return:			None
+	 */
+	void skipToCycle(Freescale6808Emulator emulator, long cycle, long end) {
+		long cycles = cycle - emulator.getCpu().getCycleCount();
+		long instructions = end - emulator.getInstructionCount();
+
+		if (period > 0 && periodCycles > 0 && cycles > 0 && instructions > 0) {
+			skipPeriods(emulator, Math.min(cycles / periodCycles, instructions / period));
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		skipPeriods
+	 * Description:		Counts whole periods of the loop last found as executed, instructions and cycles both,
+	 * 					as many as end before the next device event, unless the emulator is observed
+	 * Parameters:		Freescale6808Emulator emulator: The emulator, in the anchor state
+	 * 					long periods: The number of periods
+	 * Return:			None
+	 */
+	private void skipPeriods(Freescale6808Emulator emulator, long periods) {
+		long deadline = emulator.getNextEventCycle();
+
+		// skipped periods make no accesses, so anything counting them would see the count jump
+		if (emulator.isObserved()) {
+			return;
+		}
+
+		// the skipped periods must end before the next device event, which then comes on a real instruction
+		if (deadline != Long.MAX_VALUE && periodCycles > 0) {
+			periods = Math.min(periods, (deadline - 1 - emulator.getCpu().getCycleCount()) / periodCycles);
+		}
+
+		if (periods <= 0) {
+			return;
+		}
+
+		emulator.skipInstructions(periods * period, periods * periodCycles);
+		skippedInstructions += periods * period;
+	}
+
+
+
+	/*
+	 * Method Name:		forget
+	 * Description:		Forgets the loop last found, so the next check probes again straight away
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public void forget() {
+		period = 0;
+		periodCycles = 0;
+		nextProbe = 0;
+		backoff = probeLimit;
+	}
+
+
+
+	/*
+	 * Method Name:		anchor
+	 * Description:		Remembers the emulator's current state as the one to look for
+	 * Parameters:		Freescale6808Emulator emulator: The emulator
+	 * Return:			None
+	 */
+	private void anchor(Freescale6808Emulator emulator) {
+		Freescale6808CPU cpu = emulator.getCpu();
+		anchorPc = cpu.getPC();
+		anchorRegisters = SamplingProfiler.packRegisters(cpu);
+		anchorCycles = cpu.getCycleCount();
+		anchorServices = emulator.getServiceCount();
+		emulator.getMemory().get(0, anchorMemory, 0, anchorMemory.length);
+	}
+
+
+
+	/*
+	 * Method Name:		isAtAnchor
+	 * Description:		Compares the emulator's state with the anchor, the PC first, then the other registers
+	 * 					and memory only if everything before matched
+	 * Parameters:		Freescale6808Emulator emulator: The emulator
+	 * Return:			True if the state is the anchor state
+	 */
+	private boolean isAtAnchor(Freescale6808Emulator emulator) {
+		Freescale6808CPU cpu = emulator.getCpu();
+
+		// a device event or interrupt since anchoring came from outside the state, so it proves nothing
+		if (cpu.getPC() != anchorPc || SamplingProfiler.packRegisters(cpu) != anchorRegisters
+				|| emulator.getServiceCount() != anchorServices) {
+			return false;
+		}
+
+		emulator.getMemory().get(0, scratch, 0, scratch.length);
+		return Arrays.equals(scratch, anchorMemory);
+	}
+
+
+
+	/*
+	 * Method Name:		isIdle
+	 * Description:		Determines whether the last check or probe found a repeating loop
+	 * Parameters:		None
+	 * Return:			True if it did
+	 */
+	public boolean isIdle() {
+		return period > 0;
+	}
+
+
+
+	/*
+	 * Method Name:		getPeriod
+	 * Description:		Gets the period of the loop last found
+	 * Parameters:		None
+	 * Return:			The period in instructions, or 0 if the program is not idle
+	 */
+	public long getPeriod() {
+		return period;
+	}
+
+
+
+	/*
+	 * Method Name:		getPeriodCycles
+	 * Description:		Gets the number of bus cycles one period of the loop last found takes
+	 * Parameters:		None
+	 * Return:			The cycles as a long, or 0 if the program is not idle
+	 */
+	public long getPeriodCycles() {
+		return periodCycles;
+	}
+
+
+
+	/*
+	 * Method Name:		getIdlePC
+	 * Description:		Gets the PC of the anchor state the loop repeats
+	 * Parameters:		None
+	 * Return:			The PC as an int, only meaningful when isIdle is true
+	 */
+	public int getIdlePC() {
+		return anchorPc & 0xffff;
+	}
+
+
+
+	/*
+	 * Method Name:		getProbeCount
+	 * Description:		Gets the number of probes made
+	 * Parameters:		None
+	 * Return:			The count as a long
+	 */
+	public long getProbeCount() {
+		return probeCount;
+	}
+
+
+
+	/*
+	 * Method Name:		getIdleCount
+	 * Description:		Gets the number of probes that found a repeating loop
+	 * Parameters:		None
+	 * Return:			The count as a long
+	 */
+	public long getIdleCount() {
+		return idleCount;
+	}
+
+
+
+	/*
+	 * Method Name:		getSkippedInstructions
+	 * Description:		Gets the number of instructions run() skipped rather than executed
+	 * Parameters:		None
+	 * Return:			The count as a long
+	 */
+	public long getSkippedInstructions() {
+		return skippedInstructions;
+	}
+}
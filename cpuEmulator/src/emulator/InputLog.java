@@ -0,0 +1,478 @@
+/*
+ * Filename:		InputLog.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the InputLog class
+ */
+
+
+
+package emulator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import utilities.LoadedImage;
+import emulator.Freescale6808Emulator.REGISTER;
+import emulator.Freescale6808Emulator.SWITCH_BIT;
+
+
+
+/*
+ * Class Name:		InputLog
+ * Description:		Records the inputs that reach an emulator from outside the program - switch changes,
+ * 					register alterations and memory edits - each stamped with the instruction count it
+ * 					arrived at, so a run can be repeated exactly.  An input stamped with count n arrived
+ * 					after n instructions had executed and is applied again just before instruction n + 1.
+ *
+ * 					The log has a replay position.  While recording live the position is at the end and
+ * 					nothing is replayed; after seek() moves it back, the emulator feeds the logged inputs in
+ * 					again as it steps past their counts.  A new input recorded while there are logged inputs
+ * 					ahead of the position starts a new timeline: the old inputs ahead are thrown away and the
+ * 					point where the timelines split is remembered until takeDivergence() collects it.
+ *
+ * 					Events are kept as two parallel primitive arrays so logging allocates nothing until the
+ * 					arrays grow.  A log can be saved and loaded again later, e.g. to reproduce a session in
+ * 					batch: load the same image, load the log and run, and every input arrives at the same
+ * 					instruction boundary as before.
+ *
+ * 					File layout, big endian:
+ * 						0		magic "6808INPT"
+ * 						8		int version, int event count
+ * 						16		long instruction count the log starts at
+ * 						24		long image checksum
+ * 						32		int image name length
+ * 						64		image name (UTF-8)
+ * 						...		per event: varint count delta from the previous event (or the start),
+ * 								byte kind, varint target, varint value
+ */
+public class InputLog {
+
+	public enum EVENT {
+		SWITCH,
+		REGISTER,
+		MEMORY
+	}
+
+	private final static byte[] MAGIC = { '6', '8', '0', '8', 'I', 'N', 'P', 'T' };
+	private final static int VERSION = 1;
+	private final static int HEADER_SIZE = 64;
+	private final static Charset UTF8 = Charset.forName("UTF-8");
+	private final static int INITIAL_CAPACITY = 64;
+	private final static EVENT[] EVENTS = EVENT.values();
+	private final static SWITCH_BIT[] SWITCHES = SWITCH_BIT.values();
+	private final static REGISTER[] REGISTERS = REGISTER.values();
+
+	private long[] counts;
+	private long[] events;
+	private int size;
+	private int position;
+	private long divergedAt;
+	private long startCount;
+
+
+
+	/*
+	 * Method Name:		InputLog
+	 * Description:		Constructor, the log starts empty
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public InputLog() {
+		counts = new long[INITIAL_CAPACITY];
+		events = new long[INITIAL_CAPACITY];
+		clear();
+	}
+
+
+
+	/*
+	 * Method Name:		clear
+	 * Description:		Throws away every logged input, the log then starts from a reset machine
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public void clear() {
+		start(0);
+	}
+
+
+
+	/*
+	 * Method Name:		start
+	 * Description:		Throws away every logged input, the log then starts at the given instruction count
+	 * Parameters:		long count: The instruction count the machine is at
+	 * Return:			None
+	 */
+	public void start(long count) {
+		size = 0;
+		position = 0;
+		divergedAt = -1;
+		startCount = count;
+	}
+
+
+
+	/*
+	 * Method Name:		encode
+	 * Description:		Packs an event into a long: the kind in the top byte, a target in the next three
+	 * 					and a value in the low four
+	 * Parameters:		EVENT kind: The kind of input
+	 * 					int target: What the input changed, e.g. which switch
+	 * 					int value: The new value
+	 * Return:			The packed event
+	 */
+	static long encode(EVENT kind, int target, int value) {
+		return ((long)kind.ordinal() << 56) | ((long)(target & 0xffffff) << 32) | (value & 0xffffffffL);
+	}
+
+
+
+	/*
+	 * Method Name:		record
+	 * Description:		Appends an input, cutting off any logged inputs ahead of the replay position
+	 * Parameters:		long count: The instruction count the input arrived at
+	 * 					long event: The packed event
+	 * Return:			None
+	 */
+	void record(long count, long event) {
+		if (position < size) {
+			size = position;
+			divergedAt = divergedAt < 0 ? count : Math.min(divergedAt, count);
+		}
+
+		if (size == counts.length) {
+			long[] grownCounts = new long[size * 2];
+			long[] grownEvents = new long[size * 2];
+			System.arraycopy(counts, 0, grownCounts, 0, size);
+			System.arraycopy(events, 0, grownEvents, 0, size);
+			counts = grownCounts;
+			events = grownEvents;
+		}
+
+		counts[size] = count;
+		events[size] = event;
+		size++;
+		position = size;
+	}
+
+
+
+	/*
+	 * Method Name:		replayDue
+	 * Description:		Applies the logged inputs that arrived at or before the emulator's instruction count
+	 * 					and have not been applied yet.  Called by the emulator before each instruction, and
+	 * 					after a replay stops so inputs stamped with the final count are in
+	 * Parameters:		Freescale6808Emulator emulator: The emulator to apply them to
+	 * Return:			None
+	 */
+	public void replayDue(Freescale6808Emulator emulator) {
+		long count = emulator.getInstructionCount();
+
+		while (position < size && counts[position] <= count) {
+			apply(emulator, events[position]);
+			position++;
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		apply
+	 * Description:		Applies one packed event without logging it again
+	 * Parameters:		Freescale6808Emulator emulator: The emulator to apply it to
+	 * 					long event: The packed event
+	 * Return:			None
+	 */
+	private void apply(Freescale6808Emulator emulator, long event) {
+		int target = (int)(event >>> 32) & 0xffffff;
+		int value = (int)event;
+
+		switch (EVENTS[(int)(event >>> 56)]) {
+		case SWITCH:
+			emulator.applySwitchData(value != 0, SWITCHES[target]);
+			break;
+		case REGISTER:
+			emulator.applyRegister(REGISTERS[target], value);
+			break;
+		case MEMORY:
+			emulator.applyMemory(target, (byte)value);
+			break;
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		seek
+	 * Description:		Moves the replay position to the first input that arrived at or after an instruction
+	 * 					count, e.g. after the emulator has been put back to a checkpoint taken at that count
+	 * Parameters:		long count: The instruction count
+	 * Return:			None
+	 */
+	public void seek(long count) {
+		int low = 0;
+		int high = size;
+
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+
+			if (counts[middle] < count) {
+				low = middle + 1;
+			}
+			else {
+				high = middle;
+			}
+		}
+
+		position = low;
+	}
+
+
+
+	/*
+	 * Method Name:		copy
+	 * Description:		Makes an independent copy of the log with its own replay position at the start, e.g.
+	 * 					so several emulators can replay parts of the same run at once
+	 * Parameters:		None
+	 * Return:			The copy
+	 */
+	public InputLog copy() {
+		InputLog copy = new InputLog();
+		copy.counts = Arrays.copyOf(counts, Math.max(size, INITIAL_CAPACITY));
+		copy.events = Arrays.copyOf(events, copy.counts.length);
+		copy.size = size;
+		copy.startCount = startCount;
+		return copy;
+	}
+
+
+
+	/*
+	 * Method Name:		save
+	 * Description:		Writes the log to a file
+	 * Parameters:		File file: The file to write
+	 * 					LoadedImage image: The image the log was recorded with, or null
+	 * Return:			None
+	 */
+	public void save(File file, LoadedImage image) throws IOException {
+		byte[] name = (image == null ? "" : image.getName()).getBytes(UTF8);
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+
+		try {
+			output.write(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(size);
+			output.writeLong(startCount);
+			output.writeLong(image == null ? 0 : image.getChecksum());
+			output.writeInt(name.length);
+			output.write(new byte[HEADER_SIZE - 36]);
+			output.write(name);
+
+			long last = startCount;
+
+			for (int i = 0; i < size; i++) {
+				writeVarint(output, counts[i] - last);
+				output.writeByte((int)(events[i] >>> 56));
+				writeVarint(output, (events[i] >>> 32) & 0xffffff);
+				writeVarint(output, events[i] & 0xffffffffL);
+				last = counts[i];
+			}
+		}
+		finally {
+			output.close();
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		load
+	 * Description:		Replaces the log with one read from a file, positioned at its start so stepping an
+	 * 					emulator from the log's starting instruction count replays every input
+	 * Parameters:		File file: The file to read
+	 * 					LoadedImage image: The image that is loaded, which must be the one the log was
+	 * 					recorded with
+	 * Return:			None
+	 */
+	public void load(File file, LoadedImage image) throws IOException {
+		DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+		try {
+			byte[] magic = new byte[MAGIC.length];
+			input.readFully(magic);
+
+			for (int i = 0; i < MAGIC.length; i++) {
+				if (magic[i] != MAGIC[i]) {
+					throw new IOException(file.getName() + " is not an input log");
+				}
+			}
+
+			int version = input.readInt();
+
+			if (version != VERSION) {
+				throw new IOException(file.getName() + " has unsupported input log version " + version);
+			}
+
+			int eventCount = input.readInt();
+			long logStart = input.readLong();
+			long checksum = input.readLong();
+			int nameLength = input.readInt();
+
+			if (eventCount < 0 || logStart < 0 || nameLength < 0) {
+				throw new IOException(file.getName() + " is corrupt");
+			}
+
+			input.readFully(new byte[HEADER_SIZE - 36]);
+			byte[] name = new byte[nameLength];
+			input.readFully(name);
+
+			if (checksum != (image == null ? 0 : image.getChecksum())) {
+				throw new IOException("Input log was recorded with a different image (" + new String(name, UTF8) + ")");
+			}
+
+			long[] loadedCounts = new long[Math.max(eventCount, INITIAL_CAPACITY)];
+			long[] loadedEvents = new long[loadedCounts.length];
+			long last = logStart;
+
+			for (int i = 0; i < eventCount; i++) {
+				last += readVarint(input);
+				int kind = input.readUnsignedByte();
+
+				if (kind >= EVENTS.length) {
+					throw new IOException(file.getName() + " is corrupt");
+				}
+
+				loadedCounts[i] = last;
+				loadedEvents[i] = encode(EVENTS[kind], (int)readVarint(input), (int)readVarint(input));
+			}
+
+			counts = loadedCounts;
+			events = loadedEvents;
+			size = eventCount;
+			position = 0;
+			divergedAt = -1;
+			startCount = logStart;
+		}
+		catch (EOFException ex) {
+			throw new IOException(file.getName() + " is truncated");
+		}
+		finally {
+			input.close();
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		writeVarint
+	 * Description:		Writes an unsigned value seven bits at a time, low bits first
+	 * Parameters:		DataOutputStream output: Where to write
+	 * 					long value: The value
+	 * Return:			None
+	 */
+	private static void writeVarint(DataOutputStream output, long value) throws IOException {
+		while ((value & ~0x7fL) != 0) {
+			output.writeByte((int)((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+
+		output.writeByte((int)value);
+	}
+
+
+
+	/*
+	 * Method Name:		readVarint
+	 * Description:		Reads an unsigned value written seven bits at a time, low bits first
+	 * Parameters:		DataInputStream input: Where to read
+	 * Return:			The value as a long
+	 */
+	private static long readVarint(DataInputStream input) throws IOException {
+		long value = 0;
+		int shift = 0;
+		int next;
+
+		do {
+			next = input.readUnsignedByte();
+			value |= (long)(next & 0x7f) << shift;
+			shift += 7;
+		} while ((next & 0x80) != 0 && shift < 64);
+
+		return value;
+	}
+
+
+
+	/*
+	 * Method Name:		takeDivergence
+	 * Description:		Collects the point where a new timeline last split from the logged one
+	 * Parameters:		None
+	 * Return:			The instruction count of the split, or -1 if the timeline has not split since the
+	 * 					last call
+	 */
+	public long takeDivergence() {
+		long count = divergedAt;
+		divergedAt = -1;
+		return count;
+	}
+
+
+
+	/*
+	 * Method Name:		size
+	 * Description:		Gets the number of logged inputs
+	 * Parameters:		None
+	 * Return:			The number of inputs
+	 */
+	public int size() {
+		return size;
+	}
+
+
+
+	/*
+	 * Method Name:		getStartCount
+	 * Description:		Gets the instruction count the log starts at
+	 * Parameters:		None
+	 * Return:			The instruction count, 0 for a log that starts from a reset machine
+	 */
+	public long getStartCount() {
+		return startCount;
+	}
+
+
+
+	/*
+	 * Method Name:		getLastCount
+	 * Description:		Gets the instruction count of the last logged input, which is how far a replay must
+	 * 					run to feed in every input
+	 * Parameters:		None
+	 * Return:			The instruction count, or the start count if the log is empty
+	 */
+	public long getLastCount() {
+		return size == 0 ? startCount : counts[size - 1];
+	}
+
+
+
+	/*
+	 * Method Name:		isReplaying
+	 * Description:		Determines whether there are logged inputs ahead of the replay position
+	 * Parameters:		None
+	 * Return:			True if stepping on will replay logged inputs
+	 */
+	public boolean isReplaying() {
+		return position < size;
+	}
+}
@@ -0,0 +1,35 @@
+/*
+ * Filename:		InstructionListener.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the InstructionListener interface
+ */
+
+
+
+package emulator;
+
+
+
+/*
+ * Interface Name:	InstructionListener
+ * Description:		Told about every instruction an emulator retires, after it has executed.  Listeners run
+ * 					on the emulator thread inside singleStep, so they must be quick and must not step the
+ * 					emulator themselves.  The CPU registers and instruction count seen through the emulator
+ * 					are those after the instruction.
+ */
+public interface InstructionListener {
+
+	/*
+	 * Method Name:		instructionRetired
+	 * Description:		Called once for each instruction executed
+	 * Parameters:		Freescale6808Emulator emulator: The emulator that executed it
+	 * 					int pc: The address of the opcode
+	 * 					byte opcode: The opcode
+	 * 					byte operand: The byte following the opcode
+	 * 					int writeAddress: The address the instruction wrote to memory, or -1 if it wrote nothing
+	 * Return:			None
+	 */
+	void instructionRetired(Freescale6808Emulator emulator, int pc, byte opcode, byte operand, int writeAddress);
+}
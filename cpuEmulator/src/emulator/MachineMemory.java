@@ -0,0 +1,121 @@
+/*
+ * Filename:		MachineMemory.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the MachineMemory interface
+ */
+
+
+
+package emulator;
+
+import java.nio.ByteBuffer;
+
+
+
+/*
+ * Interface Name:	MachineMemory
+ * Description:		Storage behind the emulator's 64K address space.  The emulator does all memory map
+ * 					checking itself, so implementations only have to store bytes.  Addresses passed in
+ * 					are always between 0 and MAX_ADDRESS_SPACE - 1.
+ */
+public interface MachineMemory {
+
+	/*
+	 * Method Name:		get
+	 * Description:		Reads one byte
+	 * Parameters:		int address: The address to read
+	 * Return:			The byte at the address
+	 */
+	byte get(int address);
+
+
+
+	/*
+	 * Method Name:		put
+	 * Description:		Writes one byte
+	 * Parameters:		int address: The address to write
+	 * 					byte value: The value to write
+	 * Return:			None
+	 */
+	void put(int address, byte value);
+
+
+
+	/*
+	 * Method Name:		get
+	 * Description:		Bulk copies bytes out of memory
+	 * Parameters:		int address: The first address to copy
+	 * 					byte[] destination: The array to copy into
+	 * 					int offset: The offset in the array of the first byte
+	 * 					int length: The number of bytes to copy
+	 * Return:			None
+	 */
+	void get(int address, byte[] destination, int offset, int length);
+
+
+
+	/*
+	 * Method Name:		put
+	 * Description:		Bulk copies bytes into memory
+	 * Parameters:		int address: The first address to write
+	 * 					byte[] source: The array to copy from
+	 * 					int offset: The offset in the array of the first byte
+	 * 					int length: The number of bytes to copy
+	 * Return:			None
+	 */
+	void put(int address, byte[] source, int offset, int length);
+
+
+
+	/*
+	 * Method Name:		put
+	 * Description:		Bulk copies everything between a buffer's position and limit into memory
+	 * Parameters:		int address: The first address to write
+	 * 					ByteBuffer source: The bytes to copy, the position is advanced past them
+	 * Return:			None
+	 */
+	void put(int address, ByteBuffer source);
+
+
+
+	/*
+	 * Method Name:		clear
+	 * Description:		Sets every byte to zero
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	void clear();
+
+
+
+	/*
+	 * Method Name:		asByteBuffer
+	 * Description:		Gets a live view of the whole memory, position 0 and limit MAX_ADDRESS_SPACE
+	 * Parameters:		None
+	 * Return:			The view as a ByteBuffer
+	 */
+	ByteBuffer asByteBuffer();
+
+
+
+	/*
+	 * Method Name:		toArray
+	 * Description:		Gets the memory as a byte array.  On-heap memory returns its live backing array,
+	 * 					anything else returns a copy
+	 * Parameters:		None
+	 * Return:			The memory as a byte array
+	 */
+	byte[] toArray();
+
+
+
+	/*
+	 * Method Name:		release
+	 * Description:		Gives up the storage.  The memory must not be used afterwards
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	void release();
+}
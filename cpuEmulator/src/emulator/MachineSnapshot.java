@@ -0,0 +1,296 @@
+/*
+ * Filename:		MachineSnapshot.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the MachineSnapshot class
+ */
+
+
+
+package emulator;
+
+import cpu.Freescale6808CPU;
+import cpu.Freescale6808CPU.CCR_BIT;
+
+
+
+/*
+ * Class Name:		MachineSnapshot
+ * Description:		An immutable copy of the registers, counts and memory of an emulator, taken
+ * 					by the thread running it so that other threads, such as the GUI, can show the machine
+ * 					without touching it while it runs.
+ *
+ * 					Memory is held as 256 byte pages.  A snapshot taken against the previous one shares
+ * 					every page that has not changed since, so taking one copies only the changed pages and
+ * 					two snapshots can be compared a page at a time by identity.  Pages are never written
+ * 					once the snapshot is made, so a snapshot may be read from any thread.
+ */
+public class MachineSnapshot {
+
+	public final static int PAGE_SIZE = Checkpoint.PAGE_SIZE;
+	public final static int PAGE_COUNT = Checkpoint.PAGE_COUNT;
+
+	private final Freescale6808CPU registers;
+	private final long instructionCount;
+	private final byte[][] pages;
+
+
+
+	/*
+	 * Method Name:		MachineSnapshot
+	 * Description:		Constructor, use capture
+	 * Parameters:		Freescale6808CPU cpu: The CPU to copy the registers of
+	 * 					long instructionCount: The instruction count
+	 * 					byte[][] pages: The pages of memory, which are kept rather than copied
+	 * Return:			None
+	 */
+	private MachineSnapshot(Freescale6808CPU cpu, long instructionCount, byte[][] pages) {
+		// a private copy, never handed out, so it is as immutable as the rest of the snapshot
+		registers = new Freescale6808CPU();
+		registers.setA(cpu.getA());
+		registers.setCCR(cpu.getCCR());
+		registers.setHX(cpu.getHX());
+		registers.setSP(cpu.getSP());
+		registers.setPC(cpu.getPC());
+		registers.setCycleCount(cpu.getCycleCount());
+		this.instructionCount = instructionCount;
+		this.pages = pages;
+	}
+
+
+
+	/*
+	 * Method Name:		capture
+	 * Description:		Takes a snapshot of an emulator, which must not be running on another thread
+	 * Parameters:		Freescale6808Emulator emulator: The emulator
+	 * 					MachineSnapshot previous: An earlier snapshot of the same emulator to share unchanged
+	 * 						pages with, or null to copy every page
+	 * Return:			The snapshot
+	 */
+	public static MachineSnapshot capture(Freescale6808Emulator emulator, MachineSnapshot previous) {
+		MachineMemory memory = emulator.getMemory();
+		byte[][] pages = new byte[PAGE_COUNT][];
+		byte[] page = new byte[PAGE_SIZE];
+
+		for (int pageNumber = 0; pageNumber < PAGE_COUNT; pageNumber++) {
+			memory.get(pageNumber * PAGE_SIZE, page, 0, PAGE_SIZE);
+
+			// an unchanged page is shared and the copy reused for the next page
+			if (previous != null && isSame(page, previous.pages[pageNumber])) {
+				pages[pageNumber] = previous.pages[pageNumber];
+			}
+			else {
+				pages[pageNumber] = page;
+				page = new byte[PAGE_SIZE];
+			}
+		}
+
+		return new MachineSnapshot(emulator.getCpu(), emulator.getInstructionCount(), pages);
+	}
+
+
+
+	/*
+	 * Method Name:		isSame
+	 * Description:		Compares two pages
+	 * Parameters:		byte[] page: A page
+	 * 					byte[] other: Another page
+	 * Return:			True if every byte is the same
+	 */
+	private static boolean isSame(byte[] page, byte[] other) {
+		for (int i = 0; i < PAGE_SIZE; i++) {
+			if (page[i] != other[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+
+
+	/*
+	 * Method Name:		copyTo
+	 * Description:		Copies the snapshot's registers, instruction count and memory into an emulator, e.g. a
+	 * 					scratch emulator to evaluate watch expressions against
+	 * Parameters:		Freescale6808Emulator emulator: The emulator to overwrite
+	 * Return:			None
+	 */
+	public void copyTo(Freescale6808Emulator emulator) {
+		MachineMemory memory = emulator.getMemory();
+
+		for (int pageNumber = 0; pageNumber < PAGE_COUNT; pageNumber++) {
+			memory.put(pageNumber * PAGE_SIZE, pages[pageNumber], 0, PAGE_SIZE);
+		}
+
+		Freescale6808CPU cpu = emulator.getCpu();
+		cpu.setA(registers.getA());
+		cpu.setCCR(registers.getCCR());
+		cpu.setHX(registers.getHX());
+		cpu.setSP(registers.getSP());
+		cpu.setPC(registers.getPC());
+		cpu.setCycleCount(registers.getCycleCount());
+		emulator.setInstructionCount(instructionCount);
+	}
+
+
+
+	/*
+	 * Method Name:		isPageChanged
+	 * Description:		Determines whether a page may differ from another snapshot's, without comparing bytes.
+	 * 					A page that was shared is the same; one that was not almost always differs
+	 * Parameters:		MachineSnapshot other: The other snapshot, or null
+	 * 					int pageNumber: The page
+	 * Return:			True if the page was not shared with the other snapshot
+	 */
+	public boolean isPageChanged(MachineSnapshot other, int pageNumber) {
+		return other == null || pages[pageNumber] != other.pages[pageNumber];
+	}
+
+
+
+	/*
+	 * Method Name:		copyPage
+	 * Description:		Copies a page of memory out of the snapshot
+	 * Parameters:		int pageNumber: The page
+	 * 					byte[] destination: The array to copy into
+	 * 					int offset: Where in the array to copy the page to
+	 * Return:			None
+	 */
+	public void copyPage(int pageNumber, byte[] destination, int offset) {
+		System.arraycopy(pages[pageNumber], 0, destination, offset, PAGE_SIZE);
+	}
+
+
+
+	/*
+	 * Method Name:		getMemoryByte
+	 * Description:		Gets a byte of memory
+	 * Parameters:		int address: The address
+	 * Return:			The byte
+	 */
+	public byte getMemoryByte(int address) {
+		return pages[(address >>> 8) & 0xff][address & 0xff];
+	}
+
+
+
+	/*
+	 * Method Name:		getA
+	 * Description:		Gets the accumulator
+	 * Parameters:		None
+	 * Return:			The accumulator as a byte
+	 */
+	public byte getA() {
+		return registers.getA();
+	}
+
+
+
+	/*
+	 * Method Name:		getCCR
+	 * Description:		Gets the condition code register
+	 * Parameters:		None
+	 * Return:			The CCR as a byte
+	 */
+	public byte getCCR() {
+		return registers.getCCR();
+	}
+
+
+
+	/*
+	 * Method Name:		isCCRBit
+	 * Description:		Tests a flag of the condition code register
+	 * Parameters:		CCR_BIT bit: The flag
+	 * Return:			True if the flag is set
+	 */
+	public boolean isCCRBit(CCR_BIT bit) {
+		return registers.isCCRBit(bit);
+	}
+
+
+
+	/*
+	 * Method Name:		getHX
+	 * Description:		Gets the index register
+	 * Parameters:		None
+	 * Return:			HX as a short
+	 */
+	public short getHX() {
+		return registers.getHX();
+	}
+
+
+
+	/*
+	 * Method Name:		getH
+	 * Description:		Gets the high byte of the index register
+	 * Parameters:		None
+	 * Return:			H as a byte
+	 */
+	public byte getH() {
+		return registers.getH();
+	}
+
+
+
+	/*
+	 * Method Name:		getX
+	 * Description:		Gets the low byte of the index register
+	 * Parameters:		None
+	 * Return:			X as a byte
+	 */
+	public byte getX() {
+		return registers.getX();
+	}
+
+
+
+	/*
+	 * Method Name:		getSP
+	 * Description:		Gets the stack pointer
+	 * Parameters:		None
+	 * Return:			SP as a short
+	 */
+	public short getSP() {
+		return registers.getSP();
+	}
+
+
+
+	/*
+	 * Method Name:		getPC
+	 * Description:		Gets the program counter
+	 * Parameters:		None
+	 * Return:			PC as a short
+	 */
+	public short getPC() {
+		return registers.getPC();
+	}
+
+
+
+	/*
+	 * Method Name:		getInstructionCount
+	 * Description:		Gets the number of instructions executed when the snapshot was taken
+	 * Parameters:		None
+	 * Return:			The instruction count as a long
+	 */
+	public long getInstructionCount() {
+		return instructionCount;
+	}
+
+
+
+	/*
+	 * Method Name:		getCycleCount
+	 * Description:		Gets the number of bus cycles executed when the snapshot was taken
+	 * Parameters:		None
+	 * Return:			The cycle count as a long
+	 */
+	public long getCycleCount() {
+		return registers.getCycleCount();
+	}
+}
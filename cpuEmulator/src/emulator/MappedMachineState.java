@@ -0,0 +1,368 @@
+/*
+ * Filename:		MappedMachineState.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the MappedMachineState class
+ */
+
+
+
+package emulator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import cpu.Freescale6808CPU;
+
+
+
+/*
+ * Class Name:		MappedMachineState
+ * Description:		Keeps a machine's CPU registers and its whole 64K address space (hardware page, RAM and
+ * 					ROM) in a file mapped READ_WRITE with FileChannel.map.
+ *
+ * 					Every register and memory write goes straight into the shared mapping, so the state is
+ * 					in the OS page cache at all times: it survives the emulator process crashing, and any
+ * 					local process can attach() to the file and watch the registers and RAM live without
+ * 					copying or serialization.  force() flushes the mapping to disk for surviving an OS crash.
+ *
+ * 					File layout, big endian:
+ * 						0		magic "6808MSTA"
+ * 						8		int version
+ * 						16		byte A, byte CCR, short HX, short SP, short PC
+ * 						4096	64K of memory
+ */
+public class MappedMachineState {
+
+	private final static byte[] MAGIC = { '6', '8', '0', '8', 'M', 'S', 'T', 'A' };
+	private final static int VERSION = 1;
+
+	private final static int VERSION_OFFSET = 8;
+	private final static int A_OFFSET = 16;
+	private final static int CCR_OFFSET = 17;
+	private final static int HX_OFFSET = 18;
+	private final static int SP_OFFSET = 20;
+	private final static int PC_OFFSET = 22;
+	private final static int MEMORY_OFFSET = 4096;
+	private final static int FILE_SIZE = MEMORY_OFFSET + Freescale6808Emulator.MAX_ADDRESS_SPACE;
+
+	private final MappedByteBuffer mapping;
+	private final boolean isReadOnly;
+	private final DirectMemory memory;
+	private final MappedCPU cpu;
+
+
+
+	/*
+	 * Class Name:		MappedCPU
+	 * Description:		A CPU that writes every register change through to the mapped register block
+	 */
+	private static class MappedCPU extends Freescale6808CPU {
+
+		private final ByteBuffer registers;
+
+
+
+		/*
+		 * Method Name:		MappedCPU
+		 * Description:		Constructor, picks up the register values already in the file
+		 * Parameters:		ByteBuffer registers: The mapped file
+		 * Return:			None
+		 */
+		MappedCPU(ByteBuffer registers) {
+			this.registers = registers;
+			super.setA(registers.get(A_OFFSET));
+			super.setCCR(registers.get(CCR_OFFSET));
+			super.setHX(registers.getShort(HX_OFFSET));
+			super.setSP(registers.getShort(SP_OFFSET));
+			super.setPC(registers.getShort(PC_OFFSET));
+		}
+
+
+
+		/*
+		 * Method Name:		setA
+		 * Description:		Sets the accumulator and writes it through to the file
+		 * Parameters:		byte accumulator: The new value
+		 * Return:			None
+		 */
+		public void setA(byte accumulator) {
+			super.setA(accumulator);
+			registers.put(A_OFFSET, accumulator);
+		}
+
+
+
+		/*
+		 * Method Name:		setPC
+		 * Description:		Sets the program counter and writes it through to the file
+		 * Parameters:		short programCounter: The new value
+		 * Return:			None
+		 */
+		public void setPC(short programCounter) {
+			super.setPC(programCounter);
+			registers.putShort(PC_OFFSET, programCounter);
+		}
+
+
+
+		/*
+		 * Method Name:		setSP
+		 * Description:		Sets the stack pointer and writes it through to the file
+		 * Parameters:		short stackPointer: The new value
+		 * Return:			None
+		 */
+		public void setSP(short stackPointer) {
+			super.setSP(stackPointer);
+			registers.putShort(SP_OFFSET, stackPointer);
+		}
+
+
+
+		/*
+		 * Method Name:		setHX
+		 * Description:		Sets the 16-bit index register and writes it through to the file
+		 * Parameters:		short indexRegister: The new value
+		 * Return:			None
+		 */
+		public void setHX(short indexRegister) {
+			super.setHX(indexRegister);
+			registers.putShort(HX_OFFSET, getHX());
+		}
+
+
+
+		/*
+		 * Method Name:		setX
+		 * Description:		Sets the low 8-bit index register and writes it through to the file
+		 * Parameters:		byte indexRegisterLow: The new value
+		 * Return:			None
+		 */
+		public void setX(byte indexRegisterLow) {
+			super.setX(indexRegisterLow);
+			registers.putShort(HX_OFFSET, getHX());
+		}
+
+
+
+		/*
+		 * Method Name:		setH
+		 * Description:		Sets the high 8-bit index register and writes it through to the file
+		 * Parameters:		byte indexRegisterHigh: The new value
+		 * Return:			None
+		 */
+		public void setH(byte indexRegisterHigh) {
+			super.setH(indexRegisterHigh);
+			registers.putShort(HX_OFFSET, getHX());
+		}
+
+
+
+		/*
+		 * Method Name:		setCCR
+		 * Description:		Sets the ccr register and writes it through to the file
+		 * Parameters:		byte conditionCodeRegister: The new value
+		 * Return:			None
+		 */
+		public void setCCR(byte conditionCodeRegister) {
+			super.setCCR(conditionCodeRegister);
+			registers.put(CCR_OFFSET, conditionCodeRegister);
+		}
+
+
+
+		/*
+		 * Method Name:		setCCRBit
+		 * Description:		Sets a ccr bit and writes the ccr through to the file
+		 * Parameters:		boolean state: The new state for the bit
+		 * 					CCR_BIT bit: The ccr bit enum value
+		 * Return:			None
+		 */
+		public void setCCRBit(boolean state, CCR_BIT bit) {
+			super.setCCRBit(state, bit);
+			registers.put(CCR_OFFSET, getCCR());
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		MappedMachineState
+	 * Description:		Constructor
+	 * Parameters:		MappedByteBuffer mapping: The mapped file
+	 * 					boolean isReadOnly: Whether the mapping is read-only
+	 * Return:			None
+	 */
+	private MappedMachineState(MappedByteBuffer mapping, boolean isReadOnly) {
+		this.mapping = mapping;
+		this.isReadOnly = isReadOnly;
+
+		ByteBuffer memoryView = mapping.duplicate();
+		memoryView.position(MEMORY_OFFSET);
+		this.memory = new DirectMemory(memoryView.slice(), null);
+		this.cpu = isReadOnly ? null : new MappedCPU(mapping);
+	}
+
+
+
+	/*
+	 * Method Name:		open
+	 * Description:		Maps a state file for a running machine, creating it if it does not exist.  An existing
+	 * 					file is picked up as is, so a machine can resume where a crashed process left off
+	 * Parameters:		File file: The state file
+	 * Return:			The mapped state
+	 */
+	public static MappedMachineState open(File file) throws IOException {
+		RandomAccessFile stateFile = new RandomAccessFile(file, "rw");
+
+		try {
+			boolean isNew = stateFile.length() == 0;
+
+			if (isNew) {
+				stateFile.setLength(FILE_SIZE);
+			}
+			else if (stateFile.length() < FILE_SIZE) {
+				throw new IOException(file.getName() + " is not a machine state file");
+			}
+
+			MappedByteBuffer mapping = stateFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+
+			if (isNew) {
+				mapping.put(MAGIC);
+				mapping.putInt(VERSION_OFFSET, VERSION);
+			}
+			else {
+				checkHeader(file, mapping);
+			}
+
+			return new MappedMachineState(mapping, false);
+		}
+		finally {
+			// the mapping stays valid after the file is closed
+			stateFile.close();
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		attach
+	 * Description:		Maps another machine's state file read-only, e.g. from a supervisor process
+	 * Parameters:		File file: The state file
+	 * Return:			The mapped state
+	 */
+	public static MappedMachineState attach(File file) throws IOException {
+		RandomAccessFile stateFile = new RandomAccessFile(file, "r");
+
+		try {
+			if (stateFile.length() < FILE_SIZE) {
+				throw new IOException(file.getName() + " is not a machine state file");
+			}
+
+			MappedByteBuffer mapping = stateFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, FILE_SIZE);
+			checkHeader(file, mapping);
+
+			return new MappedMachineState(mapping, true);
+		}
+		finally {
+			stateFile.close();
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		checkHeader
+	 * Description:		Makes sure a mapped file has the state file magic and version
+	 * Parameters:		File file: The file, for the error message
+	 * 					ByteBuffer mapping: The mapped file
+	 * Return:			None
+	 */
+	private static void checkHeader(File file, ByteBuffer mapping) throws IOException {
+		for (int i = 0; i < MAGIC.length; i++) {
+			if (mapping.get(i) != MAGIC[i]) {
+				throw new IOException(file.getName() + " is not a machine state file");
+			}
+		}
+
+		if (mapping.getInt(VERSION_OFFSET) != VERSION) {
+			throw new IOException(file.getName() + " has unsupported state version " + mapping.getInt(VERSION_OFFSET));
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		createEmulator
+	 * Description:		Creates an emulator running on the mapped memory and registers
+	 * Parameters:		None
+	 * Return:			The emulator
+	 */
+	public Freescale6808Emulator createEmulator() {
+		if (isReadOnly) {
+			throw new IllegalStateException("An attached machine state is read-only");
+		}
+
+		return new Freescale6808Emulator(memory, cpu);
+	}
+
+
+
+	/*
+	 * Method Name:		getMemory
+	 * Description:		Gets the mapped memory
+	 * Parameters:		None
+	 * Return:			The memory
+	 */
+	public MachineMemory getMemory() {
+		return memory;
+	}
+
+
+
+	/*
+	 * Method Name:		getMemoryView
+	 * Description:		Gets a read-only live view of the mapped memory
+	 * Parameters:		None
+	 * Return:			The memory as a read-only ByteBuffer
+	 */
+	public ByteBuffer getMemoryView() {
+		return memory.asByteBuffer().asReadOnlyBuffer();
+	}
+
+
+
+	/*
+	 * Method Name:		readRegisters
+	 * Description:		Copies the registers currently in the file into a CPU object.  Attached readers see
+	 * 					each register as the running machine last wrote it
+	 * Parameters:		Freescale6808CPU destination: The CPU to copy into
+	 * Return:			None
+	 */
+	public void readRegisters(Freescale6808CPU destination) {
+		destination.setA(mapping.get(A_OFFSET));
+		destination.setCCR(mapping.get(CCR_OFFSET));
+		destination.setHX(mapping.getShort(HX_OFFSET));
+		destination.setSP(mapping.getShort(SP_OFFSET));
+		destination.setPC(mapping.getShort(PC_OFFSET));
+	}
+
+
+
+	/*
+	 * Method Name:		force
+	 * Description:		Flushes the mapping to disk
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public void force() {
+		if (!isReadOnly) {
+			mapping.force();
+		}
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Filename:		MemoryArena.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the MemoryArena class
+ */
+
+
+
+package emulator;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+
+
+/*
+ * Class Name:		MemoryArena
+ * Description:		Hands out off-heap machine memory carved from large direct buffer slabs.
+ *
+ * 					Each slab holds several machines, so thousands of emulators cost only a handful of
+ * 					direct allocations.  Released memory goes on a free list and is reused by the next
+ * 					allocate(), since Java only returns direct memory to the OS when the owning buffer is
+ * 					collected.  close() drops every slab at once, so the whole arena is freed together as
+ * 					soon as the last machine using it goes away.
+ *
+ * 					The arena is thread safe so machines on different threads can share one.
+ */
+public class MemoryArena {
+
+	public final static int DEFAULT_MACHINES_PER_SLAB = 64;
+
+	private final static int MACHINE_SIZE = Freescale6808Emulator.MAX_ADDRESS_SPACE;
+	private final static byte[] ZEROS = new byte[4096];
+
+	private final int machinesPerSlab;
+	private final List<ByteBuffer> slabs = new ArrayList<ByteBuffer>();
+	private final List<ByteBuffer> freeList = new ArrayList<ByteBuffer>();
+	private ByteBuffer currentSlab;
+	private boolean isClosed;
+
+
+
+	/*
+	 * Method Name:		MemoryArena
+	 * Description:		Constructor, using DEFAULT_MACHINES_PER_SLAB
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public MemoryArena() {
+		this(DEFAULT_MACHINES_PER_SLAB);
+	}
+
+
+
+	/*
+	 * Method Name:		MemoryArena
+	 * Description:		Constructor
+	 * Parameters:		int machinesPerSlab: How many machines each direct allocation holds
+	 * Return:			None
+	 */
+	public MemoryArena(int machinesPerSlab) {
+		if (machinesPerSlab < 1) {
+			throw new IllegalArgumentException("An arena slab must hold at least one machine");
+		}
+
+		this.machinesPerSlab = machinesPerSlab;
+	}
+
+
+
+	/*
+	 * Method Name:		allocate
+	 * Description:		Gets zeroed memory for one machine, reusing released memory first
+	 * Parameters:		None
+	 * Return:			The memory
+	 */
+	public synchronized DirectMemory allocate() {
+		ByteBuffer memory;
+
+		if (isClosed) {
+			throw new IllegalStateException("The memory arena has been closed");
+		}
+
+		if (!freeList.isEmpty()) {
+			memory = freeList.remove(freeList.size() - 1);
+			zero(memory);
+		}
+		else {
+			if (currentSlab == null || currentSlab.remaining() < MACHINE_SIZE) {
+				currentSlab = ByteBuffer.allocateDirect(MACHINE_SIZE * machinesPerSlab);
+				slabs.add(currentSlab);
+			}
+
+			ByteBuffer slice = currentSlab.slice();
+			slice.limit(MACHINE_SIZE);
+			memory = slice.slice();
+			currentSlab.position(currentSlab.position() + MACHINE_SIZE);
+		}
+
+		return new DirectMemory(memory, this);
+	}
+
+
+
+	/*
+	 * Method Name:		free
+	 * Description:		Puts released machine memory on the free list.  Only DirectMemory.release calls it,
+	 * 					once per allocation, since memory on the list twice would go to two machines
+	 * Parameters:		ByteBuffer memory: The released memory
+	 * Return:			None
+	 */
+	synchronized void free(ByteBuffer memory) {
+		if (!isClosed) {
+			freeList.add(memory);
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		getAllocatedBytes
+	 * Description:		Gets the total size of all slabs
+	 * Parameters:		None
+	 * Return:			The number of off-heap bytes held by the arena
+	 */
+	public synchronized long getAllocatedBytes() {
+		return (long)slabs.size() * MACHINE_SIZE * machinesPerSlab;
+	}
+
+
+
+	/*
+	 * Method Name:		close
+	 * Description:		Drops every slab and the free list.  Machines still using arena memory keep
+	 * 					working, and the slabs are freed together once they are gone
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public synchronized void close() {
+		isClosed = true;
+		slabs.clear();
+		freeList.clear();
+		currentSlab = null;
+	}
+
+
+
+	/*
+	 * Method Name:		zero
+	 * Description:		Zeroes a whole buffer with bulk puts
+	 * Parameters:		ByteBuffer memory: The buffer to clear
+	 * Return:			None
+	 */
+	static void zero(ByteBuffer memory) {
+		ByteBuffer view = memory.duplicate();
+		view.clear();
+
+		while (view.remaining() > ZEROS.length) {
+			view.put(ZEROS);
+		}
+
+		view.put(ZEROS, 0, view.remaining());
+	}
+}
@@ -0,0 +1,31 @@
+/*
+ * Filename:		MetricsListener.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the MetricsListener interface
+ */
+
+
+
+package emulator;
+
+
+
+/*
+ * Interface Name:	MetricsListener
+ * Description:		Told about each event an EmulatorMetrics records.  Events are rare next to instructions,
+ * 					but the listener runs on the emulator's thread, so it should hand off anything slow
+ */
+public interface MetricsListener {
+
+	/*
+	 * Method Name:		eventRecorded
+	 * Description:		Called after an event has been counted
+	 * Parameters:		EmulatorMetrics.EVENT event: The kind of event
+	 * 					long durationNanos: How long the event took, or 0 if it has no duration
+	 * 					String detail: A short description of the event
+	 * Return:			None
+	 */
+	void eventRecorded(EmulatorMetrics.EVENT event, long durationNanos, String detail);
+}
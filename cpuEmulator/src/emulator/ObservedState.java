@@ -0,0 +1,112 @@
+/*
+ * Filename:		ObservedState.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the ObservedState class
+ */
+
+
+
+package emulator;
+
+import cpu.Freescale6808CPU;
+
+
+
+/*
+ * Class Name:		ObservedState
+ * Description:		The registers, instruction count and cycle count of an emulator, published by the thread running it
+ * 					for any number of other threads, such as the GUI, samplers and the metrics monitor, to
+ * 					read while it runs.  Attach it with setObservedState; the emulator publishes at the end
+ * 					of every run() batch, on reset and when publishState is called, never per instruction.
+ *
+ * 					Publishing is a sequence lock.  The single writer makes the sequence odd, stores the
+ * 					packed registers and the count, then makes it even again; a reader reads the sequence,
+ * 					the values and the sequence again, and retries if the sequence was odd or moved.
+ * 					Readers never write anything shared, so they neither block the writer nor slow each
+ * 					other, and always see a register set and count published together.  Memory is observed
+ * 					through MachineSnapshot, which is immutable once taken.
+ */
+public class ObservedState {
+
+	private volatile long sequence;
+	private volatile long registers;
+	private volatile long instructionCount;
+	private volatile long cycleCount;
+
+
+
+	/*
+	 * Method Name:		ObservedState
+	 * Description:		Constructor, all registers read as zero until the first publish
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public ObservedState() {
+		sequence = 0;
+		registers = 0;
+		instructionCount = 0;
+		cycleCount = 0;
+	}
+
+
+
+	/*
+	 * Method Name:		publish
+	 * Description:		Publishes the registers and counts, called only by the thread running the emulator
+	 * Parameters:		Freescale6808CPU cpu: The CPU
+	 * 					long instructionCount: The instruction count
+	 * Return:			None
+	 */
+	void publish(Freescale6808CPU cpu, long instructionCount) {
+		long next = sequence + 1;
+
+		// all fields are volatile, so the odd sequence is seen before either value changes
+		sequence = next;
+		registers = SamplingProfiler.packRegisters(cpu);
+		this.instructionCount = instructionCount;
+		cycleCount = cpu.getCycleCount();
+		sequence = next + 1;
+	}
+
+
+
+	/*
+	 * Method Name:		read
+	 * Description:		Reads the last published registers and counts, from any thread, without locking
+	 * Parameters:		None
+	 * Return:			The registers as a RegisterSet
+	 */
+	public RegisterSet read() {
+		while (true) {
+			long before = sequence;
+
+			if ((before & 1) == 0) {
+				long packed = registers;
+				long count = instructionCount;
+				long cycles = cycleCount;
+
+				if (sequence == before) {
+					return new RegisterSet(packed, count, cycles, before >>> 1);
+				}
+			}
+
+			// only a writer preempted mid publish keeps this going, so let it finish
+			Thread.yield();
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		getVersion
+	 * Description:		Gets the number of times the state has been published, so an observer can tell
+	 * 					whether there is anything new to read
+	 * Parameters:		None
+	 * Return:			The count as a long
+	 */
+	public long getVersion() {
+		return sequence >>> 1;
+	}
+}
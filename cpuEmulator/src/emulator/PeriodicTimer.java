@@ -0,0 +1,138 @@
+/*
+ * Filename:		PeriodicTimer.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the PeriodicTimer class
+ */
+
+
+
+package emulator;
+
+
+
+/*
+ * Class Name:		PeriodicTimer
+ * Description:		A free running timer that overflows every so many bus cycles and raises an interrupt
+ * 					each time, like the 6808's timer interface module counting up to its modulo register.
+ * 					Each overflow is scheduled as a single event at an exact cycle count, one period after
+ * 					the last, so the timer keeps time however long the instructions around it take and
+ * 					costs nothing between overflows.
+ */
+public class PeriodicTimer implements TimedDevice {
+
+	public final static int TIMER_OVERFLOW_VECTOR = 0xfff2;
+
+	private final long periodCycles;
+	private final int vector;
+	private Freescale6808Emulator emulator;
+	private long overflowCount;
+
+
+
+	/*
+	 * Method Name:		PeriodicTimer
+	 * Description:		Constructor using the timer overflow vector
+	 * Parameters:		long periodCycles: The number of bus cycles between overflows
+	 * Return:			None
+	 */
+	public PeriodicTimer(long periodCycles) {
+		this(periodCycles, TIMER_OVERFLOW_VECTOR);
+	}
+
+
+
+	/*
+	 * Method Name:		PeriodicTimer
+	 * Description:		Constructor
+	 * Parameters:		long periodCycles: The number of bus cycles between overflows
+	 * 					int vector: The vector of the interrupt to raise on overflow
+	 * Return:			None
+	 */
+	public PeriodicTimer(long periodCycles, int vector) {
+		if (periodCycles <= 0) {
+			throw new IllegalArgumentException("Timer period must be positive");
+		}
+
+		if (vector < Freescale6808Emulator.FIRST_VECTOR || vector > Freescale6808Emulator.LAST_VECTOR || (vector & 1) != 0) {
+			throw new IllegalArgumentException(String.format("$%04X is not an interrupt vector", vector));
+		}
+
+		this.periodCycles = periodCycles;
+		this.vector = vector;
+		emulator = null;
+		overflowCount = 0;
+	}
+
+
+
+	/*
+	 * Method Name:		attach
+	 * Description:		Starts the timer on an emulator, first overflowing one period from its current cycle
+	 * 					count.  Must be called while the emulator is stopped
+	 * Parameters:		Freescale6808Emulator emulator: The emulator
+	 * Return:			None
+	 */
+	public void attach(Freescale6808Emulator emulator) {
+		detach();
+		this.emulator = emulator;
+		emulator.scheduleEvent(this, emulator.getCpu().getCycleCount() + periodCycles);
+	}
+
+
+
+	/*
+	 * Method Name:		detach
+	 * Description:		Stops the timer.  Must be called while the emulator is stopped
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public void detach() {
+		if (emulator != null) {
+			emulator.cancelEvents(this);
+			emulator = null;
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		eventDue
+	 * Description:		Overflows: raises the interrupt and schedules the next overflow
+	 * Parameters:		Freescale6808Emulator emulator: The emulator
+	 * 					long cycle: The cycle count the overflow was due at
+	 * Return:			None
+	 */
+	public void eventDue(Freescale6808Emulator emulator, long cycle) {
+		overflowCount++;
+		emulator.requestInterrupt(vector);
+
+		// from the due cycle rather than the current one, so overshoot does not add up
+		emulator.scheduleEvent(this, cycle + periodCycles);
+	}
+
+
+
+	/*
+	 * Method Name:		getPeriodCycles
+	 * Description:		Gets the number of bus cycles between overflows
+	 * Parameters:		None
+	 * Return:			The period as a long
+	 */
+	public long getPeriodCycles() {
+		return periodCycles;
+	}
+
+
+
+	/*
+	 * Method Name:		getOverflowCount
+	 * Description:		Gets the number of times the timer has overflowed
+	 * Parameters:		None
+	 * Return:			The count as a long
+	 */
+	public long getOverflowCount() {
+		return overflowCount;
+	}
+}
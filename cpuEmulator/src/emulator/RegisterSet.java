@@ -0,0 +1,170 @@
+/*
+ * Filename:		RegisterSet.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the RegisterSet class
+ */
+
+
+
+package emulator;
+
+import cpu.Freescale6808CPU;
+import cpu.Freescale6808CPU.CCR_BIT;
+
+
+
+/*
+ * Class Name:		RegisterSet
+ * Description:		An immutable set of registers, instruction count and cycle count read from an ObservedState, all
+ * 					published together by the emulator's thread.
+ */
+public class RegisterSet {
+
+	private final Freescale6808CPU registers;
+	private final long instructionCount;
+	private final long cycleCount;
+	private final long version;
+
+
+
+	/*
+	 * Method Name:		RegisterSet
+	 * Description:		Constructor
+	 * Parameters:		long packed: The registers, packed by SamplingProfiler.packRegisters
+	 * 					long instructionCount: The instruction count
+	 * 					long cycleCount: The cycle count
+	 * 					long version: The number of publishes up to and including this one
+	 * Return:			None
+	 */
+	RegisterSet(long packed, long instructionCount, long cycleCount, long version) {
+		// a private copy, never handed out, so the set stays immutable
+		registers = new Freescale6808CPU();
+		SamplingProfiler.unpackRegisters(packed, registers);
+		this.instructionCount = instructionCount;
+		this.cycleCount = cycleCount;
+		this.version = version;
+	}
+
+
+
+	/*
+	 * Method Name:		getA
+	 * Description:		Gets the accumulator
+	 * Parameters:		None
+	 * Return:			The accumulator as a byte
+	 */
+	public byte getA() {
+		return registers.getA();
+	}
+
+
+
+	/*
+	 * Method Name:		getCCR
+	 * Description:		Gets the condition code register
+	 * Parameters:		None
+	 * Return:			The CCR as a byte
+	 */
+	public byte getCCR() {
+		return registers.getCCR();
+	}
+
+
+
+	/*
+	 * Method Name:		isCCRBit
+	 * Description:		Tests a flag of the condition code register
+	 * Parameters:		CCR_BIT bit: The flag
+	 * Return:			True if the flag is set
+	 */
+	public boolean isCCRBit(CCR_BIT bit) {
+		return registers.isCCRBit(bit);
+	}
+
+
+
+	/*
+	 * Method Name:		getHX
+	 * Description:		Gets the index register
+	 * Parameters:		None
+	 * Return:			HX as a short
+	 */
+	public short getHX() {
+		return registers.getHX();
+	}
+
+
+
+	/*
+	 * Method Name:		getSP
+	 * Description:		Gets the stack pointer
+	 * Parameters:		None
+	 * Return:			SP as a short
+	 */
+	public short getSP() {
+		return registers.getSP();
+	}
+
+
+
+	/*
+	 * Method Name:		getPC
+	 * Description:		Gets the program counter
+	 * Parameters:		None
+	 * Return:			PC as a short
+	 */
+	public short getPC() {
+		return registers.getPC();
+	}
+
+
+
+	/*
+	 * Method Name:		getInstructionCount
+	 * Description:		Gets the instruction count published with the registers
+	 * Parameters:		None
+	 * Return:			The instruction count as a long
+	 */
+	public long getInstructionCount() {
+		return instructionCount;
+	}
+
+
+
+	/*
+	 * Method Name:		getCycleCount
+	 * Description:		Gets the cycle count published with the registers
+	 * Parameters:		None
+	 * Return:			The cycle count as a long
+	 */
+	public long getCycleCount() {
+		return cycleCount;
+	}
+
+
+
+	/*
+	 * Method Name:		getVersion
+	 * Description:		Gets which publish the set came from, counting from 1
+	 * Parameters:		None
+	 * Return:			The version as a long
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+
+
+	/*
+	 * Method Name:		toString
+	 * Description:		Describes the registers
+	 * Parameters:		None
+	 * Return:			The description
+	 */
+	public String toString() {
+		return String.format("A=$%02X CCR=$%02X HX=$%04X SP=$%04X PC=$%04X", getA() & 0xff, getCCR() & 0xff,
+				getHX() & 0xffff, getSP() & 0xffff, getPC() & 0xffff);
+	}
+}
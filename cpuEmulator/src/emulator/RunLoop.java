@@ -0,0 +1,365 @@
+/*
+ * Filename:		RunLoop.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the RunLoop class
+ */
+
+
+
+package emulator;
+
+
+
+/*
+ * Class Name:		RunLoop
+ * Description:		Runs an emulator on a thread of its own in large batches of run(), until it is stopped,
+ * 					an instruction fails or a breakpoint is hit.  While it runs the emulator belongs to its
+ * 					thread; other threads see the machine through the MachineSnapshot it publishes, at most
+ * 					once per publish interval (by default 60 times a second) and once more when it stops.
+ *
+ * 					Other threads reach the running emulator only through the loop's CommandQueue: switch
+ * 					changes, register alterations, memory edits and stop requests are queued by one thread,
+ * 					such as the GUI's, and applied between batches, never checked per instruction, so each
+ * 					takes effect within one batch.  Once isRunning returns false the emulator, the last
+ * 					snapshot and the reason for stopping may be used from the thread that saw it; that
+ * 					thread should call stop(), which applies anything queued after the last batch.
+ *
+ * 					With an IdleDetector attached to the emulator and no breakpoints set, the loop checks
+ * 					after each batch whether the program is waiting in a loop whose state repeats.  If it
+ * 					is, the loop publishes a snapshot and parks until a command arrives instead of running
+ * 					the same states over and over, so an idle machine uses no processor time.
+ *
+ * 					With a Throttle set, the loop runs slices of about a millisecond of emulated time and
+ * 					paces each to the throttle's bus clock instead of running flat out.  When a throttled
+ * 					machine wakes from idle, the periods of its loop that the board would have run while
+ * 					the thread was parked are counted as run, so its cycle count keeps up with the clock.
+ * 					Device events scheduled on the emulator end the park when they fall due, or, when not
+ * 					paced, have the idle periods before them skipped without parking at all.
+ */
+public class RunLoop implements Runnable {
+
+	public final static long DEFAULT_BATCH = 10000;
+	public final static long DEFAULT_PUBLISH_NANOS = 1000000000L / 60;
+
+	private final Freescale6808Emulator emulator;
+	private final long batchSize;
+	private final long publishNanos;
+	private final CommandQueue commands;
+	private Throttle throttle;
+	private volatile MachineSnapshot snapshot;
+	private volatile boolean isRunning;
+	private volatile boolean isBreakpointHit;
+	private volatile Exception fault;
+	private Thread thread;
+
+
+
+	/*
+	 * Method Name:		RunLoop
+	 * Description:		Constructor using the default batch size and publish interval
+	 * Parameters:		Freescale6808Emulator emulator: The emulator to run
+	 * Return:			None
+	 */
+	public RunLoop(Freescale6808Emulator emulator) {
+		this(emulator, DEFAULT_BATCH, DEFAULT_PUBLISH_NANOS);
+	}
+
+
+
+	/*
+	 * Method Name:		RunLoop
+	 * Description:		Constructor
+	 * Parameters:		Freescale6808Emulator emulator: The emulator to run
+	 * 					long batchSize: The number of instructions run between checks for a stop, when not
+	 * 						throttled
+	 * 					long publishNanos: The least time between published snapshots
+	 * Return:			None
+	 */
+	public RunLoop(Freescale6808Emulator emulator, long batchSize, long publishNanos) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("Batch size must be positive");
+		}
+
+		this.emulator = emulator;
+		this.batchSize = batchSize;
+		this.publishNanos = publishNanos;
+		commands = new CommandQueue();
+		throttle = null;
+		snapshot = null;
+		isRunning = false;
+		isBreakpointHit = false;
+		fault = null;
+		thread = null;
+	}
+
+
+
+	/*
+	 * Method Name:		start
+	 * Description:		Starts running the emulator on a new daemon thread.  Inputs still queued from the last
+	 * 					run are applied and a snapshot of the starting state is published first, so
+	 * 					getSnapshot never returns null once started
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public synchronized void start() {
+		if (isRunning) {
+			throw new IllegalStateException("The emulator is already running");
+		}
+
+		commands.drain(emulator);
+		snapshot = MachineSnapshot.capture(emulator, snapshot);
+		isBreakpointHit = false;
+		fault = null;
+		isRunning = true;
+
+		thread = new Thread(this, "6808 run loop");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+
+
+	/*
+	 * Method Name:		requestStop
+	 * Description:		Asks the loop to stop after the current batch, without waiting for it.  Called by the
+	 * 					thread that queues commands
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public void requestStop() {
+		if (isRunning && !commands.offerStop()) {
+			throw new IllegalStateException("The command queue is full");
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		stop
+	 * Description:		Stops the loop, waits for its thread to finish and applies any inputs queued after its
+	 * 					last batch.  Called by the thread that queues commands, also once the loop has
+	 * 					stopped by itself
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public void stop() throws InterruptedException {
+		Thread running;
+
+		synchronized (this) {
+			running = thread;
+		}
+
+		requestStop();
+
+		if (running != null) {
+			running.join();
+		}
+
+		// the loop's thread has finished, so this thread may take over draining
+		commands.drain(emulator);
+	}
+
+
+
+	/*
+	 * Method Name:		run
+	 * Description:		The body of the loop's thread.  Applies queued commands and runs a batch until a stop
+	 * 					is requested, publishing a snapshot whenever the publish interval has passed, and
+	 * 					publishes a final one however it stops
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public void run() {
+		MachineSnapshot published = snapshot;
+		long nextPublish = System.nanoTime() + publishNanos;
+		Throttle pacing = throttle;
+		long batch = pacing == null ? batchSize : pacing.getSliceInstructions();
+
+		try {
+			if (pacing != null) {
+				pacing.start(emulator.getCpu().getCycleCount());
+			}
+
+			while (!commands.drain(emulator)) {
+				emulator.run(batch);
+
+				Breakpoints breakpoints = emulator.getBreakpoints();
+
+				if (breakpoints != null && breakpoints.isHit()) {
+					isBreakpointHit = true;
+					break;
+				}
+
+				if (pacing != null) {
+					pacing.pace(emulator.getCpu().getCycleCount());
+				}
+
+				long now = System.nanoTime();
+
+				if (now - nextPublish >= 0) {
+					published = MachineSnapshot.capture(emulator, published);
+					snapshot = published;
+					nextPublish = now + publishNanos;
+				}
+
+				if (isIdle()) {
+					long deadline = emulator.getNextEventCycle();
+
+					// unpaced, the wait for a device event is skipped without parking
+					if (pacing != null || deadline == Long.MAX_VALUE) {
+						published = MachineSnapshot.capture(emulator, published);
+						snapshot = published;
+						park(pacing, deadline);
+					}
+
+					// the board would have gone round the loop all the while, and its state is the same each time
+					if (pacing != null) {
+						emulator.getIdleDetector().skipToCycle(emulator, pacing.getTargetCycles(), Long.MAX_VALUE);
+					}
+					else if (deadline != Long.MAX_VALUE) {
+						emulator.getIdleDetector().skipToCycle(emulator, deadline, Long.MAX_VALUE);
+					}
+				}
+			}
+		}
+		catch (Exception ex) {
+			fault = ex;
+		}
+		finally {
+			commands.drain(emulator);
+			snapshot = MachineSnapshot.capture(emulator, published);
+			isRunning = false;
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		park
+	 * Description:		Parks the loop's thread while the program is idle, until a command arrives or, when
+	 * 					paced, until the board would reach the next device event
+	 * Parameters:		Throttle pacing: The throttle, or null
+	 * 					long deadline: The cycle count of the next device event, or Long.MAX_VALUE
+	 * Return:			None
+	 */
+	private void park(Throttle pacing, long deadline) {
+		if (deadline == Long.MAX_VALUE) {
+			commands.await();
+		}
+		else {
+			commands.await(pacing.getNanosUntil(deadline));
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		isIdle
+	 * Description:		Asks the emulator's IdleDetector whether the program is waiting for input, which may
+	 * 					step it up to one more period of its loop
+	 * Parameters:		None
+	 * Return:			True if it is idle, false if it is not or there is no detector or breakpoints are set
+	 */
+	private boolean isIdle() throws Exception {
+		IdleDetector detector = emulator.getIdleDetector();
+		Breakpoints breakpoints = emulator.getBreakpoints();
+
+		// a probe single steps, so it would step over breakpoints without stopping
+		if (detector == null || (breakpoints != null && !breakpoints.isEmpty())) {
+			return false;
+		}
+
+		return detector.checkIdle(emulator, Long.MAX_VALUE);
+	}
+
+
+
+	/*
+	 * Method Name:		setThrottle
+	 * Description:		Sets the bus clock the loop paces the emulator to, only while it is stopped
+	 * Parameters:		Throttle throttle: The throttle, or null to run as fast as the host allows
+	 * Return:			None
+	 */
+	public synchronized void setThrottle(Throttle throttle) {
+		if (isRunning) {
+			throw new IllegalStateException("The emulator is running");
+		}
+
+		this.throttle = throttle;
+	}
+
+
+
+	/*
+	 * Method Name:		getThrottle
+	 * Description:		Gets the bus clock the loop paces the emulator to
+	 * Parameters:		None
+	 * Return:			The throttle, or null if the loop runs as fast as the host allows
+	 */
+	public Throttle getThrottle() {
+		return throttle;
+	}
+
+
+
+	/*
+	 * Method Name:		getCommands
+	 * Description:		Gets the queue for inputs to the running emulator.  Only one thread may offer to it
+	 * Parameters:		None
+	 * Return:			The CommandQueue
+	 */
+	public CommandQueue getCommands() {
+		return commands;
+	}
+
+
+
+	/*
+	 * Method Name:		isRunning
+	 * Description:		Determines whether the loop's thread is still running the emulator
+	 * Parameters:		None
+	 * Return:			True until the loop has stopped and published its final snapshot
+	 */
+	public boolean isRunning() {
+		return isRunning;
+	}
+
+
+
+	/*
+	 * Method Name:		getSnapshot
+	 * Description:		Gets the latest published snapshot, safe to call from any thread
+	 * Parameters:		None
+	 * Return:			The snapshot, or null if the loop has never been started
+	 */
+	public MachineSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+
+
+	/*
+	 * Method Name:		isBreakpointHit
+	 * Description:		Determines whether the last run stopped at a breakpoint or watchpoint
+	 * Parameters:		None
+	 * Return:			True if it did
+	 */
+	public boolean isBreakpointHit() {
+		return isBreakpointHit;
+	}
+
+
+
+	/*
+	 * Method Name:		getFault
+	 * Description:		Gets the exception that stopped the last run
+	 * Parameters:		None
+	 * Return:			The exception, or null if the run was stopped or hit a breakpoint
+	 */
+	public Exception getFault() {
+		return fault;
+	}
+}
@@ -0,0 +1,394 @@
+/*
+ * Filename:		SamplingProfiler.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the SamplingProfiler class
+ */
+
+
+
+package emulator;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import utilities.AddressRange;
+import utilities.ListingFile;
+import cpu.Freescale6808CPU;
+
+
+
+/*
+ * Class Name:		SamplingProfiler
+ * Description:		A cheap statistical alternative to ExecutionProfiler.  A background thread wakes at a
+ * 					fixed interval and looks at which PC the running machine is at, building a histogram of
+ * 					samples per address.
+ *
+ * 					The interpreter never waits for the sampler.  Each time the sampler wakes it raises a
+ * 					request flag; the interpreter checks the flag after each instruction and, only when it
+ * 					is raised, packs its registers into a single long and publishes it with
+ * 					AtomicLong.lazySet before clearing the flag.  The PC packed is that of the instruction
+ * 					just executed, so a sample is charged to the instruction that ran rather than to the
+ * 					one after it or the target of its branch.  The sampler therefore always sees a whole,
+ * 					consistent register set while the interpreter pays one flag read per instruction.  A
+ * 					request still pending at the next wake means the machine is not running, and the sample
+ * 					is counted as idle rather than charged to the last PC.
+ *
+ * 					Packed registers, high to low: PC (16), SP (16), HX (16), A (8), CCR (8).
+ */
+public class SamplingProfiler {
+
+	public final static long DEFAULT_INTERVAL_MICROS = 1000;
+
+	private final static String UNLABELLED = "?";
+
+	private final AtomicLong registers;
+	private volatile boolean isSampleRequested;
+	private final long[] samples;
+	private final long intervalNanos;
+	private volatile boolean isRunning;
+	private Thread sampler;
+	private long totalSamples;
+	private long idleSamples;
+
+
+
+	/*
+	 * Method Name:		SamplingProfiler
+	 * Description:		Constructor, samples every millisecond
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public SamplingProfiler() {
+		this(DEFAULT_INTERVAL_MICROS);
+	}
+
+
+
+	/*
+	 * Method Name:		SamplingProfiler
+	 * Description:		Constructor
+	 * Parameters:		long intervalMicros: The time between samples in microseconds
+	 * Return:			None
+	 */
+	public SamplingProfiler(long intervalMicros) {
+		if (intervalMicros <= 0) {
+			throw new IllegalArgumentException("Sample interval must be positive");
+		}
+
+		registers = new AtomicLong();
+		isSampleRequested = false;
+		samples = new long[Freescale6808Emulator.MAX_ADDRESS_SPACE];
+		intervalNanos = TimeUnit.MICROSECONDS.toNanos(intervalMicros);
+		isRunning = false;
+	}
+
+
+
+	/*
+	 * Method Name:		isSampleRequested
+	 * Description:		Checked by the emulator after each instruction
+	 * Parameters:		None
+	 * Return:			True if the sampler is waiting for the registers to be published
+	 */
+	boolean isSampleRequested() {
+		return isSampleRequested;
+	}
+
+
+
+	/*
+	 * Method Name:		publish
+	 * Description:		Called by the emulator when a sample is requested to make its registers visible to the
+	 * 					sampler thread.  By then the CPU's PC is the next instruction or a branch target, so
+	 * 					the address of the instruction just executed is published in its place
+	 * Parameters:		int pc: The address of the instruction just executed
+	 * 					Freescale6808CPU cpu: The CPU
+	 * Return:			None
+	 */
+	void publish(int pc, Freescale6808CPU cpu) {
+		registers.lazySet(((long)(pc & 0xffff) << 48) | (packRegisters(cpu) & 0xffffffffffffL));
+		isSampleRequested = false;
+	}
+
+
+
+	/*
+	 * Method Name:		packRegisters
+	 * Description:		Packs every register of a CPU into a long
+	 * Parameters:		Freescale6808CPU cpu: The CPU
+	 * Return:			The packed registers
+	 */
+	public static long packRegisters(Freescale6808CPU cpu) {
+		return ((long)(cpu.getPC() & 0xffff) << 48) | ((long)(cpu.getSP() & 0xffff) << 32)
+				| ((long)(cpu.getHX() & 0xffff) << 16) | ((cpu.getA() & 0xff) << 8) | (cpu.getCCR() & 0xff);
+	}
+
+
+
+	/*
+	 * Method Name:		unpackRegisters
+	 * Description:		Copies packed registers into a CPU object
+	 * Parameters:		long packed: The packed registers
+	 * 					Freescale6808CPU cpu: The CPU to copy into
+	 * Return:			None
+	 */
+	public static void unpackRegisters(long packed, Freescale6808CPU cpu) {
+		cpu.setPC((short)(packed >>> 48));
+		cpu.setSP((short)(packed >>> 32));
+		cpu.setHX((short)(packed >>> 16));
+		cpu.setA((byte)(packed >>> 8));
+		cpu.setCCR((byte)packed);
+	}
+
+
+
+	/*
+	 * Method Name:		start
+	 * Description:		Starts the sampler thread.  The profiler must also be attached to the emulator with
+	 * 					setSampler for samples to be taken
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public synchronized void start() {
+		if (isRunning) {
+			return;
+		}
+
+		isRunning = true;
+		sampler = new Thread(new Runnable() {
+			public void run() {
+				sample();
+			}
+		}, "6808 sampling profiler");
+		sampler.setDaemon(true);
+		sampler.start();
+	}
+
+
+
+	/*
+	 * Method Name:		stop
+	 * Description:		Stops the sampler thread and waits for it to finish, after which the histogram may be
+	 * 					read
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public synchronized void stop() throws InterruptedException {
+		if (!isRunning) {
+			return;
+		}
+
+		isRunning = false;
+		LockSupport.unpark(sampler);
+		sampler.join();
+		sampler = null;
+	}
+
+
+
+	/*
+	 * Method Name:		sample
+	 * Description:		The sampler thread loop
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	private void sample() {
+		long deadline = System.nanoTime();
+		isSampleRequested = true;
+
+		while (isRunning) {
+			deadline += intervalNanos;
+			long wait;
+
+			// parkNanos can return early, so keep parking until the deadline has passed
+			while ((wait = deadline - System.nanoTime()) > 0 && isRunning) {
+				LockSupport.parkNanos(this, wait);
+			}
+
+			if (!isRunning) {
+				break;
+			}
+
+			// an unanswered request means nothing retired since the last sample, the machine is stopped
+			if (isSampleRequested) {
+				idleSamples++;
+			}
+			else {
+				samples[(int)(registers.get() >>> 48)]++;
+				isSampleRequested = true;
+			}
+
+			totalSamples++;
+
+			// if the thread fell behind, carry on from now rather than sampling in a burst
+			if (System.nanoTime() - deadline > intervalNanos) {
+				deadline = System.nanoTime();
+			}
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		getSamples
+	 * Description:		Gets the number of samples taken at an address
+	 * Parameters:		int address: The address
+	 * Return:			The sample count as a long
+	 */
+	public long getSamples(int address) {
+		return samples[address];
+	}
+
+
+
+	/*
+	 * Method Name:		getTotalSamples
+	 * Description:		Gets the number of samples taken, including idle ones
+	 * Parameters:		None
+	 * Return:			The sample count as a long
+	 */
+	public long getTotalSamples() {
+		return totalSamples;
+	}
+
+
+
+	/*
+	 * Method Name:		getIdleSamples
+	 * Description:		Gets the number of samples taken while the machine was not executing
+	 * Parameters:		None
+	 * Return:			The sample count as a long
+	 */
+	public long getIdleSamples() {
+		return idleSamples;
+	}
+
+
+
+	/*
+	 * Method Name:		getHistogram
+	 * Description:		Adds up the samples by label when a listing is given, otherwise by 256 byte page
+	 * Parameters:		ListingFile listing: The listing of the running program, or null
+	 * Return:			Sample counts by label or address range, in address order
+	 */
+	public Map<String, Long> getHistogram(ListingFile listing) {
+		Map<String, Long> histogram = new LinkedHashMap<String, Long>();
+
+		for (int address = 0; address < samples.length; address++) {
+			if (samples[address] != 0) {
+				String bucket = getBucket(listing, address);
+				Long count = histogram.get(bucket);
+				histogram.put(bucket, (count == null ? 0 : count) + samples[address]);
+			}
+		}
+
+		return histogram;
+	}
+
+
+
+	/*
+	 * Method Name:		getReport
+	 * Description:		Builds a readable histogram with percentages of the busy samples
+	 * Parameters:		ListingFile listing: The listing of the running program, or null
+	 * Return:			The report as a String
+	 */
+	public String getReport(ListingFile listing) {
+		StringBuilder report = new StringBuilder();
+		long busySamples = totalSamples - idleSamples;
+
+		report.append(String.format("%d samples, %d idle%n", totalSamples, idleSamples));
+
+		for (Map.Entry<String, Long> entry : getHistogram(listing).entrySet()) {
+			double percent = 100.0 * entry.getValue() / Math.max(busySamples, 1);
+			int bar = (int)Math.round(percent / 2);
+			StringBuilder bars = new StringBuilder();
+
+			for (int i = 0; i < bar; i++) {
+				bars.append('#');
+			}
+
+			report.append(String.format("%-20s %10d %6.2f%% %s%n", entry.getKey(), entry.getValue(), percent, bars));
+		}
+
+		return report.toString();
+	}
+
+
+
+	/*
+	 * Method Name:		exportFolded
+	 * Description:		Writes the samples in the folded stack format read by flame graph tools, one line per
+	 * 					address as region;label;address count
+	 * Parameters:		File file: The file to write, replaced if it exists
+	 * 					ListingFile listing: The listing of the running program, or null
+	 * Return:			None
+	 */
+	public void exportFolded(File file, ListingFile listing) throws IOException {
+		BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+
+		try {
+			for (int address = 0; address < samples.length; address++) {
+				if (samples[address] != 0) {
+					writer.write(String.format("%s;%s;$%04X %d", getRegionName(address), getBucket(listing, address),
+							address, samples[address]));
+					writer.newLine();
+				}
+			}
+
+			if (idleSamples != 0) {
+				writer.write("idle " + idleSamples);
+				writer.newLine();
+			}
+		}
+		finally {
+			writer.close();
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		getBucket
+	 * Description:		Gets the label or page an address is counted under
+	 * Parameters:		ListingFile listing: The listing, or null
+	 * 					int address: The address
+	 * Return:			The bucket name
+	 */
+	private static String getBucket(ListingFile listing, int address) {
+		if (listing == null) {
+			return new AddressRange(address & 0xff00, address | 0x00ff).toString();
+		}
+
+		String label = listing.getLabel(address);
+		return label == null ? UNLABELLED : label;
+	}
+
+
+
+	/*
+	 * Method Name:		getRegionName
+	 * Description:		Gets the name of the memory region an address is in
+	 * Parameters:		int address: The address
+	 * Return:			The region name
+	 */
+	private static String getRegionName(int address) {
+		if (Freescale6808Emulator.HARDWARE_RANGE.contains(address)) {
+			return "Hardware";
+		}
+		else if (Freescale6808Emulator.RAM_RANGE.contains(address)) {
+			return "RAM";
+		}
+
+		return "ROM";
+	}
+}
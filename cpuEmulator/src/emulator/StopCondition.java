@@ -0,0 +1,30 @@
+/*
+ * Filename:		StopCondition.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the StopCondition interface
+ */
+
+
+
+package emulator;
+
+
+
+/*
+ * Interface Name:	StopCondition
+ * Description:		Decides whether execution should stop at the emulator's current state, e.g. because the
+ * 					PC has reached an address of interest.  It is asked between instructions, before the
+ * 					instruction at the PC executes, and must not change the emulator.
+ */
+public interface StopCondition {
+
+	/*
+	 * Method Name:		shouldStop
+	 * Description:		Tests the emulator's current state
+	 * Parameters:		Freescale6808Emulator emulator: The emulator
+	 * Return:			True to stop here
+	 */
+	boolean shouldStop(Freescale6808Emulator emulator);
+}
@@ -0,0 +1,265 @@
+/*
+ * Filename:		Throttle.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the Throttle class
+ */
+
+
+
+package emulator;
+
+import java.util.concurrent.locks.LockSupport;
+
+import cpu.Freescale6808CPU;
+
+
+
+/*
+ * Class Name:		Throttle
+ * Description:		Paces an emulator to a bus clock, such as the 4 MHz or 8 MHz of a real board, so a program
+ * 					takes as long in wall clock time as it would on the hardware.  The CPU counts the bus
+ * 					cycles of every instruction; the throttle works out when the board would have reached a
+ * 					cycle count, measured from where pacing started, and waits until then after each slice
+ * 					of about a millisecond of emulated time.  Deadlines are absolute, so waking late for one
+ * 					slice is made up in the next and the error never builds up into drift.
+ *
+ * 					Waiting is a hybrid of parking and spinning.  The thread parks until a margin before
+ * 					the deadline and yields in a loop for the rest.  The margin is learned from how late
+ * 					parks actually wake, so on a host with precise timers almost all the waiting is parked
+ * 					and the processor time used follows the emulation work, not the length of the run.
+ *
+ * 					An emulator that falls more than MAX_LAG_NANOS behind, because the host is too slow for
+ * 					the clock or the thread was held up, is not allowed to run flat out to catch up: the
+ * 					throttle starts pacing again from where it is and counts a slip.
+ */
+public class Throttle {
+
+	public final static long BUS_4MHZ = 4000000;
+	public final static long BUS_8MHZ = 8000000;
+	public final static long SLICE_NANOS = 1000000;
+	public final static long MAX_LAG_NANOS = 50000000;
+
+	private final static long NANOS_PER_SECOND = 1000000000L;
+	private final static long MAX_SPIN_NANOS = 200000;
+	private final static long CYCLES_PER_INSTRUCTION = 3;
+
+	private final long busHz;
+	private long originNanos;
+	private long originCycles;
+	private long spinNanos;
+	private volatile long lagNanos;
+	private volatile long slipCount;
+
+
+
+	/*
+	 * Method Name:		Throttle
+	 * Description:		Constructor
+	 * Parameters:		long busHz: The bus clock to keep to, in cycles per second
+	 * Return:			None
+	 */
+	public Throttle(long busHz) {
+		if (busHz <= 0) {
+			throw new IllegalArgumentException("Bus clock must be positive");
+		}
+
+		this.busHz = busHz;
+		originNanos = System.nanoTime();
+		originCycles = 0;
+		spinNanos = MAX_SPIN_NANOS / 4;
+		lagNanos = 0;
+		slipCount = 0;
+	}
+
+
+
+	/*
+	 * Method Name:		start
+	 * Description:		Starts pacing from now, at the given cycle count.  Called before running, and after
+	 * 					any pause, such as a stop, that the emulated clock should not count
+	 * Parameters:		long cycles: The emulator's cycle count
+	 * Return:			None
+	 */
+	public void start(long cycles) {
+		originNanos = System.nanoTime();
+		originCycles = cycles;
+	}
+
+
+
+	/*
+	 * Method Name:		pace
+	 * Description:		Waits until the wall clock catches up with a cycle count, parking for most of the wait
+	 * 					and spinning for the last of it
+	 * Parameters:		long cycles: The emulator's cycle count
+	 * Return:			None
+	 */
+	public void pace(long cycles) {
+		long deadline = originNanos + toNanos(cycles - originCycles);
+		long now = System.nanoTime();
+		lagNanos = now - deadline;
+
+		if (lagNanos > MAX_LAG_NANOS) {
+			slipCount++;
+			start(cycles);
+			return;
+		}
+
+		long parkUntil = deadline - spinNanos;
+
+		if (parkUntil - now > 0) {
+			// parkNanos may return early, so park again for whatever is left
+			while (parkUntil - now > 0) {
+				LockSupport.parkNanos(this, parkUntil - now);
+				now = System.nanoTime();
+			}
+
+			// cover the latest wake seen straight away, and shrink back slowly while wakes are prompt
+			long late = now - parkUntil;
+
+			if (late > spinNanos) {
+				spinNanos = Math.min(late, MAX_SPIN_NANOS);
+			}
+			else {
+				spinNanos -= (spinNanos - late) / 16;
+			}
+		}
+
+		while (deadline - System.nanoTime() > 0) {
+			Thread.yield();
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		run
+	 * Description:		Runs an emulator at the bus clock, a slice at a time, on the calling thread
+	 * Parameters:		Freescale6808Emulator emulator: The emulator
+	 * 					long maxInstructions: The number of instructions to execute
+	 * Return:			The number of instructions executed, fewer if a breakpoint or watchpoint was hit
+	 */
+	public long run(Freescale6808Emulator emulator, long maxInstructions) throws Exception {
+		Freescale6808CPU cpu = emulator.getCpu();
+		long slice = getSliceInstructions();
+		long executed = 0;
+
+		start(cpu.getCycleCount());
+
+		while (executed < maxInstructions) {
+			long batch = Math.min(slice, maxInstructions - executed);
+			long ran = emulator.run(batch);
+			executed += ran;
+			pace(cpu.getCycleCount());
+
+			// run() only stops short at a breakpoint or watchpoint
+			if (ran < batch) {
+				break;
+			}
+		}
+
+		return executed;
+	}
+
+
+
+	/*
+	 * Method Name:		getTargetCycles
+	 * Description:		Gets the cycle count the board would have reached by now
+	 * Parameters:		None
+	 * Return:			The cycle count as a long
+	 */
+	public long getTargetCycles() {
+		return originCycles + toCycles(System.nanoTime() - originNanos);
+	}
+
+
+
+	/*
+	 * Method Name:		getNanosUntil
+	 * Description:		Gets how long until the board would reach a cycle count
+	 * Parameters:		long cycles: The cycle count
+	 * Return:			The time in nanoseconds, negative if it is already past
+	 */
+	public long getNanosUntil(long cycles) {
+		return originNanos + toNanos(cycles - originCycles) - System.nanoTime();
+	}
+
+
+
+	/*
+	 * Method Name:		toNanos
+	 * Description:		Converts a number of bus cycles to the time they take, without overflowing for runs
+	 * 					of any length
+	 * Parameters:		long cycles: The number of cycles
+	 * Return:			The time in nanoseconds
+	 */
+	public long toNanos(long cycles) {
+		return cycles / busHz * NANOS_PER_SECOND + cycles % busHz * NANOS_PER_SECOND / busHz;
+	}
+
+
+
+	/*
+	 * Method Name:		toCycles
+	 * Description:		Converts a time to the number of bus cycles that fit in it
+	 * Parameters:		long nanos: The time in nanoseconds
+	 * Return:			The number of cycles
+	 */
+	public long toCycles(long nanos) {
+		return nanos / NANOS_PER_SECOND * busHz + nanos % NANOS_PER_SECOND * busHz / NANOS_PER_SECOND;
+	}
+
+
+
+	/*
+	 * Method Name:		getSliceInstructions
+	 * Description:		Gets the number of instructions to run between waits, about a slice of emulated time
+	 * 					at a typical three cycles an instruction
+	 * Parameters:		None
+	 * Return:			The number of instructions
+	 */
+	public long getSliceInstructions() {
+		return Math.max(1, toCycles(SLICE_NANOS) / CYCLES_PER_INSTRUCTION);
+	}
+
+
+
+	/*
+	 * Method Name:		getBusHz
+	 * Description:		Gets the bus clock being kept to
+	 * Parameters:		None
+	 * Return:			The clock in cycles per second
+	 */
+	public long getBusHz() {
+		return busHz;
+	}
+
+
+
+	/*
+	 * Method Name:		getLagNanos
+	 * Description:		Gets how far behind the wall clock the emulator was at the last pace, safe to call from
+	 * 					any thread
+	 * Parameters:		None
+	 * Return:			The lag in nanoseconds, negative if it was ahead and had to wait
+	 */
+	public long getLagNanos() {
+		return lagNanos;
+	}
+
+
+
+	/*
+	 * Method Name:		getSlipCount
+	 * Description:		Gets the number of times the emulator fell too far behind and pacing started again,
+	 * 					safe to call from any thread.  A timing test should expect 0
+	 * Parameters:		None
+	 * Return:			The count as a long
+	 */
+	public long getSlipCount() {
+		return slipCount;
+	}
+}
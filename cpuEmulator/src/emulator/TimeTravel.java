@@ -0,0 +1,437 @@
+/*
+ * Filename:		TimeTravel.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the TimeTravel class
+ */
+
+
+
+package emulator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+
+/*
+ * Class Name:		TimeTravel
+ * Description:		Lets an emulator step backwards.  While attached it keeps an in-memory Checkpoint every
+ * 					interval instructions and logs external inputs to an InputLog.  Any earlier instruction
+ * 					count is reached by restoring the nearest checkpoint at or before it and replaying
+ * 					forward, with the logged inputs fed back in at the counts they arrived at, so the
+ * 					replayed run is identical to the original.  Going back replays at most one interval of
+ * 					instructions, unless the run skipped idle periods.
+ *
+ * 					Checkpoints only hold the memory pages that differ from the loaded image, so a long
+ * 					history is cheap; once maxCheckpoints are held the oldest is dropped and history starts
+ * 					later.  Profilers, samplers, breakpoints, metrics and instruction listeners are silenced
+ * 					while replaying so they only ever see each instruction once.
+ *
+ * 					Changing a switch, register or memory after going back starts a new timeline, and the
+ * 					checkpoints past that point are thrown away.  Resetting, loading an image or loading a
+ * 					checkpoint file changes the machine outside the log, so restart() must be called
+ * 					afterwards.  Checkpoints do not hold the state of timed devices, so going back is refused
+ * 					while timers are running or to a point where they were.
+ *
+ * 					Periods of an idle loop skipped by an IdleDetector retire no instructions, so the next
+ * 					checkpoint is taken on the first instruction after the skip.  Going back into a skipped
+ * 					stretch replays it from the checkpoint before it, which may be more than one interval.
+ */
+public class TimeTravel implements InstructionListener {
+
+	public final static int DEFAULT_INTERVAL = 50000;
+	public final static int DEFAULT_MAX_CHECKPOINTS = 4096;
+
+	private final Freescale6808Emulator emulator;
+	private final int interval;
+	private final int maxCheckpoints;
+	private final InputLog inputLog;
+	private final TreeMap<Long, Checkpoint> checkpoints;
+	private long nextCheckpoint;
+	private boolean isAttached;
+	private InstructionListener[] silencedListeners;
+	private ExecutionProfiler silencedProfiler;
+	private SamplingProfiler silencedSampler;
+	private Breakpoints silencedBreakpoints;
+	private EmulatorMetrics silencedMetrics;
+
+
+
+	/*
+	 * Method Name:		TimeTravel
+	 * Description:		Constructor using the default interval and history length
+	 * Parameters:		Freescale6808Emulator emulator: The emulator
+	 * Return:			None
+	 */
+	public TimeTravel(Freescale6808Emulator emulator) {
+		this(emulator, DEFAULT_INTERVAL, DEFAULT_MAX_CHECKPOINTS);
+	}
+
+
+
+	/*
+	 * Method Name:		TimeTravel
+	 * Description:		Constructor
+	 * Parameters:		Freescale6808Emulator emulator: The emulator
+	 * 					int interval: The number of instructions between checkpoints, which bounds the
+	 * 					replay needed to go back
+	 * 					int maxCheckpoints: The number of checkpoints to keep before dropping the oldest
+	 * Return:			None
+	 */
+	public TimeTravel(Freescale6808Emulator emulator, int interval, int maxCheckpoints) {
+		if (interval <= 0 || maxCheckpoints <= 0) {
+			throw new IllegalArgumentException("Checkpoint interval and count must be positive");
+		}
+
+		this.emulator = emulator;
+		this.interval = interval;
+		this.maxCheckpoints = maxCheckpoints;
+		this.inputLog = new InputLog();
+		this.checkpoints = new TreeMap<Long, Checkpoint>();
+		this.isAttached = false;
+	}
+
+
+
+	/*
+	 * Method Name:		start
+	 * Description:		Attaches to the emulator.  History begins at the emulator's current state
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public void start() {
+		if (!isAttached) {
+			emulator.setInputLog(inputLog);
+			emulator.addInstructionListener(this);
+			isAttached = true;
+		}
+
+		restart();
+	}
+
+
+
+	/*
+	 * Method Name:		stop
+	 * Description:		Detaches from the emulator and forgets the history
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public void stop() {
+		if (isAttached) {
+			emulator.removeInstructionListener(this);
+
+			if (emulator.getInputLog() == inputLog) {
+				emulator.setInputLog(null);
+			}
+
+			isAttached = false;
+		}
+
+		checkpoints.clear();
+		inputLog.clear();
+	}
+
+
+
+	/*
+	 * Method Name:		restart
+	 * Description:		Forgets the history so it begins again at the emulator's current state, for use after
+	 * 					the machine has been reset, reloaded or restored
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public void restart() {
+		checkpoints.clear();
+		inputLog.start(emulator.getInstructionCount());
+		capture(emulator.getInstructionCount());
+	}
+
+
+
+	/*
+	 * Method Name:		loadInputLog
+	 * Description:		Restarts the history with the inputs of a saved log ahead, so stepping on replays them
+	 * 					at the instruction counts they were recorded at.  The emulator must be in the state
+	 * 					the log started from, e.g. freshly reset with the same image loaded
+	 * Parameters:		File file: The saved InputLog
+	 * Return:			The instruction count of the last logged input
+	 */
+	public long loadInputLog(File file) throws Exception {
+		long count = emulator.getInstructionCount();
+
+		restart();
+		inputLog.load(file, emulator.getLoadedImage());
+
+		if (inputLog.getStartCount() != count) {
+			long start = inputLog.getStartCount();
+			inputLog.start(count);
+			throw new Exception("Input log starts at instruction " + start + ", not " + count);
+		}
+
+		return inputLog.getLastCount();
+	}
+
+
+
+	/*
+	 * Method Name:		instructionRetired
+	 * Description:		Takes a checkpoint each time the instruction count reaches the next interval
+	 * Parameters:		Freescale6808Emulator emulator: The emulator that executed it
+	 * 					int pc: The address of the opcode
+	 * 					byte opcode: The opcode
+	 * 					byte operand: The byte following the opcode
+	 * 					int writeAddress: The address written, or -1
+	 * Return:			None
+	 */
+	public void instructionRetired(Freescale6808Emulator emulator, int pc, byte opcode, byte operand, int writeAddress) {
+		long count = emulator.getInstructionCount();
+
+		if (count >= nextCheckpoint) {
+			discardDivergedHistory();
+			capture(count);
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		capture
+	 * Description:		Takes a checkpoint of the current state unless the timeline already has one there
+	 * Parameters:		long count: The current instruction count
+	 * Return:			None
+	 */
+	private void capture(long count) {
+		if (!checkpoints.containsKey(count)) {
+			checkpoints.put(count, Checkpoint.capture(emulator));
+
+			if (checkpoints.size() > maxCheckpoints) {
+				checkpoints.remove(checkpoints.firstKey());
+			}
+		}
+
+		nextCheckpoint = (count / interval + 1) * interval;
+	}
+
+
+
+	/*
+	 * Method Name:		discardDivergedHistory
+	 * Description:		Throws away the checkpoints past the point where a new input split the timeline
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	private void discardDivergedHistory() {
+		long divergedAt = inputLog.takeDivergence();
+
+		if (divergedAt >= 0) {
+			checkpoints.tailMap(divergedAt, false).clear();
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		travelTo
+	 * Description:		Puts the emulator in the state it had after a given number of instructions, with any
+	 * 					inputs that arrived at that count applied
+	 * Parameters:		long instruction: The instruction count, no earlier than getHistoryStart()
+	 * Return:			None
+	 */
+	public void travelTo(long instruction) throws Exception {
+		discardDivergedHistory();
+
+		Map.Entry<Long, Checkpoint> nearest = checkpoints.floorEntry(instruction);
+
+		if (nearest == null) {
+			throw new Exception("History only goes back to instruction " + getHistoryStart());
+		}
+
+		silence();
+
+		try {
+			nearest.getValue().restore(emulator);
+			inputLog.seek(nearest.getKey());
+
+			while (emulator.getInstructionCount() < instruction) {
+				emulator.singleStep();
+			}
+
+			inputLog.replayDue(emulator);
+		}
+		finally {
+			unsilence();
+		}
+
+		nextCheckpoint = (instruction / interval + 1) * interval;
+	}
+
+
+
+	/*
+	 * Method Name:		silence
+	 * Description:		Detaches the emulator's profilers, listeners, watchpoints and metrics so instructions
+	 * 					replayed from history are not counted or reported twice
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	private void silence() {
+		silencedListeners = emulator.swapListeners(null);
+		silencedProfiler = emulator.getProfiler();
+		silencedSampler = emulator.getSampler();
+		silencedBreakpoints = emulator.getBreakpoints();
+		silencedMetrics = emulator.getMetrics();
+		emulator.setProfiler(null);
+		emulator.setSampler(null);
+		emulator.setBreakpoints(null);
+		emulator.setMetrics(null);
+	}
+
+
+
+	/*
+	 * Method Name:		unsilence
+	 * Description:		Reattaches what silence() detached
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	private void unsilence() {
+		emulator.swapListeners(silencedListeners);
+		emulator.setProfiler(silencedProfiler);
+		emulator.setSampler(silencedSampler);
+		emulator.setBreakpoints(silencedBreakpoints);
+		emulator.setMetrics(silencedMetrics);
+		silencedListeners = null;
+		silencedProfiler = null;
+		silencedSampler = null;
+		silencedBreakpoints = null;
+		silencedMetrics = null;
+	}
+
+
+
+	/*
+	 * Method Name:		stepBack
+	 * Description:		Undoes the last instruction
+	 * Parameters:		None
+	 * Return:			True if it stepped back, false if already at the start of the history
+	 */
+	public boolean stepBack() throws Exception {
+		long count = emulator.getInstructionCount();
+
+		if (checkpoints.isEmpty() || count <= getHistoryStart()) {
+			return false;
+		}
+
+		travelTo(count - 1);
+		return true;
+	}
+
+
+
+	/*
+	 * Method Name:		reverseContinue
+	 * Description:		Goes back to the most recent earlier state where a condition holds.  The history is
+	 * 					searched one checkpoint interval at a time, newest first, by replaying each interval
+	 * 					and remembering the last matching count in it
+	 * Parameters:		StopCondition condition: The condition to stop at
+	 * Return:			True if a matching state was found, false if the search went back to the start of
+	 * 					the history without one, leaving the emulator there
+	 */
+	public boolean reverseContinue(StopCondition condition) throws Exception {
+		discardDivergedHistory();
+
+		long last = emulator.getInstructionCount() - 1;
+		Long start = checkpoints.floorKey(last);
+
+		while (start != null) {
+			long found = -1;
+
+			travelTo(start);
+			silence();
+
+			try {
+				while (true) {
+					if (condition.shouldStop(emulator)) {
+						found = emulator.getInstructionCount();
+					}
+
+					if (emulator.getInstructionCount() >= last) {
+						break;
+					}
+
+					emulator.singleStep();
+				}
+			}
+			finally {
+				unsilence();
+			}
+
+			if (found >= 0) {
+				travelTo(found);
+				return true;
+			}
+
+			last = start - 1;
+			start = checkpoints.floorKey(last);
+		}
+
+		travelTo(getHistoryStart());
+		return false;
+	}
+
+
+
+	/*
+	 * Method Name:		getHistoryStart
+	 * Description:		Gets the earliest instruction count that can be travelled back to
+	 * Parameters:		None
+	 * Return:			The instruction count of the oldest checkpoint, or -1 if there is no history
+	 */
+	public long getHistoryStart() {
+		return checkpoints.isEmpty() ? -1 : checkpoints.firstKey();
+	}
+
+
+
+	/*
+	 * Method Name:		getCheckpointCount
+	 * Description:		Gets the number of checkpoints held
+	 * Parameters:		None
+	 * Return:			The checkpoint count
+	 */
+	public int getCheckpointCount() {
+		return checkpoints.size();
+	}
+
+
+
+	/*
+	 * Method Name:		getCheckpoints
+	 * Description:		Gets the checkpoints of the history, oldest first, e.g. to replay segments of the run
+	 * 					in parallel
+	 * Parameters:		None
+	 * Return:			A copy of the checkpoint list
+	 */
+	public List<Checkpoint> getCheckpoints() {
+		discardDivergedHistory();
+		return new ArrayList<Checkpoint>(checkpoints.values());
+	}
+
+
+
+	/*
+	 * Method Name:		getInputLog
+	 * Description:		Gets the log of inputs made during the history
+	 * Parameters:		None
+	 * Return:			The InputLog
+	 */
+	public InputLog getInputLog() {
+		return inputLog;
+	}
+}
@@ -0,0 +1,34 @@
+/*
+ * Filename:		TimedDevice.java
+ * Package:			emulator
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the TimedDevice interface
+ */
+
+
+
+package emulator;
+
+
+
+/*
+ * Interface Name:	TimedDevice
+ * Description:		A peripheral, such as a timer, that acts at points in emulated time.  It schedules an
+ * 					event at a cycle count with the emulator's scheduleEvent and is called back at the
+ * 					first instruction boundary at or after it, on the emulator thread inside singleStep.
+ * 					Between events the device costs nothing.  It may change memory, request an interrupt
+ * 					and schedule its next event, but must not step the emulator itself.
+ */
+public interface TimedDevice {
+
+	/*
+	 * Method Name:		eventDue
+	 * Description:		Called when an event the device scheduled is due
+	 * Parameters:		Freescale6808Emulator emulator: The emulator the event was scheduled on
+	 * 					long cycle: The cycle count the event was scheduled for, which the emulator's may
+	 * 						have passed by part of an instruction
+	 * Return:			None
+	 */
+	void eventDue(Freescale6808Emulator emulator, long cycle);
+}
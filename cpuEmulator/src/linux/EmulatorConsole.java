@@ -12,15 +12,39 @@
 package linux;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
-import utilities.FileIO;
-import utilities.Srec;
+import utilities.AddressRange;
+import utilities.BinaryImageLoader;
+import utilities.ImageLoaders;
+import utilities.ListingFile;
+import utilities.LoadedImage;
+import utilities.MemoryExporter;
 import cpu.Freescale6808CPU;
+import emulator.Breakpoints;
+import emulator.CompiledExpression;
+import emulator.CoverageMap;
+import emulator.EmulatorMetrics;
+import emulator.ExecutionProfiler;
+import emulator.ExpressionCompiler;
+import emulator.PeriodicTimer;
 import emulator.Freescale6808Emulator;
+import emulator.SamplingProfiler;
+import emulator.StopCondition;
+import emulator.Throttle;
+import emulator.TimeTravel;
+import emulator.Freescale6808Emulator.REGISTER;
+import emulator.Freescale6808Emulator.SWITCH_BIT;
+import trace.ParallelReplay;
+import trace.ReplayQueries;
+import trace.TraceRecorder;
+import trace.WriteHistory;
 import cpu.Freescale6808CPU.CCR_BIT;
+import management.EmulatorMonitor;
 
 
 /*
@@ -34,11 +58,27 @@ public class EmulatorConsole
 	private Freescale6808Emulator emulator;
 	private Freescale6808CPU cpu;
 	private boolean isFileLoaded;
+	private ExecutionProfiler profilerCounts;
+	private CoverageMap coverageCounts;
+	private ListingFile listing;
+	private TraceRecorder traceRecorder;
+	private TimeTravel timeTravel;
+	private WriteHistory writeHistory;
+	private EmulatorMonitor monitor;
+	private Breakpoints breakpoints;
+	private List<CompiledExpression> watchExpressions;
+	private Throttle clock;
+	private PeriodicTimer timer;
 	
 	public EmulatorConsole()
 	{
 		cpu = new Freescale6808CPU();
 		emulator = new Freescale6808Emulator();
+		timeTravel = new TimeTravel(emulator);
+		breakpoints = new Breakpoints();
+		watchExpressions = new ArrayList<CompiledExpression>();
+		clock = null;
+		timer = null;
 	}
 	
 	public void runEmulatorConsole() {
@@ -56,12 +96,10 @@ public class EmulatorConsole
 	{
 		String option = "";
 		Boolean quit = false;
-		FileIO srecFile = new FileIO();
-		Srec validSrecFile = new Srec();
-		List<byte[]> recordList = new ArrayList<byte[]>();
+		ImageLoaders imageLoaders = new ImageLoaders();
+		MemoryExporter memoryExporter = new MemoryExporter();
 		InputStreamReader inConverter = new InputStreamReader(System.in);
 		BufferedReader userInput = new BufferedReader(inConverter);
-		short startingAddress = (short)0x0000;
 		
 		while(!quit) //loop until the quit flag is set
 		{
@@ -79,58 +117,68 @@ public class EmulatorConsole
 				option = "Q";
 			}
 			
-			if(option.startsWith("L ") || option.startsWith("LOAD ")) //handle load command
+			if(option.startsWith("L ") || option.startsWith("LOAD ") || option.startsWith("LB ") || option.startsWith("LOADBIN ")) //handle load and load binary commands
 			{
 				String fileName = "";
+				String baseAddress = "";
 				int startIndex = 0;
-				int endIndex = 0;
+				boolean isBinary = option.startsWith("LB ") || option.startsWith("LOADBIN ");
 
-				//extract out the file name associated with the load command
+				//extract out the file name associated with the load command, after the base address for a raw binary
 				startIndex = option.indexOf(" ");
-				endIndex = option.length() - (startIndex - 1);
-				fileName = option.substring(startIndex + 1, endIndex);
+				fileName = option.substring(startIndex + 1).trim();
 				
-				//verify the file is an .srec file
-				if(fileName.endsWith(".srec"))
+				if(isBinary)
 				{
-					String fileContents = srecFile.loadSREC(fileName);
-					
-					if(fileContents != null)
+					startIndex = fileName.indexOf(" ");
+					baseAddress = startIndex < 0 ? fileName : fileName.substring(0, startIndex);
+					fileName = startIndex < 0 ? "" : fileName.substring(startIndex + 1).trim();
+				}
+				
+				if(fileName.length() > 0)
+				{
+					//the loader is picked from the file contents (S-Record, Intel HEX, or raw binary if named .bin)
+					try
 					{
-						recordList = validSrecFile.parseSREC(fileContents);
+						long started = System.nanoTime();
+						LoadedImage image;
 						
-						if(!recordList.isEmpty())
+						if(isBinary)
 						{
-							startingAddress = validSrecFile.getStartingAddress();
-							
-							try
-							{
-								emulator.resetEmulator();
-								emulator.loadSrecIntoMemory(startingAddress, recordList);
-								isFileLoaded = true;
-								System.out.println("\n" + "File successfully loaded." + "\n");
-							}
-							catch (Exception ex) 
-							{
-								System.out.println("\n" + ex.getMessage() + "\n");
-							}			
+							int address = baseAddress.equalsIgnoreCase("TOP") ? BinaryImageLoader.ALIGN_TO_TOP : Integer.decode(baseAddress.replace("$", "0x"));
+							image = imageLoaders.loadBinary(new File(fileName), address);
 						}
 						else
 						{
-							System.out.println("\nThe S-Record file contents were not valid. File load failed.\n");
+							image = imageLoaders.load(new File(fileName));
+						}
+						
+						if(emulator.getMetrics() != null)
+						{
+							emulator.getMetrics().recordImageParse(System.nanoTime() - started);
 						}
+						
+						emulator.resetEmulator();
+						emulator.loadImage(image);
+						timeTravel.start();
+						
+						//coverage belongs to one image, so a new image starts a new map
+						coverageCounts = emulator.getCoverage() != null ? new CoverageMap(image) : null;
+						emulator.setCoverage(coverageCounts);
+						isFileLoaded = true;
+						System.out.println("\n" + "File successfully loaded." + "\n");
 					}
-					else
+					catch (Exception ex) 
 					{
-						System.out.println("\nThe S-Record file was not a valid .srec file. File load failed.\n");
+						System.out.println("\n" + ex.getMessage() + ". File load failed.\n");
 					}
 					
 					cpu = emulator.getCpu();
 				}
 				else
 				{
-					//error, file is not an S-Record file
-					System.out.println("\nUsage : L or LOAD [srec_filename]\n");
+					//error, no file name given
+					System.out.println(isBinary ? "\nUsage : LB or LOADBIN [address/TOP] [image_filename]\n" : "\nUsage : L or LOAD [image_filename]\n");
 				}
 			}
 			else if(option.equals("S") || option.equals("STEP")) //handle step command
@@ -141,6 +189,7 @@ public class EmulatorConsole
 					try
 					{
 						emulator.singleStep();
+						emulator.publishState();
 						cpu = emulator.getCpu();
 						System.out.println("\nStep was successfully executed.\n");
 					}
@@ -154,6 +203,195 @@ public class EmulatorConsole
 					System.out.println("\nA valid s-record file must be loaded before a step can be executed.\n");
 				}
 			}
+			else if(option.equals("G") || option.equals("GO") || option.startsWith("G ") || option.startsWith("GO ")) //handle run command
+			{
+				String count = option.indexOf(" ") < 0 ? "" : option.substring(option.indexOf(" ") + 1).trim();
+				
+				if(isFileLoaded && count.equals("") && breakpoints.isEmpty())
+				{
+					System.out.println("\nSet a breakpoint or watchpoint, or give a number of instructions to run.\n");
+				}
+				else if(isFileLoaded)
+				{
+					//run a batch of instructions without redrawing in between, or until a breakpoint is hit
+					try
+					{
+						long limit = count.equals("") ? 100000000L : Long.parseLong(count);
+						long started = System.nanoTime();
+						long startCycles = emulator.getCpu().getCycleCount();
+						long executed = clock == null ? emulator.run(limit) : clock.run(emulator, limit);
+						double seconds = (System.nanoTime() - started) / 1e9;
+						
+						cpu = emulator.getCpu();
+						System.out.println(String.format("\nRan %d instructions, %d cycles, in %.3f s.", executed, cpu.getCycleCount() - startCycles, seconds));
+						
+						if(emulator.getBreakpoints() != null && breakpoints.isHit())
+						{
+							System.out.println(DescribeBreakpointHit());
+						}
+						else if(count.equals(""))
+						{
+							System.out.println("No breakpoint was hit.\n");
+						}
+						else
+						{
+							System.out.println();
+						}
+					}
+					catch(NumberFormatException ex)
+					{
+						System.out.println("\nUsage : G or GO [instructions]\n");
+					}
+					catch (Exception ex)
+					{
+						cpu = emulator.getCpu();
+						System.out.println("\n" + ex.getMessage() + "\n");
+					}
+				}
+				else
+				{
+					System.out.println("\nA valid s-record file must be loaded before it can be run.\n");
+				}
+			}
+			else if(option.equals("RS") || option.equals("RSTEP")) //handle reverse step command
+			{
+				if(isFileLoaded)
+				{
+					//rebuild the state before the last instruction from the nearest checkpoint
+					try
+					{
+						if(timeTravel.stepBack())
+						{
+							cpu = emulator.getCpu();
+							System.out.println("\nStepped back to instruction " + emulator.getInstructionCount() + ".\n");
+						}
+						else
+						{
+							System.out.println("\nAlready at the start of the recorded history.\n");
+						}
+					}
+					catch (Exception ex)
+					{
+						System.out.println("\n" + ex.getMessage() + "\n");
+					}
+				}
+				else
+				{
+					System.out.println("\nA valid s-record file must be loaded before a step can be undone.\n");
+				}
+			}
+			else if(option.equals("RC") || option.equals("RCONTINUE") || option.startsWith("RC ") || option.startsWith("RCONTINUE ")) //handle reverse continue command
+			{
+				if(isFileLoaded)
+				{
+					try
+					{
+						//run backwards to the last time the PC was at the given address, or at the current one
+						final int target = option.indexOf(" ") < 0 ? emulator.getCpu().getPC() & 0xffff
+								: Integer.decode(option.substring(option.indexOf(" ") + 1).trim());
+						
+						StopCondition atTarget = new StopCondition()
+						{
+							public boolean shouldStop(Freescale6808Emulator stopped)
+							{
+								return (stopped.getCpu().getPC() & 0xffff) == target;
+							}
+						};
+						
+						if(timeTravel.reverseContinue(atTarget))
+						{
+							System.out.println(String.format("\nStopped at 0x%04X, instruction %d.\n", target, emulator.getInstructionCount()));
+						}
+						else
+						{
+							System.out.println(String.format("\n0x%04X was not reached in the recorded history, stopped at its start.\n", target));
+						}
+						
+						cpu = emulator.getCpu();
+					}
+					catch (NumberFormatException ex)
+					{
+						System.out.println("\nUsage : RC or RCONTINUE [address]\n");
+					}
+					catch (Exception ex)
+					{
+						System.out.println("\n" + ex.getMessage() + "\n");
+					}
+				}
+				else
+				{
+					System.out.println("\nA valid s-record file must be loaded before running backwards.\n");
+				}
+			}
+			else if(option.startsWith("SW ") || option.startsWith("SWITCH ")) //handle set switch command
+			{
+				String[] words = option.trim().split("\\s+");
+				
+				if(words.length == 3 && words[1].matches("[1-4]") && (words[2].equalsIgnoreCase("ON") || words[2].equalsIgnoreCase("OFF")))
+				{
+					//switches go through the emulator so the change is logged for replay
+					emulator.setSwitchData(words[2].equalsIgnoreCase("ON"), SWITCH_BIT.values()[Integer.parseInt(words[1]) - 1]);
+					System.out.println("\nSwitch " + words[1] + " is " + words[2].toUpperCase() + ".\n");
+				}
+				else
+				{
+					System.out.println("\nUsage : SW or SWITCH [1 - 4] [ON | OFF]\n");
+				}
+			}
+			else if(option.startsWith("I ") || option.startsWith("INPUT ")) //handle input log command
+			{
+				String[] words = option.trim().split("\\s+");
+				
+				if(!isFileLoaded)
+				{
+					System.out.println("\nA valid s-record file must be loaded before inputs can be saved or replayed.\n");
+				}
+				else if(words.length == 3 && words[1].equalsIgnoreCase("SAVE"))
+				{
+					try
+					{
+						timeTravel.getInputLog().save(new File(words[2]), emulator.getLoadedImage());
+						System.out.println("\n" + timeTravel.getInputLog().size() + " inputs saved to " + words[2] + ".\n");
+					}
+					catch(Exception ex)
+					{
+						System.out.println("\n" + ex.getMessage() + ". Save failed.\n");
+					}
+				}
+				else if((words.length == 3 || words.length == 4) && words[1].equalsIgnoreCase("REPLAY"))
+				{
+					//replay from a reset machine at full speed until every input has been fed back in
+					try
+					{
+						emulator.resetEmulator();
+						emulator.reloadS1Records();
+						
+						long end = timeTravel.loadInputLog(new File(words[2]));
+						
+						if(words.length == 4)
+						{
+							end = Long.parseLong(words[3]);
+						}
+						
+						while(emulator.getInstructionCount() < end)
+						{
+							emulator.singleStep();
+						}
+						
+						timeTravel.getInputLog().replayDue(emulator);
+						cpu = emulator.getCpu();
+						System.out.println("\n" + timeTravel.getInputLog().size() + " inputs replayed, stopped at instruction " + emulator.getInstructionCount() + ".\n");
+					}
+					catch(Exception ex)
+					{
+						System.out.println("\n" + ex.getMessage() + ". Replay failed.\n");
+					}
+				}
+				else
+				{
+					System.out.println("\nUsage : I or INPUT [SAVE filename | REPLAY filename [instructions]]\n");
+				}
+			}
 			else if(option.equals("R") || option.equals("RESET")) //handle reset command
 			{
 				if(isFileLoaded)
@@ -163,6 +401,7 @@ public class EmulatorConsole
 					{
 						emulator.resetEmulator();
 						emulator.reloadS1Records();
+						timeTravel.restart();
 						cpu = emulator.getCpu();
 						System.out.println("\nThe 6808 CPU was reset.\n");
 					} 
@@ -201,18 +440,16 @@ public class EmulatorConsole
 					
 					if((register.equals("pc") && (valueInt >= 0 && valueInt <= 65535))) //if register is program counter and the value is valid
 					{
-						//get current CPU, set the program counter and return it back to emulator
+						//alter through the emulator so the change is logged for replay
+						emulator.alterRegister(REGISTER.PC, valueInt);
 						cpu = emulator.getCpu();
-						cpu.setPC((short)valueInt);
-						emulator.setCpu(cpu);
 						System.out.println("\nProgram Counter Value Changed to " + valueInt + ".\n");
 					}
 					else if((register.equals("ac") && (valueInt >= 0 && valueInt <= 255))) //if register is accumulator and the value is valid
 					{
-						//get current CPU, set the accumulator and return it back to emulator
+						//alter through the emulator so the change is logged for replay
+						emulator.alterRegister(REGISTER.A, valueInt);
 						cpu = emulator.getCpu();
-						cpu.setA((byte)valueInt);
-						emulator.setCpu(cpu);
 						System.out.println("\nAccumulator Value Changed to " + valueInt + ".\n");
 					}
 					else //error, incorrect register and/or value
@@ -257,71 +494,860 @@ public class EmulatorConsole
 				
 				WaitKeyContinue(userInput);
 			}
-			else if(option.equals("Q") || option.equals("QUIT")) //handle quit emulator command
+			else if(option.startsWith("E ") || option.startsWith("EXPORT ")) //handle export memory command
 			{
-				//set quit flag and display closing message
-				quit = true;
-				System.out.println("\n6808 Emulator shutting down. Goodbye!\n");
+				String fileName = "";
+				int startAddress = 0;
+				int endAddress = 0;
+				int fileEIndex = 0;
+				int startSIndex = 0;
+				
+				try
+				{
+					//the two addresses are the last two words, everything before them is the file name
+					option = option.trim();
+					startSIndex = option.lastIndexOf(" ", option.lastIndexOf(" ") - 1);
+					fileEIndex = startSIndex;
+					fileName = option.substring(option.indexOf(" ") + 1, fileEIndex).trim();
+					String[] addresses = option.substring(startSIndex + 1).split(" ");
+					startAddress = Integer.parseInt(addresses[0]);
+					endAddress = Integer.parseInt(addresses[1]);
+					AddressRange range = new AddressRange(startAddress, endAddress);
+					
+					//.bin files get raw bytes, anything else gets S-records
+					if(fileName.toLowerCase().endsWith(".bin"))
+					{
+						memoryExporter.exportBinary(new File(fileName), emulator.getMemoryBuffer(), range);
+					}
+					else
+					{
+						memoryExporter.exportSrec(new File(fileName), emulator.getMemoryBuffer(), emulator.getCpu().getPC(), range);
+					}
+					
+					System.out.println("\nMemory " + range + " exported to " + fileName + ".\n");
+				}
+				catch(java.io.IOException ex)
+				{
+					System.out.println("\n" + ex.getMessage() + ". Export failed.\n");
+				}
+				catch(Exception ex)
+				{
+					//error, missing file name or invalid addresses
+					System.out.println("\nUsage : E or EXPORT [filename] [start_address] [end_address]\n");
+				}
 			}
-			else //invalid command entered
+			else if(option.startsWith("SV ") || option.startsWith("SAVE ")) //handle save checkpoint command
 			{
-				System.out.println("\nCommand entered is not supported.\n");
+				String fileName = option.substring(option.indexOf(" ") + 1).trim();
+
+				if(!isFileLoaded)
+				{
+					System.out.println("\nA valid s-record file must be loaded before a checkpoint can be saved.\n");
+				}
+				else if(fileName.length() > 0)
+				{
+					//.z files get their memory pages deflated
+					try
+					{
+						emulator.saveCheckpoint(new File(fileName), fileName.toLowerCase().endsWith(".z"));
+						System.out.println("\nCheckpoint saved to " + fileName + " at instruction " + emulator.getInstructionCount() + ".\n");
+					}
+					catch(Exception ex)
+					{
+						System.out.println("\n" + ex.getMessage() + ". Save failed.\n");
+					}
+				}
+				else
+				{
+					System.out.println("\nUsage : SV or SAVE [checkpoint_filename]\n");
+				}
 			}
-		}
-	}
-	
-	
-	/*
-	 * Method Name: DisplayMainMenu
-	 * Description: This method constructs the string to display the main menu in a readable fashion.
-	 * Parameters: No parameters.
-	 * Return: Returns a string constructed of the available commands.
-	 */
-	private String DisplayMainMenu()
-	{
-		String mainMenu = "";
-		
-		//build the main menu, displaying the available commands
-		mainMenu = "*****6808 Emulator*****\n\n";
-		mainMenu += "L or LOAD SRecordFileName\n";
-		mainMenu += "S or STEP\n";
-		mainMenu += "R or RESET\n";
-		mainMenu += "A or ALTER register=value\n";
-		mainMenu += "D or DUMP\n";
-		mainMenu += "M or MEMORY address\n";
-		mainMenu += "Q or QUIT\n\n";
-		
-		return mainMenu;
-	}
-	
-	
-	/*
-	 * Method Name: DisplayCPURegisters
-	 * Description: This method constructs the string of current CPU register values in a readable fashion.
-	 * Parameters: No parameters.
-	 * Return: Returns a string constructed of the CPU registers.
-	 */
-	private String DisplayCPURegisters()
-	{
-		String registers = "";
-		cpu = emulator.getCpu();
-		
-		//display current CPU register values
-		registers = "\n*****6808 CPU Registers*****\n\n";
-		registers += String.format("Accumulator: 0x%04X\n", cpu.getA());
-		registers += String.format("Program Counter: 0x%04X\n", cpu.getPC());
-		registers += String.format("Stack Pointer: 0x%04X\n", cpu.getSP());
-		registers += String.format("Index Register Low: 0x%02X\n", cpu.getX());
-		registers += String.format("Index Register High: 0x%02X\n\n", cpu.getH());
-		
-		//display current CCR flag values
-		registers += String.format("CCR Value: 0x%02X\n", cpu.getCCR());
-		registers += String.format("Carry Flag: %s\n", CCRFlagValue(cpu.isCCRBit(CCR_BIT.CARRY)));
-		registers += String.format("Zero Flag: %s\n", CCRFlagValue(cpu.isCCRBit(CCR_BIT.ZERO)));
-		registers += String.format("Negative Flag: %s\n", CCRFlagValue(cpu.isCCRBit(CCR_BIT.NEGATIVE)));
-		registers += String.format("Interrupt Flag: %s\n", CCRFlagValue(cpu.isCCRBit(CCR_BIT.INTERRUPT)));
-		registers += String.format("Half-Carry Flag: %s\n", CCRFlagValue(cpu.isCCRBit(CCR_BIT.HALF)));
-		registers += String.format("Overflow Flag: %s\n", CCRFlagValue(cpu.isCCRBit(CCR_BIT.OVERFLOW)));
+			else if(option.startsWith("RT ") || option.startsWith("RESTORE ")) //handle restore checkpoint command
+			{
+				String fileName = option.substring(option.indexOf(" ") + 1).trim();
+
+				if(!isFileLoaded)
+				{
+					System.out.println("\nThe program the checkpoint was taken with must be loaded before it can be restored.\n");
+				}
+				else if(fileName.length() > 0)
+				{
+					try
+					{
+						emulator.loadCheckpoint(new File(fileName));
+						timeTravel.restart();
+						cpu = emulator.getCpu();
+						System.out.println("\nCheckpoint restored at instruction " + emulator.getInstructionCount() + ".\n");
+					}
+					catch(Exception ex)
+					{
+						System.out.println("\n" + ex.getMessage() + ". Restore failed.\n");
+					}
+				}
+				else
+				{
+					System.out.println("\nUsage : RT or RESTORE [checkpoint_filename]\n");
+				}
+			}
+			else if(option.startsWith("P ") || option.startsWith("PROFILE ")) //handle profiler command
+			{
+				String[] words = option.trim().split(" +", 3);
+				String action = words.length > 1 ? words[1] : "";
+				ExecutionProfiler profiler = emulator.getProfiler();
+
+				if(action.equals("ON"))
+				{
+					//keep the counts from any earlier profiling run
+					if(profiler == null)
+					{
+						profiler = profilerCounts != null ? profilerCounts : new ExecutionProfiler();
+						emulator.setProfiler(profiler);
+						profilerCounts = profiler;
+					}
+					System.out.println("\nProfiling is on.\n");
+				}
+				else if(action.equals("OFF"))
+				{
+					emulator.setProfiler(null);
+					System.out.println("\nProfiling is off.\n");
+				}
+				else if(action.equals("RESET") && profilerCounts != null)
+				{
+					profilerCounts.reset();
+					System.out.println("\nProfile counts cleared.\n");
+				}
+				else if(action.equals("REPORT") && profilerCounts != null)
+				{
+					System.out.println("\n" + profilerCounts.getReport(10));
+					WaitKeyContinue(userInput);
+				}
+				else if(action.equals("EXPORT") && profilerCounts != null && words.length > 2)
+				{
+					//.csv files get text, anything else gets the flat binary counters
+					try
+					{
+						if(words[2].toLowerCase().endsWith(".csv"))
+						{
+							profilerCounts.exportCsv(new File(words[2]));
+						}
+						else
+						{
+							profilerCounts.exportBinary(new File(words[2]));
+						}
+						System.out.println("\nProfile exported to " + words[2] + ".\n");
+					}
+					catch(java.io.IOException ex)
+					{
+						System.out.println("\n" + ex.getMessage() + ". Export failed.\n");
+					}
+				}
+				else if(profilerCounts == null && !action.equals(""))
+				{
+					System.out.println("\nProfiling has not been switched on.\n");
+				}
+				else
+				{
+					System.out.println("\nUsage : P or PROFILE [ON | OFF | RESET | REPORT | EXPORT filename]\n");
+				}
+			}
+			else if(option.startsWith("CV ") || option.startsWith("COVERAGE ")) //handle coverage command
+			{
+				String[] words = option.trim().split(" +", 3);
+				String action = words.length > 1 ? words[1] : "";
+
+				try
+				{
+					if(action.equals("ON") && isFileLoaded)
+					{
+						//keep the coverage from any earlier run of this image
+						if(coverageCounts == null)
+						{
+							coverageCounts = new CoverageMap(emulator.getLoadedImage());
+						}
+						emulator.setCoverage(coverageCounts);
+						System.out.println("\nCoverage is on.\n");
+					}
+					else if(action.equals("OFF"))
+					{
+						emulator.setCoverage(null);
+						System.out.println("\nCoverage is off.\n");
+					}
+					else if(action.equals("RESET") && coverageCounts != null)
+					{
+						coverageCounts.reset();
+						System.out.println("\nCoverage cleared.\n");
+					}
+					else if(action.equals("REPORT") && coverageCounts != null)
+					{
+						System.out.println("\n" + coverageCounts.getReport(listing));
+						WaitKeyContinue(userInput);
+					}
+					else if(action.equals("SAVE") && coverageCounts != null && words.length > 2)
+					{
+						coverageCounts.write(new File(words[2]));
+						System.out.println("\nCoverage saved to " + words[2] + ".\n");
+					}
+					else if(action.equals("MERGE") && coverageCounts != null && words.length > 2)
+					{
+						coverageCounts.merge(CoverageMap.read(new File(words[2])));
+						System.out.println("\nCoverage from " + words[2] + " merged.\n");
+					}
+					else if(action.equals("LCOV") && coverageCounts != null && words.length > 2)
+					{
+						if(listing == null)
+						{
+							System.out.println("\nA listing must be loaded to map coverage to source lines.\n");
+						}
+						else
+						{
+							coverageCounts.exportLcov(new File(words[2]), listing);
+							System.out.println("\nCoverage exported to " + words[2] + ".\n");
+						}
+					}
+					else if(coverageCounts == null && !action.equals(""))
+					{
+						System.out.println("\nCoverage has not been switched on.\n");
+					}
+					else
+					{
+						System.out.println("\nUsage : CV or COVERAGE [ON | OFF | RESET | REPORT | SAVE filename | MERGE filename | LCOV filename]\n");
+					}
+				}
+				catch(Exception ex)
+				{
+					System.out.println("\n" + ex.getMessage() + ". Coverage failed.\n");
+				}
+			}
+			else if(option.startsWith("LS ") || option.startsWith("LISTING ")) //handle load listing command
+			{
+				String fileName = option.substring(option.indexOf(" ") + 1).trim();
+
+				//the listing puts labels and source lines to addresses in reports
+				try
+				{
+					listing = ListingFile.load(new File(fileName));
+					System.out.println("\nListing " + listing.getName() + " loaded.\n");
+				}
+				catch(Exception ex)
+				{
+					System.out.println("\n" + ex.getMessage() + ". Listing load failed.\n");
+				}
+			}
+			else if(option.startsWith("SP ") || option.startsWith("SAMPLE ")) //handle sampling profiler command
+			{
+				String[] words = option.trim().split(" +", 3);
+				String action = words.length > 1 ? words[1] : "";
+				SamplingProfiler sampler = emulator.getSampler();
+
+				try
+				{
+					if(action.equals("ON"))
+					{
+						if(sampler == null)
+						{
+							sampler = new SamplingProfiler();
+							emulator.setSampler(sampler);
+						}
+						sampler.start();
+						System.out.println("\nSampling is on.\n");
+					}
+					else if(action.equals("OFF") && sampler != null)
+					{
+						sampler.stop();
+						System.out.println("\nSampling is off, " + sampler.getTotalSamples() + " samples taken.\n");
+					}
+					else if(action.equals("REPORT") && sampler != null)
+					{
+						sampler.stop();
+						System.out.println("\n" + sampler.getReport(listing));
+						WaitKeyContinue(userInput);
+					}
+					else if(action.equals("EXPORT") && sampler != null && words.length > 2)
+					{
+						sampler.stop();
+						sampler.exportFolded(new File(words[2]), listing);
+						System.out.println("\nSamples exported to " + words[2] + ".\n");
+					}
+					else
+					{
+						System.out.println("\nUsage : SP or SAMPLE [ON | OFF | REPORT | EXPORT filename]\n");
+					}
+				}
+				catch(Exception ex)
+				{
+					System.out.println("\n" + ex.getMessage() + "\n");
+				}
+			}
+			else if(option.startsWith("T ") || option.startsWith("TRACE ")) //handle execution trace command
+			{
+				String[] words = option.trim().split(" +", 3);
+				String action = words.length > 1 ? words[1] : "";
+
+				try
+				{
+					if(action.equals("ON") && words.length > 2 && traceRecorder == null)
+					{
+						traceRecorder = new TraceRecorder(new File(words[2]));
+						emulator.addInstructionListener(traceRecorder);
+						
+						//index the writes as well so WHO can answer without reading the trace back
+						if(writeHistory != null)
+						{
+							emulator.removeInstructionListener(writeHistory);
+						}
+						
+						writeHistory = new WriteHistory();
+						emulator.addInstructionListener(writeHistory);
+						System.out.println("\nTracing to " + words[2] + ".\n");
+					}
+					else if(action.equals("OFF") && traceRecorder != null)
+					{
+						//detach first so nothing is added to the ring while it is written out
+						emulator.removeInstructionListener(traceRecorder);
+						emulator.removeInstructionListener(writeHistory);
+						traceRecorder.close();
+						System.out.println("\nTrace closed, " + traceRecorder.getRecordCount() + " records, "
+								+ traceRecorder.getDroppedCount() + " dropped.\n");
+						traceRecorder = null;
+					}
+					else
+					{
+						System.out.println("\nUsage : T or TRACE [ON filename | OFF]\n");
+					}
+				}
+				catch(Exception ex)
+				{
+					traceRecorder = null;
+					System.out.println("\n" + ex.getMessage() + ". Trace failed.\n");
+				}
+			}
+			else if(option.startsWith("W ") || option.startsWith("WHO ")) //handle last writer command
+			{
+				try
+				{
+					int address = Integer.decode(option.substring(option.indexOf(" ") + 1).trim().replace("$", "0x"));
+					
+					if(writeHistory == null)
+					{
+						System.out.println("\nNo writes have been indexed, start a trace first.\n");
+					}
+					else if(address < 0 || address > 65535)
+					{
+						System.out.println("\nUsage : W or WHO [address]\n");
+					}
+					else if(writeHistory.getLastWriteCount(address) < 0)
+					{
+						System.out.println(String.format("\n$%04X has not been written since tracing started.\n", address));
+					}
+					else
+					{
+						//newest first, as far back as the history chain reaches
+						String writes = String.format("\nWrites to $%04X, newest first:\n", address);
+						
+						for(WriteHistory.Write write : writeHistory.getHistory(address, 10))
+						{
+							String source = listing == null ? null : listing.getSource(write.getPC());
+							writes += String.format("  instruction %d  $%04X  wrote $%02X%s\n", write.getInstructionCount(), write.getPC(),
+									write.getValue(), source == null ? "" : "  " + listing.getLabel(write.getPC()) + ": " + source);
+						}
+						
+						System.out.println(writes);
+					}
+				}
+				catch(NumberFormatException ex)
+				{
+					System.out.println("\nUsage : W or WHO [address]\n");
+				}
+			}
+			else if(option.startsWith("F ") || option.startsWith("FIND ")) //handle history search command
+			{
+				String[] words = option.trim().split("\\s+");
+				
+				try
+				{
+					if(!isFileLoaded)
+					{
+						System.out.println("\nA valid s-record file must be loaded before its history can be searched.\n");
+					}
+					else if(words.length == 3 && words[1].equalsIgnoreCase("A"))
+					{
+						//replay the history one checkpoint interval per task on every core
+						ParallelReplay replay = new ParallelReplay(emulator.getLoadedImage(), timeTravel.getCheckpoints(),
+								timeTravel.getInputLog(), emulator.getInstructionCount());
+						int value = Integer.decode(words[2].replace("$", "0x"));
+						BitSet pcs = replay.run(ReplayQueries.pcsWhereAccumulatorIs(value), Runtime.getRuntime().availableProcessors());
+						String found = String.format("\nInstructions that left A = $%02X:\n", value);
+						
+						for(int pc = pcs.nextSetBit(0); pc >= 0; pc = pcs.nextSetBit(pc + 1))
+						{
+							String source = listing == null ? null : listing.getSource(pc);
+							found += String.format("  $%04X%s\n", pc, source == null ? "" : "  " + listing.getLabel(pc) + ": " + source);
+						}
+						
+						System.out.println(pcs.isEmpty() ? String.format("\nNo instruction left A = $%02X.\n", value) : found);
+					}
+					else if(words.length == 4 && words[2].equalsIgnoreCase("ABOVE"))
+					{
+						ParallelReplay replay = new ParallelReplay(emulator.getLoadedImage(), timeTravel.getCheckpoints(),
+								timeTravel.getInputLog(), emulator.getInstructionCount());
+						int address = Integer.decode(words[1].replace("$", "0x"));
+						int value = Integer.decode(words[3].replace("$", "0x"));
+						long[] first = replay.run(ReplayQueries.firstTimeAbove(address, value), Runtime.getRuntime().availableProcessors());
+						
+						System.out.println(first[0] < 0 ? String.format("\n$%04X never went above $%02X.\n", address, value)
+								: String.format("\n$%04X first went above $%02X at instruction %d.\n", address, value, first[0]));
+					}
+					else
+					{
+						System.out.println("\nUsage : F or FIND [A value | address ABOVE value]\n");
+					}
+				}
+				catch(NumberFormatException ex)
+				{
+					System.out.println("\nUsage : F or FIND [A value | address ABOVE value]\n");
+				}
+				catch(Exception ex)
+				{
+					System.out.println("\n" + ex.getMessage() + ". Search failed.\n");
+				}
+			}
+			else if(option.startsWith("B ") || option.startsWith("BREAK ")) //handle set breakpoint command
+			{
+				String[] words = option.trim().split("\\s+", 4);
+				
+				try
+				{
+					int address = Integer.decode(words[1].replace("$", "0x"));
+					
+					if(words.length == 2)
+					{
+						breakpoints.setBreakpoint(address);
+						emulator.setBreakpoints(breakpoints);
+						System.out.println(String.format("\nBreakpoint set at $%04X.\n", address & 0xffff));
+					}
+					else if(words.length == 4 && words[2].equals("IF"))
+					{
+						//the condition is compiled once here, not parsed each time the breakpoint is reached
+						CompiledExpression condition = ExpressionCompiler.compile(words[3]);
+						
+						breakpoints.setBreakpoint(address, condition);
+						emulator.setBreakpoints(breakpoints);
+						System.out.println(String.format("\nBreakpoint set at $%04X if %s.\n", address & 0xffff, condition.getText()));
+					}
+					else
+					{
+						System.out.println("\nUsage : B or BREAK [address] [IF condition]\n");
+					}
+				}
+				catch(NumberFormatException ex)
+				{
+					System.out.println("\nUsage : B or BREAK [address] [IF condition]\n");
+				}
+				catch(Exception ex)
+				{
+					System.out.println("\n" + ex.getMessage() + ". Breakpoint not set.\n");
+				}
+			}
+			else if(option.startsWith("BD ") || option.startsWith("BDELETE ")) //handle delete breakpoint command
+			{
+				String target = option.substring(option.indexOf(" ") + 1).trim();
+				
+				try
+				{
+					if(target.equals("ALL"))
+					{
+						breakpoints.clear();
+						System.out.println("\nAll breakpoints and watchpoints deleted.\n");
+					}
+					else
+					{
+						int address = Integer.decode(target.replace("$", "0x"));
+						boolean wasSet = breakpoints.removeBreakpoint(address);
+						
+						System.out.println(String.format(wasSet ? "\nBreakpoint at $%04X deleted.\n" : "\nNo breakpoint is set at $%04X.\n", address & 0xffff));
+					}
+					
+					//with nothing left to stop at, run goes back to the unchecked loop
+					emulator.setBreakpoints(breakpoints.isEmpty() ? null : breakpoints);
+				}
+				catch(NumberFormatException ex)
+				{
+					System.out.println("\nUsage : BD or BDELETE [address | ALL]\n");
+				}
+			}
+			else if(option.equals("BL") || option.equals("BLIST")) //handle list breakpoints command
+			{
+				String list = "\n*****Breakpoints*****\n\n";
+				
+				for(Breakpoints.KIND kind : Breakpoints.KIND.values())
+				{
+					for(int address : breakpoints.getAddresses(kind))
+					{
+						String source = listing == null ? null : listing.getSource(address);
+						Object condition = kind == Breakpoints.KIND.EXECUTE ? breakpoints.getCondition(address) : null;
+						list += String.format("%-8s $%04X  %6d hits%s%s\n", kind.name(), address, breakpoints.getHitCount(kind, address),
+								condition == null ? "" : "  if " + condition, source == null ? "" : "  " + listing.getLabel(address) + ": " + source);
+					}
+				}
+				
+				System.out.println(breakpoints.isEmpty() ? "\nNo breakpoints or watchpoints are set.\n" : list);
+			}
+			else if(option.startsWith("WP ") || option.startsWith("WATCH ")) //handle watchpoint command
+			{
+				String[] words = option.trim().split("\\s+");
+				
+				try
+				{
+					if(words.length == 3 && (words[2].equals("R") || words[2].equals("W") || words[2].equals("RW") || words[2].equals("OFF")))
+					{
+						int address = Integer.decode(words[1].replace("$", "0x"));
+						
+						if(words[2].equals("OFF"))
+						{
+							breakpoints.removeWatchpoint(address);
+							System.out.println(String.format("\nWatchpoint at $%04X deleted.\n", address & 0xffff));
+						}
+						else
+						{
+							breakpoints.setWatchpoint(address, words[2].contains("R"), words[2].contains("W"));
+							System.out.println(String.format("\nWatching $%04X.\n", address & 0xffff));
+						}
+						
+						emulator.setBreakpoints(breakpoints.isEmpty() ? null : breakpoints);
+					}
+					else
+					{
+						System.out.println("\nUsage : WP or WATCH [address R | W | RW | OFF]\n");
+					}
+				}
+				catch(NumberFormatException ex)
+				{
+					System.out.println("\nUsage : WP or WATCH [address R | W | RW | OFF]\n");
+				}
+			}
+			else if(option.startsWith("WE ") || option.startsWith("WATCHEXPR ")) //handle watch expression command
+			{
+				String expression = option.substring(option.indexOf(" ") + 1).trim();
+				
+				if(expression.equals("CLEAR"))
+				{
+					watchExpressions.clear();
+					System.out.println("\nWatch expressions cleared.\n");
+				}
+				else
+				{
+					//shown with the registers from now on
+					try
+					{
+						CompiledExpression watch = ExpressionCompiler.compile(expression);
+						
+						watchExpressions.add(watch);
+						System.out.println("\nWatching " + watch.getText() + " = " + FormatWatchValue(watch.evaluate(emulator)) + ".\n");
+					}
+					catch(Exception ex)
+					{
+						System.out.println("\n" + ex.getMessage() + ". Watch not added.\n");
+					}
+				}
+			}
+			else if(option.startsWith("MX ") || option.startsWith("METRICS ")) //handle metrics command
+			{
+				String[] words = option.trim().split("\\s+");
+				String action = words.length > 1 ? words[1] : "";
+				
+				try
+				{
+					if(action.equals("ON") && words.length <= 3)
+					{
+						int port = words.length > 2 ? Integer.parseInt(words[2]) : EmulatorMonitor.DEFAULT_PORT;
+						
+						if(monitor == null)
+						{
+							EmulatorMetrics metrics = new EmulatorMetrics();
+							EmulatorMonitor starting = new EmulatorMonitor(emulator, metrics);
+							
+							//a monitor that fails to start must not stay attached
+							try
+							{
+								starting.start(port);
+							}
+							catch(Exception ex)
+							{
+								starting.close();
+								throw ex;
+							}
+							monitor = starting;
+							emulator.setMetrics(metrics);
+						}
+						System.out.println("\nMetrics are on, MBean " + EmulatorMonitor.OBJECT_NAME
+								+ ", Prometheus text at http://127.0.0.1:" + monitor.getPort() + "/metrics.\n");
+					}
+					else if(action.equals("OFF"))
+					{
+						emulator.setMetrics(null);
+						if(monitor != null)
+						{
+							//stop publishing the state the monitor attached as well
+							EmulatorMonitor closing = monitor;
+							monitor = null;
+							closing.close();
+						}
+						System.out.println("\nMetrics are off.\n");
+					}
+					else if(action.equals("SHOW") && monitor != null)
+					{
+						System.out.println("\n" + monitor.getPrometheusText());
+						WaitKeyContinue(userInput);
+					}
+					else if(action.equals("SHOW"))
+					{
+						System.out.println("\nMetrics have not been switched on.\n");
+					}
+					else
+					{
+						System.out.println("\nUsage : MX or METRICS [ON [port] | OFF | SHOW]\n");
+					}
+				}
+				catch(NumberFormatException ex)
+				{
+					System.out.println("\nUsage : MX or METRICS [ON [port] | OFF | SHOW]\n");
+				}
+				catch(Exception ex)
+				{
+					emulator.setMetrics(null);
+					monitor = null;
+					System.out.println("\n" + ex.getMessage() + ". Metrics failed.\n");
+				}
+			}
+			else if(option.startsWith("CL ") || option.startsWith("CLOCK ")) //handle bus clock command
+			{
+				String value = option.substring(option.indexOf(" ") + 1).trim();
+				
+				//runs are paced to the bus clock so programs take as long as on the board
+				try
+				{
+					if(value.equals("OFF"))
+					{
+						clock = null;
+						System.out.println("\nRuns are no longer paced to a bus clock.\n");
+					}
+					else
+					{
+						double megahertz = Double.parseDouble(value);
+						clock = new Throttle(Math.round(megahertz * 1000000));
+						System.out.println(String.format("\nRuns are paced to a %.3f MHz bus clock.\n", megahertz));
+					}
+				}
+				catch(NumberFormatException ex)
+				{
+					System.out.println("\nUsage : CL or CLOCK [MHz | OFF]\n");
+				}
+				catch(IllegalArgumentException ex)
+				{
+					System.out.println("\n" + ex.getMessage() + ". Clock failed.\n");
+				}
+			}
+			else if(option.startsWith("TM ") || option.startsWith("TIMER ")) //handle timer command
+			{
+				String value = option.substring(option.indexOf(" ") + 1).trim();
+				
+				//the timer overflows every so many cycles and interrupts through its vector in ROM
+				try
+				{
+					if(timer != null)
+					{
+						timer.detach();
+						timer = null;
+					}
+					
+					if(value.equals("OFF"))
+					{
+						System.out.println("\nTimer is off.\n");
+					}
+					else
+					{
+						timer = new PeriodicTimer(Long.parseLong(value));
+						timer.attach(emulator);
+						System.out.println(String.format("\nTimer overflows every %d cycles, interrupting through $%04X.\n", timer.getPeriodCycles(), PeriodicTimer.TIMER_OVERFLOW_VECTOR));
+						
+						//an image without a handler never sees the interrupts
+						if(emulator.isVectorBlank(PeriodicTimer.TIMER_OVERFLOW_VECTOR))
+						{
+							System.out.println(String.format("The image leaves $%04X blank, so overflows are counted but not taken.\n", PeriodicTimer.TIMER_OVERFLOW_VECTOR));
+						}
+					}
+				}
+				catch(NumberFormatException ex)
+				{
+					System.out.println("\nUsage : TM or TIMER [cycles | OFF]\n");
+				}
+				catch(IllegalArgumentException ex)
+				{
+					timer = null;
+					System.out.println("\n" + ex.getMessage() + ". Timer failed.\n");
+				}
+			}
+			else if(option.equals("Q") || option.equals("QUIT")) //handle quit emulator command
+			{
+				//finish writing any trace so the file is complete
+				if(traceRecorder != null)
+				{
+					try
+					{
+						emulator.removeInstructionListener(traceRecorder);
+						traceRecorder.close();
+					}
+					catch(Exception ex)
+					{
+						System.out.println("\n" + ex.getMessage() + ". Trace failed.\n");
+					}
+				}
+				
+				//the metrics endpoint runs on its own thread, so close it to let the JVM exit
+				if(monitor != null)
+				{
+					try
+					{
+						monitor.stop();
+					}
+					catch(Exception ex)
+					{
+						System.out.println("\n" + ex.getMessage() + ". Metrics failed.\n");
+					}
+				}
+				
+				//set quit flag and display closing message
+				quit = true;
+				System.out.println("\n6808 Emulator shutting down. Goodbye!\n");
+			}
+			else //invalid command entered
+			{
+				System.out.println("\nCommand entered is not supported.\n");
+			}
+		}
+	}
+	
+	
+	/*
+	 * Method Name: DisplayMainMenu
+	 * Description: This method constructs the string to display the main menu in a readable fashion.
+	 * Parameters: No parameters.
+	 * Return: Returns a string constructed of the available commands.
+	 */
+	private String DisplayMainMenu()
+	{
+		String mainMenu = "";
+		
+		//build the main menu, displaying the available commands
+		mainMenu = "*****6808 Emulator*****\n\n";
+		mainMenu += "L or LOAD ImageFileName\n";
+		mainMenu += "LB or LOADBIN address/TOP BinaryFileName\n";
+		mainMenu += "S or STEP\n";
+		mainMenu += "G or GO [instructions]\n";
+		mainMenu += "B or BREAK address [IF condition]\n";
+		mainMenu += "BD or BDELETE address/ALL\n";
+		mainMenu += "BL or BLIST\n";
+		mainMenu += "WP or WATCH address R/W/RW/OFF\n";
+		mainMenu += "WE or WATCHEXPR expression/CLEAR\n";
+		mainMenu += "RS or RSTEP\n";
+		mainMenu += "RC or RCONTINUE [address]\n";
+		mainMenu += "SW or SWITCH number ON/OFF\n";
+		mainMenu += "I or INPUT SAVE filename/REPLAY filename [instructions]\n";
+		mainMenu += "R or RESET\n";
+		mainMenu += "A or ALTER register=value\n";
+		mainMenu += "D or DUMP\n";
+		mainMenu += "M or MEMORY address\n";
+		mainMenu += "E or EXPORT filename start end\n";
+		mainMenu += "SV or SAVE filename\n";
+		mainMenu += "RT or RESTORE filename\n";
+		mainMenu += "P or PROFILE ON/OFF/RESET/REPORT/EXPORT filename\n";
+		mainMenu += "SP or SAMPLE ON/OFF/REPORT/EXPORT filename\n";
+		mainMenu += "CV or COVERAGE ON/OFF/RESET/REPORT/SAVE filename/MERGE filename/LCOV filename\n";
+		mainMenu += "LS or LISTING filename\n";
+		mainMenu += "T or TRACE ON filename/OFF\n";
+		mainMenu += "W or WHO address\n";
+		mainMenu += "F or FIND A value/address ABOVE value\n";
+		mainMenu += "MX or METRICS ON [port]/OFF/SHOW\n";
+		mainMenu += "CL or CLOCK MHz/OFF\n";
+		mainMenu += "TM or TIMER cycles/OFF\n";
+		mainMenu += "Q or QUIT\n\n";
+		
+		return mainMenu;
+	}
+	
+	
+	/*
+	 * Method Name: FormatWatchValue
+	 * Description: This method formats the value of a watch expression in decimal and hex.
+	 * Parameters: int value = the value of the expression
+	 * Return: Returns the formatted value.
+	 */
+	private String FormatWatchValue(int value)
+	{
+		return String.format("%d (0x%X)", value, value);
+	}
+	
+	
+	/*
+	 * Method Name: DescribeBreakpointHit
+	 * Description: This method describes the breakpoint or watchpoint the last run stopped at.
+	 * Parameters: No parameters.
+	 * Return: Returns a string describing the hit.
+	 */
+	private String DescribeBreakpointHit()
+	{
+		int address = breakpoints.getHitAddress();
+		long hits = breakpoints.getHitCount(breakpoints.getHitKind(), address);
+		
+		if(breakpoints.getHitKind() == Breakpoints.KIND.EXECUTE)
+		{
+			return String.format("Stopped at breakpoint $%04X, hit %d times.\n", address, hits);
+		}
+		
+		return String.format("Stopped after a %s of watched address $%04X, PC is now $%04X, hit %d times.\n",
+				breakpoints.getHitKind() == Breakpoints.KIND.READ ? "read" : "write", address, emulator.getCpu().getPC() & 0xffff, hits);
+	}
+	
+	
+	/*
+	 * Method Name: DisplayCPURegisters
+	 * Description: This method constructs the string of current CPU register values in a readable fashion.
+	 * Parameters: No parameters.
+	 * Return: Returns a string constructed of the CPU registers.
+	 */
+	private String DisplayCPURegisters()
+	{
+		String registers = "";
+		cpu = emulator.getCpu();
+		
+		//display current CPU register values
+		registers = "\n*****6808 CPU Registers*****\n\n";
+		registers += String.format("Accumulator: 0x%04X\n", cpu.getA());
+		registers += String.format("Program Counter: 0x%04X\n", cpu.getPC());
+		registers += String.format("Stack Pointer: 0x%04X\n", cpu.getSP());
+		registers += String.format("Index Register Low: 0x%02X\n", cpu.getX());
+		registers += String.format("Index Register High: 0x%02X\n", cpu.getH());
+		registers += String.format("Cycle Count: %d\n\n", cpu.getCycleCount());
+		
+		//display current CCR flag values
+		registers += String.format("CCR Value: 0x%02X\n", cpu.getCCR());
+		registers += String.format("Carry Flag: %s\n", CCRFlagValue(cpu.isCCRBit(CCR_BIT.CARRY)));
+		registers += String.format("Zero Flag: %s\n", CCRFlagValue(cpu.isCCRBit(CCR_BIT.ZERO)));
+		registers += String.format("Negative Flag: %s\n", CCRFlagValue(cpu.isCCRBit(CCR_BIT.NEGATIVE)));
+		registers += String.format("Interrupt Flag: %s\n", CCRFlagValue(cpu.isCCRBit(CCR_BIT.INTERRUPT)));
+		registers += String.format("Half-Carry Flag: %s\n", CCRFlagValue(cpu.isCCRBit(CCR_BIT.HALF)));
+		registers += String.format("Overflow Flag: %s\n", CCRFlagValue(cpu.isCCRBit(CCR_BIT.OVERFLOW)));
+		
+		//display current watch expression values
+		if(!watchExpressions.isEmpty())
+		{
+			registers += "\n";
+		}
+		
+		for(CompiledExpression watch : watchExpressions)
+		{
+			registers += String.format("%s: %s\n", watch.getText(), FormatWatchValue(watch.evaluate(emulator)));
+		}
 		
 		return registers;
 	}
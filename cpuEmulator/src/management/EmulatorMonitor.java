@@ -0,0 +1,749 @@
+/*
+ * Filename:		EmulatorMonitor.java
+ * Package:			management
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the EmulatorMonitor class
+ */
+
+
+
+package management;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.management.MBeanNotificationInfo;
+import javax.management.MBeanServer;
+import javax.management.Notification;
+import javax.management.NotificationBroadcasterSupport;
+import javax.management.ObjectName;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import emulator.EmulatorMetrics;
+import emulator.EmulatorMetrics.EVENT;
+import emulator.EmulatorMetrics.REGION;
+import emulator.Freescale6808Emulator;
+import emulator.MetricsListener;
+import emulator.ObservedState;
+import emulator.RegisterSet;
+
+
+
+/*
+ * Class Name:		EmulatorMonitor
+ * Description:		Publishes an emulator's EmulatorMetrics while it runs.  A background thread samples the
+ * 					totals once a second to work out instructions, memory accesses per region and faults per
+ * 					second.  Everything is exposed as a JMX MBean on the platform MBean server, for jconsole
+ * 					and the like, and as Prometheus text from a small HTTP endpoint on the loopback address.
+ *
+ * 					Image loads, resets, faults, breakpoint hits and completed batches are sent as JMX
+ * 					notifications of type "padA2.emulator." followed by the event name, with the duration in
+ * 					nanoseconds as user data.  They are delivered from a thread of their own, so a slow
+ * 					listener never holds up the emulator.
+ *
+ * 					The registers and instruction count are read from the emulator's ObservedState, which
+ * 					the monitor attaches if there is none, so they are consistent however fast it runs.
+ */
+public class EmulatorMonitor extends NotificationBroadcasterSupport implements EmulatorMonitorMBean, MetricsListener
+{
+
+	public final static String OBJECT_NAME = "padA2:type=Emulator";
+	public final static String NOTIFICATION_PREFIX = "padA2.emulator.";
+	public final static int DEFAULT_PORT = 9808;
+
+	private final static long SAMPLE_PERIOD_NANOS = 1000000000L;
+
+	private final Freescale6808Emulator emulator;
+	private final EmulatorMetrics metrics;
+	private final ObservedState state;
+	private final boolean isStateAttached;
+	private final AtomicLong sequence;
+	private ObjectName objectName;
+	private HttpServer server;
+	private Thread sampler;
+	private volatile boolean isRunning;
+	private volatile double instructionsPerSecond;
+	private volatile double faultsPerSecond;
+	private volatile double[] accessesPerSecond;
+
+
+
+
+
+
+	/*
+	 * Method Name:		EmulatorMonitor
+	 * Description:		Constructor, attaches the metrics to the emulator as their listener, and an
+	 * 					ObservedState to the emulator if it has none
+	 * Parameters:		Freescale6808Emulator emulator: The emulator
+	 * 					EmulatorMetrics metrics: The metrics attached to it
+	 * Return:			None
+	 */
+	public EmulatorMonitor(Freescale6808Emulator emulator, EmulatorMetrics metrics)
+	{
+		super(createNotifier(), describeNotifications());
+
+		this.emulator = emulator;
+		this.metrics = metrics;
+		this.sequence = new AtomicLong();
+		this.accessesPerSecond = new double[REGION.values().length];
+		this.isRunning = false;
+		metrics.setListener(this);
+
+		this.isStateAttached = emulator.getObservedState() == null;
+
+		if (isStateAttached)
+		{
+			emulator.setObservedState(new ObservedState());
+		}
+
+		this.state = emulator.getObservedState();
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		createNotifier
+	 * Description:		Makes the daemon thread notifications are delivered from
+	 * Parameters:		None
+	 * Return:			The Executor
+	 */
+	private static Executor createNotifier()
+	{
+		return Executors.newSingleThreadExecutor(new ThreadFactory()
+		{
+			public Thread newThread(Runnable task)
+			{
+				Thread thread = new Thread(task, "6808 monitor notifications");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		describeNotifications
+	 * Description:		Lists the notification types the monitor sends
+	 * Parameters:		None
+	 * Return:			The notification info
+	 */
+	private static MBeanNotificationInfo describeNotifications()
+	{
+		String[] types = new String[EVENT.values().length];
+
+		for (EVENT event : EVENT.values())
+		{
+			types[event.ordinal()] = NOTIFICATION_PREFIX + event.name().toLowerCase();
+		}
+
+		return new MBeanNotificationInfo(types, Notification.class.getName(), "Emulator events");
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		start
+	 * Description:		Registers the MBean, starts sampling and serves Prometheus text at /metrics
+	 * Parameters:		int port: The loopback port to serve on, 0 for any free port or -1 for no endpoint
+	 * Return:			None
+	 */
+	public synchronized void start(int port) throws Exception
+	{
+		if (isRunning)
+		{
+			return;
+		}
+
+		MBeanServer beans = ManagementFactory.getPlatformMBeanServer();
+		objectName = new ObjectName(OBJECT_NAME);
+
+		if (beans.isRegistered(objectName))
+		{
+			beans.unregisterMBean(objectName);
+		}
+
+		beans.registerMBean(this, objectName);
+
+		if (port >= 0)
+		{
+			try
+			{
+				server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+			}
+			catch (IOException ex)
+			{
+				beans.unregisterMBean(objectName);
+				throw ex;
+			}
+
+			server.createContext("/metrics", new HttpHandler()
+			{
+				public void handle(HttpExchange exchange) throws IOException
+				{
+					byte[] body = getPrometheusText().getBytes("UTF-8");
+					exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+					exchange.sendResponseHeaders(200, body.length);
+					OutputStream out = exchange.getResponseBody();
+					out.write(body);
+					out.close();
+				}
+			});
+			server.start();
+		}
+
+		isRunning = true;
+		sampler = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				sample();
+			}
+		}, "6808 monitor");
+		sampler.setDaemon(true);
+		sampler.start();
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		stop
+	 * Description:		Stops sampling, closes the endpoint and unregisters the MBean
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public synchronized void stop() throws Exception
+	{
+		if (!isRunning)
+		{
+			return;
+		}
+
+		isRunning = false;
+		LockSupport.unpark(sampler);
+		sampler.join();
+		sampler = null;
+
+		if (server != null)
+		{
+			server.stop(0);
+			server = null;
+		}
+
+		MBeanServer beans = ManagementFactory.getPlatformMBeanServer();
+
+		if (beans.isRegistered(objectName))
+		{
+			beans.unregisterMBean(objectName);
+		}
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		close
+	 * Description:		Stops the monitor if it is running and detaches it from the emulator and metrics,
+	 * 					along with the ObservedState if the constructor attached it, so the emulator stops
+	 * 					publishing.  Used when metrics are switched off or fail to start
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public synchronized void close() throws Exception
+	{
+		try
+		{
+			stop();
+		}
+		finally
+		{
+			metrics.setListener(null);
+
+			if (isStateAttached && emulator.getObservedState() == state)
+			{
+				emulator.setObservedState(null);
+			}
+		}
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		getPort
+	 * Description:		Gets the port the Prometheus endpoint is listening on
+	 * Parameters:		None
+	 * Return:			The port, or -1 if there is no endpoint
+	 */
+	public synchronized int getPort()
+	{
+		return server == null ? -1 : server.getAddress().getPort();
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		sample
+	 * Description:		The sampler thread loop, turning the change in each total over a period into a rate
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	private void sample()
+	{
+		REGION[] regions = REGION.values();
+		long[] lastAccesses = new long[regions.length];
+		long lastInstructions = state.read().getInstructionCount();
+		long lastFaults = metrics.getEventCount(EVENT.FAULT);
+		long lastTime = System.nanoTime();
+		long deadline = lastTime;
+
+		for (REGION region : regions)
+		{
+			lastAccesses[region.ordinal()] = metrics.getReads(region) + metrics.getWrites(region);
+		}
+
+		while (isRunning)
+		{
+			deadline += SAMPLE_PERIOD_NANOS;
+			long wait;
+
+			while ((wait = deadline - System.nanoTime()) > 0 && isRunning)
+			{
+				LockSupport.parkNanos(this, wait);
+			}
+
+			long now = System.nanoTime();
+			double seconds = (now - lastTime) / 1e9;
+			long instructions = state.read().getInstructionCount();
+			long faults = metrics.getEventCount(EVENT.FAULT);
+			double[] accesses = new double[regions.length];
+
+			for (REGION region : regions)
+			{
+				long total = metrics.getReads(region) + metrics.getWrites(region);
+				accesses[region.ordinal()] = (total - lastAccesses[region.ordinal()]) / seconds;
+				lastAccesses[region.ordinal()] = total;
+			}
+
+			// the instruction count goes back to zero on a reset and back in time on a reverse step
+			instructionsPerSecond = Math.max(0, instructions - lastInstructions) / seconds;
+			faultsPerSecond = (faults - lastFaults) / seconds;
+			accessesPerSecond = accesses;
+			lastInstructions = instructions;
+			lastFaults = faults;
+			lastTime = now;
+		}
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		eventRecorded
+	 * Description:		Sends an event from the metrics as a JMX notification
+	 * Parameters:		EVENT event: The kind of event
+	 * 					long durationNanos: How long it took, or 0
+	 * 					String detail: A short description
+	 * Return:			None
+	 */
+	public void eventRecorded(EVENT event, long durationNanos, String detail)
+	{
+		if (isRunning)
+		{
+			Notification notification = new Notification(NOTIFICATION_PREFIX + event.name().toLowerCase(), this,
+					sequence.incrementAndGet(), System.currentTimeMillis(), detail);
+			notification.setUserData(Long.valueOf(durationNanos));
+			sendNotification(notification);
+		}
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		getPrometheusText
+	 * Description:		Formats every metric in the Prometheus text exposition format
+	 * Parameters:		None
+	 * Return:			The metrics as a string
+	 */
+	public String getPrometheusText()
+	{
+		StringBuilder text = new StringBuilder();
+		double[] accesses = accessesPerSecond;
+
+		appendMetric(text, "emulator_instructions_total", "counter", "Instructions executed since the last reset", getInstructionCount());
+		appendMetric(text, "emulator_instructions_per_second", "gauge", "Instructions executed per second", instructionsPerSecond);
+		appendMetric(text, "emulator_program_counter", "gauge", "Program counter at the end of the last batch", getProgramCounter());
+
+		text.append("# HELP emulator_memory_reads_total Memory reads by region\n");
+		text.append("# TYPE emulator_memory_reads_total counter\n");
+
+		for (REGION region : REGION.values())
+		{
+			text.append("emulator_memory_reads_total{region=\"").append(region.name().toLowerCase()).append("\"} ")
+					.append(metrics.getReads(region)).append('\n');
+		}
+
+		text.append("# HELP emulator_memory_writes_total Memory writes by region\n");
+		text.append("# TYPE emulator_memory_writes_total counter\n");
+
+		for (REGION region : REGION.values())
+		{
+			text.append("emulator_memory_writes_total{region=\"").append(region.name().toLowerCase()).append("\"} ")
+					.append(metrics.getWrites(region)).append('\n');
+		}
+
+		text.append("# HELP emulator_memory_accesses_per_second Memory reads and writes per second by region\n");
+		text.append("# TYPE emulator_memory_accesses_per_second gauge\n");
+
+		for (REGION region : REGION.values())
+		{
+			text.append("emulator_memory_accesses_per_second{region=\"").append(region.name().toLowerCase()).append("\"} ")
+					.append(accesses[region.ordinal()]).append('\n');
+		}
+
+		appendMetric(text, "emulator_faults_total", "counter", "Instructions that failed", getFaultCount());
+		appendMetric(text, "emulator_faults_per_second", "gauge", "Instructions that failed per second", faultsPerSecond);
+		appendMetric(text, "emulator_resets_total", "counter", "Emulator resets", getResetCount());
+		appendMetric(text, "emulator_image_loads_total", "counter", "Program images loaded", getImageLoadCount());
+		appendMetric(text, "emulator_image_parse_seconds", "gauge", "Parse time of the last image", metrics.getLastParseNanos() / 1e9);
+		appendMetric(text, "emulator_image_copy_seconds", "gauge", "Copy time of the last image", metrics.getLastCopyNanos() / 1e9);
+		appendMetric(text, "emulator_breakpoint_hits_total", "counter", "Stops at breakpoints and watchpoints", getBreakpointHitCount());
+		appendMetric(text, "emulator_batches_total", "counter", "Run batches completed", getBatchCount());
+		appendMetric(text, "emulator_batch_instructions_per_second", "gauge", "Execution rate of the last run batch",
+				getLastBatchInstructionsPerSecond());
+
+		return text.toString();
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		appendMetric
+	 * Description:		Appends one unlabelled metric with its help and type lines
+	 * Parameters:		StringBuilder text: The text to append to
+	 * 					String name: The metric name
+	 * 					String type: The Prometheus type
+	 * 					String help: The help text
+	 * 					Number value: The value
+	 * Return:			None
+	 */
+	private static void appendMetric(StringBuilder text, String name, String type, String help, Number value)
+	{
+		text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+		text.append(name).append(' ').append(value).append('\n');
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		getInstructionCount
+	 * Description:		Gets the emulator's instruction count since its last reset, as last published
+	 * Parameters:		None
+	 * Return:			The instruction count as a long
+	 */
+	public long getInstructionCount()
+	{
+		return state.read().getInstructionCount();
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		getInstructionsPerSecond
+	 * Description:		Gets the rate instructions were executed at
+	 * Parameters:		None
+	 * Return:			The rate as a double
+	 */
+	public double getInstructionsPerSecond()
+	{
+		return instructionsPerSecond;
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		getRamAccessesPerSecond
+	 * Description:		Gets the rate RAM was read and written at
+	 * Parameters:		None
+	 * Return:			The rate as a double
+	 */
+	public double getRamAccessesPerSecond()
+	{
+		return accessesPerSecond[REGION.RAM.ordinal()];
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		getRomAccessesPerSecond
+	 * Description:		Gets the rate ROM was read and written at
+	 * Parameters:		None
+	 * Return:			The rate as a double
+	 */
+	public double getRomAccessesPerSecond()
+	{
+		return accessesPerSecond[REGION.ROM.ordinal()];
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		getHardwareAccessesPerSecond
+	 * Description:		Gets the rate the hardware registers were read and written at
+	 * Parameters:		None
+	 * Return:			The rate as a double
+	 */
+	public double getHardwareAccessesPerSecond()
+	{
+		return accessesPerSecond[REGION.HARDWARE.ordinal()];
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		getFaultsPerSecond
+	 * Description:		Gets the rate instructions failed at
+	 * Parameters:		None
+	 * Return:			The rate as a double
+	 */
+	public double getFaultsPerSecond()
+	{
+		return faultsPerSecond;
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		getFaultCount
+	 * Description:		Gets the number of instructions that failed
+	 * Parameters:		None
+	 * Return:			The count as a long
+	 */
+	public long getFaultCount()
+	{
+		return metrics.getEventCount(EVENT.FAULT);
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		getLastFault
+	 * Description:		Gets a description of the last instruction that failed
+	 * Parameters:		None
+	 * Return:			The description, or null if nothing has failed
+	 */
+	public String getLastFault()
+	{
+		return metrics.getLastFault();
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		getResetCount
+	 * Description:		Gets the number of resets
+	 * Parameters:		None
+	 * Return:			The count as a long
+	 */
+	public long getResetCount()
+	{
+		return metrics.getEventCount(EVENT.RESET);
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		getImageLoadCount
+	 * Description:		Gets the number of images loaded
+	 * Parameters:		None
+	 * Return:			The count as a long
+	 */
+	public long getImageLoadCount()
+	{
+		return metrics.getEventCount(EVENT.IMAGE_LOAD);
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		getLastImageParseMillis
+	 * Description:		Gets how long the last image took to parse
+	 * Parameters:		None
+	 * Return:			The time in milliseconds
+	 */
+	public double getLastImageParseMillis()
+	{
+		return metrics.getLastParseNanos() / 1e6;
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		getLastImageCopyMillis
+	 * Description:		Gets how long the last image took to copy into memory
+	 * Parameters:		None
+	 * Return:			The time in milliseconds
+	 */
+	public double getLastImageCopyMillis()
+	{
+		return metrics.getLastCopyNanos() / 1e6;
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		getBreakpointHitCount
+	 * Description:		Gets the number of times execution stopped at a breakpoint or watchpoint
+	 * Parameters:		None
+	 * Return:			The count as a long
+	 */
+	public long getBreakpointHitCount()
+	{
+		return metrics.getEventCount(EVENT.BREAKPOINT);
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		getBatchCount
+	 * Description:		Gets the number of run batches completed
+	 * Parameters:		None
+	 * Return:			The count as a long
+	 */
+	public long getBatchCount()
+	{
+		return metrics.getEventCount(EVENT.BATCH);
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		getLastBatchInstructionsPerSecond
+	 * Description:		Gets the rate the last run batch executed at
+	 * Parameters:		None
+	 * Return:			The rate as a double, 0 if no batch has run
+	 */
+	public double getLastBatchInstructionsPerSecond()
+	{
+		long nanos = metrics.getLastBatchNanos();
+		return nanos == 0 ? 0 : metrics.getLastBatchInstructions() * 1e9 / nanos;
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		getProgramCounter
+	 * Description:		Gets the program counter last published by the emulator
+	 * Parameters:		None
+	 * Return:			The PC as an int
+	 */
+	public int getProgramCounter()
+	{
+		return state.read().getPC() & 0xffff;
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		getRegisters
+	 * Description:		Gets the registers last published by the emulator, all from the same point
+	 * Parameters:		None
+	 * Return:			The registers and instruction count as a string
+	 */
+	public String getRegisters()
+	{
+		RegisterSet registers = state.read();
+		return registers + " after " + registers.getInstructionCount() + " instructions";
+	}
+}
@@ -0,0 +1,190 @@
+/*
+ * Filename:		EmulatorMonitorMBean.java
+ * Package:			management
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the EmulatorMonitorMBean interface
+ */
+
+
+
+package management;
+
+
+
+/*
+ * Interface Name:	EmulatorMonitorMBean
+ * Description:		The JMX management interface of EmulatorMonitor.  Totals are since the metrics were
+ * 					attached; rates are over the monitor's last sampling period.
+ */
+public interface EmulatorMonitorMBean
+{
+
+	/*
+	 * Method Name:		getInstructionCount
+	 * Description:		Gets the emulator's instruction count since its last reset
+	 * Parameters:		None
+	 * Return:			The instruction count as a long
+	 */
+	long getInstructionCount();
+
+
+
+	/*
+	 * Method Name:		getInstructionsPerSecond
+	 * Description:		Gets the rate instructions were executed at
+	 * Parameters:		None
+	 * Return:			The rate as a double
+	 */
+	double getInstructionsPerSecond();
+
+
+
+	/*
+	 * Method Name:		getRamAccessesPerSecond
+	 * Description:		Gets the rate RAM was read and written at
+	 * Parameters:		None
+	 * Return:			The rate as a double
+	 */
+	double getRamAccessesPerSecond();
+
+
+
+	/*
+	 * Method Name:		getRomAccessesPerSecond
+	 * Description:		Gets the rate ROM was read and written at
+	 * Parameters:		None
+	 * Return:			The rate as a double
+	 */
+	double getRomAccessesPerSecond();
+
+
+
+	/*
+	 * Method Name:		getHardwareAccessesPerSecond
+	 * Description:		Gets the rate the hardware registers were read and written at
+	 * Parameters:		None
+	 * Return:			The rate as a double
+	 */
+	double getHardwareAccessesPerSecond();
+
+
+
+	/*
+	 * Method Name:		getFaultsPerSecond
+	 * Description:		Gets the rate instructions failed at
+	 * Parameters:		None
+	 * Return:			The rate as a double
+	 */
+	double getFaultsPerSecond();
+
+
+
+	/*
+	 * Method Name:		getFaultCount
+	 * Description:		Gets the number of instructions that failed
+	 * Parameters:		None
+	 * Return:			The count as a long
+	 */
+	long getFaultCount();
+
+
+
+	/*
+	 * Method Name:		getLastFault
+	 * Description:		Gets a description of the last instruction that failed
+	 * Parameters:		None
+	 * Return:			The description, or null if nothing has failed
+	 */
+	String getLastFault();
+
+
+
+	/*
+	 * Method Name:		getResetCount
+	 * Description:		Gets the number of resets
+	 * Parameters:		None
+	 * Return:			The count as a long
+	 */
+	long getResetCount();
+
+
+
+	/*
+	 * Method Name:		getImageLoadCount
+	 * Description:		Gets the number of images loaded
+	 * Parameters:		None
+	 * Return:			The count as a long
+	 */
+	long getImageLoadCount();
+
+
+
+	/*
+	 * Method Name:		getLastImageParseMillis
+	 * Description:		Gets how long the last image took to parse
+	 * Parameters:		None
+	 * Return:			The time in milliseconds
+	 */
+	double getLastImageParseMillis();
+
+
+
+	/*
+	 * Method Name:		getLastImageCopyMillis
+	 * Description:		Gets how long the last image took to copy into memory
+	 * Parameters:		None
+	 * Return:			The time in milliseconds
+	 */
+	double getLastImageCopyMillis();
+
+
+
+	/*
+	 * Method Name:		getBreakpointHitCount
+	 * Description:		Gets the number of times execution stopped at a breakpoint or watchpoint
+	 * Parameters:		None
+	 * Return:			The count as a long
+	 */
+	long getBreakpointHitCount();
+
+
+
+	/*
+	 * Method Name:		getBatchCount
+	 * Description:		Gets the number of run batches completed
+	 * Parameters:		None
+	 * Return:			The count as a long
+	 */
+	long getBatchCount();
+
+
+
+	/*
+	 * Method Name:		getLastBatchInstructionsPerSecond
+	 * Description:		Gets the rate the last run batch executed at
+	 * Parameters:		None
+	 * Return:			The rate as a double, 0 if no batch has run
+	 */
+	double getLastBatchInstructionsPerSecond();
+
+
+
+	/*
+	 * Method Name:		getProgramCounter
+	 * Description:		Gets the program counter last published by the emulator
+	 * Parameters:		None
+	 * Return:			The PC as an int
+	 */
+	int getProgramCounter();
+
+
+
+	/*
+	 * Method Name:		getRegisters
+	 * Description:		Gets the registers last published by the emulator, all from the same point
+	 * Parameters:		None
+	 * Return:			The registers and instruction count as a string
+	 */
+	String getRegisters();
+}
@@ -0,0 +1,178 @@
+/*
+ * Filename:		ParallelReplay.java
+ * Package:			trace
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the ParallelReplay class
+ */
+
+
+
+package trace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import utilities.LoadedImage;
+import emulator.Checkpoint;
+import emulator.Freescale6808Emulator;
+import emulator.InputLog;
+
+
+
+/*
+ * Class Name:		ParallelReplay
+ * Description:		Answers a ReplayQuery about a recorded run by replaying it in segments on a pool of
+ * 					threads.  The run is split at its checkpoints; each segment is replayed on its own
+ * 					emulator from its own checkpoint to the next, with its own copy of the input log, so the
+ * 					segments share nothing and the replay of each is identical to the original run.  The
+ * 					segment results are merged in run order as they complete.
+ *
+ * 					A run recorded with TimeTravel has everything needed: its checkpoints, its input log and
+ * 					the image it was run with.  Segments run without timed devices, so a run whose checkpoints
+ * 					were taken with timers running is refused rather than replayed differently.
+ */
+public class ParallelReplay {
+
+	private final LoadedImage image;
+	private final List<Checkpoint> checkpoints;
+	private final InputLog inputLog;
+	private final long end;
+
+
+
+	/*
+	 * Method Name:		ParallelReplay
+	 * Description:		Constructor
+	 * Parameters:		LoadedImage image: The image the run was recorded with
+	 * 					List<Checkpoint> checkpoints: Checkpoints of the run, oldest first
+	 * 					InputLog inputLog: The inputs made during the run
+	 * 					long end: The instruction count the run ends at
+	 * Return:			None
+	 */
+	public ParallelReplay(LoadedImage image, List<Checkpoint> checkpoints, InputLog inputLog, long end) {
+		this.image = image;
+		this.checkpoints = new ArrayList<Checkpoint>(checkpoints);
+		this.inputLog = inputLog.copy();
+		this.end = end;
+	}
+
+
+
+	/*
+	 * Method Name:		run
+	 * Description:		Replays every segment and merges the answers
+	 * Parameters:		ReplayQuery<R> query: The question
+	 * 					int threads: The number of segments to replay at once
+	 * Return:			The merged result
+	 */
+	public <R> R run(final ReplayQuery<R> query, int threads) throws Exception {
+		for (Checkpoint checkpoint : checkpoints) {
+			if (checkpoint.isTimed()) {
+				throw new Exception("The run had timed devices running, which a replay cannot reproduce");
+			}
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "6808 Replay");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		try {
+			List<Future<R>> segments = new ArrayList<Future<R>>();
+
+			for (int i = 0; i < checkpoints.size(); i++) {
+				final Checkpoint start = checkpoints.get(i);
+				final long stop = i + 1 < checkpoints.size() ? Math.min(checkpoints.get(i + 1).getInstructionCount(), end) : end;
+
+				if (start.getInstructionCount() >= stop) {
+					continue;
+				}
+
+				segments.add(pool.submit(new Callable<R>() {
+					public R call() throws Exception {
+						return replaySegment(query, start, stop);
+					}
+				}));
+			}
+
+			R merged = null;
+
+			for (Future<R> segment : segments) {
+				R result = segment.get();
+				merged = merged == null ? result : query.merge(merged, result);
+			}
+
+			return merged == null ? query.createResult() : merged;
+		}
+		catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			throw cause instanceof Exception ? (Exception)cause : ex;
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		replaySegment
+	 * Description:		Replays one segment on a fresh emulator
+	 * Parameters:		ReplayQuery<R> query: The question
+	 * 					Checkpoint start: The checkpoint the segment starts at
+	 * 					long stop: The instruction count the segment ends at
+	 * Return:			The segment's result
+	 */
+	private <R> R replaySegment(ReplayQuery<R> query, Checkpoint start, long stop) throws Exception {
+		Freescale6808Emulator emulator = new Freescale6808Emulator();
+		emulator.loadImage(image);
+		start.restore(emulator);
+
+		InputLog segmentLog = inputLog.copy();
+		segmentLog.seek(start.getInstructionCount());
+		emulator.setInputLog(segmentLog);
+
+		R result = query.createResult();
+
+		while (emulator.getInstructionCount() < stop) {
+			int pc = emulator.getCpu().getPC() & 0xffff;
+			emulator.singleStep();
+
+			if (!query.visit(emulator, pc, result)) {
+				break;
+			}
+		}
+
+		return result;
+	}
+
+
+
+	/*
+	 * Method Name:		getSegmentCount
+	 * Description:		Gets the number of segments the run is split into
+	 * Parameters:		None
+	 * Return:			The segment count
+	 */
+	public int getSegmentCount() {
+		int count = 0;
+
+		for (Checkpoint checkpoint : checkpoints) {
+			if (checkpoint.getInstructionCount() < end) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+}
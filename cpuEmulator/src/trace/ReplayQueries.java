@@ -0,0 +1,93 @@
+/*
+ * Filename:		ReplayQueries.java
+ * Package:			trace
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the ReplayQueries class
+ */
+
+
+
+package trace;
+
+import java.util.BitSet;
+
+import emulator.Freescale6808Emulator;
+
+
+
+/*
+ * Class Name:		ReplayQueries
+ * Description:		Ready made questions for ParallelReplay
+ */
+public class ReplayQueries {
+
+	/*
+	 * Method Name:		ReplayQueries
+	 * Description:		Constructor, not used
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	private ReplayQueries() {
+	}
+
+
+
+	/*
+	 * Method Name:		pcsWhereAccumulatorIs
+	 * Description:		Finds every instruction that left a given value in the accumulator
+	 * Parameters:		int value: The accumulator value
+	 * Return:			A query whose result has a bit set for the address of each such instruction
+	 */
+	public static ReplayQuery<BitSet> pcsWhereAccumulatorIs(final int value) {
+		return new ReplayQuery<BitSet>() {
+			public BitSet createResult() {
+				return new BitSet(Freescale6808Emulator.MAX_ADDRESS_SPACE);
+			}
+
+			public boolean visit(Freescale6808Emulator emulator, int pc, BitSet result) {
+				if ((emulator.getCpu().getA() & 0xff) == value) {
+					result.set(pc);
+				}
+
+				return true;
+			}
+
+			public BitSet merge(BitSet earlier, BitSet later) {
+				earlier.or(later);
+				return earlier;
+			}
+		};
+	}
+
+
+
+	/*
+	 * Method Name:		firstTimeAbove
+	 * Description:		Finds the first instruction after which a memory location holds more than a value
+	 * Parameters:		int address: The address
+	 * 					int threshold: The unsigned value it must exceed
+	 * Return:			A query whose result holds the instruction count in its only element, or -1 if the
+	 * 					location never exceeded the value
+	 */
+	public static ReplayQuery<long[]> firstTimeAbove(final int address, final int threshold) {
+		return new ReplayQuery<long[]>() {
+			public long[] createResult() {
+				return new long[] { -1 };
+			}
+
+			public boolean visit(Freescale6808Emulator emulator, int pc, long[] result) {
+				if ((emulator.getMemoryByte(address) & 0xff) > threshold) {
+					result[0] = emulator.getInstructionCount();
+					return false;
+				}
+
+				return true;
+			}
+
+			public long[] merge(long[] earlier, long[] later) {
+				return earlier[0] >= 0 ? earlier : later;
+			}
+		};
+	}
+}
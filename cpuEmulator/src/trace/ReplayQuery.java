@@ -0,0 +1,56 @@
+/*
+ * Filename:		ReplayQuery.java
+ * Package:			trace
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the ReplayQuery interface
+ */
+
+
+
+package trace;
+
+import emulator.Freescale6808Emulator;
+
+
+
+/*
+ * Interface Name:	ReplayQuery
+ * Description:		A question answered by replaying a recorded run with ParallelReplay.  Each segment of the
+ * 					run gets its own result, which visit() fills in as the segment is replayed; the results
+ * 					are then merged in run order.  visit() is called from several threads at once, but
+ * 					never with the same result, so results need no locking.
+ */
+public interface ReplayQuery<R> {
+
+	/*
+	 * Method Name:		createResult
+	 * Description:		Makes an empty result for one segment
+	 * Parameters:		None
+	 * Return:			The result
+	 */
+	R createResult();
+
+
+
+	/*
+	 * Method Name:		visit
+	 * Description:		Looks at the machine after one replayed instruction
+	 * Parameters:		Freescale6808Emulator emulator: The segment's emulator, after the instruction
+	 * 					int pc: The address of the instruction
+	 * 					R result: The segment's result
+	 * Return:			True to carry on, false if the rest of the segment cannot change the answer
+	 */
+	boolean visit(Freescale6808Emulator emulator, int pc, R result);
+
+
+
+	/*
+	 * Method Name:		merge
+	 * Description:		Combines the results of two neighbouring parts of the run
+	 * Parameters:		R earlier: The result of the earlier part
+	 * 					R later: The result of the part straight after it
+	 * Return:			The combined result, which may be one of the arguments
+	 */
+	R merge(R earlier, R later);
+}
@@ -0,0 +1,358 @@
+/*
+ * Filename:		TraceCursor.java
+ * Package:			trace
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the TraceCursor class
+ */
+
+
+
+package trace;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+
+
+/*
+ * Class Name:		TraceCursor
+ * Description:		Streams forward through the records of a trace file, decoding one record per call to
+ * 					next().  The cursor itself holds the current record, so walking a trace of any size
+ * 					allocates nothing beyond one fixed read buffer.  Cursors are made by TraceReader.
+ */
+public class TraceCursor {
+
+	private final static int BUFFER_SIZE = 64 << 10;
+
+	private final FileChannel channel;
+	private final long dataEnd;
+	private final long recordCount;
+	private final int keyframeInterval;
+	private final ByteBuffer buffer;
+	private long bufferOffset;
+	private long nextRecord;
+
+	private long count;
+	private int pc;
+	private int opcode;
+	private int operand;
+	private int a;
+	private int ccr;
+	private int previousCCR;
+	private int hx;
+	private int sp;
+	private boolean isMemoryWritten;
+	private int writeAddress;
+	private int writeValue;
+	private int lastWriteAddress;
+
+
+
+	/*
+	 * Method Name:		TraceCursor
+	 * Description:		Constructor, the cursor starts at a keyframe
+	 * Parameters:		FileChannel channel: The trace file
+	 * 					long dataEnd: The file offset just past the encoded records
+	 * 					long recordCount: The number of records in the trace
+	 * 					int keyframeInterval: The number of records between keyframes
+	 * 					long offset: The file offset of the keyframe
+	 * 					long record: The index of the keyframe record
+	 * Return:			None
+	 */
+	TraceCursor(FileChannel channel, long dataEnd, long recordCount, int keyframeInterval, long offset, long record) {
+		this.channel = channel;
+		this.dataEnd = dataEnd;
+		this.recordCount = recordCount;
+		this.keyframeInterval = keyframeInterval;
+		this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		this.buffer.limit(0);
+		this.bufferOffset = offset;
+		this.nextRecord = record;
+		this.count = -1;
+	}
+
+
+
+	/*
+	 * Method Name:		next
+	 * Description:		Decodes the next record
+	 * Parameters:		None
+	 * Return:			True if there was another record, false at the end of the trace
+	 */
+	public boolean next() throws IOException {
+		if (nextRecord >= recordCount) {
+			return false;
+		}
+
+		// a keyframe is encoded against the all-zero state
+		if (nextRecord % keyframeInterval == 0) {
+			count = 0;
+			pc = 0;
+			a = 0;
+			hx = 0;
+			sp = 0;
+			lastWriteAddress = 0;
+			previousCCR = ccr;
+			ccr = 0;
+		}
+		else {
+			previousCCR = ccr;
+		}
+
+		int flags = readByte();
+
+		if ((flags & TraceEncoder.PC_SEQUENTIAL) != 0) {
+			pc = (pc + 2) & 0xffff;
+		}
+		else {
+			pc = (pc + (int)TraceEncoder.unzigzag(readVarint())) & 0xffff;
+		}
+
+		opcode = readByte();
+		operand = readByte();
+
+		if ((flags & TraceEncoder.A_CHANGED) != 0) {
+			a = readByte();
+		}
+
+		if ((flags & TraceEncoder.CCR_CHANGED) != 0) {
+			ccr = readByte();
+		}
+
+		if ((flags & TraceEncoder.HX_CHANGED) != 0) {
+			hx = (readByte() << 8) | readByte();
+		}
+
+		if ((flags & TraceEncoder.SP_CHANGED) != 0) {
+			sp = (readByte() << 8) | readByte();
+		}
+
+		isMemoryWritten = (flags & TraceEncoder.MEMORY_WRITTEN) != 0;
+
+		if (isMemoryWritten) {
+			writeAddress = (lastWriteAddress + (int)TraceEncoder.unzigzag(readVarint())) & 0xffff;
+			writeValue = readByte();
+			lastWriteAddress = writeAddress;
+		}
+
+		count += 1;
+
+		if ((flags & TraceEncoder.COUNT_GAP) != 0) {
+			count += TraceEncoder.unzigzag(readVarint());
+		}
+
+		nextRecord++;
+		return true;
+	}
+
+
+
+	/*
+	 * Method Name:		readByte
+	 * Description:		Reads the next encoded byte, refilling the buffer from the file as needed
+	 * Parameters:		None
+	 * Return:			The byte as an unsigned int
+	 */
+	private int readByte() throws IOException {
+		if (!buffer.hasRemaining()) {
+			bufferOffset += buffer.limit();
+			buffer.clear();
+			buffer.limit((int)Math.min(BUFFER_SIZE, dataEnd - bufferOffset));
+
+			if (!buffer.hasRemaining()) {
+				throw new EOFException("Trace data ends in the middle of a record");
+			}
+
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, bufferOffset + buffer.position()) < 0) {
+					throw new EOFException("Trace file is truncated");
+				}
+			}
+
+			buffer.flip();
+		}
+
+		return buffer.get() & 0xff;
+	}
+
+
+
+	/*
+	 * Method Name:		readVarint
+	 * Description:		Reads an unsigned value written seven bits at a time, low bits first
+	 * Parameters:		None
+	 * Return:			The value as a long
+	 */
+	private long readVarint() throws IOException {
+		long value = 0;
+		int shift = 0;
+		int next;
+
+		do {
+			next = readByte();
+			value |= (long)(next & 0x7f) << shift;
+			shift += 7;
+		} while ((next & 0x80) != 0 && shift < 64);
+
+		return value;
+	}
+
+
+
+	/*
+	 * Method Name:		getRecordIndex
+	 * Description:		Gets the position of the current record in the trace
+	 * Parameters:		None
+	 * Return:			The zero based record index
+	 */
+	public long getRecordIndex() {
+		return nextRecord - 1;
+	}
+
+
+
+	/*
+	 * Method Name:		getInstructionCount
+	 * Description:		Gets the emulator's instruction count after the current record's instruction
+	 * Parameters:		None
+	 * Return:			The instruction count as a long
+	 */
+	public long getInstructionCount() {
+		return count;
+	}
+
+
+
+	/*
+	 * Method Name:		getPC
+	 * Description:		Gets the address of the instruction
+	 * Parameters:		None
+	 * Return:			The address as an int
+	 */
+	public int getPC() {
+		return pc;
+	}
+
+
+
+	/*
+	 * Method Name:		getOpcode
+	 * Description:		Gets the opcode of the instruction
+	 * Parameters:		None
+	 * Return:			The opcode as an unsigned int
+	 */
+	public int getOpcode() {
+		return opcode;
+	}
+
+
+
+	/*
+	 * Method Name:		getOperand
+	 * Description:		Gets the byte following the opcode
+	 * Parameters:		None
+	 * Return:			The operand as an unsigned int
+	 */
+	public int getOperand() {
+		return operand;
+	}
+
+
+
+	/*
+	 * Method Name:		getA
+	 * Description:		Gets the accumulator after the instruction
+	 * Parameters:		None
+	 * Return:			The accumulator as an unsigned int
+	 */
+	public int getA() {
+		return a;
+	}
+
+
+
+	/*
+	 * Method Name:		getCCR
+	 * Description:		Gets the ccr after the instruction
+	 * Parameters:		None
+	 * Return:			The ccr as an unsigned int
+	 */
+	public int getCCR() {
+		return ccr;
+	}
+
+
+
+	/*
+	 * Method Name:		getPreviousCCR
+	 * Description:		Gets the ccr after the record before this one, for spotting flag transitions
+	 * Parameters:		None
+	 * Return:			The ccr as an unsigned int, 0 before the first record
+	 */
+	public int getPreviousCCR() {
+		return previousCCR;
+	}
+
+
+
+	/*
+	 * Method Name:		getHX
+	 * Description:		Gets the index register after the instruction
+	 * Parameters:		None
+	 * Return:			The index register as an unsigned int
+	 */
+	public int getHX() {
+		return hx;
+	}
+
+
+
+	/*
+	 * Method Name:		getSP
+	 * Description:		Gets the stack pointer after the instruction
+	 * Parameters:		None
+	 * Return:			The stack pointer as an unsigned int
+	 */
+	public int getSP() {
+		return sp;
+	}
+
+
+
+	/*
+	 * Method Name:		isMemoryWritten
+	 * Description:		Determines whether the instruction wrote memory
+	 * Parameters:		None
+	 * Return:			True if memory was written
+	 */
+	public boolean isMemoryWritten() {
+		return isMemoryWritten;
+	}
+
+
+
+	/*
+	 * Method Name:		getWriteAddress
+	 * Description:		Gets the address the instruction wrote
+	 * Parameters:		None
+	 * Return:			The address, only meaningful when isMemoryWritten is true
+	 */
+	public int getWriteAddress() {
+		return writeAddress;
+	}
+
+
+
+	/*
+	 * Method Name:		getWriteValue
+	 * Description:		Gets the value the instruction wrote
+	 * Parameters:		None
+	 * Return:			The value as an unsigned int, only meaningful when isMemoryWritten is true
+	 */
+	public int getWriteValue() {
+		return writeValue;
+	}
+}
@@ -0,0 +1,199 @@
+/*
+ * Filename:		TraceEncoder.java
+ * Package:			trace
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the TraceEncoder class
+ */
+
+
+
+package trace;
+
+import java.nio.ByteBuffer;
+
+
+
+/*
+ * Class Name:		TraceEncoder
+ * Description:		Delta encodes trace records against the record before them.  Each record starts with a
+ * 					flags byte saying which fields follow; fields that did not change are left out.
+ *
+ * 						flags	PC_SEQUENTIAL		PC is 2 past the last PC, otherwise a zigzag varint delta follows
+ * 								(always)			opcode, operand
+ * 								A_CHANGED			A
+ * 								CCR_CHANGED			CCR
+ * 								HX_CHANGED			HX (2 bytes)
+ * 								SP_CHANGED			SP (2 bytes)
+ * 								MEMORY_WRITTEN		zigzag varint delta from the last write address, value
+ * 								COUNT_GAP			zigzag varint of the instruction count minus the expected one
+ *
+ * 					A keyframe is a record encoded against the all-zero state, so decoding can start at any
+ * 					keyframe without looking further back.
+ */
+class TraceEncoder {
+
+	final static int PC_SEQUENTIAL = 0x01;
+	final static int A_CHANGED = 0x02;
+	final static int CCR_CHANGED = 0x04;
+	final static int HX_CHANGED = 0x08;
+	final static int SP_CHANGED = 0x10;
+	final static int MEMORY_WRITTEN = 0x20;
+	final static int COUNT_GAP = 0x40;
+
+	// flags, PC, opcode, operand, A, CCR, HX, SP, write address, value, count gap
+	final static int LONGEST_RECORD = 1 + 3 + 1 + 1 + 1 + 1 + 2 + 2 + 3 + 1 + 10;
+
+	private long lastCount;
+	private int lastPC;
+	private int lastA;
+	private int lastCCR;
+	private int lastHX;
+	private int lastSP;
+	private int lastWriteAddress;
+
+
+
+	/*
+	 * Method Name:		TraceEncoder
+	 * Description:		Constructor
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	TraceEncoder() {
+		startKeyframe();
+	}
+
+
+
+	/*
+	 * Method Name:		startKeyframe
+	 * Description:		Resets the encoder so the next record is a keyframe
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	void startKeyframe() {
+		lastCount = 0;
+		lastPC = 0;
+		lastA = 0;
+		lastCCR = 0;
+		lastHX = 0;
+		lastSP = 0;
+		lastWriteAddress = 0;
+	}
+
+
+
+	/*
+	 * Method Name:		encode
+	 * Description:		Encodes one record as packed by TraceRecorder
+	 * Parameters:		long count: The instruction count
+	 * 					long state: PC, opcode, operand, A, CCR and HX
+	 * 					long write: SP, write address, write value and flags
+	 * 					ByteBuffer output: Where to put the record, with at least LONGEST_RECORD bytes left
+	 * Return:			None
+	 */
+	void encode(long count, long state, long write, ByteBuffer output) {
+		int pc = (int)(state >>> 48);
+		int a = (int)(state >>> 24) & 0xff;
+		int ccr = (int)(state >>> 16) & 0xff;
+		int hx = (int)state & 0xffff;
+		int sp = (int)(write >>> 48);
+		boolean isWrite = ((write >>> 16) & TraceRecorder.FLAG_MEMORY_WRITTEN) != 0;
+		int writeAddress = (int)(write >>> 32) & 0xffff;
+		long gap = count - lastCount - 1;
+
+		int flags = 0;
+		flags |= pc == ((lastPC + 2) & 0xffff) ? PC_SEQUENTIAL : 0;
+		flags |= a != lastA ? A_CHANGED : 0;
+		flags |= ccr != lastCCR ? CCR_CHANGED : 0;
+		flags |= hx != lastHX ? HX_CHANGED : 0;
+		flags |= sp != lastSP ? SP_CHANGED : 0;
+		flags |= isWrite ? MEMORY_WRITTEN : 0;
+		flags |= gap != 0 ? COUNT_GAP : 0;
+
+		output.put((byte)flags);
+
+		if ((flags & PC_SEQUENTIAL) == 0) {
+			putVarint(output, zigzag((short)(pc - lastPC)));
+		}
+
+		output.put((byte)(state >>> 40));
+		output.put((byte)(state >>> 32));
+
+		if ((flags & A_CHANGED) != 0) {
+			output.put((byte)a);
+		}
+
+		if ((flags & CCR_CHANGED) != 0) {
+			output.put((byte)ccr);
+		}
+
+		if ((flags & HX_CHANGED) != 0) {
+			output.putShort((short)hx);
+		}
+
+		if ((flags & SP_CHANGED) != 0) {
+			output.putShort((short)sp);
+		}
+
+		if (isWrite) {
+			putVarint(output, zigzag((short)(writeAddress - lastWriteAddress)));
+			output.put((byte)(write >>> 24));
+			lastWriteAddress = writeAddress;
+		}
+
+		if (gap != 0) {
+			putVarint(output, zigzag(gap));
+		}
+
+		lastCount = count;
+		lastPC = pc;
+		lastA = a;
+		lastCCR = ccr;
+		lastHX = hx;
+		lastSP = sp;
+	}
+
+
+
+	/*
+	 * Method Name:		zigzag
+	 * Description:		Maps a signed value to an unsigned one so small negative numbers stay small
+	 * Parameters:		long value: The signed value
+	 * Return:			The zigzag encoded value
+	 */
+	static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+
+
+	/*
+	 * Method Name:		unzigzag
+	 * Description:		Reverses zigzag
+	 * Parameters:		long value: The zigzag encoded value
+	 * Return:			The signed value
+	 */
+	static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+
+
+	/*
+	 * Method Name:		putVarint
+	 * Description:		Writes an unsigned value seven bits at a time, low bits first
+	 * Parameters:		ByteBuffer output: Where to write
+	 * 					long value: The value
+	 * Return:			None
+	 */
+	static void putVarint(ByteBuffer output, long value) {
+		while ((value & ~0x7fL) != 0) {
+			output.put((byte)((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+
+		output.put((byte)value);
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * Filename:		TraceQuery.java
+ * Package:			trace
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the TraceQuery class
+ */
+
+
+
+package trace;
+
+import java.io.IOException;
+
+import utilities.AddressRange;
+import cpu.Freescale6808CPU;
+import cpu.Freescale6808CPU.CCR_BIT;
+
+
+
+/*
+ * Class Name:		TraceQuery
+ * Description:		Streams the records of a trace through a set of filters and hands the ones that pass
+ * 					to a TraceVisitor.  Every filter that is set must pass; a query with no filters matches
+ * 					every record.  Records are decoded one at a time, so a query over a trace of any size
+ * 					runs in the same small amount of memory.
+ */
+public class TraceQuery {
+
+	public enum TRANSITION {
+		SET,
+		CLEARED,
+		CHANGED
+	}
+
+	private AddressRange pcRange;
+	private AddressRange writeRange;
+	private int ccrMask;
+	private TRANSITION ccrTransition;
+	private long firstInstruction;
+	private long lastInstruction;
+
+
+
+	/*
+	 * Method Name:		TraceQuery
+	 * Description:		Constructor, the query matches every record until filters are set
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public TraceQuery() {
+		pcRange = null;
+		writeRange = null;
+		ccrMask = 0;
+		ccrTransition = null;
+		firstInstruction = 0;
+		lastInstruction = Long.MAX_VALUE;
+	}
+
+
+
+	/*
+	 * Method Name:		setPCRange
+	 * Description:		Only matches instructions at addresses in a range
+	 * Parameters:		AddressRange range: The addresses, or null for any
+	 * Return:			None
+	 */
+	public void setPCRange(AddressRange range) {
+		pcRange = range;
+	}
+
+
+
+	/*
+	 * Method Name:		setWriteRange
+	 * Description:		Only matches instructions that wrote memory in a range
+	 * Parameters:		AddressRange range: The addresses, or null for any record whether it wrote or not
+	 * Return:			None
+	 */
+	public void setWriteRange(AddressRange range) {
+		writeRange = range;
+	}
+
+
+
+	/*
+	 * Method Name:		setCCRTransition
+	 * Description:		Only matches instructions that changed a ccr bit in a particular way
+	 * Parameters:		CCR_BIT bit: The ccr bit, or null for no ccr filter
+	 * 					TRANSITION transition: Whether the bit must be set, cleared, or either
+	 * Return:			None
+	 */
+	public void setCCRTransition(CCR_BIT bit, TRANSITION transition) {
+		if (bit == null) {
+			ccrMask = 0;
+			ccrTransition = null;
+		}
+		else {
+			// the cpu keeps its masks to itself, so find the bit by setting it on a scratch cpu
+			Freescale6808CPU scratch = new Freescale6808CPU();
+			scratch.setCCR((byte)0);
+			scratch.setCCRBit(true, bit);
+			ccrMask = scratch.getCCR() & 0xff;
+			ccrTransition = transition;
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		setInstructionRange
+	 * Description:		Only looks at records with instruction counts in a range, using the keyframe index to
+	 * 					skip straight to the first
+	 * Parameters:		long first: The first instruction count
+	 * 					long last: The last instruction count
+	 * Return:			None
+	 */
+	public void setInstructionRange(long first, long last) {
+		firstInstruction = first;
+		lastInstruction = last;
+	}
+
+
+
+	/*
+	 * Method Name:		matches
+	 * Description:		Tests the current record of a cursor against the filters
+	 * Parameters:		TraceCursor record: The cursor
+	 * Return:			True if every filter passes
+	 */
+	public boolean matches(TraceCursor record) {
+		if (pcRange != null && !pcRange.contains(record.getPC())) {
+			return false;
+		}
+
+		if (writeRange != null && !(record.isMemoryWritten() && writeRange.contains(record.getWriteAddress()))) {
+			return false;
+		}
+
+		if (ccrTransition != null) {
+			boolean wasSet = (record.getPreviousCCR() & ccrMask) != 0;
+			boolean isSet = (record.getCCR() & ccrMask) != 0;
+
+			switch (ccrTransition) {
+			case SET:
+				return !wasSet && isSet;
+			case CLEARED:
+				return wasSet && !isSet;
+			default:
+				return wasSet != isSet;
+			}
+		}
+
+		return true;
+	}
+
+
+
+	/*
+	 * Method Name:		run
+	 * Description:		Runs the query over a trace
+	 * Parameters:		TraceReader reader: The trace
+	 * 					TraceVisitor visitor: Given each matching record, may be null to only count them
+	 * Return:			The number of matching records
+	 */
+	public long run(TraceReader reader, TraceVisitor visitor) throws IOException {
+		TraceCursor record = firstInstruction > 0 ? reader.seekInstruction(firstInstruction) : reader.cursor();
+		long matched = 0;
+
+		while (record.next()) {
+			if (record.getInstructionCount() > lastInstruction) {
+				break;
+			}
+
+			if (matches(record)) {
+				matched++;
+
+				if (visitor != null && !visitor.visit(record)) {
+					break;
+				}
+			}
+		}
+
+		return matched;
+	}
+}
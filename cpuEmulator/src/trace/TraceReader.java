@@ -0,0 +1,259 @@
+/*
+ * Filename:		TraceReader.java
+ * Package:			trace
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the TraceReader class
+ */
+
+
+
+package trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+
+
+/*
+ * Class Name:		TraceReader
+ * Description:		Opens a trace file written by TraceRecorder.  Only the header and keyframe index are held
+ * 					in memory; records are decoded on demand by TraceCursors, which read the file through a
+ * 					small fixed buffer, so traces of many gigabytes can be walked in bounded memory.
+ *
+ * 					Seeking uses the keyframe index: the keyframe at or before the target is found by
+ * 					position or by binary search on instruction count, and the cursor decodes forward at
+ * 					most one keyframe interval from there.
+ */
+public class TraceReader {
+
+	private final RandomAccessFile traceFile;
+	private final FileChannel channel;
+	private final int keyframeInterval;
+	private final long recordCount;
+	private final long droppedCount;
+	private final long dataLength;
+	private final long[] keyframeCounts;
+	private final long[] keyframeOffsets;
+
+
+
+	/*
+	 * Method Name:		TraceReader
+	 * Description:		Constructor, reads the header and the keyframe index
+	 * Parameters:		File file: The trace file
+	 * Return:			None
+	 */
+	public TraceReader(File file) throws IOException {
+		traceFile = new RandomAccessFile(file, "r");
+
+		try {
+			channel = traceFile.getChannel();
+
+			ByteBuffer header = read(0, TraceRecorder.HEADER_SIZE);
+
+			for (int i = 0; i < TraceRecorder.MAGIC.length; i++) {
+				if (header.get(i) != TraceRecorder.MAGIC[i]) {
+					throw new IOException(file.getName() + " is not a trace file");
+				}
+			}
+
+			if (header.getInt(8) != TraceRecorder.VERSION) {
+				throw new IOException(file.getName() + " has unsupported trace version " + header.getInt(8));
+			}
+
+			keyframeInterval = header.getInt(12);
+			recordCount = header.getLong(16);
+			droppedCount = header.getLong(24);
+			dataLength = header.getLong(32);
+			long entries = header.getLong(40);
+
+			if (keyframeInterval <= 0 || entries != (recordCount + keyframeInterval - 1) / keyframeInterval
+					|| TraceRecorder.HEADER_SIZE + dataLength + entries * TraceRecorder.INDEX_ENTRY_SIZE > channel.size()) {
+				throw new IOException(file.getName() + " is corrupt or was not closed");
+			}
+
+			ByteBuffer index = read(TraceRecorder.HEADER_SIZE + dataLength, (int)entries * TraceRecorder.INDEX_ENTRY_SIZE);
+			keyframeCounts = new long[(int)entries];
+			keyframeOffsets = new long[(int)entries];
+
+			for (int i = 0; i < entries; i++) {
+				keyframeCounts[i] = index.getLong();
+				keyframeOffsets[i] = index.getLong();
+			}
+		}
+		catch (IOException ex) {
+			traceFile.close();
+			throw ex;
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		read
+	 * Description:		Reads part of the file
+	 * Parameters:		long offset: The file offset
+	 * 					int length: The number of bytes
+	 * Return:			The bytes in a ByteBuffer positioned at zero
+	 */
+	private ByteBuffer read(long offset, int length) throws IOException {
+		ByteBuffer data = ByteBuffer.allocate(length);
+
+		while (data.hasRemaining()) {
+			if (channel.read(data, offset + data.position()) < 0) {
+				throw new IOException("Trace file is truncated");
+			}
+		}
+
+		data.flip();
+		return data;
+	}
+
+
+
+	/*
+	 * Method Name:		cursor
+	 * Description:		Makes a cursor positioned before the first record
+	 * Parameters:		None
+	 * Return:			The cursor
+	 */
+	public TraceCursor cursor() throws IOException {
+		return seekRecord(0);
+	}
+
+
+
+	/*
+	 * Method Name:		seekRecord
+	 * Description:		Makes a cursor whose next record is the given record
+	 * Parameters:		long record: The zero based record index
+	 * Return:			The cursor
+	 */
+	public TraceCursor seekRecord(long record) throws IOException {
+		record = Math.max(0, Math.min(record, recordCount));
+
+		// start one record early where possible so the target record has a previous ccr
+		long start = Math.max(record - 1, 0);
+		int keyframe = (int)(start / keyframeInterval);
+		TraceCursor cursor;
+
+		if (keyframe >= keyframeOffsets.length) {
+			cursor = new TraceCursor(channel, TraceRecorder.HEADER_SIZE + dataLength, recordCount, keyframeInterval,
+					TraceRecorder.HEADER_SIZE + dataLength, recordCount);
+		}
+		else {
+			cursor = new TraceCursor(channel, TraceRecorder.HEADER_SIZE + dataLength, recordCount, keyframeInterval,
+					TraceRecorder.HEADER_SIZE + keyframeOffsets[keyframe], (long)keyframe * keyframeInterval);
+		}
+
+		long skip = record - (long)keyframe * keyframeInterval;
+
+		while (skip > 0 && cursor.next()) {
+			skip--;
+		}
+
+		return cursor;
+	}
+
+
+
+	/*
+	 * Method Name:		seekInstruction
+	 * Description:		Makes a cursor whose next record is the first with an instruction count of at least the
+	 * 					target.  Instruction counts only go up within a trace that does not span a reset
+	 * Parameters:		long instruction: The instruction count to find
+	 * Return:			The cursor
+	 */
+	public TraceCursor seekInstruction(long instruction) throws IOException {
+		int low = 0;
+		int high = keyframeCounts.length - 1;
+		int keyframe = 0;
+
+		// last keyframe at or before the target
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+
+			if (keyframeCounts[middle] <= instruction) {
+				keyframe = middle;
+				low = middle + 1;
+			}
+			else {
+				high = middle - 1;
+			}
+		}
+
+		TraceCursor scan = seekRecord((long)keyframe * keyframeInterval);
+
+		while (scan.next()) {
+			if (scan.getInstructionCount() >= instruction) {
+				return seekRecord(scan.getRecordIndex());
+			}
+		}
+
+		return seekRecord(recordCount);
+	}
+
+
+
+	/*
+	 * Method Name:		getRecordCount
+	 * Description:		Gets the number of records in the trace
+	 * Parameters:		None
+	 * Return:			The record count as a long
+	 */
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+
+
+	/*
+	 * Method Name:		getDroppedCount
+	 * Description:		Gets the number of records the recorder had to drop
+	 * Parameters:		None
+	 * Return:			The dropped count as a long
+	 */
+	public long getDroppedCount() {
+		return droppedCount;
+	}
+
+
+
+	/*
+	 * Method Name:		getKeyframeInterval
+	 * Description:		Gets the number of records between keyframes
+	 * Parameters:		None
+	 * Return:			The keyframe interval
+	 */
+	public int getKeyframeInterval() {
+		return keyframeInterval;
+	}
+
+
+
+	/*
+	 * Method Name:		getDataLength
+	 * Description:		Gets the size of the encoded records, for working out the compression ratio
+	 * Parameters:		None
+	 * Return:			The data length in bytes
+	 */
+	public long getDataLength() {
+		return dataLength;
+	}
+
+
+
+	/*
+	 * Method Name:		close
+	 * Description:		Closes the file.  Cursors from this reader can no longer be used
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public void close() throws IOException {
+		traceFile.close();
+	}
+}
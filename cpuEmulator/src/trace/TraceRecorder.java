@@ -0,0 +1,415 @@
+/*
+ * Filename:		TraceRecorder.java
+ * Package:			trace
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the TraceRecorder class
+ */
+
+
+
+package trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import cpu.Freescale6808CPU;
+import emulator.Freescale6808Emulator;
+import emulator.InstructionListener;
+
+
+
+/*
+ * Class Name:		TraceRecorder
+ * Description:		Records every retired instruction to a binary trace file.  Attach it to an emulator with
+ * 					addInstructionListener; detach it and close() it when done.
+ *
+ * 					The emulator thread packs each instruction into a fixed 24 byte record in a preallocated
+ * 					ring of longs and moves the head on with AtomicLong.lazySet.  A background writer thread
+ * 					takes records from the tail, moves the tail on the same way, and delta encodes them with
+ * 					TraceEncoder into the trace file through a series of mapped chunks.  There is exactly
+ * 					one producer and one consumer, so no locks or compare-and-set are needed.  If the ring
+ * 					is full because the writer has fallen behind, the record is dropped and counted; the
+ * 					emulator never waits.  Gaps show up as jumps in the instruction count.
+ *
+ * 					Every keyframe interval records the encoder starts a keyframe and the instruction count
+ * 					and data offset are added to an index written after the data, so TraceReader can seek.
+ *
+ * 					File layout, big endian:
+ * 						0		magic "6808TRCE"
+ * 						8		int version, int keyframe interval
+ * 						16		long record count
+ * 						24		long dropped record count
+ * 						32		long data length
+ * 						40		long index entry count
+ * 						64		encoded records
+ * 						...		index, a long instruction count and a long data offset per keyframe
+ *
+ * 					Ring record layout, three longs:
+ * 						0		instruction count after the instruction retired
+ * 						8		PC (16), opcode (8), operand (8), A (8), CCR (8), HX (16)
+ * 						16		SP (16), write address (16), write value (8), flags (8), reserved (16)
+ *
+ * 					Flags bit 0 is set when the instruction wrote memory.
+ */
+public class TraceRecorder implements InstructionListener {
+
+	public final static int FLAG_MEMORY_WRITTEN = 0x01;
+	public final static int DEFAULT_CAPACITY = 1 << 16;
+	public final static int DEFAULT_KEYFRAME_INTERVAL = 4096;
+
+	final static byte[] MAGIC = { '6', '8', '0', '8', 'T', 'R', 'C', 'E' };
+	final static int VERSION = 2;
+	final static int HEADER_SIZE = 64;
+	final static int INDEX_ENTRY_SIZE = 16;
+
+	private final static int LONGS_PER_RECORD = 3;
+	private final static int CHUNK_SIZE = 16 << 20;
+	private final static int STAGING_SIZE = 64 << 10;
+	private final static long IDLE_WAIT_NANOS = 100000;
+
+	private final long[] ring;
+	private final int capacity;
+	private final int mask;
+	private final AtomicLong head;
+	private final AtomicLong tail;
+	private final AtomicLong dropped;
+
+	// owned by the emulator thread
+	private long nextRecord;
+	private long cachedTail;
+	private long droppedRecords;
+
+	// owned by the writer thread
+	private final RandomAccessFile traceFile;
+	private final int keyframeInterval;
+	private final TraceEncoder encoder;
+	private final ByteBuffer staging;
+	private MappedByteBuffer chunk;
+	private long chunkIndex;
+	private long dataLength;
+	private long recordsWritten;
+	private long[] index;
+	private int indexEntries;
+	private IOException writeError;
+
+	private volatile boolean isRunning;
+	private final Thread writer;
+
+
+
+	/*
+	 * Method Name:		TraceRecorder
+	 * Description:		Constructor, creates the trace file and starts the writer thread
+	 * Parameters:		File file: The trace file, replaced if it exists
+	 * 					int capacity: The number of records the ring holds, rounded up to a power of two
+	 * 					int keyframeInterval: The number of records between keyframes
+	 * Return:			None
+	 */
+	public TraceRecorder(File file, int capacity, int keyframeInterval) throws IOException {
+		if (capacity <= 0 || keyframeInterval <= 0) {
+			throw new IllegalArgumentException("Trace capacity and keyframe interval must be positive");
+		}
+
+		int size = 1;
+
+		while (size < capacity) {
+			size <<= 1;
+		}
+
+		this.capacity = size;
+		this.mask = size - 1;
+		this.ring = new long[size * LONGS_PER_RECORD];
+		this.head = new AtomicLong();
+		this.tail = new AtomicLong();
+		this.dropped = new AtomicLong();
+
+		this.keyframeInterval = keyframeInterval;
+		encoder = new TraceEncoder();
+		staging = ByteBuffer.allocate(STAGING_SIZE);
+		index = new long[2 * 1024];
+		indexEntries = 0;
+
+		traceFile = new RandomAccessFile(file, "rw");
+		traceFile.setLength(0);
+		chunk = null;
+		chunkIndex = -1;
+
+		isRunning = true;
+		writer = new Thread(new Runnable() {
+			public void run() {
+				drain();
+			}
+		}, "6808 trace writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+
+
+	/*
+	 * Method Name:		TraceRecorder
+	 * Description:		Constructor with the default ring capacity and keyframe interval
+	 * Parameters:		File file: The trace file, replaced if it exists
+	 * Return:			None
+	 */
+	public TraceRecorder(File file) throws IOException {
+		this(file, DEFAULT_CAPACITY, DEFAULT_KEYFRAME_INTERVAL);
+	}
+
+
+
+	/*
+	 * Method Name:		instructionRetired
+	 * Description:		Packs an instruction into the ring, or drops it if the ring is full
+	 * Parameters:		Freescale6808Emulator emulator: The emulator that executed it
+	 * 					int pc: The address of the opcode
+	 * 					byte opcode: The opcode
+	 * 					byte operand: The byte following the opcode
+	 * 					int writeAddress: The address written, or -1
+	 * Return:			None
+	 */
+	public void instructionRetired(Freescale6808Emulator emulator, int pc, byte opcode, byte operand, int writeAddress) {
+		long sequence = nextRecord;
+
+		// only look at the writer's real progress when the cached view says the ring is full
+		if (sequence - cachedTail >= capacity) {
+			cachedTail = tail.get();
+
+			if (sequence - cachedTail >= capacity) {
+				dropped.lazySet(++droppedRecords);
+				return;
+			}
+		}
+
+		Freescale6808CPU cpu = emulator.getCpu();
+		int slot = (int)(sequence & mask) * LONGS_PER_RECORD;
+		long write = 0;
+
+		if (writeAddress >= 0) {
+			write = ((long)writeAddress << 32) | ((long)(emulator.getMemoryByte(writeAddress) & 0xff) << 24)
+					| (FLAG_MEMORY_WRITTEN << 16);
+		}
+
+		ring[slot] = emulator.getInstructionCount();
+		ring[slot + 1] = ((long)pc << 48) | ((long)(opcode & 0xff) << 40) | ((long)(operand & 0xff) << 32)
+				| ((long)(cpu.getA() & 0xff) << 24) | ((cpu.getCCR() & 0xff) << 16) | (cpu.getHX() & 0xffff);
+		ring[slot + 2] = ((long)(cpu.getSP() & 0xffff) << 48) | write;
+
+		nextRecord = sequence + 1;
+		head.lazySet(nextRecord);
+	}
+
+
+
+	/*
+	 * Method Name:		drain
+	 * Description:		The writer thread loop, encodes records from the ring into the file until closed and
+	 * 					the ring is empty
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	private void drain() {
+		long consumed = 0;
+
+		try {
+			while (true) {
+				long available = head.get();
+
+				if (available == consumed) {
+					if (!isRunning) {
+						break;
+					}
+
+					LockSupport.parkNanos(this, IDLE_WAIT_NANOS);
+					continue;
+				}
+
+				for (long sequence = consumed; sequence < available; sequence++) {
+					int slot = (int)(sequence & mask) * LONGS_PER_RECORD;
+
+					if (recordsWritten % keyframeInterval == 0) {
+						flushStaging();
+						addIndexEntry(ring[slot], dataLength);
+						encoder.startKeyframe();
+					}
+
+					if (staging.remaining() < TraceEncoder.LONGEST_RECORD) {
+						flushStaging();
+					}
+
+					encoder.encode(ring[slot], ring[slot + 1], ring[slot + 2], staging);
+					recordsWritten++;
+				}
+
+				// the ring slots are free once encoded, the staging buffer is flushed on its own
+				consumed = available;
+				tail.lazySet(consumed);
+			}
+
+			flushStaging();
+		}
+		catch (IOException ex) {
+			writeError = ex;
+
+			// keep emptying the ring so the emulator is not held up, close() reports the error
+			while (isRunning) {
+				tail.lazySet(head.get());
+				LockSupport.parkNanos(this, IDLE_WAIT_NANOS);
+			}
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		flushStaging
+	 * Description:		Copies the encoded bytes in the staging buffer into the mapped chunks, mapping a new
+	 * 					chunk whenever the current one fills up
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	private void flushStaging() throws IOException {
+		staging.flip();
+
+		while (staging.hasRemaining()) {
+			if (chunk == null || !chunk.hasRemaining()) {
+				chunkIndex++;
+				chunk = traceFile.getChannel().map(FileChannel.MapMode.READ_WRITE,
+						HEADER_SIZE + chunkIndex * CHUNK_SIZE, CHUNK_SIZE);
+			}
+
+			int count = Math.min(staging.remaining(), chunk.remaining());
+			ByteBuffer run = staging.duplicate();
+			run.limit(run.position() + count);
+			chunk.put(run);
+			staging.position(staging.position() + count);
+			dataLength += count;
+		}
+
+		staging.clear();
+	}
+
+
+
+	/*
+	 * Method Name:		addIndexEntry
+	 * Description:		Records where a keyframe starts, growing the index as needed
+	 * Parameters:		long count: The instruction count of the keyframe record
+	 * 					long offset: The offset of the keyframe in the data
+	 * Return:			None
+	 */
+	private void addIndexEntry(long count, long offset) {
+		if (indexEntries * 2 == index.length) {
+			long[] larger = new long[index.length * 2];
+			System.arraycopy(index, 0, larger, 0, index.length);
+			index = larger;
+		}
+
+		index[indexEntries * 2] = count;
+		index[indexEntries * 2 + 1] = offset;
+		indexEntries++;
+	}
+
+
+
+	/*
+	 * Method Name:		close
+	 * Description:		Writes out everything left in the ring, appends the keyframe index, fills in the header
+	 * 					and trims the file.  The recorder should be removed from the emulator first
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public void close() throws IOException {
+		if (!isRunning) {
+			return;
+		}
+
+		isRunning = false;
+		LockSupport.unpark(writer);
+
+		try {
+			writer.join();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while closing the trace");
+		}
+
+		try {
+			if (writeError != null) {
+				throw writeError;
+			}
+
+			if (chunk != null) {
+				chunk.force();
+			}
+
+			FileChannel channel = traceFile.getChannel();
+			long indexOffset = HEADER_SIZE + dataLength;
+			ByteBuffer indexData = ByteBuffer.allocate(indexEntries * INDEX_ENTRY_SIZE);
+			indexData.asLongBuffer().put(index, 0, indexEntries * 2);
+
+			while (indexData.hasRemaining()) {
+				channel.write(indexData, indexOffset + indexData.position());
+			}
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.put(MAGIC);
+			header.putInt(VERSION);
+			header.putInt(keyframeInterval);
+			header.putLong(recordsWritten);
+			header.putLong(dropped.get());
+			header.putLong(dataLength);
+			header.putLong(indexEntries);
+			header.clear();
+
+			while (header.hasRemaining()) {
+				channel.write(header, header.position());
+			}
+
+			chunk = null;
+
+			// some platforms refuse to shrink a file that is still mapped, readers find the index from
+			// the header so the unused end of the last chunk can safely stay
+			try {
+				traceFile.setLength(indexOffset + indexEntries * INDEX_ENTRY_SIZE);
+			}
+			catch (IOException ex) {
+			}
+		}
+		finally {
+			traceFile.close();
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		getRecordCount
+	 * Description:		Gets the number of records taken into the ring so far
+	 * Parameters:		None
+	 * Return:			The record count as a long
+	 */
+	public long getRecordCount() {
+		return head.get();
+	}
+
+
+
+	/*
+	 * Method Name:		getDroppedCount
+	 * Description:		Gets the number of records dropped because the writer fell behind
+	 * Parameters:		None
+	 * Return:			The dropped count as a long
+	 */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+}
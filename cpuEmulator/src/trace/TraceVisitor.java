@@ -0,0 +1,29 @@
+/*
+ * Filename:		TraceVisitor.java
+ * Package:			trace
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the TraceVisitor interface
+ */
+
+
+
+package trace;
+
+
+
+/*
+ * Interface Name:	TraceVisitor
+ * Description:		Receives the records a TraceQuery matches, in trace order
+ */
+public interface TraceVisitor {
+
+	/*
+	 * Method Name:		visit
+	 * Description:		Called for each matching record.  The cursor is reused for the next record, so any
+	 * 					values needed later must be copied out
+	 * Parameters:		TraceCursor record: The cursor, holding the matching record
+	 * Return:			True to carry on, false to stop the query
+	 */
+	boolean visit(TraceCursor record);
+}
@@ -0,0 +1,279 @@
+/*
+ * Filename:		WriteHistory.java
+ * Package:			trace
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the WriteHistory class
+ */
+
+
+
+package trace;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import emulator.Freescale6808Emulator;
+import emulator.InstructionListener;
+
+
+
+/*
+ * Class Name:		WriteHistory
+ * Description:		Indexes memory writes by address as they happen, so "who last wrote this address" is
+ * 					answered with an array lookup instead of a scan of the trace.  Attach it to an emulator
+ * 					with addInstructionListener.
+ *
+ * 					For every address the instruction count, PC and value of the most recent write are
+ * 					kept in primitive arrays.  Optionally the last chainLength writes to any address are
+ * 					also kept in a ring, each linked to the write before it to the same address, so the
+ * 					history of one address is walked newest first without touching the others.  Writes
+ * 					are numbered as they arrive; an entry is still in the ring while its number is within
+ * 					chainLength of the newest, which is how the walk knows where the chain has been
+ * 					overwritten.
+ *
+ * 					Replayed instructions are not seen, since TimeTravel silences listeners, so after
+ * 					stepping back the index can hold writes from later in the run.
+ */
+public class WriteHistory implements InstructionListener {
+
+	public final static int DEFAULT_CHAIN_LENGTH = 1 << 16;
+
+	private final long[] lastCounts;
+	private final char[] lastPCs;
+	private final byte[] lastValues;
+	private final long[] lastWrites;
+	private final long[] chainCounts;
+	private final char[] chainPCs;
+	private final byte[] chainValues;
+	private final long[] chainPrevious;
+	private final int chainLength;
+	private final int chainMask;
+	private long writeCount;
+
+
+
+	/*
+	 * Class Name:		Write
+	 * Description:		One write from the history of an address
+	 */
+	public static class Write {
+
+		private final long instructionCount;
+		private final int pc;
+		private final int value;
+
+
+
+		/*
+		 * Method Name:		Write
+		 * Description:		Constructor
+		 * Parameters:		long instructionCount: The instruction count after the writing instruction
+		 * 					int pc: The address of the writing instruction
+		 * 					int value: The value written
+		 * Return:			None
+		 */
+		Write(long instructionCount, int pc, int value) {
+			this.instructionCount = instructionCount;
+			this.pc = pc;
+			this.value = value;
+		}
+
+
+
+		/*
+		 * Method Name:		getInstructionCount
+		 * Description:		Gets the instruction count after the writing instruction
+		 * Parameters:		None
+		 * Return:			The instruction count as a long
+		 */
+		public long getInstructionCount() {
+			return instructionCount;
+		}
+
+
+
+		/*
+		 * Method Name:		getPC
+		 * Description:		Gets the address of the writing instruction
+		 * Parameters:		None
+		 * Return:			The address as an int
+		 */
+		public int getPC() {
+			return pc;
+		}
+
+
+
+		/*
+		 * Method Name:		getValue
+		 * Description:		Gets the value written
+		 * Parameters:		None
+		 * Return:			The value as an unsigned int
+		 */
+		public int getValue() {
+			return value;
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		WriteHistory
+	 * Description:		Constructor using the default chain length
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public WriteHistory() {
+		this(DEFAULT_CHAIN_LENGTH);
+	}
+
+
+
+	/*
+	 * Method Name:		WriteHistory
+	 * Description:		Constructor
+	 * Parameters:		int chainLength: The number of writes kept in the history chain, a power of two, or
+	 * 					0 to keep only the last write to each address
+	 * Return:			None
+	 */
+	public WriteHistory(int chainLength) {
+		if (chainLength < 0 || (chainLength & (chainLength - 1)) != 0) {
+			throw new IllegalArgumentException("Chain length must be 0 or a power of two");
+		}
+
+		lastCounts = new long[Freescale6808Emulator.MAX_ADDRESS_SPACE];
+		lastPCs = new char[Freescale6808Emulator.MAX_ADDRESS_SPACE];
+		lastValues = new byte[Freescale6808Emulator.MAX_ADDRESS_SPACE];
+		lastWrites = new long[Freescale6808Emulator.MAX_ADDRESS_SPACE];
+		chainCounts = new long[chainLength];
+		chainPCs = new char[chainLength];
+		chainValues = new byte[chainLength];
+		chainPrevious = new long[chainLength];
+		this.chainLength = chainLength;
+		this.chainMask = chainLength - 1;
+		reset();
+	}
+
+
+
+	/*
+	 * Method Name:		reset
+	 * Description:		Forgets every write
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public void reset() {
+		Arrays.fill(lastCounts, -1);
+		Arrays.fill(lastWrites, -1);
+		writeCount = 0;
+	}
+
+
+
+	/*
+	 * Method Name:		instructionRetired
+	 * Description:		Indexes the write made by an instruction, if any
+	 * Parameters:		Freescale6808Emulator emulator: The emulator that executed it
+	 * 					int pc: The address of the opcode
+	 * 					byte opcode: The opcode
+	 * 					byte operand: The byte following the opcode
+	 * 					int writeAddress: The address written, or -1
+	 * Return:			None
+	 */
+	public void instructionRetired(Freescale6808Emulator emulator, int pc, byte opcode, byte operand, int writeAddress) {
+		if (writeAddress < 0) {
+			return;
+		}
+
+		long count = emulator.getInstructionCount();
+		byte value = emulator.getMemoryByte(writeAddress);
+
+		lastCounts[writeAddress] = count;
+		lastPCs[writeAddress] = (char)pc;
+		lastValues[writeAddress] = value;
+
+		if (chainLength > 0) {
+			int slot = (int)writeCount & chainMask;
+			chainCounts[slot] = count;
+			chainPCs[slot] = (char)pc;
+			chainValues[slot] = value;
+			chainPrevious[slot] = lastWrites[writeAddress];
+			lastWrites[writeAddress] = writeCount;
+		}
+
+		writeCount++;
+	}
+
+
+
+	/*
+	 * Method Name:		getLastWriteCount
+	 * Description:		Gets when an address was last written
+	 * Parameters:		int address: The address
+	 * Return:			The instruction count after the writing instruction, or -1 if it has not been written
+	 */
+	public long getLastWriteCount(int address) {
+		return lastCounts[address & 0xffff];
+	}
+
+
+
+	/*
+	 * Method Name:		getLastWritePC
+	 * Description:		Gets which instruction last wrote an address
+	 * Parameters:		int address: The address
+	 * Return:			The address of the writing instruction, only meaningful if getLastWriteCount is not -1
+	 */
+	public int getLastWritePC(int address) {
+		return lastPCs[address & 0xffff];
+	}
+
+
+
+	/*
+	 * Method Name:		getLastWriteValue
+	 * Description:		Gets the value last written to an address
+	 * Parameters:		int address: The address
+	 * Return:			The value as an unsigned int, only meaningful if getLastWriteCount is not -1
+	 */
+	public int getLastWriteValue(int address) {
+		return lastValues[address & 0xffff] & 0xff;
+	}
+
+
+
+	/*
+	 * Method Name:		getHistory
+	 * Description:		Gets the writes to an address that are still in the history chain, newest first
+	 * Parameters:		int address: The address
+	 * 					int limit: The most writes to return
+	 * Return:			The writes, empty if the address has not been written or the chain is disabled
+	 */
+	public List<Write> getHistory(int address, int limit) {
+		List<Write> history = new ArrayList<Write>();
+		long oldestLive = writeCount - chainLength;
+		long write = lastWrites[address & 0xffff];
+
+		while (write >= 0 && write >= oldestLive && history.size() < limit) {
+			int slot = (int)write & chainMask;
+			history.add(new Write(chainCounts[slot], chainPCs[slot], chainValues[slot] & 0xff));
+			write = chainPrevious[slot];
+		}
+
+		return history;
+	}
+
+
+
+	/*
+	 * Method Name:		getWriteCount
+	 * Description:		Gets the number of writes indexed since the last reset
+	 * Parameters:		None
+	 * Return:			The write count as a long
+	 */
+	public long getWriteCount() {
+		return writeCount;
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Filename:		AddressRange.java
+ * Package:			utilities
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the AddressRange class
+ */
+
+
+
+package utilities;
+
+
+
+/*
+ * Class Name:		AddressRange
+ * Description:		An inclusive range of addresses in the 64K address space
+ */
+public class AddressRange
+{
+
+	private final int start;
+	private final int end;
+
+
+
+	/*
+	 * Method Name:		AddressRange
+	 * Description:		Constructor
+	 * Parameters:		int start: The first address in the range
+	 * 					int end: The last address in the range
+	 * Return:			None
+	 */
+	public AddressRange(int start, int end)
+	{
+		if (start < 0 || end > 0xffff || start > end)
+		{
+			throw new IllegalArgumentException(String.format("Invalid address range %d-%d", start, end));
+		}
+
+		this.start = start;
+		this.end = end;
+	}
+
+
+
+	/*
+	 * Method Name:		getStart
+	 * Description:		Gets the first address in the range
+	 * Parameters:		None
+	 * Return:			The address as an int
+	 */
+	public int getStart()
+	{
+		return start;
+	}
+
+
+
+	/*
+	 * Method Name:		getEnd
+	 * Description:		Gets the last address in the range
+	 * Parameters:		None
+	 * Return:			The address as an int
+	 */
+	public int getEnd()
+	{
+		return end;
+	}
+
+
+
+	/*
+	 * Method Name:		getLength
+	 * Description:		Gets the number of addresses in the range
+	 * Parameters:		None
+	 * Return:			The length as an int
+	 */
+	public int getLength()
+	{
+		return end - start + 1;
+	}
+
+
+
+	/*
+	 * Method Name:		contains
+	 * Description:		Determines whether an address is inside the range
+	 * Parameters:		int address: The address to check
+	 * Return:			True if the address is in the range, false otherwise
+	 */
+	public boolean contains(int address)
+	{
+		return address >= start && address <= end;
+	}
+
+
+
+	/*
+	 * Method Name:		toString
+	 * Description:		Formats the range as $start-$end
+	 * Parameters:		None
+	 * Return:			The range as a String
+	 */
+	public String toString()
+	{
+		return String.format("$%04X-$%04X", start, end);
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Filename:		BinaryImageLoader.java
+ * Package:			utilities
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the BinaryImageLoader class
+ */
+
+
+
+package utilities;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+
+
+/*
+ * Class Name:		BinaryImageLoader
+ * Description:		Loads raw memory dumps.  There is nothing to parse: the file contents become a single
+ * 					segment placed at the base address, and are later copied into memory with one bulk get.
+ *
+ * 					By default the image is placed so it ends at the top of memory, which is where ROM
+ * 					dumps live on the 6808.  If the image covers the reset vector at $FFFE it is used as
+ * 					the entry point, otherwise execution starts at the base address.
+ */
+public class BinaryImageLoader implements ImageLoader
+{
+
+	public final static int ALIGN_TO_TOP = -1;
+
+	private final static int RESET_VECTOR = 0xfffe;
+
+	private final int baseAddress;
+
+
+
+	/*
+	 * Method Name:		BinaryImageLoader
+	 * Description:		Constructor
+	 * Parameters:		int baseAddress: The address to load the image at, or ALIGN_TO_TOP
+	 * Return:			None
+	 */
+	public BinaryImageLoader(int baseAddress)
+	{
+		this.baseAddress = baseAddress;
+	}
+
+
+
+	/*
+	 * Method Name:		getFormatName
+	 * Description:		Gets a short human readable name for the format
+	 * Parameters:		None
+	 * Return:			The format name
+	 */
+	public String getFormatName()
+	{
+		return "Raw Binary";
+	}
+
+
+
+	/*
+	 * Method Name:		accepts
+	 * Description:		Any content is a valid raw image, so ImageLoaders only uses this loader for files
+	 * 					named .bin or when asked to
+	 * Parameters:		ByteBuffer header: A read-only view of the start of the file
+	 * Return:			Always true
+	 */
+	public boolean accepts(ByteBuffer header)
+	{
+		return true;
+	}
+
+
+
+	/*
+	 * Method Name:		load
+	 * Description:		Wraps the file contents as a single segment without copying
+	 * Parameters:		String name: The name to give the image
+	 * 					ByteBuffer contents: The file contents
+	 * Return:			The image
+	 */
+	public LoadedImage load(String name, ByteBuffer contents) throws IOException
+	{
+		int size = contents.remaining();
+		int address = baseAddress == ALIGN_TO_TOP ? HexImageDecoder.ADDRESS_SPACE - size : baseAddress;
+		short entryPoint = (short)address;
+
+		if (size == 0)
+		{
+			throw new IOException("The binary image is empty");
+		}
+
+		if (address < 0 || address + size > HexImageDecoder.ADDRESS_SPACE)
+		{
+			throw new IOException(String.format("A %d byte image does not fit in memory at $%04X", size, address));
+		}
+
+		// use the reset vector if the image covers it
+		if (address <= RESET_VECTOR && address + size > RESET_VECTOR + 1)
+		{
+			int vector = contents.position() + RESET_VECTOR - address;
+			entryPoint = (short)(((contents.get(vector) & 0xff) << 8) | (contents.get(vector + 1) & 0xff));
+		}
+
+		List<LoadedImage.Segment> segments = new ArrayList<LoadedImage.Segment>();
+		segments.add(new LoadedImage.Segment(address, contents));
+
+		return new LoadedImage(name, entryPoint, segments);
+	}
+}
@@ -19,6 +19,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
@@ -98,4 +99,29 @@ public class FileIO
 	
 	
 	
+	/*
+	 * Method Name:		mapFile
+	 * Description:		Maps a whole file into memory read-only.  Unlike loadSREC this accepts any file
+	 * 					and reports failures to the caller instead of returning null
+	 * Parameters:		String containing the path of the file
+	 * Return:			The file contents as a read-only ByteBuffer
+	 */	
+	public ByteBuffer mapFile(String filename) throws IOException
+	{
+		FileInputStream stream = new FileInputStream(new File(filename));
+		
+		try 
+		{
+			FileChannel filechannel = stream.getChannel();
+			return filechannel.map(FileChannel.MapMode.READ_ONLY, 0, filechannel.size());
+		}
+		finally 
+		{
+			// the mapping stays valid after the channel is closed
+			stream.close();
+		}
+	}
+	
+	
+	
 }
@@ -0,0 +1,307 @@
+/*
+ * Filename:		HexImageDecoder.java
+ * Package:			utilities
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the HexImageDecoder class
+ */
+
+
+
+package utilities;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+
+
+/*
+ * Class Name:		HexImageDecoder
+ * Description:		Streaming decoder shared by the line oriented ASCII hex formats (S-records and Intel HEX).
+ *
+ * 					Walks the raw file bytes once, decoding hex pairs with a lookup table and keeping a
+ * 					running byte sum for the record checksum.  Data bytes are decoded straight into a 64K
+ * 					staging image, and toImage() coalesces the touched addresses into segments, so no
+ * 					Strings or per-record arrays are created while decoding.
+ */
+public class HexImageDecoder
+{
+
+	public final static int ADDRESS_SPACE = 65536;
+
+	private final static byte[] HEX_VALUES = new byte[128];
+
+	private final ByteBuffer contents;
+	private int checksum;
+	private int line;
+
+	private final byte[] staging = new byte[ADDRESS_SPACE];
+	private final long[] touched = new long[ADDRESS_SPACE / 64];
+
+
+
+	static
+	{
+		for (int i = 0; i < HEX_VALUES.length; i++)
+		{
+			HEX_VALUES[i] = -1;
+		}
+
+		for (int i = 0; i < 10; i++)
+		{
+			HEX_VALUES['0' + i] = (byte)i;
+		}
+
+		for (int i = 0; i < 6; i++)
+		{
+			HEX_VALUES['A' + i] = (byte)(10 + i);
+			HEX_VALUES['a' + i] = (byte)(10 + i);
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		HexImageDecoder
+	 * Description:		Constructor
+	 * Parameters:		ByteBuffer contents: The file contents, decoded from position to limit
+	 * Return:			None
+	 */
+	public HexImageDecoder(ByteBuffer contents)
+	{
+		this.contents = contents.duplicate();
+		this.line = 0;
+	}
+
+
+
+	/*
+	 * Method Name:		isHexDigit
+	 * Description:		Determines whether a raw byte is an ASCII hex digit
+	 * Parameters:		byte value: The raw byte
+	 * Return:			True if the byte is 0-9, A-F or a-f
+	 */
+	public static boolean isHexDigit(byte value)
+	{
+		return value >= 0 && HEX_VALUES[value] >= 0;
+	}
+
+
+
+	/*
+	 * Method Name:		nextRecord
+	 * Description:		Skips line breaks and blanks up to the start of the next record and consumes the
+	 * 					record's start character
+	 * Parameters:		char startCharacter: The character every record must start with
+	 * Return:			True if a record was found, false at the end of the file
+	 */
+	public boolean nextRecord(char startCharacter) throws IOException
+	{
+		while (contents.hasRemaining())
+		{
+			byte value = contents.get();
+
+			if (value == '\n')
+			{
+				line++;
+			}
+			else if (value != '\r' && value != ' ' && value != '\t')
+			{
+				if (value != startCharacter)
+				{
+					throw error("Expected '" + startCharacter + "' at start of record");
+				}
+
+				line++;
+				checksum = 0;
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+
+
+	/*
+	 * Method Name:		readChar
+	 * Description:		Reads one raw character, not counted in the checksum
+	 * Parameters:		None
+	 * Return:			The character
+	 */
+	public char readChar() throws IOException
+	{
+		if (!contents.hasRemaining())
+		{
+			throw error("Unexpected end of file");
+		}
+
+		return (char)contents.get();
+	}
+
+
+
+	/*
+	 * Method Name:		readByte
+	 * Description:		Reads two hex digits as one byte and adds it to the checksum
+	 * Parameters:		None
+	 * Return:			The byte value from 0 to 255
+	 */
+	public int readByte() throws IOException
+	{
+		if (contents.remaining() < 2)
+		{
+			throw error("Unexpected end of file");
+		}
+
+		byte high = contents.get();
+		byte low = contents.get();
+
+		if (high < 0 || low < 0 || HEX_VALUES[high] < 0 || HEX_VALUES[low] < 0)
+		{
+			throw error("Invalid hex digit");
+		}
+
+		int value = (HEX_VALUES[high] << 4) | HEX_VALUES[low];
+		checksum += value;
+
+		return value;
+	}
+
+
+
+	/*
+	 * Method Name:		readAddress
+	 * Description:		Reads a big endian address made of the given number of bytes
+	 * Parameters:		int bytes: The number of address bytes
+	 * Return:			The address
+	 */
+	public int readAddress(int bytes) throws IOException
+	{
+		int address = 0;
+
+		for (int i = 0; i < bytes; i++)
+		{
+			address = (address << 8) | readByte();
+		}
+
+		return address;
+	}
+
+
+
+	/*
+	 * Method Name:		readData
+	 * Description:		Decodes data bytes straight into the staging image
+	 * Parameters:		int address: The address of the first byte
+	 * 					int count: The number of data bytes in the record
+	 * Return:			None
+	 */
+	public void readData(int address, int count) throws IOException
+	{
+		if (address < 0 || address + count > ADDRESS_SPACE)
+		{
+			throw error(String.format("Data at $%X does not fit in memory", address));
+		}
+
+		for (int i = 0; i < count; i++)
+		{
+			int target = address + i;
+			staging[target] = (byte)readByte();
+			touched[target >>> 6] |= 1L << target;
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		getChecksum
+	 * Description:		Gets the sum of every byte read since the start of the record
+	 * Parameters:		None
+	 * Return:			The running sum
+	 */
+	public int getChecksum()
+	{
+		return checksum;
+	}
+
+
+
+	/*
+	 * Method Name:		skipToEndOfLine
+	 * Description:		Skips whatever is left on the current line
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public void skipToEndOfLine()
+	{
+		while (contents.hasRemaining())
+		{
+			byte value = contents.get(contents.position());
+
+			if (value == '\r' || value == '\n')
+			{
+				break;
+			}
+
+			contents.get();
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		error
+	 * Description:		Builds an exception that names the line being decoded
+	 * Parameters:		String message: What went wrong
+	 * Return:			The exception
+	 */
+	public IOException error(String message)
+	{
+		return new IOException(message + " (line " + line + ")");
+	}
+
+
+
+	/*
+	 * Method Name:		toImage
+	 * Description:		Coalesces everything decoded into the staging image into segments
+	 * Parameters:		String name: The name of the image
+	 * 					short entryPoint: The address execution starts at
+	 * Return:			The image
+	 */
+	public LoadedImage toImage(String name, short entryPoint)
+	{
+		List<LoadedImage.Segment> segments = new ArrayList<LoadedImage.Segment>();
+		int address = 0;
+
+		while (address < ADDRESS_SPACE)
+		{
+			// skip untouched bytes a word at a time
+			if (touched[address >>> 6] == 0)
+			{
+				address = (address | 63) + 1;
+				continue;
+			}
+
+			if ((touched[address >>> 6] & (1L << address)) == 0)
+			{
+				address++;
+				continue;
+			}
+
+			int start = address;
+
+			while (address < ADDRESS_SPACE && (touched[address >>> 6] & (1L << address)) != 0)
+			{
+				address++;
+			}
+
+			segments.add(new LoadedImage.Segment(start, ByteBuffer.wrap(staging, start, address - start)));
+		}
+
+		return new LoadedImage(name, entryPoint, segments);
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * Filename:		ImageLoader.java
+ * Package:			utilities
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the ImageLoader interface
+ */
+
+
+
+package utilities;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+
+
+/*
+ * Interface Name:	ImageLoader
+ * Description:		Service interface for program image formats.  ImageLoaders picks a loader by handing
+ * 					each one the start of the file and taking the first that accepts it, so a loader
+ * 					should recognize its format from the content rather than from the file name.
+ *
+ * 					Additional loaders can be plugged in by listing them in
+ * 					META-INF/services/utilities.ImageLoader on the classpath.
+ */
+public interface ImageLoader
+{
+
+	/*
+	 * Method Name:		getFormatName
+	 * Description:		Gets a short human readable name for the format
+	 * Parameters:		None
+	 * Return:			The format name
+	 */
+	String getFormatName();
+
+
+
+	/*
+	 * Method Name:		accepts
+	 * Description:		Sniffs the start of a file to see if it is in this loader's format
+	 * Parameters:		ByteBuffer header: A read-only view of up to the first 64 bytes of the file
+	 * Return:			True if this loader can load the file, false otherwise
+	 */
+	boolean accepts(ByteBuffer header);
+
+
+
+	/*
+	 * Method Name:		load
+	 * Description:		Decodes a whole file into a program image
+	 * Parameters:		String name: The name to give the image
+	 * 					ByteBuffer contents: The file contents, normally mapped straight from disk
+	 * Return:			The decoded image
+	 */
+	LoadedImage load(String name, ByteBuffer contents) throws IOException;
+}
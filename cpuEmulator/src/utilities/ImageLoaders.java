@@ -0,0 +1,229 @@
+/*
+ * Filename:		ImageLoaders.java
+ * Package:			utilities
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the ImageLoaders class
+ */
+
+
+
+package utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+
+
+/*
+ * Class Name:		ImageLoaders
+ * Description:		Picks an ImageLoader for a file by sniffing its contents, then loads it.
+ *
+ * 					Loaders registered with register() are tried first, then any found through
+ * 					ServiceLoader, then the built in S-record and Intel HEX loaders.  A raw binary has
+ * 					no header to recognise, so a file no loader accepts is only loaded as one if it is
+ * 					named .bin, or through loadBinary; anything else is refused rather than copied into
+ * 					memory as code.
+ */
+public class ImageLoaders
+{
+
+	private final static int HEADER_SIZE = 64;
+	private final static String BINARY_EXTENSION = ".bin";
+
+	private final List<ImageLoader> loaders = new ArrayList<ImageLoader>();
+	private ImageLoader binaryLoader;
+
+
+
+
+
+
+	/*
+	 * Method Name:		ImageLoaders
+	 * Description:		Constructor.  Raw binary images are aligned to the top of memory
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	public ImageLoaders()
+	{
+		for (ImageLoader loader : ServiceLoader.load(ImageLoader.class))
+		{
+			loaders.add(loader);
+		}
+
+		loaders.add(new SrecImageLoader());
+		loaders.add(new IntelHexImageLoader());
+		binaryLoader = new BinaryImageLoader(BinaryImageLoader.ALIGN_TO_TOP);
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		register
+	 * Description:		Adds a loader ahead of all others
+	 * Parameters:		ImageLoader loader: The loader to add
+	 * Return:			None
+	 */
+	public void register(ImageLoader loader)
+	{
+		loaders.add(0, loader);
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		setBinaryBaseAddress
+	 * Description:		Sets where images named .bin are loaded
+	 * Parameters:		int baseAddress: The load address, or BinaryImageLoader.ALIGN_TO_TOP
+	 * Return:			None
+	 */
+	public void setBinaryBaseAddress(int baseAddress)
+	{
+		binaryLoader = new BinaryImageLoader(baseAddress);
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		select
+	 * Description:		Finds the first loader that accepts the given contents
+	 * Parameters:		ByteBuffer contents: The file contents
+	 * Return:			The loader to use, or null if no loader recognises the contents
+	 */
+	public ImageLoader select(ByteBuffer contents)
+	{
+		ByteBuffer header = skipLeadingBlanks(contents);
+		ImageLoader selected = null;
+
+		if (header.remaining() > HEADER_SIZE)
+		{
+			header.limit(header.position() + HEADER_SIZE);
+		}
+
+		for (ImageLoader loader : loaders)
+		{
+			if (loader.accepts(header.asReadOnlyBuffer()))
+			{
+				selected = loader;
+				break;
+			}
+		}
+
+		return selected;
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		load
+	 * Description:		Maps a file, selects a loader for it and loads it.  A file no loader recognises is
+	 * 					loaded as a raw binary only if it is named .bin
+	 * Parameters:		File file: The file to load
+	 * Return:			The loaded image
+	 */
+	public LoadedImage load(File file) throws IOException
+	{
+		ByteBuffer contents = map(file);
+		ImageLoader selected = select(contents);
+
+		if (selected == null)
+		{
+			if (!file.getName().toLowerCase().endsWith(BINARY_EXTENSION))
+			{
+				throw new IOException("The file " + file.getName() + " is not in a recognised image format");
+			}
+
+			selected = binaryLoader;
+		}
+
+		return selected.load(file.getName(), contents);
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		loadBinary
+	 * Description:		Maps a file and loads it as a raw binary whatever it is named or contains
+	 * Parameters:		File file: The file to load
+	 * 					int baseAddress: The load address, or BinaryImageLoader.ALIGN_TO_TOP
+	 * Return:			The loaded image
+	 */
+	public LoadedImage loadBinary(File file, int baseAddress) throws IOException
+	{
+		return new BinaryImageLoader(baseAddress).load(file.getName(), map(file));
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		map
+	 * Description:		Maps a file, refusing an empty one
+	 * Parameters:		File file: The file to map
+	 * Return:			The file contents
+	 */
+	private ByteBuffer map(File file) throws IOException
+	{
+		ByteBuffer contents = new FileIO().mapFile(file.getPath());
+
+		if (!contents.hasRemaining())
+		{
+			throw new IOException("The file " + file.getName() + " is empty");
+		}
+
+		return contents;
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		skipLeadingBlanks
+	 * Description:		Gets a view of the contents starting at the first non blank character, so text
+	 * 					formats with leading blank lines are still recognized
+	 * Parameters:		ByteBuffer contents: The file contents
+	 * Return:			A view starting at the first non blank byte
+	 */
+	private ByteBuffer skipLeadingBlanks(ByteBuffer contents)
+	{
+		ByteBuffer header = contents.duplicate();
+
+		while (header.hasRemaining() && header.position() - contents.position() < HEADER_SIZE)
+		{
+			byte value = header.get(header.position());
+
+			if (value != '\r' && value != '\n' && value != ' ' && value != '\t')
+			{
+				break;
+			}
+
+			header.get();
+		}
+
+		return header;
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Filename:		IntelHexImageLoader.java
+ * Package:			utilities
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the IntelHexImageLoader class
+ */
+
+
+
+package utilities;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+
+
+/*
+ * Class Name:		IntelHexImageLoader
+ * Description:		Loads Intel HEX files using the same streaming decoder as the S-record loader.
+ * 					Handles data, end of file, extended segment/linear address and start address
+ * 					records.  Every record's checksum is validated as it is decoded.
+ */
+public class IntelHexImageLoader implements ImageLoader
+{
+
+	private final static int DATA_RECORD = 0x00;
+	private final static int END_OF_FILE_RECORD = 0x01;
+	private final static int EXTENDED_SEGMENT_RECORD = 0x02;
+	private final static int START_SEGMENT_RECORD = 0x03;
+	private final static int EXTENDED_LINEAR_RECORD = 0x04;
+	private final static int START_LINEAR_RECORD = 0x05;
+
+
+
+	/*
+	 * Method Name:		getFormatName
+	 * Description:		Gets a short human readable name for the format
+	 * Parameters:		None
+	 * Return:			The format name
+	 */
+	public String getFormatName()
+	{
+		return "Intel HEX";
+	}
+
+
+
+	/*
+	 * Method Name:		accepts
+	 * Description:		Accepts files whose first record starts with ':' and a hex digit
+	 * Parameters:		ByteBuffer header: A read-only view of the start of the file
+	 * Return:			True if the file looks like an Intel HEX file
+	 */
+	public boolean accepts(ByteBuffer header)
+	{
+		return header.remaining() >= 2 && header.get(header.position()) == ':'
+				&& HexImageDecoder.isHexDigit(header.get(header.position() + 1));
+	}
+
+
+
+	/*
+	 * Method Name:		load
+	 * Description:		Decodes and validates every record in the file
+	 * Parameters:		String name: The name to give the image
+	 * 					ByteBuffer contents: The file contents
+	 * Return:			The decoded image
+	 */
+	public LoadedImage load(String name, ByteBuffer contents) throws IOException
+	{
+		HexImageDecoder decoder = new HexImageDecoder(contents);
+		int baseAddress = 0;
+		int startAddress = -1;
+		int firstDataAddress = -1;
+		boolean isEndFound = false;
+
+		while (!isEndFound && decoder.nextRecord(':'))
+		{
+			int count = decoder.readByte();
+			int offset = decoder.readAddress(2);
+			int type = decoder.readByte();
+
+			switch (type)
+			{
+			case DATA_RECORD:
+				decoder.readData(baseAddress + offset, count);
+				if (firstDataAddress < 0)
+				{
+					firstDataAddress = baseAddress + offset;
+				}
+				break;
+
+			case END_OF_FILE_RECORD:
+				isEndFound = true;
+				break;
+
+			case EXTENDED_SEGMENT_RECORD:
+				baseAddress = decoder.readAddress(2) << 4;
+				break;
+
+			case EXTENDED_LINEAR_RECORD:
+				baseAddress = decoder.readAddress(2) << 16;
+				break;
+
+			case START_SEGMENT_RECORD:
+				int segment = decoder.readAddress(2);
+				startAddress = (segment << 4) + decoder.readAddress(2);
+				break;
+
+			case START_LINEAR_RECORD:
+				startAddress = decoder.readAddress(4);
+				break;
+
+			default:
+				throw decoder.error("Unsupported record type " + type);
+			}
+
+			// the checksum byte makes the sum of every byte in the record zero
+			decoder.readByte();
+
+			if ((decoder.getChecksum() & 0xff) != 0)
+			{
+				throw decoder.error("Checksum mismatch");
+			}
+
+			decoder.skipToEndOfLine();
+		}
+
+		if (firstDataAddress < 0)
+		{
+			throw new IOException("The Intel HEX file contains no data records");
+		}
+
+		if (startAddress < 0)
+		{
+			startAddress = firstDataAddress;
+		}
+
+		if (startAddress >= HexImageDecoder.ADDRESS_SPACE)
+		{
+			throw new IOException("Start address out of range");
+		}
+
+		return decoder.toImage(name, (short)startAddress);
+	}
+}
@@ -0,0 +1,303 @@
+/*
+ * Filename:		ListingFile.java
+ * Package:			utilities
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the ListingFile class
+ */
+
+
+
+package utilities;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+
+/*
+ * Class Name:		ListingFile
+ * Description:		The symbols and source lines of an assembler listing such as test.lst.  Each code line
+ * 					starts with the hex address of the instruction and its bytes, followed by the source;
+ * 					a line ending in a colon is a label for the next instruction.
+ *
+ * 						loop:
+ * 						183a    b6 00	    	LDA   $00
+ *
+ * 					Used to put names and source lines to addresses in profiles, traces and coverage.
+ */
+public class ListingFile
+{
+
+	private final String name;
+	private final TreeMap<Integer, String> labels;
+	private final String[] sourceLines;
+	private final int[] lineNumbers;
+
+
+
+	/*
+	 * Method Name:		ListingFile
+	 * Description:		Constructor
+	 * Parameters:		String name: The name of the listing
+	 * 					TreeMap<Integer, String> labels: Label names by address
+	 * 					String[] sourceLines: The source of the instruction at each address, or null
+	 * 					int[] lineNumbers: The listing line of the instruction at each address, or 0
+	 * Return:			None
+	 */
+	private ListingFile(String name, TreeMap<Integer, String> labels, String[] sourceLines, int[] lineNumbers)
+	{
+		this.name = name;
+		this.labels = labels;
+		this.sourceLines = sourceLines;
+		this.lineNumbers = lineNumbers;
+	}
+
+
+
+	/*
+	 * Method Name:		load
+	 * Description:		Reads and parses a listing file.  Lines that are neither labels nor code are ignored
+	 * Parameters:		File file: The listing file
+	 * Return:			The listing
+	 */
+	public static ListingFile load(File file) throws IOException
+	{
+		TreeMap<Integer, String> labels = new TreeMap<Integer, String>();
+		String[] sourceLines = new String[HexImageDecoder.ADDRESS_SPACE];
+		int[] lineNumbers = new int[HexImageDecoder.ADDRESS_SPACE];
+		String pendingLabel = null;
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+
+		try
+		{
+			String line;
+			int lineNumber = 0;
+
+			while ((line = reader.readLine()) != null)
+			{
+				lineNumber++;
+				String code = stripComment(line).trim();
+
+				if (code.endsWith(":") && code.indexOf(' ') < 0 && code.indexOf('\t') < 0)
+				{
+					// labels stack up until the next instruction, the innermost one wins
+					pendingLabel = code.substring(0, code.length() - 1);
+					continue;
+				}
+
+				String[] fields = code.split("\\s+", 2);
+				int address = parseAddress(fields[0]);
+
+				if (address < 0)
+				{
+					continue;
+				}
+
+				if (pendingLabel != null)
+				{
+					labels.put(address, pendingLabel);
+					pendingLabel = null;
+				}
+
+				sourceLines[address] = fields.length > 1 ? stripBytes(fields[1]) : "";
+				lineNumbers[address] = lineNumber;
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+
+		return new ListingFile(file.getName(), labels, sourceLines, lineNumbers);
+	}
+
+
+
+	/*
+	 * Method Name:		stripComment
+	 * Description:		Removes a ; comment from a line
+	 * Parameters:		String line: The listing line
+	 * Return:			The line without the comment
+	 */
+	private static String stripComment(String line)
+	{
+		int comment = line.indexOf(';');
+		return comment < 0 ? line : line.substring(0, comment);
+	}
+
+
+
+	/*
+	 * Method Name:		parseAddress
+	 * Description:		Parses the address at the start of a code line
+	 * Parameters:		String field: The first field of the line
+	 * Return:			The address, or -1 if the field is not a 1 to 4 digit hex number
+	 */
+	private static int parseAddress(String field)
+	{
+		if (field.length() == 0 || field.length() > 4)
+		{
+			return -1;
+		}
+
+		for (int i = 0; i < field.length(); i++)
+		{
+			if (!isHexDigit(field.charAt(i)))
+			{
+				return -1;
+			}
+		}
+
+		return Integer.parseInt(field, 16);
+	}
+
+
+
+	/*
+	 * Method Name:		isHexDigit
+	 * Description:		Determines whether a character is an ASCII hex digit
+	 * Parameters:		char value: The character
+	 * Return:			True if the character is 0-9, A-F or a-f
+	 */
+	private static boolean isHexDigit(char value)
+	{
+		return value < 128 && HexImageDecoder.isHexDigit((byte)value);
+	}
+
+
+
+	/*
+	 * Method Name:		stripBytes
+	 * Description:		Removes the instruction bytes that come before the source on a code line
+	 * Parameters:		String rest: The line after the address
+	 * Return:			The source text
+	 */
+	private static String stripBytes(String rest)
+	{
+		String[] fields = rest.trim().split("\\s+");
+		StringBuilder source = new StringBuilder();
+
+		for (String field : fields)
+		{
+			boolean isByte = field.length() == 2 && isHexDigit(field.charAt(0)) && isHexDigit(field.charAt(1));
+
+			// the bytes only run up to the mnemonic, after that everything is source
+			if (isByte && source.length() == 0)
+			{
+				continue;
+			}
+
+			if (source.length() > 0)
+			{
+				source.append(' ');
+			}
+			source.append(field);
+		}
+
+		return source.toString();
+	}
+
+
+
+	/*
+	 * Method Name:		getName
+	 * Description:		Gets the name of the listing file
+	 * Parameters:		None
+	 * Return:			The name as a String
+	 */
+	public String getName()
+	{
+		return name;
+	}
+
+
+
+	/*
+	 * Method Name:		getLabel
+	 * Description:		Gets the label an address falls under, i.e. the nearest label at or below it
+	 * Parameters:		int address: The address
+	 * Return:			The label, or null if the address comes before every label
+	 */
+	public String getLabel(int address)
+	{
+		Map.Entry<Integer, String> label = labels.floorEntry(address);
+		return label == null ? null : label.getValue();
+	}
+
+
+
+	/*
+	 * Method Name:		getLabelAddress
+	 * Description:		Gets the address of a label
+	 * Parameters:		String label: The label name
+	 * Return:			The address, or -1 if there is no such label
+	 */
+	public int getLabelAddress(String label)
+	{
+		for (Map.Entry<Integer, String> entry : labels.entrySet())
+		{
+			if (entry.getValue().equals(label))
+			{
+				return entry.getKey();
+			}
+		}
+
+		return -1;
+	}
+
+
+
+	/*
+	 * Method Name:		getSource
+	 * Description:		Gets the source of the instruction at an address, e.g. "LDA $00"
+	 * Parameters:		int address: The address
+	 * Return:			The source, or null if no instruction starts at the address
+	 */
+	public String getSource(int address)
+	{
+		return sourceLines[address];
+	}
+
+
+
+	/*
+	 * Method Name:		getLineNumber
+	 * Description:		Gets the listing line the instruction at an address is on
+	 * Parameters:		int address: The address
+	 * Return:			The 1-based line number, or 0 if no instruction starts at the address
+	 */
+	public int getLineNumber(int address)
+	{
+		return lineNumbers[address];
+	}
+
+
+
+	/*
+	 * Method Name:		getInstructionAddresses
+	 * Description:		Gets the address of every instruction in the listing, lowest first
+	 * Parameters:		None
+	 * Return:			The addresses as an int array
+	 */
+	public int[] getInstructionAddresses()
+	{
+		int[] addresses = new int[lineNumbers.length];
+		int count = 0;
+
+		for (int address = 0; address < lineNumbers.length; address++)
+		{
+			if (lineNumbers[address] != 0)
+			{
+				addresses[count++] = address;
+			}
+		}
+
+		return Arrays.copyOf(addresses, count);
+	}
+}
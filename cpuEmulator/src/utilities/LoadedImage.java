@@ -0,0 +1,248 @@
+/*
+ * Filename:		LoadedImage.java
+ * Package:			utilities
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the LoadedImage class
+ */
+
+
+
+package utilities;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+
+
+/*
+ * Class Name:		LoadedImage
+ * Description:		A program image produced by an ImageLoader.  Holds the name of the file the image
+ * 					came from, the entry point, and a list of segments, each being a contiguous run of
+ * 					bytes to be placed at a given address.
+ *
+ * 					Segment data is kept as read-only ByteBuffers so that raw images can be handed over
+ * 					straight from a mapped file and copied into memory with a single bulk get.
+ */
+public class LoadedImage
+{
+
+	private final String name;
+	private final short entryPoint;
+	private final List<Segment> segments;
+	private long checksum;
+
+
+
+	/*
+	 * Class Name:		Segment
+	 * Description:		A contiguous run of image bytes and the address they are loaded at
+	 */
+	public static class Segment
+	{
+
+		private final int address;
+		private final ByteBuffer data;
+
+
+
+		/*
+		 * Method Name:		Segment
+		 * Description:		Constructor
+		 * Parameters:		int address: The address of the first byte
+		 * 					ByteBuffer data: The bytes between position and limit
+		 * Return:			None
+		 */
+		public Segment(int address, ByteBuffer data)
+		{
+			this.address = address;
+			this.data = data.slice().asReadOnlyBuffer();
+		}
+
+
+
+		/*
+		 * Method Name:		getAddress
+		 * Description:		Gets the load address of the segment
+		 * Parameters:		None
+		 * Return:			The address as an int
+		 */
+		public int getAddress()
+		{
+			return address;
+		}
+
+
+
+		/*
+		 * Method Name:		getLength
+		 * Description:		Gets the number of bytes in the segment
+		 * Parameters:		None
+		 * Return:			The length in bytes
+		 */
+		public int getLength()
+		{
+			return data.capacity();
+		}
+
+
+
+		/*
+		 * Method Name:		getData
+		 * Description:		Gets a fresh read-only view of the segment bytes, positioned at zero
+		 * Parameters:		None
+		 * Return:			The segment bytes as a ByteBuffer
+		 */
+		public ByteBuffer getData()
+		{
+			return data.duplicate();
+		}
+	}
+
+
+
+	/*
+	 * Method Name:		LoadedImage
+	 * Description:		Constructor
+	 * Parameters:		String name: The name of the image, normally the file it was loaded from
+	 * 					short entryPoint: The address execution starts at
+	 * 					List<Segment> segments: The segments making up the image
+	 * Return:			None
+	 */
+	public LoadedImage(String name, short entryPoint, List<Segment> segments)
+	{
+		this.name = name;
+		this.entryPoint = entryPoint;
+		this.segments = Collections.unmodifiableList(new ArrayList<Segment>(segments));
+		this.checksum = -1;
+	}
+
+
+
+	/*
+	 * Method Name:		fromS1Records
+	 * Description:		Builds an image from S1 records as produced by Srec.parseSREC, where the first two
+	 * 					bytes of each record are the big endian load address
+	 * Parameters:		String name: The name of the image
+	 * 					short entryPoint: The address retrieved from the S9 record
+	 * 					List<byte[]> s1Records: A list of S1 records as byte arrays
+	 * Return:			The image
+	 */
+	public static LoadedImage fromS1Records(String name, short entryPoint, List<byte[]> s1Records)
+	{
+		List<Segment> segments = new ArrayList<Segment>();
+
+		for (byte[] s1Record : s1Records)
+		{
+			if (s1Record.length > 2)
+			{
+				int address = ((s1Record[0] & 0xff) << 8) | (s1Record[1] & 0xff);
+				segments.add(new Segment(address, ByteBuffer.wrap(s1Record, 2, s1Record.length - 2)));
+			}
+		}
+
+		return new LoadedImage(name, entryPoint, segments);
+	}
+
+
+
+	/*
+	 * Method Name:		getName
+	 * Description:		Gets the name of the image
+	 * Parameters:		None
+	 * Return:			The name as a String
+	 */
+	public String getName()
+	{
+		return name;
+	}
+
+
+
+	/*
+	 * Method Name:		getEntryPoint
+	 * Description:		Gets the address execution starts at
+	 * Parameters:		None
+	 * Return:			The entry point as a short
+	 */
+	public short getEntryPoint()
+	{
+		return entryPoint;
+	}
+
+
+
+	/*
+	 * Method Name:		getSegments
+	 * Description:		Gets the segments making up the image
+	 * Parameters:		None
+	 * Return:			An unmodifiable list of segments
+	 */
+	public List<Segment> getSegments()
+	{
+		return segments;
+	}
+
+
+
+	/*
+	 * Method Name:		getSize
+	 * Description:		Gets the total number of bytes in all segments
+	 * Parameters:		None
+	 * Return:			The size in bytes
+	 */
+	public int getSize()
+	{
+		int size = 0;
+
+		for (Segment segment : segments)
+		{
+			size += segment.getLength();
+		}
+
+		return size;
+	}
+
+
+
+	/*
+	 * Method Name:		getChecksum
+	 * Description:		Gets a CRC32 over the entry point and every segment's address and bytes, used to
+	 * 					identify the image independently of its name
+	 * Parameters:		None
+	 * Return:			The checksum as a long
+	 */
+	public synchronized long getChecksum()
+	{
+		if (checksum < 0)
+		{
+			CRC32 crc = new CRC32();
+			byte[] chunk = new byte[4096];
+
+			crc.update(entryPoint >> 8);
+			crc.update(entryPoint);
+
+			for (Segment segment : segments)
+			{
+				ByteBuffer data = segment.getData();
+
+				crc.update(segment.getAddress() >> 8);
+				crc.update(segment.getAddress());
+
+				while (data.hasRemaining())
+				{
+					int length = Math.min(chunk.length, data.remaining());
+					data.get(chunk, 0, length);
+					crc.update(chunk, 0, length);
+				}
+			}
+
+			checksum = crc.getValue();
+		}
+
+		return checksum;
+	}
+}
@@ -0,0 +1,246 @@
+/*
+ * Filename:		MemoryExporter.java
+ * Package:			utilities
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the MemoryExporter class
+ */
+
+
+
+package utilities;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+
+
+/*
+ * Class Name:		MemoryExporter
+ * Description:		Writes ranges of emulator memory out as S-records or raw binary.
+ *
+ * 					Records are hex encoded with a lookup table into a reusable buffer that is written
+ * 					through a FileChannel whenever it fills, so an export allocates nothing per record.
+ * 					Raw binary ranges are written straight from a view of memory.  An exporter can be
+ * 					reused for any number of exports but must not be shared between threads.
+ */
+public class MemoryExporter
+{
+
+	private final static byte[] HEX_DIGITS = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F' };
+	private final static int BYTES_PER_RECORD = 32;
+	private final static int LONGEST_RECORD = 4 + 2 * (1 + 2 + BYTES_PER_RECORD + 1) + 1;
+	private final static byte[] HEADER = { '6', '8', '0', '8' };
+
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+	private int checksum;
+
+
+
+
+
+
+	/*
+	 * Method Name:		exportSrec
+	 * Description:		Writes the given ranges as an S0 header, S1 data records of up to 32 bytes and an
+	 * 					S9 record holding the entry point
+	 * Parameters:		File file: The file to write, replaced if it exists
+	 * 					ByteBuffer memory: The 64K memory to export from, read with absolute gets
+	 * 					short entryPoint: The address to put in the S9 record
+	 * 					AddressRange... ranges: The ranges to export
+	 * Return:			None
+	 */
+	public void exportSrec(File file, ByteBuffer memory, short entryPoint, AddressRange... ranges) throws IOException
+	{
+		FileOutputStream stream = new FileOutputStream(file);
+
+		try
+		{
+			FileChannel channel = stream.getChannel();
+			buffer.clear();
+
+			startRecord('0', 2 + HEADER.length);
+			putAddress(0);
+			for (byte value : HEADER)
+			{
+				putByte(value & 0xff);
+			}
+			endRecord();
+
+			for (AddressRange range : ranges)
+			{
+				for (int address = range.getStart(); address <= range.getEnd(); address += BYTES_PER_RECORD)
+				{
+					int count = Math.min(BYTES_PER_RECORD, range.getEnd() - address + 1);
+
+					if (buffer.remaining() < LONGEST_RECORD)
+					{
+						flush(channel);
+					}
+
+					startRecord('1', 2 + count);
+					putAddress(address);
+					for (int i = 0; i < count; i++)
+					{
+						putByte(memory.get(address + i) & 0xff);
+					}
+					endRecord();
+				}
+			}
+
+			if (buffer.remaining() < LONGEST_RECORD)
+			{
+				flush(channel);
+			}
+
+			startRecord('9', 2);
+			putAddress(entryPoint & 0xffff);
+			endRecord();
+
+			flush(channel);
+		}
+		finally
+		{
+			stream.close();
+		}
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		exportBinary
+	 * Description:		Writes the given ranges back to back as raw bytes
+	 * Parameters:		File file: The file to write, replaced if it exists
+	 * 					ByteBuffer memory: The 64K memory to export from
+	 * 					AddressRange... ranges: The ranges to export
+	 * Return:			None
+	 */
+	public void exportBinary(File file, ByteBuffer memory, AddressRange... ranges) throws IOException
+	{
+		FileOutputStream stream = new FileOutputStream(file);
+
+		try
+		{
+			FileChannel channel = stream.getChannel();
+
+			for (AddressRange range : ranges)
+			{
+				ByteBuffer view = memory.duplicate();
+				view.limit(range.getEnd() + 1);
+				view.position(range.getStart());
+
+				while (view.hasRemaining())
+				{
+					channel.write(view);
+				}
+			}
+		}
+		finally
+		{
+			stream.close();
+		}
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		startRecord
+	 * Description:		Puts the record type and count and starts the checksum
+	 * Parameters:		char type: The record type digit
+	 * 					int count: The number of address and data bytes, not counting the checksum
+	 * Return:			None
+	 */
+	private void startRecord(char type, int count)
+	{
+		buffer.put((byte)'S');
+		buffer.put((byte)type);
+		checksum = 0;
+		putByte(count + 1);
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		putAddress
+	 * Description:		Puts a 16 bit address, high byte first
+	 * Parameters:		int address: The address
+	 * Return:			None
+	 */
+	private void putAddress(int address)
+	{
+		putByte(address >> 8);
+		putByte(address & 0xff);
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		putByte
+	 * Description:		Puts a byte as two hex digits and adds it to the checksum
+	 * Parameters:		int value: The byte value from 0 to 255
+	 * Return:			None
+	 */
+	private void putByte(int value)
+	{
+		checksum += value;
+		buffer.put(HEX_DIGITS[value >> 4]);
+		buffer.put(HEX_DIGITS[value & 0x0f]);
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		endRecord
+	 * Description:		Puts the one's complement checksum and a line break
+	 * Parameters:		None
+	 * Return:			None
+	 */
+	private void endRecord()
+	{
+		int recordChecksum = ~checksum & 0xff;
+		buffer.put(HEX_DIGITS[recordChecksum >> 4]);
+		buffer.put(HEX_DIGITS[recordChecksum & 0x0f]);
+		buffer.put((byte)'\n');
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		flush
+	 * Description:		Writes out and clears the encode buffer
+	 * Parameters:		FileChannel channel: The channel to write to
+	 * Return:			None
+	 */
+	private void flush(FileChannel channel) throws IOException
+	{
+		buffer.flip();
+
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
+
+		buffer.clear();
+	}
+}
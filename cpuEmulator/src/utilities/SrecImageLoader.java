@@ -0,0 +1,178 @@
+/*
+ * Filename:		SrecImageLoader.java
+ * Package:			utilities
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the SrecImageLoader class
+ */
+
+
+
+package utilities;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+
+
+/*
+ * Class Name:		SrecImageLoader
+ * Description:		Loads Motorola S-record files.  Every record's count and checksum is validated as
+ * 					it is decoded; S1/S2/S3 data records are loaded, S7/S8/S9 give the entry point and
+ * 					the S0 header and S5/S6 count records are skipped.
+ */
+public class SrecImageLoader implements ImageLoader
+{
+
+	/*
+	 * Method Name:		getFormatName
+	 * Description:		Gets a short human readable name for the format
+	 * Parameters:		None
+	 * Return:			The format name
+	 */
+	public String getFormatName()
+	{
+		return "S-Record";
+	}
+
+
+
+	/*
+	 * Method Name:		accepts
+	 * Description:		Accepts files whose first record starts with 'S' and a record type digit
+	 * Parameters:		ByteBuffer header: A read-only view of the start of the file
+	 * Return:			True if the file looks like an S-record file
+	 */
+	public boolean accepts(ByteBuffer header)
+	{
+		return header.remaining() >= 2 && header.get(header.position()) == 'S'
+				&& Character.isDigit((char)header.get(header.position() + 1));
+	}
+
+
+
+	/*
+	 * Method Name:		load
+	 * Description:		Decodes and validates every record in the file
+	 * Parameters:		String name: The name to give the image
+	 * 					ByteBuffer contents: The file contents
+	 * Return:			The decoded image
+	 */
+	public LoadedImage load(String name, ByteBuffer contents) throws IOException
+	{
+		HexImageDecoder decoder = new HexImageDecoder(contents);
+		short entryPoint = 0;
+		boolean isDataFound = false;
+
+		while (decoder.nextRecord('S'))
+		{
+			char type = decoder.readChar();
+			int count = decoder.readByte();
+			int addressBytes = getAddressBytes(type);
+
+			if (addressBytes == 0)
+			{
+				throw decoder.error("Unsupported record type S" + type);
+			}
+
+			if (count < addressBytes + 1)
+			{
+				throw decoder.error("Record count too small");
+			}
+
+			int address = decoder.readAddress(addressBytes);
+			int dataBytes = count - addressBytes - 1;
+
+			switch (type)
+			{
+			case '1':
+			case '2':
+			case '3':
+				decoder.readData(address, dataBytes);
+				isDataFound = true;
+				break;
+
+			case '7':
+			case '8':
+			case '9':
+				if (address >= HexImageDecoder.ADDRESS_SPACE)
+				{
+					throw decoder.error("Entry point out of range");
+				}
+				entryPoint = (short)address;
+				skipBytes(decoder, dataBytes);
+				break;
+
+			default:
+				skipBytes(decoder, dataBytes);
+				break;
+			}
+
+			// the checksum is the one's complement of the low byte of the sum of count, address and data
+			int expected = ~decoder.getChecksum() & 0xff;
+
+			if (decoder.readByte() != expected)
+			{
+				throw decoder.error("Checksum mismatch");
+			}
+		}
+
+		if (!isDataFound)
+		{
+			throw new IOException("The S-Record file contains no data records");
+		}
+
+		return decoder.toImage(name, entryPoint);
+	}
+
+
+
+	/*
+	 * Method Name:		getAddressBytes
+	 * Description:		Gets the address width for a record type
+	 * Parameters:		char type: The record type digit
+	 * Return:			The number of address bytes, or 0 for unknown types
+	 */
+	private int getAddressBytes(char type)
+	{
+		int addressBytes = 0;
+
+		switch (type)
+		{
+		case '0':
+		case '1':
+		case '5':
+		case '9':
+			addressBytes = 2;
+			break;
+		case '2':
+		case '6':
+		case '8':
+			addressBytes = 3;
+			break;
+		case '3':
+		case '7':
+			addressBytes = 4;
+			break;
+		}
+
+		return addressBytes;
+	}
+
+
+
+	/*
+	 * Method Name:		skipBytes
+	 * Description:		Reads and discards data bytes, keeping them in the checksum
+	 * Parameters:		HexImageDecoder decoder: The decoder
+	 * 					int count: The number of bytes to skip
+	 * Return:			None
+	 */
+	private void skipBytes(HexImageDecoder decoder, int count) throws IOException
+	{
+		for (int i = 0; i < count; i++)
+		{
+			decoder.readByte();
+		}
+	}
+}
@@ -13,10 +13,18 @@ package windows;
 
 import cpu.Freescale6808CPU;
 import cpu.Freescale6808CPU.CCR_BIT;
+import emulator.Breakpoints;
+import emulator.CompiledExpression;
+import emulator.ExpressionCompiler;
 import emulator.Freescale6808Emulator;
 import emulator.Freescale6808Emulator.SWITCH_BIT;
+import emulator.IdleDetector;
+import emulator.MachineSnapshot;
+import emulator.RunLoop;
+import emulator.StopCondition;
+import emulator.Throttle;
+import emulator.TimeTravel;
 
-import javax.swing.SwingWorker;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import javax.swing.JFileChooser;
@@ -39,19 +47,23 @@ import java.awt.Toolkit;
 import javax.swing.JMenuBar;
 import javax.swing.JMenu;
 import javax.swing.JMenuItem;
+import javax.swing.JRadioButtonMenuItem;
+import javax.swing.ButtonGroup;
 import javax.swing.UIManager;
 import java.awt.SystemColor;
 import javax.swing.JTextArea;
 import javax.swing.JSlider;
 import javax.swing.JScrollPane;
+import javax.swing.JTable;
 import javax.swing.border.LineBorder;
 import javax.swing.ImageIcon;
 import javax.swing.Timer;
-import java.util.ArrayList;
+import java.io.File;
+import utilities.BinaryImageLoader;
+import utilities.ImageLoaders;
+import utilities.LoadedImage;
 import java.util.List;
-import utilities.FileIO;
-import utilities.Srec;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 
 /*
@@ -64,12 +76,18 @@ public class EmulatorGUI extends JFrame implements ActionListener, ChangeListene
 {
 	private Freescale6808Emulator emulator;
 	private Freescale6808CPU cpu;
+	private TimeTravel timeTravel;
+	private Breakpoints breakpoints;
+	private List<CompiledExpression> watchExpressions;
+	private ImageLoaders imageLoaders;
 	private boolean isFileLoaded;
-	private AtomicBoolean isProgramRunning;
-	private AtomicBoolean executeError;
-	private String errorMessage;
+	private RunLoop runLoop;
+	private MachineSnapshot shownSnapshot;
+	private Freescale6808Emulator watchEmulator;
 	private Timer runTimer;
 	
+	private final static int FRAME_MILLISECONDS = 1000 / 60;
+	
 	private JPanel processorPanel;
 	private JPanel cpuPanel;
 	private JButton stepButton;
@@ -94,11 +112,26 @@ public class EmulatorGUI extends JFrame implements ActionListener, ChangeListene
 	private JTextField spValue;
 	private JTextField regLowValue;
 	private JTextField regHighValue;
-	private JTextArea memoryMapText;
+	private JTable memoryTable;
+	private MemoryTableModel memoryModel;
+	private JTextArea watchText;
 	
 	private JMenuItem loadMenuItem;
+	private JMenuItem loadBinaryMenuItem;
 	private JMenuItem resetMenuItem;
 	private JMenuItem exitMenuItem;
+	private JMenuItem reverseStepMenuItem;
+	private JMenuItem reverseContinueMenuItem;
+	private JMenuItem breakpointMenuItem;
+	private JMenuItem conditionalBreakpointMenuItem;
+	private JMenuItem watchpointMenuItem;
+	private JMenuItem listBreakpointsMenuItem;
+	private JMenuItem clearBreakpointsMenuItem;
+	private JMenuItem addWatchMenuItem;
+	private JMenuItem clearWatchesMenuItem;
+	private JRadioButtonMenuItem unpacedMenuItem;
+	private JRadioButtonMenuItem fourMegahertzMenuItem;
+	private JRadioButtonMenuItem eightMegahertzMenuItem;
 	
 	
 	public EmulatorGUI() 
@@ -106,13 +139,19 @@ public class EmulatorGUI extends JFrame implements ActionListener, ChangeListene
 		//initialize emulator, CPU, and GUI
 		setIconImage(Toolkit.getDefaultToolkit().getImage(EmulatorGUI.class.getResource("/javax/swing/plaf/metal/icons/ocean/menu.gif")));
 		emulator = new Freescale6808Emulator();
+		imageLoaders = new ImageLoaders();
+		watchExpressions = new CopyOnWriteArrayList<CompiledExpression>();
 		isFileLoaded = false;
 		EmulatorGUI_Init();
-		isProgramRunning = new AtomicBoolean(false);
-		executeError = new AtomicBoolean(false);		
-		runTimer = new Timer(100, this);
+		runTimer = new Timer(FRAME_MILLISECONDS, this);
 		cpu = new Freescale6808CPU();
 		emulator.setCpu(cpu);
+		emulator.setIdleDetector(new IdleDetector());
+		runLoop = new RunLoop(emulator);
+		shownSnapshot = null;
+		watchEmulator = new Freescale6808Emulator();
+		timeTravel = new TimeTravel(emulator);
+		breakpoints = new Breakpoints();
 		UpdateCPUValues();
 	}
 	
@@ -129,7 +168,7 @@ public class EmulatorGUI extends JFrame implements ActionListener, ChangeListene
 		setResizable(false);
 		setTitle("6808 Emulator");
 		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-		setBounds(100, 100, 752, 500);
+		setBounds(100, 100, 752, 600);
 		processorPanel = new JPanel();
 		processorPanel.setBackground(SystemColor.inactiveCaption);
 		processorPanel.setBorder(new EmptyBorder(5, 5, 5, 5));
@@ -140,7 +179,7 @@ public class EmulatorGUI extends JFrame implements ActionListener, ChangeListene
 		cpuPanel = new JPanel();
 		cpuPanel.setBorder(new LineBorder(new Color(0, 0, 0), 1, true));
 		cpuPanel.setBackground(Color.WHITE);
-		cpuPanel.setBounds(479, 71, 256, 378);
+		cpuPanel.setBounds(479, 71, 256, 478);
 		processorPanel.add(cpuPanel);
 		cpuPanel.setLayout(null);
 		
@@ -268,6 +307,25 @@ public class EmulatorGUI extends JFrame implements ActionListener, ChangeListene
 		registersLabel.setBounds(10, 41, 80, 14);
 		cpuPanel.add(registersLabel);
 		
+		JSeparator watchSeperator = new JSeparator();
+		watchSeperator.setBounds(0, 376, 256, 2);
+		cpuPanel.add(watchSeperator);
+		
+		JLabel watchLabel = new JLabel("Watch Expressions");
+		watchLabel.setFont(new Font("Calibri", Font.BOLD, 14));
+		watchLabel.setBounds(10, 383, 160, 14);
+		cpuPanel.add(watchLabel);
+		
+		JScrollPane watchScroll = new JScrollPane();
+		watchScroll.setBounds(10, 402, 236, 68);
+		cpuPanel.add(watchScroll);
+		
+		watchText = new JTextArea();
+		watchText.setBackground(Color.WHITE);
+		watchText.setFont(new Font("Calibri", Font.PLAIN, 12));
+		watchText.setEditable(false);
+		watchScroll.setViewportView(watchText);
+		
 		JLabel zeroSlider = new JLabel("200");
 		zeroSlider.setFont(new Font("Calibri", Font.BOLD, 20));
 		zeroSlider.setBounds(10, 452, 36, 21);
@@ -397,11 +455,16 @@ public class EmulatorGUI extends JFrame implements ActionListener, ChangeListene
 		fileMenu.setFont(new Font("Segoe UI", Font.PLAIN, 12));
 		mainMenu.add(fileMenu);
 		
-		loadMenuItem = new JMenuItem("Load S-REC File");
+		loadMenuItem = new JMenuItem("Load Program Image");
 		loadMenuItem.setIcon(new ImageIcon(EmulatorGUI.class.getResource("/javax/swing/plaf/metal/icons/ocean/file.gif")));
 		loadMenuItem.addActionListener(this);
 		fileMenu.add(loadMenuItem);
 		
+		loadBinaryMenuItem = new JMenuItem("Load Raw Binary Image...");
+		loadBinaryMenuItem.setIcon(new ImageIcon(EmulatorGUI.class.getResource("/javax/swing/plaf/metal/icons/ocean/file.gif")));
+		loadBinaryMenuItem.addActionListener(this);
+		fileMenu.add(loadBinaryMenuItem);
+		
 		resetMenuItem = new JMenuItem("Reset CPU");
 		resetMenuItem.setIcon(new ImageIcon(EmulatorGUI.class.getResource("/com/sun/java/swing/plaf/windows/icons/FloppyDrive.gif")));
 		resetMenuItem.addActionListener(this);
@@ -412,6 +475,69 @@ public class EmulatorGUI extends JFrame implements ActionListener, ChangeListene
 		exitMenuItem.addActionListener(this);
 		fileMenu.add(exitMenuItem);
 		
+		JMenu debugMenu = new JMenu("Debug");
+		debugMenu.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+		mainMenu.add(debugMenu);
+		
+		reverseStepMenuItem = new JMenuItem("Reverse Step");
+		reverseStepMenuItem.addActionListener(this);
+		debugMenu.add(reverseStepMenuItem);
+		
+		reverseContinueMenuItem = new JMenuItem("Reverse Continue...");
+		reverseContinueMenuItem.addActionListener(this);
+		debugMenu.add(reverseContinueMenuItem);
+		debugMenu.addSeparator();
+		
+		breakpointMenuItem = new JMenuItem("Toggle Breakpoint...");
+		breakpointMenuItem.addActionListener(this);
+		debugMenu.add(breakpointMenuItem);
+		
+		watchpointMenuItem = new JMenuItem("Watch Memory...");
+		watchpointMenuItem.addActionListener(this);
+		debugMenu.add(watchpointMenuItem);
+		
+		conditionalBreakpointMenuItem = new JMenuItem("Conditional Breakpoint...");
+		conditionalBreakpointMenuItem.addActionListener(this);
+		debugMenu.add(conditionalBreakpointMenuItem);
+		
+		listBreakpointsMenuItem = new JMenuItem("List Breakpoints");
+		listBreakpointsMenuItem.addActionListener(this);
+		debugMenu.add(listBreakpointsMenuItem);
+		
+		clearBreakpointsMenuItem = new JMenuItem("Clear Breakpoints");
+		clearBreakpointsMenuItem.addActionListener(this);
+		debugMenu.add(clearBreakpointsMenuItem);
+		debugMenu.addSeparator();
+		
+		addWatchMenuItem = new JMenuItem("Add Watch Expression...");
+		addWatchMenuItem.addActionListener(this);
+		debugMenu.add(addWatchMenuItem);
+		
+		clearWatchesMenuItem = new JMenuItem("Clear Watch Expressions");
+		clearWatchesMenuItem.addActionListener(this);
+		debugMenu.add(clearWatchesMenuItem);
+		
+		//the bus clock runs are paced to, as fast as possible by default
+		JMenu clockMenu = new JMenu("Clock");
+		clockMenu.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+		mainMenu.add(clockMenu);
+		ButtonGroup clockGroup = new ButtonGroup();
+		
+		unpacedMenuItem = new JRadioButtonMenuItem("As Fast As Possible", true);
+		unpacedMenuItem.addActionListener(this);
+		clockGroup.add(unpacedMenuItem);
+		clockMenu.add(unpacedMenuItem);
+		
+		fourMegahertzMenuItem = new JRadioButtonMenuItem("4 MHz Bus");
+		fourMegahertzMenuItem.addActionListener(this);
+		clockGroup.add(fourMegahertzMenuItem);
+		clockMenu.add(fourMegahertzMenuItem);
+		
+		eightMegahertzMenuItem = new JRadioButtonMenuItem("8 MHz Bus");
+		eightMegahertzMenuItem.addActionListener(this);
+		clockGroup.add(eightMegahertzMenuItem);
+		clockMenu.add(eightMegahertzMenuItem);
+		
 		//initialize the memory mapping elements on the GUI
 		memorySlider = new JSlider();
 		memorySlider.setBorder(new LineBorder(new Color(0, 0, 0), 1, true));
@@ -432,12 +558,17 @@ public class EmulatorGUI extends JFrame implements ActionListener, ChangeListene
 		memoryScroll.setBounds(10, 71, 459, 355);
 		processorPanel.add(memoryScroll);
 		
-		memoryMapText = new JTextArea();
-		memoryMapText.setBackground(Color.WHITE);
-		memoryMapText.setWrapStyleWord(true);
-		memoryScroll.setViewportView(memoryMapText);
-		memoryMapText.setFont(new Font("Calibri", Font.PLAIN, 11));
-		memoryMapText.setEditable(false);
+		//the table only formats the rows in view, so the slider can cover all of memory
+		memoryModel = new MemoryTableModel(memorySlider.getValue());
+		memoryTable = new JTable(memoryModel);
+		memoryTable.setBackground(Color.WHITE);
+		memoryTable.setFont(new Font("Calibri", Font.PLAIN, 11));
+		memoryTable.setRowHeight(16);
+		memoryTable.setShowGrid(false);
+		memoryTable.setCellSelectionEnabled(false);
+		memoryTable.getTableHeader().setReorderingAllowed(false);
+		memoryTable.getColumnModel().getColumn(0).setPreferredWidth(60);
+		memoryScroll.setViewportView(memoryTable);
 		
 		runButton = new JButton("Run");
 		runButton.setIcon(new ImageIcon(EmulatorGUI.class.getResource("/com/sun/java/swing/plaf/windows/icons/TreeLeaf.gif")));
@@ -458,78 +589,87 @@ public class EmulatorGUI extends JFrame implements ActionListener, ChangeListene
 	
 	/*
 	 * Method Name: UpdateCPUValues
-	 * Description: This method updates the CPU register values based on emulator CPU.
+	 * Description: This method updates the CPU register values based on emulator CPU. While the program
+	 * runs the emulator belongs to the run loop's thread, so nothing is read here and the run timer
+	 * shows the run loop's snapshots instead.
 	 * Parameters: No parameters.
 	 * Return: No return value.
 	 */
 	private void UpdateCPUValues()
+	{
+		if(!runLoop.isRunning())
+		{
+			RenderSnapshot(MachineSnapshot.capture(emulator, shownSnapshot));
+		}
+	}
+	
+	
+	/*
+	 * Method Name: RenderSnapshot
+	 * Description: This method displays the registers, memory and watch expressions of a snapshot.
+	 * Parameters
+	 * 	MachineSnapshot snapshot = the snapshot to display
+	 * Return: No return value.
+	 */
+	private void RenderSnapshot(MachineSnapshot snapshot)
 	{
 		String prefix = "0x";
-		String memoryMap = "";
 		
-		//get the current CPU from the emulator, and update the memory map
-		cpu = emulator.getCpu();
-		memoryMap = UpdateMemoryMap();
-		memoryMapText.setText(memoryMap);
-		memoryMapText.setCaretPosition(0);
+		//update the rows of the memory map whose pages changed since the last snapshot shown
+		memoryModel.refresh(snapshot);
+		shownSnapshot = snapshot;
 		
 		//display the current register values
-		accumulatorValue.setText(prefix + String.format("%04X", cpu.getA()));
-		pcValue.setText(prefix + String.format("%04X", cpu.getPC()));
-		spValue.setText(prefix + String.format("%04X", cpu.getSP()));
-		regLowValue.setText(prefix + String.format("%02X", cpu.getX()));
-		regHighValue.setText(prefix + String.format("%02X", cpu.getH()));
+		accumulatorValue.setText(prefix + String.format("%04X", snapshot.getA()));
+		pcValue.setText(prefix + String.format("%04X", snapshot.getPC()));
+		spValue.setText(prefix + String.format("%04X", snapshot.getSP()));
+		regLowValue.setText(prefix + String.format("%02X", snapshot.getX()));
+		regHighValue.setText(prefix + String.format("%02X", snapshot.getH()));
 		
 		//display the current CCR values including the flag values
-		ccrValue.setText(prefix + String.format("%02X", cpu.getCCR()));
-		carryBox.setSelected(cpu.isCCRBit(CCR_BIT.CARRY));
-		zeroBox.setSelected(cpu.isCCRBit(CCR_BIT.ZERO));
-		negativeBox.setSelected(cpu.isCCRBit(CCR_BIT.NEGATIVE));
-		interruptBox.setSelected(cpu.isCCRBit(CCR_BIT.INTERRUPT));
-		halfBox.setSelected(cpu.isCCRBit(CCR_BIT.HALF));
-		overflowBox.setSelected(cpu.isCCRBit(CCR_BIT.OVERFLOW));
+		ccrValue.setText(prefix + String.format("%02X", snapshot.getCCR()));
+		carryBox.setSelected(snapshot.isCCRBit(CCR_BIT.CARRY));
+		zeroBox.setSelected(snapshot.isCCRBit(CCR_BIT.ZERO));
+		negativeBox.setSelected(snapshot.isCCRBit(CCR_BIT.NEGATIVE));
+		interruptBox.setSelected(snapshot.isCCRBit(CCR_BIT.INTERRUPT));
+		halfBox.setSelected(snapshot.isCCRBit(CCR_BIT.HALF));
+		overflowBox.setSelected(snapshot.isCCRBit(CCR_BIT.OVERFLOW));
+		
+		//display the current watch expression values, evaluated against a copy of the snapshot
+		String watches = "";
+		
+		if(!watchExpressions.isEmpty())
+		{
+			snapshot.copyTo(watchEmulator);
+		}
+		
+		for(CompiledExpression watch : watchExpressions)
+		{
+			int value = watch.evaluate(watchEmulator);
+			watches += String.format("%s = %d (0x%X)\n", watch.getText(), value, value);
+		}
+		
+		watchText.setText(watches);
 	}
 	
 	
 	/*
-	 * Method Name: UpdateMemoryMap
-	 * Description: This method updates the memory map based on current slider value.
+	 * Method Name: UpdateSwitchValues
+	 * Description: This method sets the switch check boxes from port A, which changes when stepping backwards.
 	 * Parameters: No parameters.
-	 * Return: Returns a formatted string with the memory map.
+	 * Return: No return value.
 	 */
-	private String UpdateMemoryMap()
+	private void UpdateSwitchValues()
 	{
-		String tempMemory = "";
-		String memoryMap = "";
-		byte cpuMemory[] = emulator.getMemoryArray();
-		int x = 0;
-		int y = 0;
-		
-		//loop until the current slider value is met
-		for(x = 0;x < (memorySlider.getValue());x += 16)
-		{
-			//parse the current 10 byte value
-			tempMemory = String.format("%04X\t:\t", x);
-			
-			//loop until 10 bytes have been printed
-			for(y = 0; y < 16; y++)
-			{
-				//only print if the value is less than 65535 (MAX_ADDRESS_SPACE
-				if((x + y) <= 65535)
-				{
-					tempMemory += String.format("%02X  ", cpuMemory[x + y]);
-				}
-			}
-			
-			//build the memory map string of all memory values
-			memoryMap += tempMemory + "\n";
-		}
+		byte portA = emulator.getMemoryByte(0);
 		
-		return memoryMap;
+		switchOneBox.setSelected((portA & 0x10) != 0);
+		switchTwoBox.setSelected((portA & 0x20) != 0);
+		switchThreeBox.setSelected((portA & 0x40) != 0);
+		switchFourBox.setSelected((portA & 0x80) != 0);
 	}
 	
 	
-	
 	/*
 	 * Method Name: stateChanged
 	 * Description: This method updates the memory map based on current slider value.
@@ -541,8 +681,7 @@ public class EmulatorGUI extends JFrame implements ActionListener, ChangeListene
 		JSlider source = (JSlider)e.getSource();
 	    if (!source.getValueIsAdjusting()) 
 	    {
-	    	memoryMapText.setText(UpdateMemoryMap());
-	    	memoryMapText.setCaretPosition(0);
+	    	memoryModel.setLimit(source.getValue());
 	    }
 	}
 	
@@ -559,53 +698,57 @@ public class EmulatorGUI extends JFrame implements ActionListener, ChangeListene
 	public void actionPerformed(ActionEvent e)
 	{
 		Object buttonClicked = e.getSource();
-		FileIO srecFile = new FileIO();
-		Srec validSrecFile = new Srec();
-		List<byte[]> recordList = new ArrayList<byte[]>();
-		short startingAddress = (short)0x0000;
 		
-		if(buttonClicked == loadMenuItem) //handle load button click
+		if(buttonClicked == loadMenuItem || buttonClicked == loadBinaryMenuItem) //handle load button clicks
 		{
-			//show the user a file dialog and only let them select .srec files
-			int fileResult = 0;
+			//a raw binary has no addresses of its own, so ask where it goes before asking for the file
+			boolean isBinary = buttonClicked == loadBinaryMenuItem;
+			String baseAddress = isBinary ? JOptionPane.showInputDialog(this, "Load at address, or TOP to end at the top of memory:", "TOP") : "";
+			
+			//show the user a file dialog, defaulting to the supported image formats
+			int fileResult = JFileChooser.CANCEL_OPTION;
 			JFileChooser ofd = new JFileChooser("C:\\");
-			ofd.setFileFilter(new FileNameExtensionFilter("S-Record File (*.srec)", "srec"));
-			fileResult = ofd.showOpenDialog(this);
+			
+			if(!isBinary)
+			{
+				ofd.setFileFilter(new FileNameExtensionFilter("Program Image (*.srec, *.s19, *.hex, *.bin)", "srec", "s19", "hex", "bin"));
+			}
+			
+			if(baseAddress != null && baseAddress.trim().length() > 0)
+			{
+				fileResult = ofd.showOpenDialog(this);
+			}
 			
 			//only if the OK button is clicked, load / parse / load memory / update CPU values
 			if(fileResult == JFileChooser.APPROVE_OPTION)
 			{
-				String fileContents = srecFile.loadSREC(ofd.getSelectedFile().getAbsolutePath());
-				
-				if(fileContents != null)
+				//the loader is picked from the file contents (S-Record, Intel HEX, or raw binary if named .bin)
+				try
 				{
-					recordList = validSrecFile.parseSREC(fileContents);
+					File file = new File(ofd.getSelectedFile().getAbsolutePath());
+					LoadedImage image;
 					
-					if(!recordList.isEmpty())
-					{						
-						startingAddress = validSrecFile.getStartingAddress();
-						
-						try
-						{
-							emulator.resetEmulator();	
-							emulator.loadSrecIntoMemory(startingAddress, recordList);
-							UpdateCPUValues();
-							isFileLoaded = true;
-						}
-						catch (Exception ex) 
-						{
-							JOptionPane.showMessageDialog(this, ex.getMessage(), "File Load Failed", JOptionPane.OK_OPTION);
-						}						
+					if(isBinary)
+					{
+						baseAddress = baseAddress.trim();
+						image = imageLoaders.loadBinary(file, baseAddress.equalsIgnoreCase("TOP") ? BinaryImageLoader.ALIGN_TO_TOP : Integer.decode(baseAddress.replace("$", "0x")));
 					}
 					else
 					{
-						JOptionPane.showMessageDialog(this, "The S-Record file contents were not valid. File load failed.", "File Load Failed", JOptionPane.OK_OPTION);
+						image = imageLoaders.load(file);
 					}
+					
+					emulator.resetEmulator();	
+					emulator.loadImage(image);
+					timeTravel.start();
+					UpdateCPUValues();
+					UpdateSwitchValues();
+					isFileLoaded = true;
+				}
+				catch (Exception ex) 
+				{
+					JOptionPane.showMessageDialog(this, ex.getMessage() + ". File load failed.", "File Load Failed", JOptionPane.OK_OPTION);
 				}
-			}
-			else
-			{
-				JOptionPane.showMessageDialog(this, "The S-Record file was not a valid .srec file. File load failed.", "File Load Failed", JOptionPane.OK_OPTION);
 			}
 		}
 		else if(buttonClicked == resetMenuItem) //handle reset button click
@@ -617,7 +760,9 @@ public class EmulatorGUI extends JFrame implements ActionListener, ChangeListene
 				{
 					emulator.resetEmulator();
 					emulator.reloadS1Records();
+					timeTravel.restart();
 					UpdateCPUValues();
+					UpdateSwitchValues();
 				} 
 				catch (Exception ex) 
 				{
@@ -659,67 +804,214 @@ public class EmulatorGUI extends JFrame implements ActionListener, ChangeListene
 				JOptionPane.showMessageDialog(this, "A valid s-record file must be loaded before a step can be executed.", "Execute Step Failed", JOptionPane.OK_OPTION);
 			}
 		}
+		else if(buttonClicked == reverseStepMenuItem) //handle reverse step menu click
+		{
+			if(isFileLoaded && !runLoop.isRunning())
+			{
+				//rebuild the state before the last instruction from the nearest checkpoint
+				try
+				{
+					if(!timeTravel.stepBack())
+					{
+						JOptionPane.showMessageDialog(this, "Already at the start of the recorded history.", "Reverse Step", JOptionPane.INFORMATION_MESSAGE);
+					}
+					
+					UpdateCPUValues();
+					UpdateSwitchValues();
+				}
+				catch (Exception ex) 
+				{
+					JOptionPane.showMessageDialog(this, ex.getMessage(), "Reverse Step Failed", JOptionPane.OK_OPTION);
+				}
+			}
+		}
+		else if(buttonClicked == reverseContinueMenuItem) //handle reverse continue menu click
+		{
+			if(isFileLoaded && !runLoop.isRunning())
+			{
+				//ask where to stop, defaulting to the last visit of the current instruction
+				String address = JOptionPane.showInputDialog(this, "Run backwards to address:", String.format("0x%04X", emulator.getCpu().getPC() & 0xffff));
+				
+				if(address != null)
+				{
+					try
+					{
+						final int target = Integer.decode(address.trim());
+						
+						StopCondition atTarget = new StopCondition()
+						{
+							public boolean shouldStop(Freescale6808Emulator stopped)
+							{
+								return (stopped.getCpu().getPC() & 0xffff) == target;
+							}
+						};
+						
+						if(!timeTravel.reverseContinue(atTarget))
+						{
+							JOptionPane.showMessageDialog(this, "The address was not reached in the recorded history.", "Reverse Continue", JOptionPane.INFORMATION_MESSAGE);
+						}
+						
+						UpdateCPUValues();
+						UpdateSwitchValues();
+					}
+					catch (Exception ex) 
+					{
+						JOptionPane.showMessageDialog(this, ex.getMessage(), "Reverse Continue Failed", JOptionPane.OK_OPTION);
+					}
+				}
+			}
+		}
+		else if(buttonClicked == breakpointMenuItem) //handle toggle breakpoint menu click
+		{
+			//ask where, defaulting to the current instruction
+			String address = JOptionPane.showInputDialog(this, "Toggle breakpoint at address:", String.format("0x%04X", emulator.getCpu().getPC() & 0xffff));
+			
+			if(address != null)
+			{
+				try
+				{
+					int target = Integer.decode(address.trim());
+					
+					if(!breakpoints.removeBreakpoint(target))
+					{
+						breakpoints.setBreakpoint(target);
+					}
+					
+					//with nothing left to stop at, run goes back to the unchecked loop
+					emulator.setBreakpoints(breakpoints.isEmpty() ? null : breakpoints);
+				}
+				catch (NumberFormatException ex) 
+				{
+					JOptionPane.showMessageDialog(this, "\"" + address + "\" is not an address.", "Toggle Breakpoint Failed", JOptionPane.OK_OPTION);
+				}
+			}
+		}
+		else if(buttonClicked == watchpointMenuItem) //handle watch memory menu click
+		{
+			String address = JOptionPane.showInputDialog(this, "Watch memory address:", "0x0080");
+			
+			if(address != null)
+			{
+				try
+				{
+					int target = Integer.decode(address.trim());
+					String[] choices = {"Reads", "Writes", "Reads and Writes", "Stop Watching"};
+					int choice = JOptionPane.showOptionDialog(this, String.format("Stop running on which accesses to $%04X?", target & 0xffff), "Watch Memory",
+							JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, choices, choices[1]);
+					
+					if(choice >= 0)
+					{
+						breakpoints.setWatchpoint(target, choice == 0 || choice == 2, choice == 1 || choice == 2);
+						emulator.setBreakpoints(breakpoints.isEmpty() ? null : breakpoints);
+					}
+				}
+				catch (NumberFormatException ex) 
+				{
+					JOptionPane.showMessageDialog(this, "\"" + address + "\" is not an address.", "Watch Memory Failed", JOptionPane.OK_OPTION);
+				}
+			}
+		}
+		else if(buttonClicked == conditionalBreakpointMenuItem) //handle conditional breakpoint menu click
+		{
+			String address = JOptionPane.showInputDialog(this, "Breakpoint at address:", String.format("0x%04X", emulator.getCpu().getPC() & 0xffff));
+			String condition = address == null ? null : JOptionPane.showInputDialog(this, "Stop only if, e.g. A == $FF && mem[$80] > 10:", "");
+			
+			if(condition != null)
+			{
+				//the condition is compiled once here, not parsed each time the breakpoint is reached
+				try
+				{
+					breakpoints.setBreakpoint(Integer.decode(address.trim()), ExpressionCompiler.compile(condition));
+					emulator.setBreakpoints(breakpoints);
+				}
+				catch (Exception ex) 
+				{
+					JOptionPane.showMessageDialog(this, ex.getMessage(), "Conditional Breakpoint Failed", JOptionPane.OK_OPTION);
+				}
+			}
+		}
+		else if(buttonClicked == addWatchMenuItem) //handle add watch expression menu click
+		{
+			String expression = JOptionPane.showInputDialog(this, "Watch expression, e.g. mem[$80] + mem[$81]:", "");
+			
+			if(expression != null)
+			{
+				try
+				{
+					watchExpressions.add(ExpressionCompiler.compile(expression));
+					UpdateCPUValues();
+				}
+				catch (Exception ex) 
+				{
+					JOptionPane.showMessageDialog(this, ex.getMessage(), "Add Watch Expression Failed", JOptionPane.OK_OPTION);
+				}
+			}
+		}
+		else if(buttonClicked == clearWatchesMenuItem) //handle clear watch expressions menu click
+		{
+			watchExpressions.clear();
+			UpdateCPUValues();
+		}
+		else if(buttonClicked == unpacedMenuItem) //handle unpaced clock menu click
+		{
+			runLoop.setThrottle(null);
+		}
+		else if(buttonClicked == fourMegahertzMenuItem) //handle 4 MHz clock menu click
+		{
+			runLoop.setThrottle(new Throttle(Throttle.BUS_4MHZ));
+		}
+		else if(buttonClicked == eightMegahertzMenuItem) //handle 8 MHz clock menu click
+		{
+			runLoop.setThrottle(new Throttle(Throttle.BUS_8MHZ));
+		}
+		else if(buttonClicked == listBreakpointsMenuItem) //handle list breakpoints menu click
+		{
+			String list = "";
+			
+			for(Breakpoints.KIND kind : Breakpoints.KIND.values())
+			{
+				for(int address : breakpoints.getAddresses(kind))
+				{
+					Object condition = kind == Breakpoints.KIND.EXECUTE ? breakpoints.getCondition(address) : null;
+					list += String.format("%s $%04X: %d hits%s\n", kind.name(), address, breakpoints.getHitCount(kind, address), condition == null ? "" : " if " + condition);
+				}
+			}
+			
+			JOptionPane.showMessageDialog(this, breakpoints.isEmpty() ? "No breakpoints or watchpoints are set." : list, "Breakpoints", JOptionPane.INFORMATION_MESSAGE);
+		}
+		else if(buttonClicked == clearBreakpointsMenuItem) //handle clear breakpoints menu click
+		{
+			breakpoints.clear();
+			emulator.setBreakpoints(null);
+		}
 		else if(buttonClicked == switchOneBox) //handle switch one button click
 		{
 			//0 or 1 to indicate switch one status
-			emulator.setSwitchData(switchOneBox.isSelected(), SWITCH_BIT.SWITCH_ONE);
-			UpdateCPUValues();
+			SetSwitch(switchOneBox.isSelected(), SWITCH_BIT.SWITCH_ONE);
 		}
 		else if(buttonClicked == switchTwoBox) //handle switch two button click
 		{
 			//0 or 1 to indicate switch two status
-			emulator.setSwitchData(switchTwoBox.isSelected(), SWITCH_BIT.SWITCH_TWO);
-			UpdateCPUValues();
+			SetSwitch(switchTwoBox.isSelected(), SWITCH_BIT.SWITCH_TWO);
 		}
 		else if(buttonClicked == switchThreeBox) //handle switch three button click
 		{
 			//0 or 1 to indicate switch three status
-			emulator.setSwitchData(switchThreeBox.isSelected(), SWITCH_BIT.SWITCH_THREE);
-			UpdateCPUValues();
+			SetSwitch(switchThreeBox.isSelected(), SWITCH_BIT.SWITCH_THREE);
 		}
 		else if(buttonClicked == switchFourBox) //handle switch four button click
 		{
 			//0 or 1 to indicate switch four status
-			emulator.setSwitchData(switchFourBox.isSelected(), SWITCH_BIT.SWITCH_FOUR);
-			UpdateCPUValues();
+			SetSwitch(switchFourBox.isSelected(), SWITCH_BIT.SWITCH_FOUR);
 		}
 		else if(buttonClicked == runButton)
 		{
 			if (isFileLoaded)
 			{
-				isProgramRunning.set(true);
-				stepButton.setEnabled(false);
-				runButton.setEnabled(false);
-				resetMenuItem.setEnabled(false);
-				loadMenuItem.setEnabled(false);
-				stopButton.setEnabled(true);
+				//run in large batches on the run loop's thread, showing its latest snapshot each frame
+				SetRunningControls(true);
+				runLoop.start();
 				runTimer.start();
-				
-				SwingWorker worker = new SwingWorker()
-				{
-					public Object doInBackground()
-					{					
-						while(isProgramRunning.get() == true)
-						{
-							try
-							{
-								emulator.singleStep();
-								UpdateCPUValues();
-							}
-							catch (Exception ex) 
-							{
-								errorMessage = ex.getMessage();
-								executeError.set(true);
-								stopButton.setEnabled(false);
-								isProgramRunning.set(false);
-							}
-						}
-						
-						return new Object();
-					}
-				};
-				
-				worker.execute();
 			}
 			else
 			{
@@ -728,44 +1020,127 @@ public class EmulatorGUI extends JFrame implements ActionListener, ChangeListene
 		}
 		else if(buttonClicked == stopButton)
 		{
-			isProgramRunning.set(false);
-			runButton.setEnabled(true);
-			stepButton.setEnabled(true);
-			resetMenuItem.setEnabled(true);
-			loadMenuItem.setEnabled(true);
-			stopButton.setEnabled(false);
+			//the stop is queued for the run loop, which stops within a batch, after which the emulator is safe to read here
+			try
+			{
+				runLoop.stop();
+			}
+			catch (InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+			}
+			
 			runTimer.stop();
+			SetRunningControls(false);
 			UpdateCPUValues();
 		}
 		else if(buttonClicked == runTimer)
 		{
-			UpdateCPUValues();
-			if (executeError.get() == true)
+			MachineSnapshot snapshot = runLoop.getSnapshot();
+			boolean isStopped = !runLoop.isRunning();
+			
+			if (snapshot != shownSnapshot)
+			{
+				RenderSnapshot(snapshot);
+			}
+			
+			if (isStopped)
 			{
-				isProgramRunning.set(false);
-				runButton.setEnabled(true);
-				stepButton.setEnabled(true);
-				resetMenuItem.setEnabled(true);
-				loadMenuItem.setEnabled(true);
-				stopButton.setEnabled(false);
+				//inputs queued after the last batch are applied here, now the loop has finished
+				try
+				{
+					runLoop.stop();
+				}
+				catch (InterruptedException ex)
+				{
+					Thread.currentThread().interrupt();
+				}
+				
 				runTimer.stop();
+				SetRunningControls(false);
 				UpdateCPUValues();
 				
-				JOptionPane.showMessageDialog(this, errorMessage, "Execute Step Failed", JOptionPane.OK_OPTION);
-				
-				handleEmulatorError();
+				if (runLoop.getFault() != null)
+				{
+					JOptionPane.showMessageDialog(this, runLoop.getFault().getMessage(), "Execute Step Failed", JOptionPane.OK_OPTION);
+					
+					handleEmulatorError();
+				}
+				else if (runLoop.isBreakpointHit())
+				{
+					int address = breakpoints.getHitAddress();
+					long hits = breakpoints.getHitCount(breakpoints.getHitKind(), address);
+					String message = breakpoints.getHitKind() == Breakpoints.KIND.EXECUTE
+							? String.format("Stopped at breakpoint $%04X, hit %d times.", address, hits)
+							: String.format("Stopped after a %s of watched address $%04X, hit %d times.", breakpoints.getHitKind() == Breakpoints.KIND.READ ? "read" : "write", address, hits);
+					
+					JOptionPane.showMessageDialog(this, message, "Breakpoint", JOptionPane.INFORMATION_MESSAGE);
+				}
 			}
 		}
 	}
 	
+	
+	/*
+	 * Method Name: SetSwitch
+	 * Description: This method changes a switch. While the program runs the change is queued for the run loop, which applies it between batches.
+	 * Parameters
+	 * 	boolean state = the new state of the switch
+	 * 	SWITCH_BIT switchBit = the switch
+	 * Return: No return value.
+	 */
+	private void SetSwitch(boolean state, SWITCH_BIT switchBit)
+	{
+		if(runLoop.isRunning())
+		{
+			if(!runLoop.getCommands().offerSwitch(switchBit, state))
+			{
+				Toolkit.getDefaultToolkit().beep();
+			}
+		}
+		else
+		{
+			emulator.setSwitchData(state, switchBit);
+			UpdateCPUValues();
+		}
+	}
+	
+	
+	/*
+	 * Method Name: SetRunningControls
+	 * Description: This method enables the controls that may only be used while the program is stopped, or the stop button while it runs.
+	 * Parameters
+	 * 	boolean isRunning = whether the program is running
+	 * Return: No return value.
+	 */
+	private void SetRunningControls(boolean isRunning)
+	{
+		runButton.setEnabled(!isRunning);
+		stepButton.setEnabled(!isRunning);
+		resetMenuItem.setEnabled(!isRunning);
+		loadMenuItem.setEnabled(!isRunning);
+		loadBinaryMenuItem.setEnabled(!isRunning);
+		reverseStepMenuItem.setEnabled(!isRunning);
+		reverseContinueMenuItem.setEnabled(!isRunning);
+		breakpointMenuItem.setEnabled(!isRunning);
+		conditionalBreakpointMenuItem.setEnabled(!isRunning);
+		watchpointMenuItem.setEnabled(!isRunning);
+		clearBreakpointsMenuItem.setEnabled(!isRunning);
+		unpacedMenuItem.setEnabled(!isRunning);
+		fourMegahertzMenuItem.setEnabled(!isRunning);
+		eightMegahertzMenuItem.setEnabled(!isRunning);
+		stopButton.setEnabled(isRunning);
+	}
+	
 	private void handleEmulatorError() 
 	{
-		executeError.set(false);
 		try 
 		{
 			emulator.resetEmulator();
 			emulator.reloadS1Records();
-			UpdateCPUValues();	
+			timeTravel.restart();
+			UpdateCPUValues();
+			UpdateSwitchValues();
 		} 
 		catch (Exception ex)
 		{
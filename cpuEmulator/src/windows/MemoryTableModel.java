@@ -0,0 +1,228 @@
+/*
+ * Filename:		MemoryTableModel.java
+ * Package:			windows
+ * Project:			padA2
+ * Date:			October 19, 2026
+ * Description:		Contains the MemoryTableModel class
+ */
+
+
+
+package windows;
+
+import javax.swing.table.AbstractTableModel;
+
+import emulator.Freescale6808Emulator;
+import emulator.MachineSnapshot;
+
+
+
+/*
+ * Class Name:		MemoryTableModel
+ * Description:		A table model showing memory as rows of 16 bytes, for the GUI's memory view.  A JTable
+ * 					only asks for the cells it paints, so only the rows in view are ever formatted, however
+ * 					much memory the view covers.
+ *
+ * 					The model keeps a copy of memory as last shown, taken from MachineSnapshots.  refresh()
+ * 					asks the new snapshot which 256 byte pages it does not share with the last one, copies
+ * 					only those and only tells the table about their rows, so a refresh while the machine
+ * 					runs repaints a handful of rows rather than the view.  All calls must be made on the
+ * 					event dispatch thread.
+ */
+public class MemoryTableModel extends AbstractTableModel
+{
+
+	public final static int BYTES_PER_ROW = 16;
+
+	private final static long serialVersionUID = 1L;
+	private final static int PAGE_SIZE = MachineSnapshot.PAGE_SIZE;
+	private final static int ROWS_PER_PAGE = PAGE_SIZE / BYTES_PER_ROW;
+	private final static String[] HEX = buildHexTable();
+
+	private final byte[] shown;
+	private MachineSnapshot last;
+	private int rowCount;
+
+
+
+
+
+
+	/*
+	 * Method Name:		MemoryTableModel
+	 * Description:		Constructor, the model starts showing all zero memory
+	 * Parameters:		int limit: The number of bytes to show from address 0
+	 * Return:			None
+	 */
+	public MemoryTableModel(int limit)
+	{
+		shown = new byte[Freescale6808Emulator.MAX_ADDRESS_SPACE];
+		last = null;
+		rowCount = rowsFor(limit);
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		buildHexTable
+	 * Description:		Builds the two digit hex text of every byte value, so cells are never formatted
+	 * Parameters:		None
+	 * Return:			The text of each value, indexed by the unsigned value
+	 */
+	private static String[] buildHexTable()
+	{
+		String[] hex = new String[256];
+
+		for (int i = 0; i < hex.length; i++)
+		{
+			hex[i] = String.format("%02X", i);
+		}
+
+		return hex;
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		rowsFor
+	 * Description:		Works out how many rows cover a number of bytes
+	 * Parameters:		int limit: The number of bytes
+	 * Return:			The row count
+	 */
+	private static int rowsFor(int limit)
+	{
+		int bytes = Math.max(0, Math.min(limit, Freescale6808Emulator.MAX_ADDRESS_SPACE));
+		return (bytes + BYTES_PER_ROW - 1) / BYTES_PER_ROW;
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		setLimit
+	 * Description:		Changes how much memory is shown
+	 * Parameters:		int limit: The number of bytes to show from address 0
+	 * Return:			None
+	 */
+	public void setLimit(int limit)
+	{
+		int rows = rowsFor(limit);
+
+		if (rows != rowCount)
+		{
+			rowCount = rows;
+			fireTableDataChanged();
+		}
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		refresh
+	 * Description:		Brings the model up to date with a snapshot, updating only the rows of changed pages.
+	 * 					Pages beyond the rows shown are copied too, so a larger limit shows them correctly
+	 * Parameters:		MachineSnapshot snapshot: The snapshot to show
+	 * Return:			None
+	 */
+	public void refresh(MachineSnapshot snapshot)
+	{
+		for (int page = 0; page < MachineSnapshot.PAGE_COUNT; page++)
+		{
+			if (snapshot.isPageChanged(last, page))
+			{
+				int firstRow = page * ROWS_PER_PAGE;
+				snapshot.copyPage(page, shown, page * PAGE_SIZE);
+
+				if (firstRow < rowCount)
+				{
+					fireTableRowsUpdated(firstRow, Math.min(rowCount, firstRow + ROWS_PER_PAGE) - 1);
+				}
+			}
+		}
+
+		last = snapshot;
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		getRowCount
+	 * Description:		Gets the number of rows shown
+	 * Parameters:		None
+	 * Return:			The row count
+	 */
+	public int getRowCount()
+	{
+		return rowCount;
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		getColumnCount
+	 * Description:		Gets the number of columns, the address then one per byte
+	 * Parameters:		None
+	 * Return:			The column count
+	 */
+	public int getColumnCount()
+	{
+		return BYTES_PER_ROW + 1;
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		getColumnName
+	 * Description:		Gets a column heading, the low digit of the addresses in the column
+	 * Parameters:		int column: The column
+	 * Return:			The heading
+	 */
+	public String getColumnName(int column)
+	{
+		return column == 0 ? "Address" : Integer.toHexString(column - 1).toUpperCase();
+	}
+
+
+
+
+
+
+	/*
+	 * Method Name:		getValueAt
+	 * Description:		Gets the text of a cell, asked for by the table only for cells it paints
+	 * Parameters:		int row: The row
+	 * 					int column: The column
+	 * Return:			The address or byte as hex
+	 */
+	public Object getValueAt(int row, int column)
+	{
+		int address = row * BYTES_PER_ROW;
+
+		if (column == 0)
+		{
+			return HEX[address >>> 8] + HEX[address & 0xff];
+		}
+
+		return HEX[shown[address + column - 1] & 0xff];
+	}
+}